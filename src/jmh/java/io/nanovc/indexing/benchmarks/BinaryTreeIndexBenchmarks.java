@@ -0,0 +1,23 @@
+package io.nanovc.indexing.benchmarks;
+
+import io.nanovc.indexing.Index;
+import io.nanovc.indexing.examples.x.X;
+import io.nanovc.indexing.examples.x.XBinaryTreeIndex1D;
+
+/**
+ * Benchmarks the {@link XBinaryTreeIndex1D binary tree index}.
+ */
+public class BinaryTreeIndexBenchmarks extends IndexBenchmarks
+{
+    @Override
+    protected Index<?> createIndex()
+    {
+        return new XBinaryTreeIndex1D();
+    }
+
+    @Override
+    protected Object createItem(double[] coordinates)
+    {
+        return new X((int) coordinates[0]);
+    }
+}
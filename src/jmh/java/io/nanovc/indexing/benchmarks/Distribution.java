@@ -0,0 +1,49 @@
+package io.nanovc.indexing.benchmarks;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * The distributions of the random items that the indexes are benchmarked with.
+ */
+public enum Distribution
+{
+    /**
+     * The items are spread evenly across the range.
+     */
+    Linear,
+
+    /**
+     * The items are concentrated around the middle of the range.
+     */
+    Gaussian,
+
+    /**
+     * The items are concentrated around a few random points in the range.
+     */
+    Clustered;
+
+    /**
+     * The number of clusters for the {@link #Clustered} distribution.
+     */
+    public static final int CLUSTER_COUNT = 10;
+
+    /**
+     * Gets the next random coordinate for this distribution.
+     * The coordinate is clamped to the range so that bounded indexes can hold it.
+     *
+     * @param randomGenerator The random generator to use.
+     * @param range           The range of the coordinates. Coordinates are between -range and +range.
+     * @param clusterCentres  The centres of the clusters for the {@link #Clustered} distribution.
+     * @return The next random coordinate.
+     */
+    public double nextCoordinate(RandomGenerator randomGenerator, double range, double[] clusterCentres)
+    {
+        double coordinate = switch (this)
+        {
+            case Linear -> randomGenerator.nextDouble(-range, range);
+            case Gaussian -> randomGenerator.nextGaussian(0d, range / 3);
+            case Clustered -> randomGenerator.nextGaussian(clusterCentres[randomGenerator.nextInt(clusterCentres.length)], range / 100);
+        };
+        return Math.clamp(coordinate, -range, range);
+    }
+}
@@ -0,0 +1,30 @@
+package io.nanovc.indexing.benchmarks;
+
+import io.nanovc.indexing.Index;
+import io.nanovc.indexing.examples.x.X;
+import io.nanovc.indexing.examples.x.XGridIndex1D;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Benchmarks the {@link XGridIndex1D grid index}.
+ */
+public class GridIndexBenchmarks extends IndexBenchmarks
+{
+    /**
+     * The number of divisions of the range.
+     */
+    @Param({"2", "10", "100"})
+    public int divisions;
+
+    @Override
+    protected Index<?> createIndex()
+    {
+        return new XGridIndex1D(new X((int) -RANGE), new X((int) RANGE), this.divisions);
+    }
+
+    @Override
+    protected Object createItem(double[] coordinates)
+    {
+        return new X((int) coordinates[0]);
+    }
+}
@@ -0,0 +1,36 @@
+package io.nanovc.indexing.benchmarks;
+
+import io.nanovc.indexing.Index;
+import io.nanovc.indexing.examples.x.X;
+import io.nanovc.indexing.examples.x.XHierarchicalGridIndex1D;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Benchmarks the {@link XHierarchicalGridIndex1D hierarchical grid index}.
+ */
+public class HierarchicalGridIndexBenchmarks extends IndexBenchmarks
+{
+    /**
+     * The number of divisions of the range.
+     */
+    @Param({"2", "10", "100"})
+    public int divisions;
+
+    /**
+     * The number of items in a cell before it is split into a sub-grid.
+     */
+    @Param({"1", "10"})
+    public int maxItemThreshold;
+
+    @Override
+    protected Index<?> createIndex()
+    {
+        return new XHierarchicalGridIndex1D(new X((int) -RANGE), new X((int) RANGE), this.divisions, this.maxItemThreshold, 10);
+    }
+
+    @Override
+    protected Object createItem(double[] coordinates)
+    {
+        return new X((int) coordinates[0]);
+    }
+}
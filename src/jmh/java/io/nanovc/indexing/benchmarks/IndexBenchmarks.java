@@ -0,0 +1,260 @@
+package io.nanovc.indexing.benchmarks;
+
+import io.nanovc.indexing.Index;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import java.util.concurrent.TimeUnit;
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGeneratorFactory;
+
+/**
+ * The JMH benchmarks that every {@link Index} is measured with.
+ * Each index has a sub-class that creates the index and its items.
+ * <p>
+ * Adding and indexing are measured as single shots of the whole data set on a fresh index, once per iteration.
+ * Searching is sampled per query on an index that was filled and indexed for the trial.
+ * <p>
+ * Run them with {@link IndexBenchmarksRunner} so that the results are written for the performance analysis.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public abstract class IndexBenchmarks
+{
+    /**
+     * The range of the coordinates of the items. Coordinates are between -RANGE and +RANGE.
+     */
+    public static final double RANGE = 1_000_000.0;
+
+    /**
+     * The number of queries to cycle through when searching.
+     */
+    public static final int QUERY_COUNT = 10_000;
+
+    /**
+     * The number of items in the index.
+     */
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    /**
+     * The distribution of the items in the index.
+     */
+    @Param({"Linear", "Gaussian", "Clustered"})
+    public Distribution distribution;
+
+    /**
+     * The items to add to the index.
+     */
+    protected Object[] items;
+
+    /**
+     * The items to search for.
+     */
+    protected Object[] queries;
+
+    /**
+     * The index of the next query to search for.
+     */
+    protected int nextQueryIndex;
+
+    /**
+     * The name of the benchmark method that is being run.
+     * This decides how the index under test is prepared.
+     */
+    protected String benchmarkMethodName;
+
+    /**
+     * The index that is being measured.
+     */
+    protected Index<Object> indexUnderTest;
+
+    /**
+     * Creates the items and queries for the trial.
+     *
+     * @param benchmarkParams The parameters of the benchmark that is being run.
+     */
+    @Setup(Level.Trial)
+    public void setupTrial(BenchmarkParams benchmarkParams)
+    {
+        // Work out which benchmark method we are preparing for:
+        String benchmarkName = benchmarkParams.getBenchmark();
+        this.benchmarkMethodName = benchmarkName.substring(benchmarkName.lastIndexOf('.') + 1);
+
+        // Create the random number generator so that every index gets the same items:
+        RandomGenerator randomGenerator = RandomGeneratorFactory.getDefault().create(1234L);
+
+        // Place the clusters in case we need them:
+        double[] clusterCentres = new double[Distribution.CLUSTER_COUNT];
+        for (int i = 0; i < clusterCentres.length; i++)
+        {
+            clusterCentres[i] = randomGenerator.nextDouble(-RANGE, RANGE);
+        }
+
+        // Create the items:
+        this.items = new Object[this.size];
+        for (int i = 0; i < this.items.length; i++)
+        {
+            this.items[i] = createRandomItem(randomGenerator, clusterCentres);
+        }
+
+        // Create the queries with the same distribution as the items:
+        this.queries = new Object[QUERY_COUNT];
+        for (int i = 0; i < this.queries.length; i++)
+        {
+            this.queries[i] = createRandomItem(randomGenerator, clusterCentres);
+        }
+        this.nextQueryIndex = 0;
+        this.indexUnderTest = null;
+    }
+
+    /**
+     * Prepares the index under test for the next iteration of the benchmark.
+     */
+    @Setup(Level.Iteration)
+    public void setupIteration()
+    {
+        switch (this.benchmarkMethodName)
+        {
+            case "add" -> this.indexUnderTest = createEmptyIndex();
+            case "index" -> this.indexUnderTest = createFilledIndex();
+            case "searchNearest" ->
+            {
+                // Only fill the index once for the trial because searching doesn't change it:
+                if (this.indexUnderTest == null)
+                {
+                    this.indexUnderTest = createFilledIndex();
+                    this.indexUnderTest.index();
+                }
+            }
+            default -> throw new IllegalStateException("There is no setup for the benchmark method " + this.benchmarkMethodName);
+        }
+    }
+
+    /**
+     * Measures adding all the items to a fresh index.
+     *
+     * @return The index so that the work is not eliminated.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 20)
+    public Index<Object> add()
+    {
+        for (Object item : this.items)
+        {
+            this.indexUnderTest.add(item);
+        }
+        return this.indexUnderTest;
+    }
+
+    /**
+     * Measures indexing a freshly filled index.
+     *
+     * @return The index so that the work is not eliminated.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 20)
+    public Index<Object> index()
+    {
+        this.indexUnderTest.index();
+        return this.indexUnderTest;
+    }
+
+    /**
+     * Measures searching for the nearest item to the next query.
+     *
+     * @return The nearest item so that the work is not eliminated.
+     */
+    @Benchmark
+    public Object searchNearest()
+    {
+        // Get the next query:
+        Object query = this.queries[this.nextQueryIndex];
+        this.nextQueryIndex = (this.nextQueryIndex + 1) % this.queries.length;
+
+        return this.indexUnderTest.searchNearest(query);
+    }
+
+    /**
+     * Creates a new empty index of the specific type.
+     *
+     * @return A new empty index of the specific type.
+     */
+    protected Index<Object> createEmptyIndex()
+    {
+        //noinspection unchecked
+        return (Index<Object>) createIndex();
+    }
+
+    /**
+     * Creates a new index of the specific type with all the items added.
+     *
+     * @return A new index of the specific type with all the items added.
+     */
+    protected Index<Object> createFilledIndex()
+    {
+        Index<Object> index = createEmptyIndex();
+        for (Object item : this.items)
+        {
+            index.add(item);
+        }
+        return index;
+    }
+
+    /**
+     * Creates a random item with the distribution of the benchmark.
+     *
+     * @param randomGenerator The random generator to use.
+     * @param clusterCentres  The centres of the clusters for the {@link Distribution#Clustered} distribution.
+     * @return A new random item.
+     */
+    protected Object createRandomItem(RandomGenerator randomGenerator, double[] clusterCentres)
+    {
+        double[] coordinates = new double[getDimensions()];
+        for (int dimension = 0; dimension < coordinates.length; dimension++)
+        {
+            coordinates[dimension] = this.distribution.nextCoordinate(randomGenerator, RANGE, clusterCentres);
+        }
+        return createItem(coordinates);
+    }
+
+    /**
+     * Gets the number of dimensions of the items in the index.
+     * Indexes that support more dimensions make this a benchmark parameter.
+     *
+     * @return The number of dimensions of the items in the index.
+     */
+    protected int getDimensions()
+    {
+        return 1;
+    }
+
+
+    //#region Implementation Specific Methods
+
+    /**
+     * A factory method to create an index of the specific type.
+     * The index must hold items between -{@link #RANGE} and +{@link #RANGE} in every dimension.
+     *
+     * @return A new index of the specific type.
+     */
+    protected abstract Index<?> createIndex();
+
+    /**
+     * A factory method to create an item for the specific type of index.
+     *
+     * @param coordinates The coordinates of the item, one for each of the {@link #getDimensions() dimensions}.
+     * @return A new item for the specific type of index.
+     */
+    protected abstract Object createItem(double[] coordinates);
+
+    //#endregion Implementation Specific Methods
+}
@@ -0,0 +1,278 @@
+package io.nanovc.indexing.benchmarks;
+
+import io.nanovc.indexing.TimeHistogram;
+import io.nanovc.indexing.examples.x.XIndex1DTests;
+import io.nanovc.indexing.examples.x.XIndex1DTests.PerformanceData;
+import io.nanovc.indexing.examples.x.XIndex1DTests.PerformanceStats;
+import org.junit.jupiter.api.TestInfo;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.util.Statistics;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/**
+ * Runs the {@link IndexBenchmarks} with the GC profiler
+ * and writes the results to the performance analysis data folder.
+ * <p>
+ * The results are written in the same CSV shape as the performance tests in {@link XIndex1DTests}
+ * so that the performance analysis can read them:
+ * a stats file for each benchmark class and distribution with one row for each combination of parameters,
+ * and add and search histograms of the sampled durations.
+ * <p>
+ * Any JMH command line options are passed through.
+ */
+public class IndexBenchmarksRunner
+{
+    /**
+     * Runs the benchmarks and writes the results.
+     *
+     * @param args The JMH command line options. If no benchmarks are included then all the index benchmarks are run.
+     * @throws Exception If the benchmarks could not be run or the results could not be written.
+     */
+    public static void main(String[] args) throws Exception
+    {
+        // Get the options from the command line:
+        CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+
+        // Always profile the allocations:
+        ChainedOptionsBuilder optionsBuilder = new OptionsBuilder()
+            .parent(commandLineOptions)
+            .addProfiler(GCProfiler.class);
+
+        // Run all the index benchmarks if none were chosen:
+        if (commandLineOptions.getIncludes().isEmpty())
+        {
+            optionsBuilder.include(IndexBenchmarks.class.getPackageName() + ".*Benchmarks");
+        }
+
+        // Run the benchmarks:
+        Collection<RunResult> runResults = new Runner(optionsBuilder.build()).run();
+
+        // Write the results for analysis:
+        writePerformanceCSVData(XIndex1DTests.PERFORMANCE_DATA_ROOT_PATH, LocalDateTime.now(), runResults);
+    }
+
+    /**
+     * Writes the results of the benchmarks in the CSV shape of the performance analysis.
+     *
+     * @param rootPath   The root path where to write results to.
+     * @param timestamp  The timestamp for this run.
+     * @param runResults The results of the benchmarks.
+     * @throws IOException If the results could not be written.
+     */
+    public static void writePerformanceCSVData(Path rootPath, LocalDateTime timestamp, Collection<RunResult> runResults) throws IOException
+    {
+        // Group the results of the benchmark methods that were run with the same parameters:
+        Map<String, Map<String, RunResult>> runResultsByParameters = new LinkedHashMap<>();
+        for (RunResult runResult : runResults)
+        {
+            // Get the parameters of the benchmark:
+            BenchmarkParams benchmarkParams = runResult.getParams();
+            String benchmarkName = benchmarkParams.getBenchmark();
+            String benchmarkClassName = benchmarkName.substring(0, benchmarkName.lastIndexOf('.'));
+            String benchmarkMethodName = benchmarkName.substring(benchmarkName.lastIndexOf('.') + 1);
+
+            // Get the key for the parameters:
+            StringBuilder parametersKey = new StringBuilder(benchmarkClassName);
+            for (String parameterName : benchmarkParams.getParamsKeys())
+            {
+                parametersKey.append(',').append(parameterName).append('=').append(benchmarkParams.getParam(parameterName));
+            }
+
+            // Save the result of the benchmark method:
+            runResultsByParameters.computeIfAbsent(parametersKey.toString(), key -> new LinkedHashMap<>()).put(benchmarkMethodName, runResult);
+        }
+
+        // Group the performance data by the file path that we need to write to:
+        String timestampString = timestamp.format(DateTimeFormatter.ofPattern("yyyy-MM-dd-HH-mm-ss"));
+        Map<Path, List<PerformanceData>> performanceDataByFilePath = new LinkedHashMap<>();
+        for (Map<String, RunResult> runResultsByMethod : runResultsByParameters.values())
+        {
+            // Get the parameters from any of the benchmark methods:
+            BenchmarkParams benchmarkParams = runResultsByMethod.values().iterator().next().getParams();
+            String benchmarkName = benchmarkParams.getBenchmark();
+            Class<?> benchmarkClass;
+            try
+            {
+                benchmarkClass = Class.forName(benchmarkName.substring(0, benchmarkName.lastIndexOf('.')));
+            }
+            catch (ClassNotFoundException e)
+            {
+                throw new IllegalStateException("Could not find the benchmark class for " + benchmarkName, e);
+            }
+
+            // Get the path to write the performance data to:
+            String distribution = benchmarkParams.getParam("distribution");
+            Path filePath = rootPath
+                .resolve(benchmarkClass.getSimpleName())
+                .resolve(String.format("%s_benchmark_Random_%s.stats.csv", timestampString, distribution));
+            List<PerformanceData> group = performanceDataByFilePath.computeIfAbsent(filePath, path -> new ArrayList<>());
+
+            // Convert the results:
+            group.add(createPerformanceData(benchmarkClass, group.size() + 1, benchmarkParams, runResultsByMethod));
+        }
+
+        // Write each group to its CSV files:
+        for (Map.Entry<Path, List<PerformanceData>> entry : performanceDataByFilePath.entrySet())
+        {
+            // Make sure the path exists:
+            Files.createDirectories(entry.getKey().getParent());
+
+            // Write the performance data:
+            XIndex1DTests.writePerformanceStatsToCSV(entry.getKey(), timestamp, entry.getValue());
+
+            // Write the histogram data:
+            XIndex1DTests.writePerformanceHistogramsToCSV(entry.getKey(), timestamp, entry.getValue());
+        }
+    }
+
+    /**
+     * Converts the results of the benchmark methods that were run with the same parameters into performance data.
+     *
+     * @param benchmarkClass     The class of the benchmarks that were run.
+     * @param number             The number of this combination of parameters in its file.
+     * @param benchmarkParams    The parameters that the benchmarks were run with.
+     * @param runResultsByMethod The results of each benchmark method, keyed by the name of the method.
+     * @return The performance data for the results.
+     */
+    private static PerformanceData createPerformanceData(Class<?> benchmarkClass, int number, BenchmarkParams benchmarkParams, Map<String, RunResult> runResultsByMethod)
+    {
+        // Get the results of each benchmark method:
+        RunResult addResult = runResultsByMethod.get("add");
+        RunResult indexResult = runResultsByMethod.get("index");
+        RunResult searchResult = runResultsByMethod.get("searchNearest");
+
+        // Use the parameters of the benchmark as the context:
+        Map<String, Object> context = new LinkedHashMap<>();
+        context.put("Scenario", "Benchmark");
+        for (String parameterName : benchmarkParams.getParamsKeys())
+        {
+            context.put(Character.toUpperCase(parameterName.charAt(0)) + parameterName.substring(1), benchmarkParams.getParam(parameterName));
+        }
+
+        // Add the measurements that the performance tests don't have:
+        context.put("Index Duration Nanos", indexResult == null ? "" : Math.round(indexResult.getPrimaryResult().getScore()));
+        context.put("Add Allocated Bytes", getAllocatedBytesPerOperation(addResult));
+        context.put("Search Allocated Bytes", getAllocatedBytesPerOperation(searchResult));
+
+        // Create the histograms of the sampled durations:
+        TimeHistogram addHistogram = createHistogram(addResult);
+        TimeHistogram searchHistogram = createHistogram(searchResult);
+
+        // Get the stats:
+        Statistics searchStatistics = searchResult == null ? null : searchResult.getPrimaryResult().getStatistics();
+        PerformanceStats performanceStats = new PerformanceStats(
+            Long.parseLong(benchmarkParams.getParam("size")),
+            addResult == null ? 0L : Math.round(addResult.getPrimaryResult().getScore()),
+            searchStatistics == null ? 0L : searchStatistics.getN(),
+            searchStatistics == null ? 0L : Math.round(searchStatistics.getSum()),
+            addHistogram,
+            searchHistogram
+        );
+
+        // Describe the parameters like the display name of a parameterized test:
+        StringJoiner displayName = new StringJoiner(", ", "[" + number + "] Benchmark ", "");
+        for (String parameterName : benchmarkParams.getParamsKeys())
+        {
+            displayName.add(parameterName + " = " + benchmarkParams.getParam(parameterName));
+        }
+
+        return new PerformanceData(new BenchmarkTestInfo(displayName.toString(), benchmarkClass), performanceStats, context);
+    }
+
+    /**
+     * Gets the number of bytes that were allocated for each operation of the benchmark.
+     *
+     * @param runResult The result of the benchmark. Null if the benchmark was not run.
+     * @return The number of bytes that were allocated for each operation. Empty if it was not measured.
+     */
+    private static Object getAllocatedBytesPerOperation(RunResult runResult)
+    {
+        if (runResult == null) return "";
+        for (Map.Entry<String, Result> entry : runResult.getSecondaryResults().entrySet())
+        {
+            if (entry.getKey().endsWith("gc.alloc.rate.norm")) return Math.round(entry.getValue().getScore());
+        }
+        return "";
+    }
+
+    /**
+     * Creates a histogram of the durations that were sampled by the benchmark.
+     *
+     * @param runResult The result of the benchmark. Null if the benchmark was not run.
+     * @return The histogram of the sampled durations in nanoseconds.
+     */
+    private static TimeHistogram createHistogram(RunResult runResult)
+    {
+        TimeHistogram histogram = new TimeHistogram(10);
+        if (runResult == null) return histogram;
+
+        // Go through each distinct duration that was sampled:
+        Iterator<Map.Entry<Double, Long>> rawData = runResult.getPrimaryResult().getStatistics().getRawData();
+        while (rawData.hasNext())
+        {
+            Map.Entry<Double, Long> entry = rawData.next();
+            long duration = Math.max(1L, Math.round(entry.getKey()));
+            for (long i = 0; i < entry.getValue(); i++)
+            {
+                histogram.add(duration);
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * Describes a benchmark in the same way that JUnit describes the performance tests
+     * so that the results can be written with the same CSV writers.
+     *
+     * @param displayName    The description of the parameters of the benchmark.
+     * @param benchmarkClass The class of the benchmarks that were run.
+     */
+    private record BenchmarkTestInfo(String displayName, Class<?> benchmarkClass) implements TestInfo
+    {
+        @Override
+        public String getDisplayName()
+        {
+            return this.displayName;
+        }
+
+        @Override
+        public Set<String> getTags()
+        {
+            return Set.of();
+        }
+
+        @Override
+        public Optional<Class<?>> getTestClass()
+        {
+            return Optional.of(this.benchmarkClass);
+        }
+
+        @Override
+        public Optional<Method> getTestMethod()
+        {
+            // The stats combine all the benchmark methods so we report the search, which is what the analysis focuses on:
+            try
+            {
+                return Optional.of(this.benchmarkClass.getMethod("searchNearest"));
+            }
+            catch (NoSuchMethodException e)
+            {
+                throw new IllegalStateException("The benchmark class " + this.benchmarkClass.getName() + " has no searchNearest method", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package io.nanovc.indexing.benchmarks;
+
+import io.nanovc.indexing.Index;
+import io.nanovc.indexing.examples.x.X;
+import io.nanovc.indexing.examples.x.XKDTreeIndex1D;
+import io.nanovc.indexing.examples.xy.XY;
+import io.nanovc.indexing.examples.xy.XYKDTree;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Benchmarks the {@link io.nanovc.indexing.kdtree.bentley1990.KDTree KD-Trees} ({@link XKDTreeIndex1D} and {@link XYKDTree}).
+ */
+public class KDTreeBenchmarks extends IndexBenchmarks
+{
+    /**
+     * The number of dimensions of the items in the index.
+     */
+    @Param({"1", "2"})
+    public int dimensions;
+
+    @Override
+    protected int getDimensions()
+    {
+        return this.dimensions;
+    }
+
+    @Override
+    protected Index<?> createIndex()
+    {
+        return switch (this.dimensions)
+        {
+            case 1 -> new XKDTreeIndex1D();
+            case 2 -> new XYKDTree();
+            default -> throw new IllegalStateException("There is no index for " + this.dimensions + " dimensions");
+        };
+    }
+
+    @Override
+    protected Object createItem(double[] coordinates)
+    {
+        return switch (this.dimensions)
+        {
+            case 1 -> new X((int) coordinates[0]);
+            case 2 -> new XY(coordinates[0], coordinates[1]);
+            default -> throw new IllegalStateException("There are no items for " + this.dimensions + " dimensions");
+        };
+    }
+}
@@ -0,0 +1,30 @@
+package io.nanovc.indexing.benchmarks;
+
+import io.nanovc.indexing.Index;
+import io.nanovc.indexing.examples.x.X;
+import io.nanovc.indexing.examples.x.XRepoIndex1D;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Benchmarks the {@link XRepoIndex1D repo index}.
+ */
+public class RepoIndex1DBenchmarks extends IndexBenchmarks
+{
+    /**
+     * The number of divisions of the range.
+     */
+    @Param({"2", "10", "100"})
+    public int divisions;
+
+    @Override
+    protected Index<?> createIndex()
+    {
+        return new XRepoIndex1D(new X((int) -RANGE), new X((int) RANGE), this.divisions);
+    }
+
+    @Override
+    protected Object createItem(double[] coordinates)
+    {
+        return new X((int) coordinates[0]);
+    }
+}
@@ -0,0 +1,60 @@
+package io.nanovc.indexing.benchmarks;
+
+import io.nanovc.indexing.Index;
+import io.nanovc.indexing.examples.x.X;
+import io.nanovc.indexing.examples.x.XRepoIndexKD;
+import io.nanovc.indexing.examples.xy.XY;
+import io.nanovc.indexing.examples.xy.XYRepoIndexKD;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Benchmarks the KD repo indexes ({@link XRepoIndexKD} and {@link XYRepoIndexKD}).
+ */
+public class RepoIndexKDBenchmarks extends IndexBenchmarks
+{
+    /**
+     * The number of dimensions of the items in the index.
+     */
+    @Param({"1", "2"})
+    public int dimensions;
+
+    /**
+     * The number of divisions of the range in each dimension.
+     */
+    @Param({"2", "10", "100"})
+    public int divisions;
+
+    /**
+     * The number of items in a bucket before it is split.
+     */
+    @Param({"10", "100"})
+    public int bucketThreshold;
+
+    @Override
+    protected int getDimensions()
+    {
+        return this.dimensions;
+    }
+
+    @Override
+    protected Index<?> createIndex()
+    {
+        return switch (this.dimensions)
+        {
+            case 1 -> new XRepoIndexKD(new X((int) -RANGE), new X((int) RANGE), this.divisions, this.bucketThreshold);
+            case 2 -> new XYRepoIndexKD(new XY(-RANGE, -RANGE), new XY(RANGE, RANGE), this.divisions, this.bucketThreshold);
+            default -> throw new IllegalStateException("There is no index for " + this.dimensions + " dimensions");
+        };
+    }
+
+    @Override
+    protected Object createItem(double[] coordinates)
+    {
+        return switch (this.dimensions)
+        {
+            case 1 -> new X((int) coordinates[0]);
+            case 2 -> new XY(coordinates[0], coordinates[1]);
+            default -> throw new IllegalStateException("There are no items for " + this.dimensions + " dimensions");
+        };
+    }
+}
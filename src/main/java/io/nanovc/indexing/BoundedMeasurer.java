@@ -0,0 +1,46 @@
+package io.nanovc.indexing;
+
+/**
+ * This measures the distance between two items,
+ * but it is allowed to stop measuring as soon as it knows that the distance exceeds a given bound.
+ * <p>
+ * This is useful for high-dimensional items where the distance is accumulated one dimension at a time.
+ * Once the partial distance exceeds the best distance found so far,
+ * there is no point in accumulating the rest of the dimensions because the item cannot be the nearest one.
+ * <p>
+ * Indexes check whether their {@link Measurer} is also a {@link BoundedMeasurer} and use the bound when they have one.
+ *
+ * @param <T> The type of item that we want to measure the distance between.
+ * @param <R> The type for the distance.
+ */
+@FunctionalInterface
+public interface BoundedMeasurer<T, R> extends Measurer<T, R>
+{
+    /**
+     * Measures the distance between the two items,
+     * stopping early if the distance is known to exceed the given bound.
+     * <p>
+     * If the distance is within the bound then the exact distance must be returned.
+     * If the distance exceeds the bound then any distance that is greater than the bound may be returned
+     * (typically the partial distance that was accumulated when the bound was exceeded).
+     *
+     * @param o1          The first item to measure the distance from.
+     * @param o2          The second item to measure the distance to.
+     * @param maxDistance The bound for the distance. Once the accumulated distance is greater than this, the measurement may stop early. Null means that there is no bound and the exact distance must be measured.
+     * @return The distance between the two items, or a partial distance that is greater than the bound.
+     */
+    public R measureDistanceBetween(T o1, T o2, R maxDistance);
+
+    /**
+     * Measures the distance between the two items.
+     *
+     * @param o1 The first item to measure the distance from.
+     * @param o2 The second item to measure the distance to.
+     * @return The distance between the two items.
+     */
+    @Override
+    default R measureDistanceBetween(T o1, T o2)
+    {
+        return measureDistanceBetween(o1, o2, null);
+    }
+}
@@ -30,4 +30,27 @@ public interface Index<
      * @return The nearest item to the given item.
      */
     TItem searchNearest(TItem item);
+
+    /**
+     * Gets the listener that is told about the operations of the index.
+     *
+     * Indexes that can't be measured don't have a listener.
+     *
+     * @return The listener that is told about the operations of the index. Null if the operations are not being measured.
+     */
+    default IndexListener getIndexListener()
+    {
+        return null;
+    }
+
+    /**
+     * Sets the listener that is told about the operations of the index.
+     * The index only measures its operations while it has a listener.
+     * Indexes that can't be measured ignore the listener.
+     *
+     * @param indexListener The listener that is told about the operations of the index. Null to stop measuring the operations.
+     */
+    default void setIndexListener(IndexListener indexListener)
+    {
+    }
 }
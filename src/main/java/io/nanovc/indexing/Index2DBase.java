@@ -9,4 +9,29 @@ public abstract class Index2DBase<
     >
     implements Index2D<TItem>
 {
+    /**
+     * Measures the operations of the index for its {@link IndexListener listener}.
+     */
+    protected final IndexMeasurement measurement = new IndexMeasurement();
+
+    /**
+     * Gets the listener that is told about the operations of the index.
+     *
+     * @return The listener that is told about the operations of the index. Null if the operations are not being measured.
+     */
+    @Override public IndexListener getIndexListener()
+    {
+        return this.measurement.getIndexListener();
+    }
+
+    /**
+     * Sets the listener that is told about the operations of the index.
+     * The index only measures its operations while it has a listener.
+     *
+     * @param indexListener The listener that is told about the operations of the index. Null to stop measuring the operations.
+     */
+    @Override public void setIndexListener(IndexListener indexListener)
+    {
+        this.measurement.setIndexListener(indexListener);
+    }
 }
@@ -0,0 +1,48 @@
+package io.nanovc.indexing;
+
+/**
+ * Listens to the operations of an {@link Index}.
+ * This is used to measure an index in production (see {@link io.nanovc.indexing.metrics.IndexMetrics}).
+ * <p>
+ * An index only measures its operations while it has a listener,
+ * so an index without a listener pays for a single null check per operation.
+ * The events are raised on the thread that performed the operation.
+ */
+public interface IndexListener
+{
+    /**
+     * This is called after an item was added to the index.
+     *
+     * @param durationNanos The time that it took to add the item, in nanoseconds.
+     */
+    default void onAdd(long durationNanos)
+    {
+    }
+
+    /**
+     * This is called after the index was {@link Index#index() indexed}.
+     *
+     * @param durationNanos The time that it took to index, in nanoseconds.
+     */
+    default void onIndex(long durationNanos)
+    {
+    }
+
+    /**
+     * This is called after a search of the index.
+     *
+     * @param durationNanos The time that the search took, in nanoseconds.
+     * @param trace         The work that the index did for the search.
+     *                      This is reused for the next search of the index, so copy out anything that must be kept.
+     */
+    default void onSearch(long durationNanos, QueryTrace trace)
+    {
+    }
+
+    /**
+     * This is called after a bucket of the index was split because it had too many items.
+     */
+    default void onSplit()
+    {
+    }
+}
@@ -0,0 +1,153 @@
+package io.nanovc.indexing;
+
+/**
+ * Measures the operations of an {@link Index index} for its {@link IndexListener listener}.
+ * Each index holds one of these so that every index measures its operations with the same bookkeeping.
+ * <p>
+ * The work done by a search is only counted between {@link #startSearch()} and {@link #endSearch(long)}
+ * while the index has a listener, so an index that is not being measured only pays for a null check for each count.
+ * The counts are kept in a {@link QueryTrace} with plain fields because the indexes are not thread-safe.
+ */
+public class IndexMeasurement
+{
+    /**
+     * The listener that is told about the operations of the index.
+     * Null if the operations are not being measured.
+     */
+    private IndexListener indexListener;
+
+    /**
+     * The listener that is told about the current search.
+     * Null if the current search is not being measured.
+     */
+    private IndexListener searchListener;
+
+    /**
+     * The work done by the current search.
+     * This is reused for every search so that measuring a search does not allocate.
+     */
+    private final QueryTrace trace = new QueryTrace();
+
+    /**
+     * Starts measuring a search if the index is being measured.
+     *
+     * @return The time that the search started, in nanoseconds. Zero if the index is not being measured.
+     */
+    public long startSearch()
+    {
+        // Check whether we are measuring the index:
+        IndexListener listener = this.indexListener;
+        this.searchListener = listener;
+        if (listener == null) return 0L;
+
+        // Reset the trace for this search:
+        this.trace.reset();
+        return System.nanoTime();
+    }
+
+    /**
+     * Tells the listener about the search that was measured since {@link #startSearch()}.
+     *
+     * @param startNanos The time that the search started, in nanoseconds.
+     */
+    public void endSearch(long startNanos)
+    {
+        IndexListener listener = this.searchListener;
+        if (listener == null) return;
+        this.searchListener = null;
+        listener.onSearch(System.nanoTime() - startNanos, this.trace);
+    }
+
+    /**
+     * Counts a distance that was measured by the current search.
+     */
+    public void countDistanceEvaluation()
+    {
+        if (this.searchListener != null) this.trace.distanceEvaluations++;
+    }
+
+    /**
+     * Counts the distances that were measured by the current search.
+     *
+     * @param count The number of distances that were measured.
+     */
+    public void countDistanceEvaluations(long count)
+    {
+        if (this.searchListener != null) this.trace.distanceEvaluations += count;
+    }
+
+    /**
+     * Counts a bucket that was visited by the current search.
+     */
+    public void countBucketVisited()
+    {
+        if (this.searchListener != null) this.trace.bucketsVisited++;
+    }
+
+    /**
+     * Counts a cell that was considered by the current search.
+     */
+    public void countCellConsidered()
+    {
+        if (this.searchListener != null) this.trace.cellsConsidered++;
+    }
+
+    /**
+     * Counts a cell that was visited by the current search.
+     */
+    public void countCellVisited()
+    {
+        if (this.searchListener != null) this.trace.cellsVisited++;
+    }
+
+    /**
+     * Counts a KD-Tree node that was visited by the current search.
+     */
+    public void countNodeVisited()
+    {
+        if (this.searchListener != null) this.trace.nodesVisited++;
+    }
+
+    /**
+     * Counts an exact match that stopped the current search early.
+     */
+    public void countExactMatch()
+    {
+        if (this.searchListener != null) this.trace.exactMatches++;
+    }
+
+    /**
+     * Counts a decision of the current search about whether a branch (a cell or a node) could hold a nearer item.
+     *
+     * @param isWithinDistance True if the branch was within the best distance so far and was searched. False if it was pruned.
+     */
+    public void countPruningDecision(boolean isWithinDistance)
+    {
+        if (this.searchListener != null)
+        {
+            this.trace.pruningDecisions++;
+            if (!isWithinDistance) this.trace.branchesPruned++;
+        }
+    }
+
+    /**
+     * Gets the listener that is told about the operations of the index.
+     *
+     * @return The listener that is told about the operations of the index. Null if the operations are not being measured.
+     */
+    public IndexListener getIndexListener()
+    {
+        return indexListener;
+    }
+
+    /**
+     * Sets the listener that is told about the operations of the index.
+     * The index only measures its operations while it has a listener.
+     *
+     * @param indexListener The listener that is told about the operations of the index. Null to stop measuring the operations.
+     */
+    public void setIndexListener(IndexListener indexListener)
+    {
+        this.indexListener = indexListener;
+    }
+}
@@ -0,0 +1,86 @@
+package io.nanovc.indexing;
+
+/**
+ * The work that an index did for a single search.
+ * This is filled in by the {@link IndexMeasurement measurement} of the index while the search runs
+ * and is given to the {@link IndexListener#onSearch listener} when the search ends.
+ * <p>
+ * The same instance is reused for each search of an index, so listeners must copy out anything they want to keep.
+ */
+public class QueryTrace
+{
+    /**
+     * The number of times that the distance between two items was measured for the search.
+     */
+    public long distanceEvaluations;
+
+    /**
+     * The number of buckets (leaves of the index structure) that were searched.
+     */
+    public long bucketsVisited;
+
+    /**
+     * The number of cells (divisions of the search space) that were considered for the search.
+     */
+    public long cellsConsidered;
+
+    /**
+     * The number of cells (divisions of the search space) that were searched.
+     * Cells that were considered but not searched were pruned.
+     */
+    public long cellsVisited;
+
+    /**
+     * The number of KD-Tree nodes that were visited for the search.
+     */
+    public long nodesVisited;
+
+    /**
+     * The number of times the search stopped early because it found an exact match.
+     */
+    public long exactMatches;
+
+    /**
+     * The number of times the search decided whether a branch (a cell or a node) could hold a nearer item.
+     */
+    public long pruningDecisions;
+
+    /**
+     * The number of branches (cells or nodes) that were pruned for the search.
+     */
+    public long branchesPruned;
+
+    /**
+     * Gets the fraction of the pruning decisions that pruned a branch.
+     *
+     * @return The fraction of the pruning decisions that pruned a branch, between 0 and 1. Zero if no decisions were made.
+     */
+    public double getPruningEfficiency()
+    {
+        return this.pruningDecisions == 0 ? 0.0 : (double) this.branchesPruned / this.pruningDecisions;
+    }
+
+    /**
+     * Clears the counts so that the trace can be used for the next search.
+     */
+    public void reset()
+    {
+        this.distanceEvaluations = 0;
+        this.bucketsVisited = 0;
+        this.cellsConsidered = 0;
+        this.cellsVisited = 0;
+        this.nodesVisited = 0;
+        this.exactMatches = 0;
+        this.pruningDecisions = 0;
+        this.branchesPruned = 0;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format(
+            "distance evaluations: %,d, buckets: %,d, cells: %,d considered, %,d visited, nodes: %,d, exact matches: %,d, pruned: %,d of %,d decisions",
+            this.distanceEvaluations, this.bucketsVisited, this.cellsConsidered, this.cellsVisited, this.nodesVisited, this.exactMatches, this.branchesPruned, this.pruningDecisions
+        );
+    }
+}
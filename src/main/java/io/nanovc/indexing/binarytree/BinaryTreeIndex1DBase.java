@@ -1,6 +1,7 @@
 package io.nanovc.indexing.binarytree;
 
 import io.nanovc.indexing.Index1DBase;
+import io.nanovc.indexing.IndexListener;
 import io.nanovc.indexing.Measurer;
 
 import java.util.ArrayList;
@@ -63,7 +64,14 @@ public abstract class BinaryTreeIndex1DBase<
      */
     public void add(TItem item)
     {
+        // Time the add if we are measuring the index:
+        IndexListener listener = this.measurement.getIndexListener();
+        long startNanos = listener == null ? 0L : System.nanoTime();
+
         addRecursively(item, this.root);
+
+        // Tell the listener about the add:
+        if (listener != null) listener.onAdd(System.nanoTime() - startNanos);
     }
 
     /**
@@ -144,6 +152,10 @@ public abstract class BinaryTreeIndex1DBase<
     @Override public void index()
     {
         // Do nothing for this index.
+
+        // Tell the listener about the index:
+        IndexListener listener = this.measurement.getIndexListener();
+        if (listener != null) listener.onIndex(0L);
     }
 
     /**
@@ -154,12 +166,18 @@ public abstract class BinaryTreeIndex1DBase<
      */
     public TItem searchNearest(TItem item)
     {
+        // Start measuring the search if we are measuring the index:
+        long startNanos = this.measurement.startSearch();
+
         // Create a new search context:
         SearchContext searchContext = new SearchContext();
 
         // Keep track of the closest item:
         searchNearestRecursively(item, this.root, searchContext);
 
+        // Tell the listener about the search:
+        this.measurement.endSearch(startNanos);
+
         return searchContext.nearestNode.item;
     }
 
@@ -217,6 +235,7 @@ public abstract class BinaryTreeIndex1DBase<
 
         // Get the distance of the item to the current node:
         TDistance distance = this.measurer.measureDistanceBetween(item, currentNode.item);
+        this.measurement.countDistanceEvaluation();
 
         // Check whether this is the first distance we are measuring:
         if ( (searchContext.shortestDistance == null) || (distanceComparator.compare(distance, searchContext.shortestDistance) <= 0) )
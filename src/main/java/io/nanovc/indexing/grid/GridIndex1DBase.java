@@ -1,6 +1,7 @@
 package io.nanovc.indexing.grid;
 
 import io.nanovc.indexing.Index1DBase;
+import io.nanovc.indexing.IndexListener;
 import io.nanovc.indexing.Measurer;
 import io.nanovc.indexing.RangeFinder;
 import io.nanovc.indexing.RangeSplitter;
@@ -150,11 +151,18 @@ public abstract class GridIndex1DBase<
      */
     public void add(TItem item)
     {
+        // Time the add if we are measuring the index:
+        IndexListener listener = this.measurement.getIndexListener();
+        long startNanos = listener == null ? 0L : System.nanoTime();
+
         // Find the index of the division in the range:
         int index = findIndexInRange(this.minRange, this.maxRange, this.divisions, item);
 
         // Get the list at the index:
         addItemToIndex(item, index);
+
+        // Tell the listener about the add:
+        if (listener != null) listener.onAdd(System.nanoTime() - startNanos);
     }
 
 
@@ -246,6 +254,10 @@ public abstract class GridIndex1DBase<
     @Override public void index()
     {
         // Do nothing for this index.
+
+        // Tell the listener about the index:
+        IndexListener listener = this.measurement.getIndexListener();
+        if (listener != null) listener.onIndex(0L);
     }
 
     /**
@@ -255,6 +267,25 @@ public abstract class GridIndex1DBase<
      * @return The nearest item to the given item.
      */
     public TItem searchNearest(TItem item)
+    {
+        // Start measuring the search if we are measuring the index:
+        long startNanos = this.measurement.startSearch();
+
+        // Search the divisions of the grid:
+        TItem nearestItem = searchNearestInDivisions(item);
+
+        // Tell the listener about the search:
+        this.measurement.endSearch(startNanos);
+        return nearestItem;
+    }
+
+    /**
+     * This finds the nearest item in the divisions of the grid to the given item.
+     *
+     * @param item The item to search for.
+     * @return The nearest item to the given item.
+     */
+    protected TItem searchNearestInDivisions(TItem item)
     {
         // Find the index of the item that we are interested in:
         int index = this.findIndexInRange(this.minRange, this.maxRange, this.divisions, item);
@@ -504,6 +535,9 @@ public abstract class GridIndex1DBase<
      */
     protected MeasuredItem<TItem, TDistance> searchNearestAtIndex(TItem item, int divisionIndex)
     {
+        // Count the division as a visited cell:
+        this.measurement.countCellVisited();
+
         // Get the items at the division index:
         List<TItem> items = this.items.get(divisionIndex);
 
@@ -567,6 +601,7 @@ public abstract class GridIndex1DBase<
      */
     protected TDistance measureDistanceBetween(TItem item1, TItem item2)
     {
+        this.measurement.countDistanceEvaluation();
         return this.measurer.measureDistanceBetween(item1, item2);
     }
 
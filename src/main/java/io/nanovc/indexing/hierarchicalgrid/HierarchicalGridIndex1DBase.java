@@ -1,5 +1,6 @@
 package io.nanovc.indexing.hierarchicalgrid;
 
+import io.nanovc.indexing.IndexListener;
 import io.nanovc.indexing.Measurer;
 import io.nanovc.indexing.RangeFinder;
 import io.nanovc.indexing.RangeSplitter;
@@ -207,6 +208,10 @@ public abstract class HierarchicalGridIndex1DBase<
 
             // Clear the items from the current grid, because we have them indexed in the sub-grid:
             this.clearItemsAtDivision(divisionIndex);
+
+            // Tell the listener that we split the division:
+            IndexListener listener = this.measurement.getIndexListener();
+            if (listener != null) listener.onSplit();
         }
 
         return subGrid;
@@ -74,6 +74,13 @@ public class KDTree<
      */
     public final Measurer<TItem, TDistance> distanceMeasurer;
 
+    /**
+     * This is the {@link #distanceMeasurer} as a {@link BoundedMeasurer} if it supports measuring distances that stop early.
+     * This lets the bucket scans stop accumulating a distance as soon as it exceeds the nearest distance so far.
+     * Null if the distance measurer does not support bounded measurements.
+     */
+    public final BoundedMeasurer<TItem, TDistance> distanceBoundedMeasurer;
+
     /**
      * This is the specific distance comparator that we want to us.
      * It compares the distances between items.
@@ -100,6 +107,11 @@ public class KDTree<
      */
     public final int numberOfDimensions;
 
+    /**
+     * Measures the operations of the index for its {@link IndexListener listener}.
+     */
+    private final IndexMeasurement measurement = new IndexMeasurement();
+
     public KDTree(
         Extractor<TItem> extractor,
         Measurer<TItem, TDistance> measurer,
@@ -112,6 +124,7 @@ public class KDTree<
     {
         this.coordinateExtractor = extractor;
         this.distanceMeasurer = measurer;
+        this.distanceBoundedMeasurer = measurer instanceof BoundedMeasurer<TItem, TDistance> boundedMeasurer ? boundedMeasurer : null;
         this.distanceComparator = distanceComparator;
         this.distanceAdder = distanceAdder;
         this.distanceSubtractor = distanceSubtractor;
@@ -124,7 +137,14 @@ public class KDTree<
      */
     public void index()
     {
+        // Time the index if we are measuring the index:
+        IndexListener listener = this.measurement.getIndexListener();
+        long startNanos = listener == null ? 0L : System.nanoTime();
+
         this.index(this.points);
+
+        // Tell the listener about the index:
+        if (listener != null) listener.onIndex(System.nanoTime() - startNanos);
     }
 
     /**
@@ -240,7 +260,13 @@ public class KDTree<
      */
     public TItem searchNearest(int pointIndex)
     {
+        // Start measuring the search if we are measuring the index:
+        long startNanos = this.measurement.startSearch();
+
         int nearestIndex = nn(pointIndex);
+
+        // Tell the listener about the search:
+        this.measurement.endSearch(startNanos);
         return this.points.get(this.perm[nearestIndex]);
     }
 
@@ -302,11 +328,13 @@ public class KDTree<
 
     private void rnn(KDNode<TDistance> p)
     {
+        this.measurement.countNodeVisited();
         if (p.bucket)
         {
+            this.measurement.countBucketVisited();
             for (int i = p.lopt; i <= p.hipt; i++)
             {
-                TDistance thisdist = dist(perm[i], nntarget);
+                TDistance thisdist = dist(perm[i], nntarget, nndist);
                 //if (thisdist < nndist)
                 if (distanceComparator.compare(thisdist,nndist) < 0)
                 {
@@ -324,14 +352,18 @@ public class KDTree<
             {
                 rnn(p.loson);
                 //if (thisx + nndist > val)
-                if (distanceComparator.compare(distanceAdder.performOperation(thisx,nndist), val) > 0)
+                boolean isWithinDistance = distanceComparator.compare(distanceAdder.performOperation(thisx,nndist), val) > 0;
+                this.measurement.countPruningDecision(isWithinDistance);
+                if (isWithinDistance)
                     rnn(p.hison);
             }
             else
             {
                 rnn(p.hison);
                 //if (thisx - nndist < val)
-                if (distanceComparator.compare(distanceSubtractor.performOperation(thisx,nndist), val) < 0)
+                boolean isWithinDistance = distanceComparator.compare(distanceSubtractor.performOperation(thisx,nndist), val) < 0;
+                this.measurement.countPruningDecision(isWithinDistance);
+                if (isWithinDistance)
                     rnn(p.loson);
             }
         }
@@ -348,7 +380,13 @@ public class KDTree<
      */
     public TItem searchNearest(TItem item)
     {
+        // Start measuring the search if we are measuring the index:
+        long startNanos = this.measurement.startSearch();
+
         int nearestIndex = nn_WithExternalTarget(item);
+
+        // Tell the listener about the search:
+        this.measurement.endSearch(startNanos);
         return this.points.get(nearestIndex);
     }
 
@@ -377,12 +415,14 @@ public class KDTree<
 
     private void rnn_WithExternalTarget(KDNode<TDistance> p)
     {
+        this.measurement.countNodeVisited();
         if (p.bucket)
         {
+            this.measurement.countBucketVisited();
             for (int i = p.lopt; i <= p.hipt; i++)
             {
                 //double thisdist = dist(perm[i], nntarget);
-                TDistance thisdist = this.distanceMeasurer.measureDistanceBetween(this.points.get(this.perm[i]), this.nnTargetItem);
+                TDistance thisdist = measure(this.points.get(this.perm[i]), this.nnTargetItem, nndist);
                 //if (thisdist < nndist)
                 if (distanceComparator.compare(thisdist, nndist) < 0)
                 {
@@ -401,14 +441,18 @@ public class KDTree<
             {
                 rnn_WithExternalTarget(p.loson);
                 //if (thisx + nndist > val)
-                if (distanceComparator.compare(distanceAdder.performOperation(thisx, nndist), val) > 0)
+                boolean isWithinDistance = distanceComparator.compare(distanceAdder.performOperation(thisx, nndist), val) > 0;
+                this.measurement.countPruningDecision(isWithinDistance);
+                if (isWithinDistance)
                     rnn_WithExternalTarget(p.hison);
             }
             else
             {
                 rnn_WithExternalTarget(p.hison);
                 // if (thisx - nndist < val)
-                if (distanceComparator.compare(distanceSubtractor.performOperation(thisx, nndist), val) < 0)
+                boolean isWithinDistance = distanceComparator.compare(distanceSubtractor.performOperation(thisx, nndist), val) < 0;
+                this.measurement.countPruningDecision(isWithinDistance);
+                if (isWithinDistance)
                     rnn_WithExternalTarget(p.loson);
             }
         }
@@ -419,9 +463,35 @@ public class KDTree<
      */
     private TDistance dist(int i, int j)
     {
+        this.measurement.countDistanceEvaluation();
         return this.distanceMeasurer.measureDistanceBetween(this.points.get(i), this.points.get(j));
     }
 
+    /**
+     * The function dist( i , j, bound) returns the distance from point i to point j,
+     * but it is allowed to stop early (returning a partial distance greater than the bound) once the distance exceeds the bound.
+     */
+    private TDistance dist(int i, int j, TDistance bound)
+    {
+        return measure(this.points.get(i), this.points.get(j), bound);
+    }
+
+    /**
+     * Measures the distance between the two items,
+     * stopping early if the measurer supports it and the distance exceeds the given bound.
+     *
+     * @param item1 The first item to measure the distance between.
+     * @param item2 The second item to measure the distance between.
+     * @param bound The nearest distance so far. If the distance exceeds this then the measurement may stop early.
+     * @return The distance between the two items, or a partial distance that is greater than the bound.
+     */
+    private TDistance measure(TItem item1, TItem item2, TDistance bound)
+    {
+        this.measurement.countDistanceEvaluation();
+        if (this.distanceBoundedMeasurer == null) return this.distanceMeasurer.measureDistanceBetween(item1, item2);
+        else return this.distanceBoundedMeasurer.measureDistanceBetween(item1, item2, bound);
+    }
+
     /**
      * The function select permutes perm[l..u] such that perm[m] contains a point
      * that is not greater in the p->cutdim-th dimension than any point to its left,
@@ -582,7 +652,35 @@ public class KDTree<
      */
     public void add(TItem item)
     {
+        // Time the add if we are measuring the index:
+        IndexListener listener = this.measurement.getIndexListener();
+        long startNanos = listener == null ? 0L : System.nanoTime();
+
         this.points.add(item);
+
+        // Tell the listener about the add:
+        if (listener != null) listener.onAdd(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Gets the listener that is told about the operations of the index.
+     *
+     * @return The listener that is told about the operations of the index. Null if the operations are not being measured.
+     */
+    @Override public IndexListener getIndexListener()
+    {
+        return this.measurement.getIndexListener();
+    }
+
+    /**
+     * Sets the listener that is told about the operations of the index.
+     * The index only measures its operations while it has a listener.
+     *
+     * @param indexListener The listener that is told about the operations of the index. Null to stop measuring the operations.
+     */
+    @Override public void setIndexListener(IndexListener indexListener)
+    {
+        this.measurement.setIndexListener(indexListener);
     }
 
 
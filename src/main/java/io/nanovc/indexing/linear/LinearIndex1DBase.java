@@ -1,6 +1,7 @@
 package io.nanovc.indexing.linear;
 
 import io.nanovc.indexing.Index1DBase;
+import io.nanovc.indexing.IndexListener;
 import io.nanovc.indexing.Measurer;
 
 import java.util.ArrayList;
@@ -52,7 +53,14 @@ public abstract class LinearIndex1DBase<
      */
     public void add(TItem item)
     {
+        // Time the add if we are measuring the index:
+        IndexListener listener = this.measurement.getIndexListener();
+        long startNanos = listener == null ? 0L : System.nanoTime();
+
         this.items.add(item);
+
+        // Tell the listener about the add:
+        if (listener != null) listener.onAdd(System.nanoTime() - startNanos);
     }
 
     /**
@@ -62,6 +70,10 @@ public abstract class LinearIndex1DBase<
     @Override public void index()
     {
         // Do nothing for this index.
+
+        // Tell the listener about the index:
+        IndexListener listener = this.measurement.getIndexListener();
+        if (listener != null) listener.onIndex(0L);
     }
 
     /**
@@ -71,6 +83,9 @@ public abstract class LinearIndex1DBase<
      */
     public TItem searchNearest(TItem item)
     {
+        // Start measuring the search if we are measuring the index:
+        long startNanos = this.measurement.startSearch();
+
         // Start with an unspecified distance:
         TDistance shortestDistance = null;
 
@@ -111,6 +126,10 @@ public abstract class LinearIndex1DBase<
             }
         }
 
+        // Tell the listener about the search, which measured the distance to every item:
+        this.measurement.countDistanceEvaluations(this.items.size());
+        this.measurement.endSearch(startNanos);
+
         return closestItem;
     }
 
@@ -0,0 +1,304 @@
+package io.nanovc.indexing.metrics;
+
+import io.nanovc.indexing.IndexListener;
+import io.nanovc.indexing.QueryTrace;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the metrics of an {@link io.nanovc.indexing.Index index}.
+ * Set it as the {@link io.nanovc.indexing.Index#setIndexListener listener} of an index to start collecting.
+ * <p>
+ * The latencies and the work done per search are recorded in {@link LogLinearHistogram log-linear histograms}
+ * and the operations are counted, so this can be shared by many threads and many indexes.
+ */
+public class IndexMetrics implements IndexListener
+{
+    /**
+     * The scale for the pruning efficiency so that it can be recorded in a histogram of whole numbers.
+     * The efficiency is recorded as a percentage.
+     */
+    public static final int PRUNING_EFFICIENCY_SCALE = 100;
+
+    /**
+     * The latencies of adding items, in nanoseconds.
+     */
+    private final LogLinearHistogram addLatencies = new LogLinearHistogram();
+
+    /**
+     * The latencies of indexing, in nanoseconds.
+     */
+    private final LogLinearHistogram indexLatencies = new LogLinearHistogram();
+
+    /**
+     * The latencies of searches, in nanoseconds.
+     */
+    private final LogLinearHistogram searchLatencies = new LogLinearHistogram();
+
+    /**
+     * The number of distance evaluations for each search.
+     */
+    private final LogLinearHistogram distanceEvaluationsPerSearch = new LogLinearHistogram();
+
+    /**
+     * The number of buckets visited for each search.
+     */
+    private final LogLinearHistogram bucketsVisitedPerSearch = new LogLinearHistogram();
+
+    /**
+     * The number of cells considered for each search.
+     */
+    private final LogLinearHistogram cellsConsideredPerSearch = new LogLinearHistogram();
+
+    /**
+     * The number of cells visited for each search.
+     */
+    private final LogLinearHistogram cellsVisitedPerSearch = new LogLinearHistogram();
+
+    /**
+     * The number of KD-Tree nodes visited for each search.
+     */
+    private final LogLinearHistogram nodesVisitedPerSearch = new LogLinearHistogram();
+
+    /**
+     * The percentage of the pruning decisions that pruned a branch for each search.
+     */
+    private final LogLinearHistogram pruningEfficiencyPerSearch = new LogLinearHistogram();
+
+    /**
+     * The number of searches that stopped early because they found an exact match.
+     */
+    private final LongAdder exactMatchCount = new LongAdder();
+
+    /**
+     * The total number of pruning decisions across all searches.
+     */
+    private final LongAdder pruningDecisionCount = new LongAdder();
+
+    /**
+     * The total number of branches that were pruned across all searches.
+     */
+    private final LongAdder branchesPrunedCount = new LongAdder();
+
+    /**
+     * The number of buckets that were split.
+     */
+    private final LongAdder splitCount = new LongAdder();
+
+    @Override
+    public void onAdd(long durationNanos)
+    {
+        this.addLatencies.record(durationNanos);
+    }
+
+    @Override
+    public void onIndex(long durationNanos)
+    {
+        this.indexLatencies.record(durationNanos);
+    }
+
+    @Override
+    public void onSearch(long durationNanos, QueryTrace trace)
+    {
+        this.searchLatencies.record(durationNanos);
+        this.distanceEvaluationsPerSearch.record(trace.distanceEvaluations);
+        this.bucketsVisitedPerSearch.record(trace.bucketsVisited);
+        this.cellsConsideredPerSearch.record(trace.cellsConsidered);
+        this.cellsVisitedPerSearch.record(trace.cellsVisited);
+        this.nodesVisitedPerSearch.record(trace.nodesVisited);
+        this.pruningEfficiencyPerSearch.record(Math.round(trace.getPruningEfficiency() * PRUNING_EFFICIENCY_SCALE));
+        if (trace.exactMatches > 0) this.exactMatchCount.increment();
+        this.pruningDecisionCount.add(trace.pruningDecisions);
+        this.branchesPrunedCount.add(trace.branchesPruned);
+    }
+
+    @Override
+    public void onSplit()
+    {
+        this.splitCount.increment();
+    }
+
+    /**
+     * Gets the latencies of adding items, in nanoseconds.
+     *
+     * @return The latencies of adding items, in nanoseconds.
+     */
+    public LogLinearHistogram getAddLatencies()
+    {
+        return addLatencies;
+    }
+
+    /**
+     * Gets the latencies of indexing, in nanoseconds.
+     *
+     * @return The latencies of indexing, in nanoseconds.
+     */
+    public LogLinearHistogram getIndexLatencies()
+    {
+        return indexLatencies;
+    }
+
+    /**
+     * Gets the latencies of searches, in nanoseconds.
+     *
+     * @return The latencies of searches, in nanoseconds.
+     */
+    public LogLinearHistogram getSearchLatencies()
+    {
+        return searchLatencies;
+    }
+
+    /**
+     * Gets the number of distance evaluations for each search.
+     *
+     * @return The number of distance evaluations for each search.
+     */
+    public LogLinearHistogram getDistanceEvaluationsPerSearch()
+    {
+        return distanceEvaluationsPerSearch;
+    }
+
+    /**
+     * Gets the number of buckets visited for each search.
+     *
+     * @return The number of buckets visited for each search.
+     */
+    public LogLinearHistogram getBucketsVisitedPerSearch()
+    {
+        return bucketsVisitedPerSearch;
+    }
+
+    /**
+     * Gets the number of cells considered for each search.
+     *
+     * @return The number of cells considered for each search.
+     */
+    public LogLinearHistogram getCellsConsideredPerSearch()
+    {
+        return cellsConsideredPerSearch;
+    }
+
+    /**
+     * Gets the number of cells visited for each search.
+     *
+     * @return The number of cells visited for each search.
+     */
+    public LogLinearHistogram getCellsVisitedPerSearch()
+    {
+        return cellsVisitedPerSearch;
+    }
+
+    /**
+     * Gets the number of KD-Tree nodes visited for each search.
+     *
+     * @return The number of KD-Tree nodes visited for each search.
+     */
+    public LogLinearHistogram getNodesVisitedPerSearch()
+    {
+        return nodesVisitedPerSearch;
+    }
+
+    /**
+     * Gets the percentage of the pruning decisions that pruned a branch for each search.
+     *
+     * @return The percentage of the pruning decisions that pruned a branch for each search.
+     */
+    public LogLinearHistogram getPruningEfficiencyPerSearch()
+    {
+        return pruningEfficiencyPerSearch;
+    }
+
+    /**
+     * Gets the number of items that were added.
+     *
+     * @return The number of items that were added.
+     */
+    public long getAddCount()
+    {
+        return this.addLatencies.getTotalCount();
+    }
+
+    /**
+     * Gets the number of times that the index was indexed.
+     *
+     * @return The number of times that the index was indexed.
+     */
+    public long getIndexCount()
+    {
+        return this.indexLatencies.getTotalCount();
+    }
+
+    /**
+     * Gets the number of searches.
+     *
+     * @return The number of searches.
+     */
+    public long getSearchCount()
+    {
+        return this.searchLatencies.getTotalCount();
+    }
+
+    /**
+     * Gets the number of searches that stopped early because they found an exact match.
+     *
+     * @return The number of searches that stopped early because they found an exact match.
+     */
+    public long getExactMatchCount()
+    {
+        return this.exactMatchCount.sum();
+    }
+
+    /**
+     * Gets the fraction of all the pruning decisions that pruned a branch.
+     *
+     * @return The fraction of all the pruning decisions that pruned a branch, between 0 and 1. Zero if no decisions were made.
+     */
+    public double getPruningEfficiency()
+    {
+        long decisions = this.pruningDecisionCount.sum();
+        return decisions == 0 ? 0.0 : (double) this.branchesPrunedCount.sum() / decisions;
+    }
+
+    /**
+     * Gets the number of buckets that were split.
+     *
+     * @return The number of buckets that were split.
+     */
+    public long getSplitCount()
+    {
+        return this.splitCount.sum();
+    }
+
+    /**
+     * Clears all the metrics that were collected.
+     */
+    public void reset()
+    {
+        this.addLatencies.reset();
+        this.indexLatencies.reset();
+        this.searchLatencies.reset();
+        this.distanceEvaluationsPerSearch.reset();
+        this.bucketsVisitedPerSearch.reset();
+        this.cellsConsideredPerSearch.reset();
+        this.cellsVisitedPerSearch.reset();
+        this.nodesVisitedPerSearch.reset();
+        this.pruningEfficiencyPerSearch.reset();
+        this.exactMatchCount.reset();
+        this.pruningDecisionCount.reset();
+        this.branchesPrunedCount.reset();
+        this.splitCount.reset();
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format(
+            "adds: %,d (p50 %,dns, p99 %,dns), searches: %,d (p50 %,dns, p99 %,dns, mean %.1f distance evaluations, %.1f buckets, %.1f cells, %.1f nodes, %.1f%% pruned, %,d exact matches), indexes: %,d, splits: %,d",
+            getAddCount(), this.addLatencies.getValueAtPercentile(50), this.addLatencies.getValueAtPercentile(99),
+            getSearchCount(), this.searchLatencies.getValueAtPercentile(50), this.searchLatencies.getValueAtPercentile(99),
+            this.distanceEvaluationsPerSearch.getMean(), this.bucketsVisitedPerSearch.getMean(), this.cellsVisitedPerSearch.getMean(), this.nodesVisitedPerSearch.getMean(),
+            getPruningEfficiency() * 100, getExactMatchCount(),
+            getIndexCount(), getSplitCount()
+        );
+    }
+}
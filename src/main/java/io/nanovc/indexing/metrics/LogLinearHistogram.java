@@ -0,0 +1,264 @@
+package io.nanovc.indexing.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of non-negative long values (like durations in nanoseconds).
+ * <p>
+ * The bins are log-linear: each power of two is divided into the same number of linear sub-bins,
+ * so the relative error of a binned value is bounded (about 6% with the default of 16 sub-bins).
+ * Values smaller than the number of sub-bins are binned exactly.
+ * <p>
+ * The bins are a fixed array that covers every long value,
+ * so recording a value is a few bit operations and an atomic increment without any allocation.
+ */
+public class LogLinearHistogram
+{
+    /**
+     * The default number of bits for the sub-bins of each power of two.
+     */
+    public static final int DEFAULT_SUB_BIN_BITS = 4;
+
+    /**
+     * The number of bits for the sub-bins of each power of two.
+     */
+    private final int subBinBits;
+
+    /**
+     * The number of linear sub-bins in each power of two.
+     */
+    private final int subBinCount;
+
+    /**
+     * The count of values in each bin.
+     */
+    private final AtomicLongArray counts;
+
+    /**
+     * The number of values that were recorded.
+     */
+    private final AtomicLong totalCount = new AtomicLong();
+
+    /**
+     * The sum of the values that were recorded.
+     */
+    private final AtomicLong totalValue = new AtomicLong();
+
+    /**
+     * The largest value that was recorded.
+     */
+    private final AtomicLong maxValue = new AtomicLong();
+
+    /**
+     * Creates a histogram with the {@link #DEFAULT_SUB_BIN_BITS default resolution}.
+     */
+    public LogLinearHistogram()
+    {
+        this(DEFAULT_SUB_BIN_BITS);
+    }
+
+    /**
+     * Creates a histogram with the given resolution.
+     *
+     * @param subBinBits The number of bits for the sub-bins of each power of two. Each power of two gets 2^subBinBits linear bins.
+     */
+    public LogLinearHistogram(int subBinBits)
+    {
+        if (subBinBits < 0 || subBinBits > 10) throw new IllegalArgumentException("The sub-bin bits must be between 0 and 10 but it was " + subBinBits);
+        this.subBinBits = subBinBits;
+        this.subBinCount = 1 << subBinBits;
+        this.counts = new AtomicLongArray((64 - subBinBits) * this.subBinCount);
+    }
+
+    /**
+     * Records the given value in the histogram.
+     *
+     * @param value The value to record. Negative values are recorded as zero.
+     */
+    public void record(long value)
+    {
+        if (value < 0) value = 0;
+        this.counts.incrementAndGet(getBinIndex(value));
+        this.totalCount.incrementAndGet();
+        this.totalValue.addAndGet(value);
+        this.maxValue.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * Gets the index of the bin for the given value.
+     *
+     * @param value The non-negative value to bin.
+     * @return The index of the bin for the value.
+     */
+    public int getBinIndex(long value)
+    {
+        // Values below the sub-bin count are binned exactly:
+        if (value < this.subBinCount) return (int) value;
+
+        // Work out how far we need to shift the value so that its leading bits give us the sub-bin:
+        int shift = 63 - Long.numberOfLeadingZeros(value) - this.subBinBits;
+        return shift * this.subBinCount + (int) (value >>> shift);
+    }
+
+    /**
+     * Gets the smallest value of the bin with the given index.
+     *
+     * @param binIndex The index of the bin.
+     * @return The smallest value (inclusive) of the bin.
+     */
+    public long getBinStartInclusive(int binIndex)
+    {
+        if (binIndex < this.subBinCount) return binIndex;
+        int shift = binIndex / this.subBinCount - 1;
+        long subBin = binIndex % this.subBinCount + this.subBinCount;
+        return subBin << shift;
+    }
+
+    /**
+     * Gets the largest value of the bin with the given index.
+     *
+     * @param binIndex The index of the bin.
+     * @return The largest value (inclusive) of the bin.
+     */
+    public long getBinEndInclusive(int binIndex)
+    {
+        return binIndex + 1 < getNumberOfBins() ? getBinStartInclusive(binIndex + 1) - 1 : Long.MAX_VALUE;
+    }
+
+    /**
+     * Gets the number of bins in the histogram.
+     *
+     * @return The number of bins in the histogram.
+     */
+    public int getNumberOfBins()
+    {
+        return this.counts.length();
+    }
+
+    /**
+     * Gets the number of values in the bin with the given index.
+     *
+     * @param binIndex The index of the bin.
+     * @return The number of values in the bin.
+     */
+    public long getCountInBin(int binIndex)
+    {
+        return this.counts.get(binIndex);
+    }
+
+    /**
+     * Gets the number of values that were recorded.
+     *
+     * @return The number of values that were recorded.
+     */
+    public long getTotalCount()
+    {
+        return this.totalCount.get();
+    }
+
+    /**
+     * Gets the sum of the values that were recorded.
+     *
+     * @return The sum of the values that were recorded.
+     */
+    public long getTotalValue()
+    {
+        return this.totalValue.get();
+    }
+
+    /**
+     * Gets the largest value that was recorded.
+     *
+     * @return The largest value that was recorded. Zero if nothing was recorded.
+     */
+    public long getMaxValue()
+    {
+        return this.maxValue.get();
+    }
+
+    /**
+     * Gets the mean of the values that were recorded.
+     *
+     * @return The mean of the values that were recorded. Zero if nothing was recorded.
+     */
+    public double getMean()
+    {
+        long count = getTotalCount();
+        return count == 0 ? 0.0 : (double) getTotalValue() / count;
+    }
+
+    /**
+     * Gets the value at the given percentile.
+     * This is the largest value of the bin that the percentile falls in, capped at the largest recorded value.
+     *
+     * @param percentile The percentile to get, between 0 and 100.
+     * @return The value at the given percentile. Zero if nothing was recorded.
+     */
+    public long getValueAtPercentile(double percentile)
+    {
+        // Work out how many values we need to count past:
+        long totalCount = getTotalCount();
+        if (totalCount == 0) return 0;
+        long countToReach = Math.max(1, (long) Math.ceil(Math.clamp(percentile, 0.0, 100.0) / 100.0 * totalCount));
+
+        // Walk the bins until we have counted enough values:
+        long count = 0;
+        for (int binIndex = 0; binIndex < getNumberOfBins(); binIndex++)
+        {
+            count += this.counts.get(binIndex);
+            if (count >= countToReach) return Math.min(getBinEndInclusive(binIndex), getMaxValue());
+        }
+        return getMaxValue();
+    }
+
+    /**
+     * Iterates through each bin that has values.
+     *
+     * @param consumer The logic to process each bin.
+     */
+    public void forEach(BinConsumer consumer)
+    {
+        for (int binIndex = 0; binIndex < getNumberOfBins(); binIndex++)
+        {
+            long count = this.counts.get(binIndex);
+            if (count != 0) consumer.accept(getBinStartInclusive(binIndex), getBinEndInclusive(binIndex), count);
+        }
+    }
+
+    /**
+     * Clears all the values that were recorded.
+     * Values that are recorded while this is running might be partly cleared.
+     */
+    public void reset()
+    {
+        for (int binIndex = 0; binIndex < getNumberOfBins(); binIndex++) this.counts.set(binIndex, 0);
+        this.totalCount.set(0);
+        this.totalValue.set(0);
+        this.maxValue.set(0);
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder();
+        this.forEach((startInclusive, endInclusive, count) -> sb.append(String.format("%,15d:,%,15d:%,15d\n", startInclusive, endInclusive, count)));
+        return sb.toString();
+    }
+
+    /**
+     * Processes a bin of the histogram.
+     */
+    @FunctionalInterface
+    public interface BinConsumer
+    {
+        /**
+         * Processes a bin of the histogram.
+         *
+         * @param startInclusive The smallest value of the bin.
+         * @param endInclusive   The largest value of the bin.
+         * @param count          The number of values in the bin.
+         */
+        void accept(long startInclusive, long endInclusive, long count);
+    }
+}
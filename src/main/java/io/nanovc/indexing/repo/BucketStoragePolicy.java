@@ -0,0 +1,28 @@
+package io.nanovc.indexing.repo;
+
+/**
+ * This determines which representations of the items we keep in each {@link KDBucketNode bucket} of a kd-tree.
+ * It lets us trade CPU for memory.
+ */
+public enum BucketStoragePolicy
+{
+    /**
+     * Keep both the decoded items and their content in each bucket, and the content in the content area of the division cell.
+     * Searches never need to decode content and commits never need to create it, but we hold two copies of each item.
+     */
+    ItemsAndContent,
+
+    /**
+     * Keep only the content in each bucket and in the content area of the division cell.
+     * Items are decoded from the content when a bucket is scanned,
+     * and the decoded items of the most recently scanned buckets are cached.
+     */
+    ContentOnly,
+
+    /**
+     * Keep only the decoded items in each bucket.
+     * The content area of each division cell stays empty
+     * and the content is only created from the items when the division cell is committed.
+     */
+    ItemsOnly
+}
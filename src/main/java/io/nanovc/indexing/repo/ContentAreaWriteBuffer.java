@@ -0,0 +1,109 @@
+package io.nanovc.indexing.repo;
+
+import io.nanovc.AreaAPI;
+import io.nanovc.ContentAPI;
+import io.nanovc.RepoPath;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Buffers the changes to a {@link AreaAPI content area} so that they can be written to the area later in one go.
+ * <p>
+ * Changes are coalesced by repo path, so if the content at a path is put and then removed or replaced
+ * before the buffer is flushed, only the final state of that path is written to the area.
+ * This means that bursts of changes don't pay for the intermediate states of the content area.
+ *
+ * @param <TContent> The specific type of content that the repo commits.
+ */
+public class ContentAreaWriteBuffer<TContent extends ContentAPI>
+{
+    /**
+     * The final state of the content at each absolute path that has changed, in the order that the paths were first changed.
+     * A null value means that the content at the path was removed.
+     */
+    private final LinkedHashMap<String, TContent> pendingContentByPath = new LinkedHashMap<>();
+
+    /**
+     * The number of changes that were coalesced with an earlier change to the same path instead of being written to the area.
+     */
+    private long coalescedChangeCount;
+
+    /**
+     * Buffers putting the content at the given path.
+     *
+     * @param repoPath The path to put the content at.
+     * @param content  The content to put.
+     */
+    public void putContent(RepoPath repoPath, TContent content)
+    {
+        bufferChange(repoPath, content);
+    }
+
+    /**
+     * Buffers removing the content at the given path.
+     *
+     * @param repoPath The path to remove the content at.
+     */
+    public void removeContent(RepoPath repoPath)
+    {
+        bufferChange(repoPath, null);
+    }
+
+    /**
+     * Buffers the final state of the content at the given path.
+     *
+     * @param repoPath The path that changed.
+     * @param content  The content at the path. Null if the content was removed.
+     */
+    private void bufferChange(RepoPath repoPath, TContent content)
+    {
+        // Keep only the final state of the path, counting the change that we replace:
+        String path = repoPath.toAbsolutePath().path;
+        if (this.pendingContentByPath.containsKey(path)) this.coalescedChangeCount++;
+        this.pendingContentByPath.put(path, content);
+    }
+
+    /**
+     * Writes the buffered changes to the given content area and empties the buffer.
+     *
+     * @param contentArea The content area to write the changes to.
+     */
+    public void flushTo(AreaAPI<TContent> contentArea)
+    {
+        for (Map.Entry<String, TContent> entry : this.pendingContentByPath.entrySet())
+        {
+            if (entry.getValue() == null) contentArea.removeContent(entry.getKey());
+            else contentArea.putContent(entry.getKey(), entry.getValue());
+        }
+        this.pendingContentByPath.clear();
+    }
+
+    /**
+     * Drops the buffered changes without writing them anywhere.
+     */
+    public void clear()
+    {
+        this.pendingContentByPath.clear();
+    }
+
+    /**
+     * Gets the number of paths with changes that haven't been written to the content area yet.
+     *
+     * @return The number of paths with buffered changes.
+     */
+    public int getPendingChangeCount()
+    {
+        return this.pendingContentByPath.size();
+    }
+
+    /**
+     * Gets the number of changes that were coalesced with an earlier change to the same path instead of being written to the area.
+     *
+     * @return The number of changes that were coalesced.
+     */
+    public long getCoalescedChangeCount()
+    {
+        return this.coalescedChangeCount;
+    }
+}
@@ -3,6 +3,7 @@ package io.nanovc.indexing.repo;
 import io.nanovc.indexing.repo.arithmetic.Arithmetic;
 import io.nanovc.indexing.repo.ranges.Range;
 import io.nanovc.indexing.repo.ranges.RangeCalculator;
+import io.nanovc.indexing.repo.ranges.RangePredicate;
 
 import java.util.List;
 
@@ -44,6 +45,17 @@ public class Dimension<TUnit>
      */
     private final RangeCalculator<TUnit> rangeCalculator;
 
+    /**
+     * The {@link RangeCalculator#compile(Range) compiled} predicate for the {@link #range} of this dimension.
+     */
+    private final RangePredicate<TUnit> rangePredicate;
+
+    /**
+     * The number of divisions to split this dimension into.
+     * Zero to use the number of divisions of the index.
+     */
+    private final int divisions;
+
     public Dimension(
         String name,
         int index,
@@ -53,12 +65,28 @@ public class Dimension<TUnit>
         RangeCalculator<TUnit> calculator
     )
     {
+        this(name, index, range, smallestDivisionStepSize, 0, arithmetic, calculator);
+    }
+
+    public Dimension(
+        String name,
+        int index,
+        Range<TUnit> range,
+        TUnit smallestDivisionStepSize,
+        int divisions,
+        Arithmetic<TUnit> arithmetic,
+        RangeCalculator<TUnit> calculator
+    )
+    {
+        if (divisions < 0) throw new IllegalArgumentException("The number of divisions for dimension " + name + " must not be negative but was " + divisions);
         this.name = name;
         this.dimensionIndex = index;
         this.range = range;
         this.smallestDivisionStepSize = smallestDivisionStepSize;
         this.arithmetic = arithmetic;
         this.rangeCalculator = calculator;
+        this.rangePredicate = calculator.compile(range);
+        this.divisions = divisions;
     }
 
     /**
@@ -69,7 +97,7 @@ public class Dimension<TUnit>
      */
     public boolean isInRange(TUnit value)
     {
-        return getRangeCalculator().isInRange(value, getRange());
+        return this.rangePredicate.isInRange(value);
     }
 
     /**
@@ -156,12 +184,23 @@ public class Dimension<TUnit>
         return smallestDivisionStepSize;
     }
 
+    /**
+     * Gets the number of divisions to split this dimension into.
+     *
+     * @return The number of divisions to split this dimension into. Zero to use the number of divisions of the index.
+     */
+    public int getDivisions()
+    {
+        return divisions;
+    }
+
     @Override public String toString()
     {
         return "Dimension{" +
                "name='" + name + '\'' +
                ", dimensionIndex=" + dimensionIndex +
                ", range=" + range +
+               (divisions == 0 ? "" : ", divisions=" + divisions) +
                '}';
     }
 
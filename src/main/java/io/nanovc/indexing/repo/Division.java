@@ -3,8 +3,7 @@ package io.nanovc.indexing.repo;
 import io.nanovc.AreaAPI;
 import io.nanovc.ContentAPI;
 
-import java.util.Map;
-import java.util.NavigableMap;
+import java.util.List;
 
 /**
  * A division of the {@link RepoIndex1D} range.
@@ -46,6 +45,16 @@ public class Division<
      */
     public TItem maxRange;
 
+    /**
+     * The name of the branch that this division is committed to.
+     */
+    public String branchName;
+
+    /**
+     * True if items were added to this division since it was last committed.
+     */
+    public boolean hasUncommittedChanges;
+
     @Override
     public String toString()
     {
@@ -144,19 +153,17 @@ public class Division<
             // The node has children.
 
             // Write each child:
-            NavigableMap<String, RepoPathNode> childrenByName = node.getChildrenByName();
-            for (Map.Entry<String, RepoPathNode> entry : childrenByName.entrySet())
+            List<RepoPathNode> children = node.getChildren();
+            for (int i = 0; i < children.size(); i++)
             {
-                // Get the values:
-                String childName = entry.getKey();
-                RepoPathNode childNode = entry.getValue();
+                // Get the child:
+                RepoPathNode childNode = children.get(i);
 
                 // Create a new line:
                 stringBuilder.append("\n");
 
                 // Check whether the child has another sibling:
-                String childSiblingName = childrenByName.higherKey(childName);
-                boolean hasChildSibling = childSiblingName != null;
+                boolean hasChildSibling = i < children.size() - 1;
 
                 // Create the new indent for this child:
                 String nextIndent = indent + (hasSibling ? "│   " : (isRootNode ? "" : "    "));
@@ -4,8 +4,6 @@ import io.nanovc.AreaAPI;
 import io.nanovc.ContentAPI;
 
 import java.util.List;
-import java.util.Map;
-import java.util.NavigableMap;
 
 /**
  * A cell of a {@link DivisionCube}.
@@ -47,6 +45,11 @@ public class DivisionCell<
      */
     public TArea contentArea;
 
+    /**
+     * The changes to the {@link #contentArea content area} that haven't been written to it yet.
+     */
+    public final ContentAreaWriteBuffer<TContent> contentAreaWriteBuffer = new ContentAreaWriteBuffer<>();
+
     /**
      * The repo path tree for this division.
      * It matches up with the paths in the {@link #contentArea}
@@ -60,9 +63,29 @@ public class DivisionCell<
 
     /**
      * The nearest cells to this one.
+     * They are kept in the order of their {@link #divisionCellCoordinate division coordinates}
+     * so that searches give the same results no matter how the nearest cells were worked out.
      */
     public List<DivisionCell<TItem, TContent, TArea>> nearestCells;
 
+    /**
+     * The division distance from this cell to each of its {@link #nearestCells nearest cells}.
+     * This is the largest difference between the {@link #divisionCellCoordinate division coordinates} in any dimension.
+     * {@link Integer#MAX_VALUE} if this cell does not have any nearest cells yet.
+     */
+    public int nearestCellsDivisionDistance = Integer.MAX_VALUE;
+
+    /**
+     * True if the {@link #contentArea content area} has changed since it was last committed to the {@link #branchName branch}.
+     */
+    public boolean hasUncommittedChanges;
+
+    /**
+     * The number of operations that are using this cell and need it to stay resident.
+     * A {@link DivisionCellPager} never evicts a cell while this is positive.
+     */
+    public int pinCount;
+
     @Override
     public String toString()
     {
@@ -166,19 +189,17 @@ public class DivisionCell<
             // The node has children.
 
             // Write each child:
-            NavigableMap<String, RepoPathNode> childrenByName = node.getChildrenByName();
-            for (Map.Entry<String, RepoPathNode> entry : childrenByName.entrySet())
+            List<RepoPathNode> children = node.getChildren();
+            for (int i = 0; i < children.size(); i++)
             {
-                // Get the values:
-                String childName = entry.getKey();
-                RepoPathNode childNode = entry.getValue();
+                // Get the child:
+                RepoPathNode childNode = children.get(i);
 
                 // Create a new line:
                 stringBuilder.append("\n");
 
                 // Check whether the child has another sibling:
-                String childSiblingName = childrenByName.higherKey(childName);
-                boolean hasChildSibling = childSiblingName != null;
+                boolean hasChildSibling = i < children.size() - 1;
 
                 // Create the new indent for this child:
                 String nextIndent = indent + (hasSibling ? "│   " : (isRootNode ? "" : "    "));
@@ -0,0 +1,409 @@
+package io.nanovc.indexing.repo;
+
+import io.nanovc.AreaAPI;
+import io.nanovc.ContentAPI;
+import io.nanovc.indexing.repo.ranges.RangeSplitLocator;
+
+import java.util.Arrays;
+
+/**
+ * A flat directory of the {@link DivisionCell division cells} in a {@link DivisionCube}.
+ * <p>
+ * Instead of walking the chain of {@link DivisionDimension division dimensions} (one map lookup and one {@link DivisionCoord} copy per dimension),
+ * the division coordinate of a cell is packed into a single long using mixed-radix arithmetic
+ * (the radix of each dimension is the number of range splits in that dimension).
+ * The packed key is then used to look up the cell directly.
+ * <p>
+ * If the division cube is small enough then the cells are kept in a dense array indexed by the packed key.
+ * Otherwise, the cells are kept in an open-addressing hash table keyed by the packed key.
+ * <p>
+ * This can only be used when the total number of possible cells fits in a long.
+ * See {@link #canPack(int[])}.
+ *
+ * @param <TItem>    The specific type of item that the division cells hold.
+ * @param <TContent> The specific type of content that the repo commits.
+ * @param <TArea>    The specific type of content area that the repo commits.
+ */
+public class DivisionCellDirectory<
+    TItem,
+    TContent extends ContentAPI,
+    TArea extends AreaAPI<TContent>
+    >
+{
+    /**
+     * The maximum number of possible cells for which we use a dense array.
+     * Beyond this, we use an open-addressing hash table so that sparse cubes don't waste memory.
+     */
+    public static final int MAX_DENSE_CELL_COUNT = 4096;
+
+    /**
+     * The key that marks an empty slot in the hash table.
+     * Packed keys are never negative.
+     */
+    private static final long EMPTY_KEY = -1L;
+
+    /**
+     * The initial capacity of the hash table. This must be a power of two.
+     */
+    private static final int INITIAL_HASH_CAPACITY = 64;
+
+    /**
+     * The locators for the range splits of each dimension.
+     * These find the division index of a value in each dimension.
+     */
+    private final RangeSplitLocator<Object>[] splitLocators;
+
+    /**
+     * The number of range splits in each dimension.
+     * This is the radix for each digit of the packed key.
+     */
+    private final int[] radices;
+
+    /**
+     * The total number of possible cells in the division cube.
+     */
+    private final long possibleCellCount;
+
+    /**
+     * The dense array of cells, indexed by the packed key.
+     * Null if we are using the hash table instead.
+     */
+    private final DivisionCell<TItem, TContent, TArea>[] denseCells;
+
+    /**
+     * The keys of the hash table. Empty slots have {@link #EMPTY_KEY}.
+     * Null if we are using the dense array instead.
+     */
+    private long[] hashKeys;
+
+    /**
+     * The cells of the hash table, in the same slots as the {@link #hashKeys}.
+     * Null if we are using the dense array instead.
+     */
+    private DivisionCell<TItem, TContent, TArea>[] hashCells;
+
+    /**
+     * The number of cells in this directory.
+     */
+    private int size;
+
+    /**
+     * Creates a directory for a division cube with the given range splits in each dimension.
+     *
+     * @param splitLocators The locators for the range splits of each dimension. The number of splits in each dimension must be such that {@link #canPack(int[])} is true.
+     */
+    public DivisionCellDirectory(RangeSplitLocator<Object>[] splitLocators)
+    {
+        this.splitLocators = splitLocators;
+
+        // Get the radix of each dimension:
+        this.radices = new int[splitLocators.length];
+        for (int dimensionIndex = 0; dimensionIndex < splitLocators.length; dimensionIndex++)
+        {
+            this.radices[dimensionIndex] = splitLocators[dimensionIndex].getSplits().size();
+        }
+
+        // Make sure we can pack the coordinates:
+        if (!canPack(this.radices)) throw new IllegalArgumentException("The division cube has too many possible cells to pack their coordinates into a long");
+
+        // Work out the total number of possible cells:
+        long count = 1;
+        for (int radix : this.radices) count *= radix;
+        this.possibleCellCount = count;
+
+        // Decide whether to use a dense array or a hash table:
+        if (count <= MAX_DENSE_CELL_COUNT)
+        {
+            // Use a dense array:
+            this.denseCells = createCellArray((int) count);
+        }
+        else
+        {
+            // Use a hash table:
+            this.denseCells = null;
+            this.hashKeys = new long[INITIAL_HASH_CAPACITY];
+            Arrays.fill(this.hashKeys, EMPTY_KEY);
+            this.hashCells = createCellArray(INITIAL_HASH_CAPACITY);
+        }
+    }
+
+    /**
+     * Checks whether the coordinates of a division cube with the given number of splits per dimension can be packed into a long.
+     *
+     * @param radices The number of range splits in each dimension.
+     * @return True if every coordinate can be packed into a (non-negative) long. False if there are too many possible cells.
+     */
+    public static boolean canPack(int[] radices)
+    {
+        long count = 1;
+        for (int radix : radices)
+        {
+            // Make sure the radix is valid:
+            if (radix <= 0) return false;
+
+            // Make sure we won't overflow:
+            if (count > Long.MAX_VALUE / radix) return false;
+
+            count *= radix;
+        }
+        return true;
+    }
+
+    /**
+     * Creates an array of cells of the given size.
+     *
+     * @param size The size of the array.
+     * @return A new array of cells.
+     */
+    private DivisionCell<TItem, TContent, TArea>[] createCellArray(int size)
+    {
+        //noinspection unchecked
+        return (DivisionCell<TItem, TContent, TArea>[]) new DivisionCell[size];
+    }
+
+    /**
+     * Finds the packed key of the cell that contains the given coordinate.
+     * This does not allocate any intermediate {@link DivisionCoord division coordinates}.
+     *
+     * @param itemCoord The coordinate to find the cell key for.
+     * @return The packed key of the cell that contains the coordinate. -1 if the coordinate is not in any of the range splits.
+     */
+    public long findCellKey(HyperCoord itemCoord)
+    {
+        long key = 0;
+        for (int dimensionIndex = 0; dimensionIndex < this.radices.length; dimensionIndex++)
+        {
+            // Find the division index in this dimension:
+            int divisionIndex = this.splitLocators[dimensionIndex].locate(itemCoord.getValue(dimensionIndex));
+            if (divisionIndex < 0) return -1;
+
+            // Add this digit to the key:
+            key = key * this.radices[dimensionIndex] + divisionIndex;
+        }
+        return key;
+    }
+
+    /**
+     * Packs the given division coordinate into a key.
+     *
+     * @param divisionCoord The division coordinate to pack.
+     * @return The packed key for the division coordinate. -1 if the coordinate is outside the division cube.
+     */
+    public long packCoordinate(DivisionCoord divisionCoord)
+    {
+        return packCoordinate(divisionCoord.values());
+    }
+
+    /**
+     * Packs the given division coordinate values into a key.
+     *
+     * @param divisionCoordValues The division index in each dimension.
+     * @return The packed key for the division coordinate. -1 if the coordinate is outside the division cube.
+     */
+    public long packCoordinate(int[] divisionCoordValues)
+    {
+        long key = 0;
+        for (int dimensionIndex = 0; dimensionIndex < this.radices.length; dimensionIndex++)
+        {
+            // Get the division index in this dimension:
+            int divisionIndex = divisionCoordValues[dimensionIndex];
+            if (divisionIndex < 0 || divisionIndex >= this.radices[dimensionIndex]) return -1;
+
+            // Add this digit to the key:
+            key = key * this.radices[dimensionIndex] + divisionIndex;
+        }
+        return key;
+    }
+
+    /**
+     * Gets the cell with the given packed key.
+     *
+     * @param key The packed key of the cell.
+     * @return The cell with the given key. Null if there is no cell with that key.
+     */
+    public DivisionCell<TItem, TContent, TArea> get(long key)
+    {
+        // Make sure the key is valid:
+        if (key < 0 || key >= this.possibleCellCount) return null;
+
+        // Check whether we are using the dense array:
+        if (this.denseCells != null) return this.denseCells[(int) key];
+
+        // Probe the hash table:
+        int mask = this.hashKeys.length - 1;
+        for (int slot = hashSlot(key, mask); ; slot = (slot + 1) & mask)
+        {
+            long slotKey = this.hashKeys[slot];
+            if (slotKey == key) return this.hashCells[slot];
+            if (slotKey == EMPTY_KEY) return null;
+        }
+    }
+
+    /**
+     * Puts the cell with the given packed key into the directory.
+     *
+     * @param key  The packed key of the cell.
+     * @param cell The cell to put.
+     */
+    public void put(long key, DivisionCell<TItem, TContent, TArea> cell)
+    {
+        // Make sure the key is valid:
+        if (key < 0 || key >= this.possibleCellCount) throw new IllegalArgumentException("The cell key is outside the division cube: " + key);
+
+        // Check whether we are using the dense array:
+        if (this.denseCells != null)
+        {
+            if (this.denseCells[(int) key] == null) this.size++;
+            this.denseCells[(int) key] = cell;
+            return;
+        }
+
+        // Make sure the hash table stays at most half full so that probes stay short:
+        if ((this.size + 1) * 2 > this.hashKeys.length) resizeHashTable(this.hashKeys.length * 2);
+
+        // Probe the hash table for the slot:
+        int mask = this.hashKeys.length - 1;
+        for (int slot = hashSlot(key, mask); ; slot = (slot + 1) & mask)
+        {
+            long slotKey = this.hashKeys[slot];
+            if (slotKey == key)
+            {
+                // Replace the existing cell:
+                this.hashCells[slot] = cell;
+                return;
+            }
+            if (slotKey == EMPTY_KEY)
+            {
+                // Use this empty slot:
+                this.hashKeys[slot] = key;
+                this.hashCells[slot] = cell;
+                this.size++;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Removes the cell with the given packed key from the directory.
+     *
+     * @param key The packed key of the cell.
+     */
+    public void remove(long key)
+    {
+        // Make sure the key is valid:
+        if (key < 0 || key >= this.possibleCellCount) return;
+
+        // Check whether we are using the dense array:
+        if (this.denseCells != null)
+        {
+            if (this.denseCells[(int) key] != null) this.size--;
+            this.denseCells[(int) key] = null;
+            return;
+        }
+
+        // Probe the hash table for the slot:
+        int mask = this.hashKeys.length - 1;
+        int slot = hashSlot(key, mask);
+        while (this.hashKeys[slot] != key)
+        {
+            if (this.hashKeys[slot] == EMPTY_KEY) return;
+            slot = (slot + 1) & mask;
+        }
+
+        // Shift the later keys in the same probe sequence back so that they can still be found without tombstones:
+        int emptySlot = slot;
+        for (int nextSlot = (slot + 1) & mask; this.hashKeys[nextSlot] != EMPTY_KEY; nextSlot = (nextSlot + 1) & mask)
+        {
+            // Check whether the home slot of this key is outside the (cyclic) range from the empty slot to this slot:
+            int homeSlot = hashSlot(this.hashKeys[nextSlot], mask);
+            boolean canMove = emptySlot <= nextSlot ? (homeSlot <= emptySlot || homeSlot > nextSlot) : (homeSlot <= emptySlot && homeSlot > nextSlot);
+            if (canMove)
+            {
+                // Move the key back into the empty slot:
+                this.hashKeys[emptySlot] = this.hashKeys[nextSlot];
+                this.hashCells[emptySlot] = this.hashCells[nextSlot];
+                emptySlot = nextSlot;
+            }
+        }
+
+        // Empty the last slot that we moved from:
+        this.hashKeys[emptySlot] = EMPTY_KEY;
+        this.hashCells[emptySlot] = null;
+        this.size--;
+    }
+
+    /**
+     * Resizes the hash table to the given capacity and re-inserts all the cells.
+     *
+     * @param newCapacity The new capacity. This must be a power of two.
+     */
+    private void resizeHashTable(int newCapacity)
+    {
+        // Keep the old table:
+        long[] oldKeys = this.hashKeys;
+        DivisionCell<TItem, TContent, TArea>[] oldCells = this.hashCells;
+
+        // Create the new table:
+        this.hashKeys = new long[newCapacity];
+        Arrays.fill(this.hashKeys, EMPTY_KEY);
+        this.hashCells = createCellArray(newCapacity);
+
+        // Re-insert the cells:
+        int mask = newCapacity - 1;
+        for (int oldSlot = 0; oldSlot < oldKeys.length; oldSlot++)
+        {
+            long key = oldKeys[oldSlot];
+            if (key == EMPTY_KEY) continue;
+
+            int slot = hashSlot(key, mask);
+            while (this.hashKeys[slot] != EMPTY_KEY) slot = (slot + 1) & mask;
+            this.hashKeys[slot] = key;
+            this.hashCells[slot] = oldCells[oldSlot];
+        }
+    }
+
+    /**
+     * Gets the home slot in the hash table for the given key.
+     *
+     * @param key  The key to hash.
+     * @param mask The mask for the size of the hash table.
+     * @return The home slot for the key.
+     */
+    private static int hashSlot(long key, int mask)
+    {
+        // Use Fibonacci hashing to spread keys that are close together:
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    /**
+     * Gets the number of cells in this directory.
+     *
+     * @return The number of cells in this directory.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Checks whether this directory uses a dense array for the cells.
+     *
+     * @return True if this directory uses a dense array. False if it uses an open-addressing hash table.
+     */
+    public boolean isDense()
+    {
+        return denseCells != null;
+    }
+
+    /**
+     * Gets the number of range splits in each dimension.
+     * This is the radix for each digit of the packed key.
+     *
+     * @return The number of range splits in each dimension.
+     */
+    public int[] getRadices()
+    {
+        return radices;
+    }
+}
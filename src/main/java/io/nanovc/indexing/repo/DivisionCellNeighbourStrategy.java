@@ -0,0 +1,25 @@
+package io.nanovc.indexing.repo;
+
+/**
+ * This determines how we discover the nearest {@link DivisionCell division cells} of each cell in a {@link DivisionCube}.
+ */
+public enum DivisionCellNeighbourStrategy
+{
+    /**
+     * Ripple out from each cell in concentric shells and probe every coordinate on each shell for a cell.
+     * This is quick when most of the division cube is occupied, but the cost grows with the volume of the shells,
+     * which is expensive when there are many dimensions and only a few cells exist.
+     */
+    ShellWalk,
+
+    /**
+     * Query a sorted index of the coordinates of the cells that actually exist.
+     * The cost is proportional to the number of occupied cells instead of the volume of the division cube.
+     */
+    OccupiedCells,
+
+    /**
+     * Keep the index of occupied cells and use whichever strategy needs to look at fewer coordinates or cells each time.
+     */
+    Automatic
+}
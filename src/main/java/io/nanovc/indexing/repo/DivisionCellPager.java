@@ -0,0 +1,232 @@
+package io.nanovc.indexing.repo;
+
+import io.nanovc.AreaAPI;
+import io.nanovc.ContentAPI;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Pages the content of {@link DivisionCell division cells} in and out of memory.
+ * <p>
+ * Each division cell is a natural page: its {@link DivisionCell#contentArea content area},
+ * {@link DivisionCell#repoPathTree repo path tree} and {@link DivisionCell#kdTreeRoot kd-tree}
+ * can be loaded from its committed branch on first touch and dropped again when it gets cold.
+ * The rest of the division cube (the dimensions, cell hyper cubes and nearest cells) stays resident.
+ * <p>
+ * Cells are evicted in least-recently-used order once there are more than {@link #getMaxResidentCells() the maximum resident cells}.
+ * Cells that are {@link #pin pinned} (for example by a query that is in flight) are never evicted.
+ *
+ * @param <TItem>    The specific type of item that the division cells hold.
+ * @param <TContent> The specific type of content that the repo commits.
+ * @param <TArea>    The specific type of content area that the repo commits.
+ */
+public class DivisionCellPager<
+    TItem,
+    TContent extends ContentAPI,
+    TArea extends AreaAPI<TContent>
+    >
+{
+    /**
+     * The maximum number of cells to keep resident before we start evicting cold cells.
+     */
+    private final int maxResidentCells;
+
+    /**
+     * The logic that loads the content of a cell that is not resident.
+     */
+    private final Consumer<DivisionCell<TItem, TContent, TArea>> cellLoader;
+
+    /**
+     * The logic that saves (if necessary) and drops the content of a cell that is being evicted.
+     */
+    private final Consumer<DivisionCell<TItem, TContent, TArea>> cellEvictor;
+
+    /**
+     * The cells that are resident, in least-recently-used order (the eldest entry is the coldest cell).
+     */
+    private final LinkedHashMap<DivisionCell<TItem, TContent, TArea>, Boolean> residentCells = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * The number of times that a cell was already resident when it was pinned.
+     */
+    private long hitCount;
+
+    /**
+     * The number of times that a cell had to be loaded when it was pinned.
+     */
+    private long missCount;
+
+    /**
+     * The number of times that a cell was evicted.
+     */
+    private long evictionCount;
+
+    /**
+     * Creates a pager for division cells.
+     *
+     * @param maxResidentCells The maximum number of cells to keep resident before we start evicting cold cells. Must be at least one.
+     * @param cellLoader       The logic that loads the content of a cell that is not resident.
+     * @param cellEvictor      The logic that saves (if necessary) and drops the content of a cell that is being evicted.
+     */
+    public DivisionCellPager(int maxResidentCells, Consumer<DivisionCell<TItem, TContent, TArea>> cellLoader, Consumer<DivisionCell<TItem, TContent, TArea>> cellEvictor)
+    {
+        if (maxResidentCells < 1) throw new IllegalArgumentException("The maximum number of resident cells must be at least one but was " + maxResidentCells);
+        this.maxResidentCells = maxResidentCells;
+        this.cellLoader = cellLoader;
+        this.cellEvictor = cellEvictor;
+    }
+
+    /**
+     * Makes sure that the given cell is resident and pins it so that it is not evicted until it is {@link #unpin unpinned}.
+     *
+     * @param cell The cell to pin.
+     */
+    public void pin(DivisionCell<TItem, TContent, TArea> cell)
+    {
+        // Check whether the cell is already resident:
+        if (this.residentCells.get(cell) != null)
+        {
+            // The cell is resident (and now it is the most recently used).
+            this.hitCount++;
+        }
+        else if (cell.contentArea != null)
+        {
+            // This is a new cell that was created in memory, so we just need to start tracking it.
+            this.residentCells.put(cell, Boolean.TRUE);
+        }
+        else
+        {
+            // The cell is not resident.
+            this.missCount++;
+
+            // Load the cell:
+            this.cellLoader.accept(cell);
+            this.residentCells.put(cell, Boolean.TRUE);
+        }
+
+        // Pin the cell:
+        cell.pinCount++;
+
+        // Make space for the cell if we need to:
+        evictColdCells();
+    }
+
+    /**
+     * Unpins the given cell so that it can be evicted again.
+     *
+     * @param cell The cell to unpin.
+     */
+    public void unpin(DivisionCell<TItem, TContent, TArea> cell)
+    {
+        // Unpin the cell:
+        if (cell.pinCount > 0) cell.pinCount--;
+
+        // Evict any cells that we couldn't evict while they were pinned:
+        evictColdCells();
+    }
+
+    /**
+     * Starts tracking a cell that was loaded outside of the pager.
+     *
+     * @param cell The resident cell to track.
+     */
+    public void register(DivisionCell<TItem, TContent, TArea> cell)
+    {
+        this.residentCells.put(cell, Boolean.TRUE);
+        evictColdCells();
+    }
+
+    /**
+     * Stops tracking a cell that no longer exists, without evicting it.
+     *
+     * @param cell The cell to stop tracking.
+     */
+    public void unregister(DivisionCell<TItem, TContent, TArea> cell)
+    {
+        this.residentCells.remove(cell);
+    }
+
+    /**
+     * Evicts the least recently used cells that are not pinned until we are within the maximum number of resident cells.
+     */
+    private void evictColdCells()
+    {
+        // Go through the cells from coldest to hottest:
+        Iterator<DivisionCell<TItem, TContent, TArea>> iterator = this.residentCells.keySet().iterator();
+        while (this.residentCells.size() > this.maxResidentCells && iterator.hasNext())
+        {
+            // Get the next coldest cell:
+            DivisionCell<TItem, TContent, TArea> cell = iterator.next();
+
+            // Skip cells that are in use:
+            if (cell.pinCount > 0) continue;
+
+            // Evict the cell:
+            this.cellEvictor.accept(cell);
+            iterator.remove();
+            this.evictionCount++;
+        }
+    }
+
+    /**
+     * Gets the maximum number of cells to keep resident before we start evicting cold cells.
+     *
+     * @return The maximum number of cells to keep resident.
+     */
+    public int getMaxResidentCells()
+    {
+        return maxResidentCells;
+    }
+
+    /**
+     * Gets the number of cells that are currently resident.
+     *
+     * @return The number of cells that are currently resident.
+     */
+    public int getResidentCellCount()
+    {
+        return residentCells.size();
+    }
+
+    /**
+     * Gets the number of times that a cell was already resident when it was pinned.
+     *
+     * @return The number of cache hits.
+     */
+    public long getHitCount()
+    {
+        return hitCount;
+    }
+
+    /**
+     * Gets the number of times that a cell had to be loaded when it was pinned.
+     *
+     * @return The number of cache misses.
+     */
+    public long getMissCount()
+    {
+        return missCount;
+    }
+
+    /**
+     * Gets the number of times that a cell was evicted.
+     *
+     * @return The number of evictions.
+     */
+    public long getEvictionCount()
+    {
+        return evictionCount;
+    }
+
+    @Override public String toString()
+    {
+        return "DivisionCellPager{" +
+               "resident=" + residentCells.size() + "/" + maxResidentCells +
+               ", hits=" + hitCount +
+               ", misses=" + missCount +
+               ", evictions=" + evictionCount +
+               '}';
+    }
+}
@@ -8,7 +8,7 @@ import java.util.Objects;
  * Each value of the coordinate is the division index in the corresponding {@link DivisionDimension division dimension} for that {@link DivisionCube division cube}.
  * @param values The values in this {@link DivisionCoord division coordinate}.
  */
-public record DivisionCoord(int... values)
+public record DivisionCoord(int... values) implements Comparable<DivisionCoord>
 {
 
     /**
@@ -31,6 +31,35 @@ public record DivisionCoord(int... values)
         return values()[dimensionIndex];
     }
 
+    /**
+     * Gets the division distance to another coordinate.
+     * This is the largest difference between the division indexes in any dimension (the Chebyshev distance).
+     * @param other The other coordinate to measure the distance to. It must have the same number of dimensions.
+     * @return The division distance to the other coordinate.
+     */
+    public int divisionDistanceTo(DivisionCoord other)
+    {
+        var currentValues = values();
+        var otherValues = other.values();
+        int distance = 0;
+        for (int dimensionIndex = 0; dimensionIndex < currentValues.length; dimensionIndex++)
+        {
+            distance = Math.max(distance, Math.abs(currentValues[dimensionIndex] - otherValues[dimensionIndex]));
+        }
+        return distance;
+    }
+
+    /**
+     * Compares this coordinate to another one by comparing the division index in each dimension in turn.
+     * This gives the cells of a {@link DivisionCube division cube} a canonical order.
+     * @param other The other coordinate to compare to.
+     * @return A negative number, zero or a positive number if this coordinate is before, the same as or after the other coordinate.
+     */
+    @Override public int compareTo(DivisionCoord other)
+    {
+        return Arrays.compare(values(), other.values());
+    }
+
     @Override public String toString()
     {
         return "<" +
@@ -3,6 +3,7 @@ package io.nanovc.indexing.repo;
 import io.nanovc.AreaAPI;
 import io.nanovc.ContentAPI;
 import io.nanovc.indexing.repo.ranges.Range;
+import io.nanovc.indexing.repo.ranges.RangeSplitLocator;
 
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -45,6 +46,35 @@ public class DivisionCube<
      */
     public final LinkedHashMap<Integer, List<Range<Object>>> rangeSplitsByDimensionIndex = new LinkedHashMap<>();
 
+    /**
+     * This contains the locators for the range splits of each dimension of this cube.
+     * The splits for a dimension are the same for every {@link DivisionDimension} of that dimension,
+     * so the locators are shared instead of being recalculated for each {@link DivisionDimension}.
+     */
+    public final LinkedHashMap<Integer, RangeSplitLocator<Object>> rangeSplitLocatorsByDimensionIndex = new LinkedHashMap<>();
+
+    /**
+     * A flat directory of the {@link DivisionCell division cells} keyed by their packed division coordinates.
+     * This lets us find a cell with one arithmetic key and one lookup instead of walking the {@link #rootDimension division dimension} chain.
+     * Null if the directory is not being used (for example because there are too many possible cells to pack their coordinates).
+     */
+    public DivisionCellDirectory<TItem, TContent, TArea> cellDirectory;
+
+    /**
+     * The number of cells whose {@link DivisionCell#nearestCellsDivisionDistance nearest cells} are at each division distance.
+     * The index of the array is the division distance.
+     * This tells us the furthest that any cell has to look for its nearest cells,
+     * which bounds the neighbourhood of cells that a new cell could become a nearest cell for.
+     */
+    public int[] cellCountsByNearestCellsDivisionDistance = new int[0];
+
+    /**
+     * A sorted index of the {@link DivisionCell division cells} that actually exist, by their division coordinate in each dimension.
+     * This lets us discover neighbouring cells by looking at occupied cells instead of every coordinate around a cell.
+     * Null if we only discover neighbours by walking shells of coordinates.
+     */
+    public OccupiedDivisionCellIndex<TItem, TContent, TArea> occupiedCellIndex;
+
     @Override public String toString()
     {
         return "DivisionCube{" + "\n" +
@@ -3,6 +3,7 @@ package io.nanovc.indexing.repo;
 import io.nanovc.AreaAPI;
 import io.nanovc.ContentAPI;
 import io.nanovc.indexing.repo.ranges.Range;
+import io.nanovc.indexing.repo.ranges.RangeSplitLocator;
 
 import java.util.HashMap;
 import java.util.List;
@@ -58,6 +59,12 @@ public abstract sealed class DivisionDimension<
      */
     public List<Range<Object>> splits;
 
+    /**
+     * This locates which of the {@link #splits} a value falls into
+     * using the precomputed (sorted) boundaries of the splits instead of checking each split in turn.
+     */
+    public RangeSplitLocator<Object> splitLocator;
+
     /**
      * This is the first {@link DivisionDimension} in the chain.
      * This corresponds to the first {@link Dimension} in the {@link HyperCubeDefinition}.
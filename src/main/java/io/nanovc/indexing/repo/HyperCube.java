@@ -1,8 +1,7 @@
 package io.nanovc.indexing.repo;
 
 import io.nanovc.indexing.repo.ranges.Range;
-
-import java.util.Arrays;
+import io.nanovc.indexing.repo.ranges.RangePredicate;
 
 /**
  * A hyper cube that defines a region of a multidimensional space.
@@ -14,6 +13,46 @@ public class HyperCube
     {
         this.definition = definition;
         this.ranges = ranges;
+        this.dimensionCount = ranges.length;
+        this.parent = null;
+        this.changedDimensionIndex = -1;
+        this.changedRange = null;
+        this.deltaDepth = 0;
+    }
+
+    /**
+     * Creates a hyper cube that is the same as the parent hyper cube except for the range of one dimension.
+     * The ranges are not copied, so this is cheap enough to do for every kd-tree node.
+     * Once the chain of changes is as long as the number of dimensions, the ranges are flattened into a new array
+     * so that looking up a range never walks more than one change per dimension.
+     *
+     * @param parent                The hyper cube that this one is derived from.
+     * @param changedDimensionIndex The index of the dimension with a different range.
+     * @param changedRange          The range for the changed dimension.
+     */
+    private HyperCube(HyperCube parent, int changedDimensionIndex, Range<?> changedRange)
+    {
+        this.definition = parent.definition;
+        this.dimensionCount = parent.dimensionCount;
+        this.changedDimensionIndex = changedDimensionIndex;
+        this.changedRange = changedRange;
+
+        // Check whether the chain of changes is getting too long:
+        if (parent.deltaDepth + 1 >= this.dimensionCount)
+        {
+            // Flatten the ranges so that we don't hold on to the parent:
+            Range<?>[] flattenedRanges = parent.getRanges().clone();
+            flattenedRanges[changedDimensionIndex] = changedRange;
+            this.ranges = flattenedRanges;
+            this.parent = null;
+            this.deltaDepth = 0;
+        }
+        else
+        {
+            // Only remember the change from the parent:
+            this.parent = parent;
+            this.deltaDepth = parent.deltaDepth + 1;
+        }
     }
 
     /**
@@ -23,8 +62,40 @@ public class HyperCube
 
     /**
      * The ranges for each dimension of the hyper cube.
+     * This is null for a hyper cube that is derived from a {@link #parent} until the ranges are flattened on demand.
+     */
+    private Range<?>[] ranges;
+
+    /**
+     * The number of dimensions of the hyper cube.
+     */
+    private final int dimensionCount;
+
+    /**
+     * The hyper cube that this one is derived from. Null if this hyper cube has its own {@link #ranges}.
+     */
+    private final HyperCube parent;
+
+    /**
+     * The index of the dimension that has a different range to the {@link #parent}. Negative if this hyper cube was not derived.
+     */
+    private final int changedDimensionIndex;
+
+    /**
+     * The range for the {@link #changedDimensionIndex changed dimension}.
+     */
+    private final Range<?> changedRange;
+
+    /**
+     * The number of changes between this hyper cube and the nearest ancestor that has its own {@link #ranges}.
+     */
+    private final int deltaDepth;
+
+    /**
+     * The {@link io.nanovc.indexing.repo.ranges.RangeCalculator#compile compiled} predicates for each of the ranges.
+     * These are compiled the first time that we check a coordinate, because many hyper cubes are never checked.
      */
-    private final Range<?>[] ranges;
+    private RangePredicate<?>[] rangePredicates;
 
     /**
      * Gets the definition of the hyper cube.
@@ -43,9 +114,30 @@ public class HyperCube
      */
     public Range<?>[] getRanges()
     {
+        // Check whether we need to flatten the ranges from the parent:
+        Range<?>[] ranges = this.ranges;
+        if (ranges == null)
+        {
+            ranges = new Range<?>[this.dimensionCount];
+            for (int dimIndex = 0; dimIndex < this.dimensionCount; dimIndex++)
+            {
+                ranges[dimIndex] = getRangeForDimension(dimIndex);
+            }
+            this.ranges = ranges;
+        }
         return ranges;
     }
 
+    /**
+     * Gets the number of dimensions of the hyper cube.
+     *
+     * @return The number of dimensions of the hyper cube.
+     */
+    public int getDimensionCount()
+    {
+        return dimensionCount;
+    }
+
     /**
      * Tests whether the given {@link HyperCoord coordinate} is in this {@link HyperCube hyper cube}.
      *
@@ -65,27 +157,21 @@ public class HyperCube
      */
     public boolean isCoordinateInRange(Object... coord)
     {
-        // Get the ranges:
-        Range<?>[] ranges = getRanges();
-
-        // Get the definition of the hyper cube so that we can check the ranges:
-        HyperCubeDefinition definition = getDefinition();
+        // Get the compiled ranges:
+        RangePredicate<?>[] rangePredicates = getRangePredicates();
 
         // Make sure that the coordinate is in each of the ranges:
         for (int dimIndex = 0; dimIndex < coord.length; dimIndex++)
         {
-            // Get the dimension:
-            Dimension<Object> dimension = definition.getDimension(dimIndex);
-
-            // Get the range for this coordinate:
+            // Get the compiled range for this coordinate:
             //noinspection unchecked
-            Range<Object> range = (Range<Object>) ranges[dimIndex];
+            RangePredicate<Object> rangePredicate = (RangePredicate<Object>) rangePredicates[dimIndex];
 
             // Get the value for this coordinate:
             Object value = coord[dimIndex];
 
             // Check whether this coordinate is in range:
-            if (!dimension.getRangeCalculator().isInRange(value, range))
+            if (!rangePredicate.isInRange(value))
             {
                 // This value is not within the coordinate range.
                 return false;
@@ -95,6 +181,145 @@ public class HyperCube
         return true;
     }
 
+    /**
+     * Checks whether this {@link HyperCube hyper cube} has any coordinate in common with the other hyper cube.
+     * This is useful to prune whole cells or kd-tree subtrees that are outside a query region with one check.
+     *
+     * @param other The other {@link HyperCube hyper cube} to check. It must have the same dimensions as this hyper cube.
+     * @return True if the hyper cubes overlap in every dimension.
+     */
+    public boolean intersects(HyperCube other)
+    {
+        // Make sure that the hyper cubes have the same dimensions:
+        checkSameDimensions(other);
+
+        // Make sure that the ranges intersect in each dimension:
+        for (int dimIndex = 0; dimIndex < this.dimensionCount; dimIndex++)
+        {
+            Dimension<Object> dimension = this.definition.getDimension(dimIndex);
+            if (!dimension.getRangeCalculator().intersects(getRangeForDimension(dimIndex), other.getRangeForDimension(dimIndex)))
+            {
+                // The hyper cubes are separated in this dimension.
+                return false;
+            }
+        }
+        // If we get here then the hyper cubes intersect.
+        return true;
+    }
+
+    /**
+     * Checks whether every coordinate of the other {@link HyperCube hyper cube} is also in this hyper cube.
+     * This is useful to accept whole cells or kd-tree subtrees that are inside a query region without checking each item.
+     *
+     * @param other The other {@link HyperCube hyper cube} to check. It must have the same dimensions as this hyper cube.
+     * @return True if this hyper cube contains the other hyper cube in every dimension.
+     */
+    public boolean contains(HyperCube other)
+    {
+        // Make sure that the hyper cubes have the same dimensions:
+        checkSameDimensions(other);
+
+        // Make sure that the ranges are contained in each dimension:
+        for (int dimIndex = 0; dimIndex < this.dimensionCount; dimIndex++)
+        {
+            Dimension<Object> dimension = this.definition.getDimension(dimIndex);
+            if (!dimension.getRangeCalculator().contains(getRangeForDimension(dimIndex), other.getRangeForDimension(dimIndex)))
+            {
+                // Some of the other hyper cube is outside this one in this dimension.
+                return false;
+            }
+        }
+        // If we get here then this hyper cube contains the other one.
+        return true;
+    }
+
+    /**
+     * Gets the smallest distance in each dimension from the given {@link HyperCoord coordinate} to this {@link HyperCube hyper cube}.
+     * The distances are given per dimension because the way that they combine depends on the measurer of the index.
+     *
+     * @param coord The {@link HyperCoord coordinate} to measure from.
+     * @return The smallest distance to the range of each dimension. This is zero for dimensions where the coordinate is in range. Null for dimensions with an empty range.
+     */
+    public HyperCoord minDistanceTo(HyperCoord coord)
+    {
+        // Measure the distance to the range in each dimension:
+        Object[] distances = new Object[this.dimensionCount];
+        for (int dimIndex = 0; dimIndex < this.dimensionCount; dimIndex++)
+        {
+            Dimension<Object> dimension = this.definition.getDimension(dimIndex);
+            distances[dimIndex] = dimension.getRangeCalculator().minDistanceTo(coord.getValue(dimIndex), getRangeForDimension(dimIndex));
+        }
+        return new HyperCoord(distances);
+    }
+
+    /**
+     * Checks whether the given {@link HyperCoord coordinate} is within the given distance of this {@link HyperCube hyper cube} in every dimension.
+     *
+     * @param coord       The {@link HyperCoord coordinate} to measure from.
+     * @param maxDistance The largest distance (inclusive) in each dimension. It is in the units of the dimensions.
+     * @return True if the coordinate is within the distance of the range in every dimension.
+     */
+    public boolean isWithinDistance(HyperCoord coord, Object maxDistance)
+    {
+        for (int dimIndex = 0; dimIndex < this.dimensionCount; dimIndex++)
+        {
+            // Get the distance to the range in this dimension:
+            Dimension<Object> dimension = this.definition.getDimension(dimIndex);
+            Object distance = dimension.getRangeCalculator().minDistanceTo(coord.getValue(dimIndex), getRangeForDimension(dimIndex));
+
+            // Check whether the range is empty or too far away:
+            if (distance == null || dimension.getArithmetic().compare(distance, maxDistance) > 0) return false;
+        }
+        // If we get here then the coordinate is within the distance in every dimension.
+        return true;
+    }
+
+    /**
+     * Makes sure that the other hyper cube has the same dimensions as this hyper cube so that we can relate them.
+     *
+     * @param other The other hyper cube to check.
+     */
+    private void checkSameDimensions(HyperCube other)
+    {
+        if (other.dimensionCount != this.dimensionCount)
+        {
+            throw new IllegalArgumentException("The hyper cubes have a different number of dimensions (" + this.dimensionCount + " and " + other.dimensionCount + ") so they can't be related.");
+        }
+    }
+
+    /**
+     * Gets the {@link io.nanovc.indexing.repo.ranges.RangeCalculator#compile compiled} predicates for each of the ranges, compiling them if necessary.
+     *
+     * @return The compiled predicates for each of the ranges.
+     */
+    private RangePredicate<?>[] getRangePredicates()
+    {
+        // Check whether we have already compiled the ranges:
+        RangePredicate<?>[] rangePredicates = this.rangePredicates;
+        if (rangePredicates == null)
+        {
+            // Check whether the parent has already compiled its ranges:
+            HyperCube parent = this.parent;
+            if (parent != null && parent.rangePredicates != null)
+            {
+                // Only compile the range that changed:
+                rangePredicates = parent.rangePredicates.clone();
+                rangePredicates[this.changedDimensionIndex] = compileRange(this.changedDimensionIndex);
+            }
+            else
+            {
+                // Compile each range with the range calculator of its dimension:
+                rangePredicates = new RangePredicate<?>[this.dimensionCount];
+                for (int dimIndex = 0; dimIndex < this.dimensionCount; dimIndex++)
+                {
+                    rangePredicates[dimIndex] = compileRange(dimIndex);
+                }
+            }
+            this.rangePredicates = rangePredicates;
+        }
+        return rangePredicates;
+    }
+
     /**
      * Gets the range for the dimension with the given index.
      *
@@ -103,12 +328,36 @@ public class HyperCube
      */
     public <TUnit> Range<TUnit> getRangeForDimension(int dimensionIndex)
     {
+        // Walk the chain of changes until we find the dimension or an ancestor with its own ranges:
+        HyperCube cube = this;
+        while (cube.ranges == null)
+        {
+            if (cube.changedDimensionIndex == dimensionIndex)
+            {
+                //noinspection unchecked
+                return (Range<TUnit>) cube.changedRange;
+            }
+            cube = cube.parent;
+        }
         //noinspection unchecked
-        return (Range<TUnit>) this.ranges[dimensionIndex];
+        return (Range<TUnit>) cube.ranges[dimensionIndex];
+    }
+
+    /**
+     * Compiles the range for the given dimension with the range calculator of that dimension.
+     *
+     * @param dimensionIndex The index of the dimension to compile the range for.
+     * @return The compiled predicate for the range.
+     */
+    private RangePredicate<?> compileRange(int dimensionIndex)
+    {
+        Dimension<Object> dimension = this.definition.getDimension(dimensionIndex);
+        return dimension.getRangeCalculator().compile(getRangeForDimension(dimensionIndex));
     }
 
     /**
      * Creates a new hyper cube with a different range for the given dimension index.
+     * The new hyper cube only remembers the change from this hyper cube, so this does not copy the ranges for every dimension.
      *
      * @param dimensionIndex The dimension index to change.
      * @param newRange       The new range for that dimension.
@@ -116,16 +365,8 @@ public class HyperCube
      */
     public <TUnit> HyperCube createHyperCubeWithChangedRange(int dimensionIndex, Range<TUnit> newRange)
     {
-        // Get the ranges from the current cube:
-        Range<?>[] oldRanges = this.getRanges();
-
-        // Copy the ranges:
-        Range<?>[] newRanges = Arrays.copyOf(oldRanges, oldRanges.length);
-
-        // Replace the range for the given dimension:
-        newRanges[dimensionIndex] = newRange;
-
-        return new HyperCube(this.getDefinition(), newRanges);
+        // Derive the new cube from this one without copying the ranges:
+        return new HyperCube(this, dimensionIndex, newRange);
     }
 
     @Override public String toString()
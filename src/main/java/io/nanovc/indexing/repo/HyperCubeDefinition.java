@@ -39,6 +39,29 @@ public class HyperCubeDefinition
         TUnit smallestDivisionStepSize,
         Range<TUnit> range
     )
+    {
+        return addDimension(arithmetic, name, smallestDivisionStepSize, range, 0);
+    }
+
+    /**
+     * A factory method to create a new dimension for this {@link HyperCubeDefinition}
+     * that is split into its own number of divisions instead of the number of divisions of the index.
+     *
+     * @param arithmetic               The logic for performing arithmetic in this dimension.
+     * @param name                     The name of the dimension. If this is null or empty then the dimension index is used as the name.
+     * @param smallestDivisionStepSize This is the smallest division steps size that we allow when partitioning this dimension.
+     * @param range                    The range for the dimension.
+     * @param divisions                The number of divisions to split this dimension into. Zero to use the number of divisions of the index.
+     * @param <TUnit>                  The data type of the units for this dimension.
+     * @return The dimension that was added.
+     */
+    public <TUnit> Dimension<TUnit> addDimension(
+        Arithmetic<TUnit> arithmetic,
+        String name,
+        TUnit smallestDivisionStepSize,
+        Range<TUnit> range,
+        int divisions
+    )
     {
         // Create the range calculator for the dimension:
         RangeCalculator<TUnit> rangeCalculator = new RangeCalculator<>(arithmetic);
@@ -55,6 +78,7 @@ public class HyperCubeDefinition
             dimensionIndex,
             range,
             smallestDivisionStepSize,
+            divisions,
             arithmetic,
             rangeCalculator
         );
@@ -114,6 +138,27 @@ public class HyperCubeDefinition
         return cube;
     }
 
+    /**
+     * Creates a copy of this definition where each dimension is split into the given number of divisions.
+     *
+     * @param divisionsPerDimension The number of divisions for each dimension, in dimension order. Zero to use the number of divisions of the index.
+     * @return A new definition with the same dimensions and the given divisions.
+     */
+    public HyperCubeDefinition withDivisions(int... divisionsPerDimension)
+    {
+        // Make sure we have divisions for each dimension:
+        if (divisionsPerDimension.length != this.getDimensionCount()) throw new IllegalArgumentException("Expected divisions for " + this.getDimensionCount() + " dimensions but got " + divisionsPerDimension.length);
+
+        // Copy each dimension with its new divisions:
+        HyperCubeDefinition definition = new HyperCubeDefinition();
+        for (int dimensionIndex = 0; dimensionIndex < this.getDimensionCount(); dimensionIndex++)
+        {
+            Dimension<Object> dimension = getDimension(dimensionIndex);
+            definition.addDimension(dimension.getArithmetic(), dimension.getName(), dimension.getSmallestDivisionStepSize(), dimension.getRange(), divisionsPerDimension[dimensionIndex]);
+        }
+        return definition;
+    }
+
     /**
      * @return The number of dimensions in this {@link HyperCube}.
      */
@@ -0,0 +1,184 @@
+package io.nanovc.indexing.repo;
+
+import io.nanovc.CommitAPI;
+import io.nanovc.RepoHandlerAPI;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Keeps track of the committed versions of a repo index.
+ * <p>
+ * A repo index commits each of its divisions to its own branch, so a single version of the index
+ * is the set of latest commits of every branch at the time that the index was committed.
+ * This log remembers that set for each commit so that we can resolve the whole index as of any of its commits.
+ * <p>
+ * The versions are also {@link #tagVersion tagged} in the repo so that the log can be {@link #restoreTaggedVersions restored}
+ * when the index is opened again. Each version is tagged as {@code index-version/<number>}
+ * and each branch commit that was made for it is tagged as {@code index-version/<number>/<branch name>}.
+ *
+ * @param <TCommit> The specific type of commit that the repo creates.
+ */
+public class IndexVersionLog<TCommit extends CommitAPI>
+{
+    /**
+     * The prefix of the repo tags that record the versions of an index.
+     */
+    public static final String VERSION_TAG_PREFIX = "index-version/";
+
+    /**
+     * The number of the last version that was tagged or restored. Zero if there are no tagged versions.
+     */
+    private long lastVersionNumber;
+
+    /**
+     * The latest commit of each branch that we know about, indexed by branch name.
+     */
+    private final TreeMap<String, TCommit> latestCommitsByBranchName = new TreeMap<>();
+
+    /**
+     * The version of the index that each commit belongs to.
+     * Each version is the latest commit of every branch, indexed by branch name.
+     */
+    private final Map<TCommit, Map<String, TCommit>> versionsByCommit = new HashMap<>();
+
+    /**
+     * Records that a branch was committed.
+     * This commit is only resolvable as a version once {@link #recordVersion} is called with it.
+     *
+     * @param branchName The name of the branch that was committed.
+     * @param commit     The commit that was made.
+     */
+    public void recordBranchCommit(String branchName, TCommit commit)
+    {
+        this.latestCommitsByBranchName.put(branchName, commit);
+    }
+
+    /**
+     * Gets the latest commit that we know about for the given branch.
+     *
+     * @param branchName The name of the branch.
+     * @return The latest commit of the branch. Null if we don't know about any commits for the branch.
+     */
+    public TCommit getLatestCommit(String branchName)
+    {
+        return this.latestCommitsByBranchName.get(branchName);
+    }
+
+    /**
+     * Records a version of the index from the latest commit of every branch.
+     *
+     * @param commits The commits that were made for this version. Each of them resolves to this version.
+     * @return The version that was recorded, which is the latest commit of every branch, indexed by branch name.
+     */
+    public Map<String, TCommit> recordVersion(Collection<TCommit> commits)
+    {
+        // Capture the latest commit of every branch:
+        Map<String, TCommit> version = Collections.unmodifiableMap(new TreeMap<>(this.latestCommitsByBranchName));
+
+        // Index the version by each of its commits:
+        for (TCommit commit : commits)
+        {
+            this.versionsByCommit.put(commit, version);
+        }
+        return version;
+    }
+
+    /**
+     * Gets the version of the index that the given commit belongs to.
+     *
+     * @param commit A commit that was made when the index was committed or opened.
+     * @return The latest commit of every branch at that version, indexed by branch name.
+     */
+    public Map<String, TCommit> getVersion(TCommit commit)
+    {
+        Map<String, TCommit> version = this.versionsByCommit.get(commit);
+        if (version == null) throw new IllegalArgumentException("The commit " + commit + " is not a version of this index. Use a commit that was returned when the index was committed.");
+        return version;
+    }
+
+    /**
+     * Tags a version of the index in the repo so that it can be {@link #restoreTaggedVersions restored} when the index is opened again.
+     *
+     * @param repoHandler         The repo handler with the commits of the version.
+     * @param commitsByBranchName The commits that were made for this version, indexed by branch name.
+     */
+    public void tagVersion(RepoHandlerAPI<?, ?, TCommit, ?, ?, ?, ?> repoHandler, Map<String, TCommit> commitsByBranchName)
+    {
+        // Make sure there is something to tag:
+        if (commitsByBranchName.isEmpty()) return;
+
+        // Get the next version number that is not tagged yet:
+        // NOTE: Another index could have tagged versions in the same repo.
+        long versionNumber = this.lastVersionNumber + 1;
+        while (repoHandler.getCommitForTag(VERSION_TAG_PREFIX + versionNumber) != null) versionNumber++;
+        this.lastVersionNumber = versionNumber;
+
+        // Tag each commit that was made for the version:
+        String versionTagName = VERSION_TAG_PREFIX + versionNumber;
+        for (Map.Entry<String, TCommit> entry : commitsByBranchName.entrySet())
+        {
+            repoHandler.tagCommit(entry.getValue(), versionTagName + "/" + entry.getKey());
+        }
+
+        // Tag the version itself so that its number is taken:
+        repoHandler.tagCommit(commitsByBranchName.values().iterator().next(), versionTagName);
+    }
+
+    /**
+     * Restores the versions that were {@link #tagVersion tagged} in the repo.
+     * Each version is recorded again in the order that it was tagged, so every commit that was made for a version resolves to it.
+     *
+     * @param repoHandler The repo handler with the tagged versions.
+     */
+    public void restoreTaggedVersions(RepoHandlerAPI<?, ?, TCommit, ?, ?, ?, ?> repoHandler)
+    {
+        // Find the commits of each tagged version:
+        TreeMap<Long, Map<String, TCommit>> commitsByVersionNumber = new TreeMap<>();
+        for (String tagName : repoHandler.getTagNames())
+        {
+            // Skip tags that are not for the commits of a version:
+            if (!tagName.startsWith(VERSION_TAG_PREFIX)) continue;
+            int separatorIndex = tagName.indexOf('/', VERSION_TAG_PREFIX.length());
+            if (separatorIndex < 0) continue;
+            long versionNumber;
+            try
+            {
+                versionNumber = Long.parseLong(tagName.substring(VERSION_TAG_PREFIX.length(), separatorIndex));
+            }
+            catch (NumberFormatException e)
+            {
+                continue;
+            }
+
+            // Keep the commit for the branch:
+            String branchName = tagName.substring(separatorIndex + 1);
+            commitsByVersionNumber.computeIfAbsent(versionNumber, number -> new TreeMap<>()).put(branchName, repoHandler.getCommitForTag(tagName));
+        }
+
+        // Record each version in order:
+        for (Map.Entry<Long, Map<String, TCommit>> entry : commitsByVersionNumber.entrySet())
+        {
+            for (Map.Entry<String, TCommit> branchEntry : entry.getValue().entrySet())
+            {
+                recordBranchCommit(branchEntry.getKey(), branchEntry.getValue());
+            }
+            recordVersion(entry.getValue().values());
+            this.lastVersionNumber = entry.getKey();
+        }
+    }
+
+    /**
+     * Forgets all the commits and versions.
+     * The versions that were tagged in the repo are kept there.
+     */
+    public void clear()
+    {
+        this.latestCommitsByBranchName.clear();
+        this.versionsByCommit.clear();
+        this.lastVersionNumber = 0;
+    }
+}
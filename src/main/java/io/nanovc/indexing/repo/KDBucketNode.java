@@ -3,6 +3,7 @@ package io.nanovc.indexing.repo;
 import io.nanovc.AreaAPI;
 import io.nanovc.ContentAPI;
 
+import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -22,11 +23,13 @@ public final class KDBucketNode<
 {
     /**
      * The map of items stored in this bucket.
+     * This is empty if the index only stores content in its buckets.
      */
     public Map<RepoPathNode, TItem> itemMap = new LinkedHashMap<>();
 
     /**
      * The map of content stored in this bucket.
+     * This is empty if the index only stores items in its buckets.
      */
     public Map<RepoPathNode, TContent> contentMap = new LinkedHashMap<>();
 
@@ -36,15 +39,43 @@ public final class KDBucketNode<
      */
     public RepoPathNode bucketItemsRepoPathNode;
 
+    /**
+     * The index to name the next item that is added to this bucket.
+     * This keeps going up when items are removed so that new items never reuse the path of an existing item.
+     */
+    public int nextItemIndex;
+
+    /**
+     * Gets the number of items in this bucket, whichever representations of the items are stored.
+     *
+     * @return The number of items in this bucket.
+     */
+    public int getItemCount()
+    {
+        return Math.max(itemMap.size(), contentMap.size());
+    }
+
+    /**
+     * Gets the repo path nodes of the items in this bucket in the order that they were added,
+     * whichever representations of the items are stored.
+     *
+     * @return The repo path nodes of the items in this bucket.
+     */
+    public Collection<RepoPathNode> getItemRepoPathNodes()
+    {
+        return contentMap.isEmpty() ? itemMap.keySet() : contentMap.keySet();
+    }
+
     @Override public String toString()
     {
+        int itemCount = getItemCount();
         return "Bucket Node at level " + level +
                " with " +
-               contentMap.size() + " item" + (contentMap.size() == 1 ? "" : "s") + "\n" +
+               itemCount + " item" + (itemCount == 1 ? "" : "s") + "\n" +
                "Bucket range:" + "\n" +
                hyperCube + "\n" +
                "Items:" + "\n" +
-               contentMap.values().stream().map(Object::toString).collect(Collectors.joining("\n"))
+               (contentMap.isEmpty() ? itemMap : contentMap).values().stream().map(Object::toString).collect(Collectors.joining("\n"))
                ;
     }
 }
@@ -2,6 +2,7 @@ package io.nanovc.indexing.repo;
 
 import io.nanovc.AreaAPI;
 import io.nanovc.ContentAPI;
+import io.nanovc.indexing.repo.ranges.RangePredicate;
 import io.nanovc.indexing.repo.ranges.RangeSplit;
 
 /**
@@ -38,6 +39,18 @@ public final class KDIntermediateNode<
      */
     public RangeSplit<TUnit> rangeSplit;
 
+    /**
+     * The {@link io.nanovc.indexing.repo.ranges.RangeCalculator#compile compiled} predicate for {@link RangeSplit#lower()} of the {@link #rangeSplit}.
+     * This is what we check when we walk down the tree.
+     */
+    public RangePredicate<TUnit> lowerRangePredicate;
+
+    /**
+     * The {@link io.nanovc.indexing.repo.ranges.RangeCalculator#compile compiled} predicate for {@link RangeSplit#higher()} of the {@link #rangeSplit}.
+     * This is what we check when we walk down the tree.
+     */
+    public RangePredicate<TUnit> higherRangePredicate;
+
     /**
      * The node for the lower part of this range split.
      */
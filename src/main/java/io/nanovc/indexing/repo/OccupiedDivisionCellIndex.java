@@ -0,0 +1,251 @@
+package io.nanovc.indexing.repo;
+
+import io.nanovc.AreaAPI;
+import io.nanovc.ContentAPI;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * A sorted index of the {@link DivisionCell division cells} that actually exist in a {@link DivisionCube}.
+ * <p>
+ * For each dimension, the cells are sorted by their division index in that dimension.
+ * To find the cells within a division distance of a coordinate,
+ * we pick the dimension with the fewest cells in the slab of that distance
+ * and only check the cells in that slab.
+ * This keeps neighbour discovery proportional to the number of occupied cells
+ * instead of the volume of the division cube, which matters when there are many dimensions and the data is sparse.
+ *
+ * @param <TItem>    The specific type of item that the division cells hold.
+ * @param <TContent> The specific type of content that the repo commits.
+ * @param <TArea>    The specific type of content area that the repo commits.
+ */
+public class OccupiedDivisionCellIndex<
+    TItem,
+    TContent extends ContentAPI,
+    TArea extends AreaAPI<TContent>
+    >
+{
+    /**
+     * The cells indexed by their division index, for each dimension.
+     */
+    private final List<TreeMap<Integer, List<DivisionCell<TItem, TContent, TArea>>>> cellsByDivisionIndexPerDimension;
+
+    /**
+     * The number of cells in this index.
+     */
+    private int size;
+
+    /**
+     * Creates an index of occupied cells.
+     *
+     * @param dimensionCount The number of dimensions of the division cube.
+     */
+    public OccupiedDivisionCellIndex(int dimensionCount)
+    {
+        this.cellsByDivisionIndexPerDimension = new ArrayList<>(dimensionCount);
+        for (int dimensionIndex = 0; dimensionIndex < dimensionCount; dimensionIndex++)
+        {
+            this.cellsByDivisionIndexPerDimension.add(new TreeMap<>());
+        }
+    }
+
+    /**
+     * Adds the given cell to the index.
+     *
+     * @param cell The cell to add. Its {@link DivisionCell#divisionCellCoordinate division coordinate} must be set.
+     */
+    public void add(DivisionCell<TItem, TContent, TArea> cell)
+    {
+        // Index the cell in each dimension:
+        for (int dimensionIndex = 0; dimensionIndex < this.cellsByDivisionIndexPerDimension.size(); dimensionIndex++)
+        {
+            this.cellsByDivisionIndexPerDimension.get(dimensionIndex)
+                .computeIfAbsent(cell.divisionCellCoordinate.getValue(dimensionIndex), divisionIndex -> new ArrayList<>())
+                .add(cell);
+        }
+
+        // Count the cell:
+        this.size++;
+    }
+
+    /**
+     * Removes the given cell from the index.
+     *
+     * @param cell The cell to remove.
+     */
+    public void remove(DivisionCell<TItem, TContent, TArea> cell)
+    {
+        // Remove the cell from each dimension:
+        boolean wasRemoved = false;
+        for (int dimensionIndex = 0; dimensionIndex < this.cellsByDivisionIndexPerDimension.size(); dimensionIndex++)
+        {
+            TreeMap<Integer, List<DivisionCell<TItem, TContent, TArea>>> cellsByDivisionIndex = this.cellsByDivisionIndexPerDimension.get(dimensionIndex);
+            int divisionIndex = cell.divisionCellCoordinate.getValue(dimensionIndex);
+            List<DivisionCell<TItem, TContent, TArea>> cells = cellsByDivisionIndex.get(divisionIndex);
+            if (cells != null && cells.remove(cell))
+            {
+                wasRemoved = true;
+                if (cells.isEmpty()) cellsByDivisionIndex.remove(divisionIndex);
+            }
+        }
+
+        // Stop counting the cell:
+        if (wasRemoved) this.size--;
+    }
+
+    /**
+     * Counts the cells that we would need to check to find the cells within the given division distance of a coordinate.
+     * This is the number of cells in the narrowest slab of that distance across all dimensions.
+     *
+     * @param center   The coordinate to search around.
+     * @param distance The division distance to search within.
+     * @return The number of cells that we would need to check.
+     */
+    public int countCandidateCells(DivisionCoord center, int distance)
+    {
+        int fewestCells = this.size;
+        for (int dimensionIndex = 0; dimensionIndex < this.cellsByDivisionIndexPerDimension.size(); dimensionIndex++)
+        {
+            fewestCells = Math.min(fewestCells, countCellsInSlab(dimensionIndex, center.getValue(dimensionIndex), distance));
+        }
+        return fewestCells;
+    }
+
+    /**
+     * Finds the cells within the given division distance of a coordinate.
+     *
+     * @param center      The coordinate to search around.
+     * @param minDistance The smallest division distance (inclusive) of the cells to find. Use 1 to exclude a cell at the center.
+     * @param maxDistance The largest division distance (inclusive) of the cells to find.
+     * @param foundCells  The collection to add the cells that we find to.
+     */
+    public void findCellsWithinDivisionDistance(DivisionCoord center, int minDistance, int maxDistance, Collection<DivisionCell<TItem, TContent, TArea>> foundCells)
+    {
+        // Find the dimension with the narrowest slab:
+        int narrowestDimensionIndex = -1;
+        int fewestCells = Integer.MAX_VALUE;
+        for (int dimensionIndex = 0; dimensionIndex < this.cellsByDivisionIndexPerDimension.size(); dimensionIndex++)
+        {
+            int cellCount = countCellsInSlab(dimensionIndex, center.getValue(dimensionIndex), maxDistance);
+            if (cellCount < fewestCells)
+            {
+                narrowestDimensionIndex = dimensionIndex;
+                fewestCells = cellCount;
+            }
+        }
+        if (narrowestDimensionIndex < 0) return;
+
+        // Check each cell in the narrowest slab:
+        for (List<DivisionCell<TItem, TContent, TArea>> slabCells : getSlab(narrowestDimensionIndex, center.getValue(narrowestDimensionIndex), maxDistance).values())
+        {
+            for (DivisionCell<TItem, TContent, TArea> cell : slabCells)
+            {
+                // Check whether the cell is within the distance in every dimension:
+                int distance = center.divisionDistanceTo(cell.divisionCellCoordinate);
+                if (distance >= minDistance && distance <= maxDistance) foundCells.add(cell);
+            }
+        }
+    }
+
+    /**
+     * Finds the nearest cells to a coordinate (excluding a cell at the coordinate itself).
+     * We search within a division distance that doubles each time until we find some cells.
+     *
+     * @param center     The coordinate to search around.
+     * @param foundCells The list to add the nearest cells to. All of these cells are at the same division distance.
+     * @return The division distance to the nearest cells. {@link Integer#MAX_VALUE} if there are no other cells.
+     */
+    public int findNearestCells(DivisionCoord center, List<DivisionCell<TItem, TContent, TArea>> foundCells)
+    {
+        // Work out the furthest distance that a cell could be:
+        int furthestDistance = 0;
+        for (int dimensionIndex = 0; dimensionIndex < this.cellsByDivisionIndexPerDimension.size(); dimensionIndex++)
+        {
+            TreeMap<Integer, List<DivisionCell<TItem, TContent, TArea>>> cellsByDivisionIndex = this.cellsByDivisionIndexPerDimension.get(dimensionIndex);
+            if (cellsByDivisionIndex.isEmpty()) return Integer.MAX_VALUE;
+            int centerValue = center.getValue(dimensionIndex);
+            furthestDistance = Math.max(furthestDistance, Math.max(centerValue - cellsByDivisionIndex.firstKey(), cellsByDivisionIndex.lastKey() - centerValue));
+        }
+
+        // Keep doubling the search distance until we find some cells:
+        List<DivisionCell<TItem, TContent, TArea>> candidateCells = new ArrayList<>();
+        for (int searchDistance = 1; ; searchDistance = Math.min(searchDistance * 2, furthestDistance))
+        {
+            // Find the cells within this distance:
+            candidateCells.clear();
+            findCellsWithinDivisionDistance(center, 1, searchDistance, candidateCells);
+
+            // Check whether we found any cells:
+            if (!candidateCells.isEmpty())
+            {
+                // Work out the nearest distance:
+                int nearestDistance = Integer.MAX_VALUE;
+                for (DivisionCell<TItem, TContent, TArea> candidateCell : candidateCells)
+                {
+                    nearestDistance = Math.min(nearestDistance, center.divisionDistanceTo(candidateCell.divisionCellCoordinate));
+                }
+
+                // Keep only the nearest cells:
+                for (DivisionCell<TItem, TContent, TArea> candidateCell : candidateCells)
+                {
+                    if (center.divisionDistanceTo(candidateCell.divisionCellCoordinate) == nearestDistance) foundCells.add(candidateCell);
+                }
+                return nearestDistance;
+            }
+
+            // Check whether we have searched as far as any cell could be:
+            if (searchDistance >= furthestDistance) return Integer.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Gets the cells within the given distance of a division index in one dimension.
+     *
+     * @param dimensionIndex The dimension of the slab.
+     * @param divisionIndex  The division index at the center of the slab.
+     * @param distance       The division distance on either side of the center.
+     * @return The cells in the slab, indexed by their division index in that dimension.
+     */
+    private NavigableMap<Integer, List<DivisionCell<TItem, TContent, TArea>>> getSlab(int dimensionIndex, int divisionIndex, int distance)
+    {
+        long lowest = (long) divisionIndex - distance;
+        long highest = (long) divisionIndex + distance;
+        return this.cellsByDivisionIndexPerDimension.get(dimensionIndex).subMap(
+            (int) Math.max(lowest, Integer.MIN_VALUE), true,
+            (int) Math.min(highest, Integer.MAX_VALUE), true
+        );
+    }
+
+    /**
+     * Counts the cells within the given distance of a division index in one dimension.
+     *
+     * @param dimensionIndex The dimension of the slab.
+     * @param divisionIndex  The division index at the center of the slab.
+     * @param distance       The division distance on either side of the center.
+     * @return The number of cells in the slab.
+     */
+    private int countCellsInSlab(int dimensionIndex, int divisionIndex, int distance)
+    {
+        int cellCount = 0;
+        for (Map.Entry<Integer, List<DivisionCell<TItem, TContent, TArea>>> entry : getSlab(dimensionIndex, divisionIndex, distance).entrySet())
+        {
+            cellCount += entry.getValue().size();
+        }
+        return cellCount;
+    }
+
+    /**
+     * Gets the number of cells in this index.
+     *
+     * @return The number of cells in this index.
+     */
+    public int size()
+    {
+        return this.size;
+    }
+}
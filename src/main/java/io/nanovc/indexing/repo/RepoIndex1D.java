@@ -7,6 +7,7 @@ import io.nanovc.indexing.RangeFinder;
 import io.nanovc.indexing.RangeSplitter;
 
 import java.util.Comparator;
+import java.util.Map;
 
 /**
  * A one dimensional {@link Index1D} that uses a repo for its implementation.
@@ -113,4 +114,20 @@ public interface RepoIndex1D<
      * @return The content reader to use for getting an item from the given content.
      */
     ContentReader<TItem, TContent> getContentReader();
+
+    /**
+     * Commits the content of each division of the index that has changed to the branch for that division.
+     *
+     * @param message The commit message to use for each branch.
+     * @return The commits that were made, indexed by branch name. Empty if nothing has changed.
+     */
+    Map<String, TCommit> commit(String message);
+
+    /**
+     * Brings this index up to date with the given commits of its branches,
+     * applying only the difference from the commits that this index last saw.
+     *
+     * @param commitsByBranchName The commits to bring this index up to date with, indexed by branch name.
+     */
+    void syncTo(Map<String, TCommit> commitsByBranchName);
 }
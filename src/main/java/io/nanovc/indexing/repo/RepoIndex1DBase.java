@@ -2,6 +2,7 @@ package io.nanovc.indexing.repo;
 
 import io.nanovc.*;
 import io.nanovc.indexing.Index1DBase;
+import io.nanovc.indexing.IndexListener;
 import io.nanovc.indexing.Measurer;
 import io.nanovc.indexing.RangeFinder;
 import io.nanovc.indexing.RangeSplitter;
@@ -110,6 +111,30 @@ public abstract class RepoIndex1DBase<
      */
     private final ContentReader<TItem, TContent> contentReader;
 
+    /**
+     * The committed versions of this index so that we can search the index as of any of its commits.
+     */
+    private final IndexVersionLog<TCommit> versionLog = new IndexVersionLog<>();
+
+    /**
+     * The divisions that we have resolved for committed versions of this index, in least-recently-used order.
+     * Divisions that did not change between versions are shared between the versions.
+     */
+    private final LinkedHashMap<Map<String, TCommit>, NavigableMap<Integer, Division<TItem, TContent, TArea>>> snapshotDivisionsByVersion = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * The maximum number of committed versions of this index to keep resolved.
+     */
+    private int maxSnapshotVersions = 8;
+
+    /**
+     * True to store the items of each division in a path-compressed (radix) trie,
+     * where each path name holds all the bytes up to the next point where the items diverge.
+     * False to use one path name for each byte of the items.
+     * This should be set before the first item is added.
+     */
+    private boolean pathCompressedTrieEnabled;
+
     public RepoIndex1DBase(
         TItem minRange, TItem maxRange, int divisions,
         TMeasurer measurer, TDistanceComparator distanceComparator,
@@ -189,6 +214,10 @@ public abstract class RepoIndex1DBase<
      */
     public void add(TItem item)
     {
+        // Time the add if we are measuring the index:
+        IndexListener listener = this.measurement.getIndexListener();
+        long startNanos = listener == null ? 0L : System.nanoTime();
+
         // We divide the search space into divisions so that we can perform range searches in them.
         // We use branches in the repo for each division.
         // This allows us to get grid-like decomposition of the search space when we don't find an exact match.
@@ -206,6 +235,12 @@ public abstract class RepoIndex1DBase<
 
         // Add the item in this division:
         addItemToDivision(item, division);
+
+        // Flag that the division needs to be committed:
+        division.hasUncommittedChanges = true;
+
+        // Tell the listener about the add:
+        if (listener != null) listener.onAdd(System.nanoTime() - startNanos);
     }
 
     /**
@@ -216,6 +251,13 @@ public abstract class RepoIndex1DBase<
      */
     protected void addItemToDivision(TItem item, Division<TItem, TContent, TArea> division)
     {
+        // Check whether we want to compress the paths of the trie:
+        if (this.pathCompressedTrieEnabled)
+        {
+            addItemToDivisionWithPathCompression(item, division);
+            return;
+        }
+
         // We use a trie based approach where the content byte representation is a path to the content
         // similar to how the git hash of the content gives us the address of the content,
         // thus making a content-addressable-file-system.
@@ -378,6 +420,150 @@ public abstract class RepoIndex1DBase<
         }
     }
 
+    /**
+     * Adds the given item to the specific division using a path-compressed (radix) trie.
+     * <p>
+     * Each path name holds a run of bytes of the item content, so an item is stored at the node
+     * where the path names from the root spell out all of its bytes.
+     * A path name is only split when a new item diverges part way through it,
+     * in which case the nodes and content below it are moved under the shorter path name without reading any items.
+     *
+     * @param item     The item to add.
+     * @param division The specific division to add the item to.
+     */
+    protected void addItemToDivisionWithPathCompression(TItem item, Division<TItem, TContent, TArea> division)
+    {
+        // Get the content for the item:
+        TContent itemContent = createContentForItem(item);
+
+        // Get the key that spells out the bytes of the item:
+        String key = getTrieKey(itemContent.asByteBuffer());
+
+        // Walk down the trie until we have consumed the whole key:
+        RepoPathTree repoPathTree = division.repoPathTree;
+        RepoPathNode currentNode = repoPathTree.getRootNode();
+        int keyPosition = 0;
+        while (keyPosition < key.length())
+        {
+            // Find the child whose path name starts with the next byte of the key:
+            RepoPathNode childNode = getTrieChildNode(currentNode, key.charAt(keyPosition));
+            if (childNode == null)
+            {
+                // There is no child for the rest of the key, so add one for all of it:
+                currentNode = repoPathTree.getOrCreateChildNode(currentNode, key.substring(keyPosition));
+                keyPosition = key.length();
+                break;
+            }
+
+            // Work out how much of the path name matches the key:
+            String childName = childNode.getName();
+            int matchLength = getCommonPrefixLength(childName, key, keyPosition);
+            if (matchLength < childName.length())
+            {
+                // The key diverges part way through the path name, so split it where they diverge:
+                RepoPathNode splitNode = repoPathTree.getOrCreateChildNode(currentNode, childName.substring(0, matchLength));
+                moveTrieNode(division, childNode, splitNode, childName.substring(matchLength));
+                childNode = splitNode;
+            }
+
+            // Move to the child node:
+            currentNode = childNode;
+            keyPosition += matchLength;
+        }
+        // Now we have the node for the whole key.
+
+        // Check whether the item is already indexed:
+        RepoPathNode contentNode = repoPathTree.getOrCreateChildNode(currentNode, CONTENT_PATH_NAME);
+        if (division.contentArea.hasContent(contentNode.getRepoPath())) return;
+
+        // Add the content:
+        division.contentArea.putContent(contentNode.getRepoPath(), itemContent);
+    }
+
+    /**
+     * Moves the given node of a path-compressed trie, with all of its descendants and their content, under a new parent with a new name.
+     *
+     * @param division  The division that the trie belongs to.
+     * @param node      The node to move.
+     * @param newParent The node to move it under.
+     * @param newName   The new name for the node.
+     */
+    private void moveTrieNode(Division<TItem, TContent, TArea> division, RepoPathNode node, RepoPathNode newParent, String newName)
+    {
+        // Create the node in its new place:
+        RepoPathNode newNode = division.repoPathTree.getOrCreateChildNode(newParent, newName);
+
+        // Check whether this node holds content:
+        if (node.getName().equals(CONTENT_PATH_NAME))
+        {
+            // Move the content to the new path:
+            TContent content = division.contentArea.getContent(node.getRepoPath());
+            division.contentArea.removeContent(node.getRepoPath());
+            division.contentArea.putContent(newNode.getRepoPath(), content);
+        }
+        else
+        {
+            // Move each child:
+            // NOTE: We get a copy of the children because each child removes itself from this node when it moves.
+            for (RepoPathNode childNode : node.getChildren())
+            {
+                moveTrieNode(division, childNode, newNode, childNode.getName());
+            }
+        }
+
+        // Remove the node from its old place:
+        division.repoPathTree.removeFromParent(node);
+    }
+
+    /**
+     * Gets the child of a path-compressed trie node whose path name starts with the given character.
+     * There is at most one such child because path names are only ever split where items diverge.
+     *
+     * @param node      The node to get the child of.
+     * @param firstChar The first character of the path name of the child.
+     * @return The child whose path name starts with the given character. Null if there is no such child.
+     */
+    private static RepoPathNode getTrieChildNode(RepoPathNode node, char firstChar)
+    {
+        // Find the first child name at or after the character:
+        // NOTE: Path names that start with the character sort straight after the character itself.
+        RepoPathNode childNode = node.getCeilingChild(String.valueOf(firstChar));
+        return childNode != null && childNode.getName().charAt(0) == firstChar ? childNode : null;
+    }
+
+    /**
+     * Gets the number of characters at the start of the path name that match the key at the given position.
+     *
+     * @param pathName    The path name to match.
+     * @param key         The key to match against.
+     * @param keyPosition The position in the key to start matching from.
+     * @return The number of characters that match.
+     */
+    private static int getCommonPrefixLength(String pathName, String key, int keyPosition)
+    {
+        int maxLength = Math.min(pathName.length(), key.length() - keyPosition);
+        int length = 0;
+        while (length < maxLength && pathName.charAt(length) == key.charAt(keyPosition + length)) length++;
+        return length;
+    }
+
+    /**
+     * Gets the key that spells out the given bytes in the path names of the trie.
+     * Each byte becomes the same character that the byte-per-level trie uses for its path name.
+     *
+     * @param bytes The bytes of the item content.
+     * @return The key for the bytes.
+     */
+    private static String getTrieKey(ByteBuffer bytes)
+    {
+        StringBuilder keyBuilder = new StringBuilder(bytes.remaining());
+        while (bytes.hasRemaining())
+        {
+            keyBuilder.append(Character.toString(bytes.get()));
+        }
+        return keyBuilder.toString();
+    }
+
     /**
      * Indexes the items that have been added.
      * This is a pre-computation step that needs to be called before we search for nearest neighbours.
@@ -385,6 +571,10 @@ public abstract class RepoIndex1DBase<
     @Override public void index()
     {
         // Do nothing for this index.
+
+        // Tell the listener about the index:
+        IndexListener listener = this.measurement.getIndexListener();
+        if (listener != null) listener.onIndex(0L);
     }
 
     /**
@@ -394,6 +584,25 @@ public abstract class RepoIndex1DBase<
      * @return The nearest item to the given item.
      */
     public TItem searchNearest(TItem item)
+    {
+        // Start measuring the search if we are measuring the index:
+        long startNanos = this.measurement.startSearch();
+
+        TItem nearestItem = searchNearest(this.divisionsByIndex, item);
+
+        // Tell the listener about the search:
+        this.measurement.endSearch(startNanos);
+        return nearestItem;
+    }
+
+    /**
+     * This finds the nearest item in the given divisions to the given item.
+     *
+     * @param divisionsByIndex The divisions to search. These are either the live divisions or a snapshot of a committed version.
+     * @param item             The item to search for.
+     * @return The nearest item to the given item.
+     */
+    protected TItem searchNearest(NavigableMap<Integer, Division<TItem, TContent, TArea>> divisionsByIndex, TItem item)
     {
         // We search through the division where the queried item is found,
         // along with the neighbouring divisions around it.
@@ -409,15 +618,15 @@ public abstract class RepoIndex1DBase<
         List<Division<TItem, TContent, TArea>> divisionsToSearch = new ArrayList<>(3);
         {
             // Search for the specific division:
-            var division = getDivision(divisionIndex);
+            var division = divisionsByIndex.get(divisionIndex);
             if (division != null) divisionsToSearch.add(division);
 
             // Search for the lower neighbour:
-            division = getNearestLowerDivision(divisionIndex);
+            division = getNearestLowerDivision(divisionsByIndex, divisionIndex);
             if (division != null) divisionsToSearch.add(division);
 
             // Search for the higher neighbour:
-            division = getNearestHigherDivision(divisionIndex);
+            division = getNearestHigherDivision(divisionsByIndex, divisionIndex);
             if (division != null) divisionsToSearch.add(division);
         }
         // Now we have identified all the divisions we want to search through.
@@ -475,6 +684,12 @@ public abstract class RepoIndex1DBase<
      */
     protected MeasuredItem<TItem, TDistance> searchNearestInDivision(TItem item, Division<TItem, TContent, TArea> division)
     {
+        // Count the division as a visited cell:
+        this.measurement.countCellVisited();
+
+        // Check whether the paths of the trie are compressed:
+        if (this.pathCompressedTrieEnabled) return searchNearestInDivisionWithPathCompression(item, division);
+
         // We use a trie based approach where the content byte representation is a path to the content
         // similar to how the git hash of the content gives us the address of the content,
         // thus making a content-addressable-file-system.
@@ -495,11 +710,8 @@ public abstract class RepoIndex1DBase<
             // Get the next path name for the byte:
             String nextPathName = Character.toString(b);
 
-            // Get the child nodes so we can explore them:
-            NavigableMap<String, RepoPathNode> childrenByName = currentNode.getChildrenByName();
-
             // Get the next path node for this value:
-            RepoPathNode childNode = childrenByName.get(nextPathName);
+            RepoPathNode childNode = currentNode.getChild(nextPathName);
 
             // Check whether the child node exists:
             if (childNode == null)
@@ -554,6 +766,56 @@ public abstract class RepoIndex1DBase<
         return searchDivisionWithFullScan(item, division);
     }
 
+    /**
+     * Searches for the nearest item in the given division when its items are stored in a path-compressed (radix) trie.
+     * @param item The item to search for.
+     * @param division The division to search in.
+     * @return The nearest item in that division. Null if there is no item in this division.
+     */
+    protected MeasuredItem<TItem, TDistance> searchNearestInDivisionWithPathCompression(TItem item, Division<TItem, TContent, TArea> division)
+    {
+        // Get the key that spells out the bytes of the item:
+        String key = getTrieKey(createContentForItem(item).asByteBuffer());
+
+        // Walk down the trie while the path names match the key:
+        RepoPathNode currentNode = division.repoPathTree.getRootNode();
+        int keyPosition = 0;
+        while (currentNode != null && keyPosition < key.length())
+        {
+            // Find the child whose path name matches the next part of the key:
+            RepoPathNode childNode = getTrieChildNode(currentNode, key.charAt(keyPosition));
+            if (childNode != null && !key.startsWith(childNode.getName(), keyPosition)) childNode = null;
+
+            // Move to the child node:
+            currentNode = childNode;
+            if (childNode != null) keyPosition += childNode.getName().length();
+        }
+
+        // Check whether we found the node for the whole key:
+        if (currentNode != null)
+        {
+            // Check whether there is content at this node:
+            RepoPathNode contentNode = division.repoPathTree.getChildNode(currentNode, CONTENT_PATH_NAME);
+            if (contentNode != null)
+            {
+                // Check whether the indexed item is equal to the item:
+                TItem indexedItem = readItemFromContent(division.contentArea.getContent(contentNode.getRepoPath()));
+                if (item.equals(indexedItem))
+                {
+                    // Create the measured item:
+                    MeasuredItem<TItem, TDistance> measuredItem = new MeasuredItem<>();
+                    measuredItem.item = indexedItem;
+
+                    return measuredItem;
+                }
+            }
+        }
+        // Now we know that there is no exact match.
+
+        // Scan all the items:
+        return searchDivisionWithFullScan(item, division);
+    }
+
     /**
      * Searches for the nearest item by doing a full scan of the global item map.
      * WARNING: Slow performance.
@@ -707,6 +969,387 @@ public abstract class RepoIndex1DBase<
         }
     }
 
+    /**
+     * Commits the content area of each division that has changed to the branch for that division.
+     *
+     * @param message The commit message to use for each branch.
+     * @return The commits that were made, indexed by the branch name of the division. Empty if nothing has changed.
+     */
+    @Override public Map<String, TCommit> commit(String message)
+    {
+        // Keep track of the commits that we make:
+        Map<String, TCommit> commitsByBranchName = new LinkedHashMap<>();
+
+        // Go through each division:
+        for (Division<TItem, TContent, TArea> division : this.divisionsByIndex.values())
+        {
+            // Check whether this division has changed:
+            if (!division.hasUncommittedChanges) continue;
+
+            // Commit the content area for the division to its branch:
+            TCommit commit = this.repoHandler.commitToBranch(division.contentArea, division.branchName, message, null);
+            commitsByBranchName.put(division.branchName, commit);
+            this.versionLog.recordBranchCommit(division.branchName, commit);
+
+            // Flag that the division is committed:
+            division.hasUncommittedChanges = false;
+        }
+
+        // Record this version of the index so that we can search as of any of these commits:
+        if (!commitsByBranchName.isEmpty()) this.versionLog.recordVersion(commitsByBranchName.values());
+
+        return commitsByBranchName;
+    }
+
+    /**
+     * Commits the content area of each division that has changed to the branch for that division.
+     *
+     * @return The commits that were made, indexed by the branch name of the division. Empty if nothing has changed.
+     */
+    public Map<String, TCommit> commit()
+    {
+        return commit("Index");
+    }
+
+    /**
+     * Brings this index up to date with the given commits of its branches,
+     * which are usually the commits that another index made with {@link #commit} to the same repo.
+     * <p>
+     * For each branch, only the difference between the commit that this index last saw and the given commit
+     * is applied to the content area and repo path tree of the division.
+     * Branches that are not named like the divisions of this index (for example those of other indexes in the same repo) are skipped.
+     *
+     * @param commitsByBranchName The commits to bring this index up to date with, indexed by branch name.
+     * @throws IllegalStateException If a division that changed has uncommitted changes in this index.
+     */
+    @Override public void syncTo(Map<String, TCommit> commitsByBranchName)
+    {
+        // Keep track of the commits that we sync to:
+        List<TCommit> syncedCommits = new ArrayList<>();
+
+        // Go through each branch:
+        for (Map.Entry<String, TCommit> entry : commitsByBranchName.entrySet())
+        {
+            String branchName = entry.getKey();
+            TCommit commit = entry.getValue();
+
+            // Skip branches that don't belong to a division of this index:
+            if (!isBranchForDivision(branchName)) continue;
+
+            // Check whether we are already at this commit:
+            TCommit previousCommit = this.versionLog.getLatestCommit(branchName);
+            if (previousCommit == commit) continue;
+
+            // Sync the division for the branch:
+            syncDivision(branchName, previousCommit, commit);
+
+            // Record the commit so that we can search as of the version that we synced to:
+            this.versionLog.recordBranchCommit(branchName, commit);
+            syncedCommits.add(commit);
+        }
+
+        // Record the version that we synced to:
+        if (!syncedCommits.isEmpty()) this.versionLog.recordVersion(syncedCommits);
+    }
+
+    /**
+     * Brings this index up to date with the latest commit of every branch in the repo.
+     *
+     * @see #syncTo
+     */
+    public void sync()
+    {
+        // Get the latest commit of each branch:
+        Map<String, TCommit> latestCommitsByBranchName = new LinkedHashMap<>();
+        for (String branchName : this.repoHandler.getBranchNames())
+        {
+            latestCommitsByBranchName.put(branchName, this.repoHandler.getLatestCommitForBranch(branchName));
+        }
+
+        syncTo(latestCommitsByBranchName);
+    }
+
+    /**
+     * Brings the division for the given branch up to date with the given commit.
+     *
+     * @param branchName     The name of the branch for the division.
+     * @param previousCommit The commit of the branch that this index last saw. Null if this index has never seen the branch.
+     * @param commit         The commit to bring the division up to date with.
+     */
+    private void syncDivision(String branchName, TCommit previousCommit, TCommit commit)
+    {
+        // Get the division for the branch:
+        Division<TItem, TContent, TArea> division = getOrCreateDivision(getDivisionIndexForBranch(branchName));
+
+        // Make sure that we don't lose any changes that were made to this index:
+        if (division.hasUncommittedChanges)
+        {
+            throw new IllegalStateException("The division " + branchName + " has uncommitted changes so it can't be synced. Commit this index before syncing it.");
+        }
+
+        // Get the committed content:
+        TArea committedContentArea = this.repoHandler.checkout(commit);
+
+        // Check whether we have seen this branch before:
+        if (previousCommit == null)
+        {
+            // Use all of the committed content:
+            committedContentArea.getTypedContentStream().forEach(areaEntry -> addContentToDivision(division, areaEntry.path, areaEntry.content));
+            return;
+        }
+
+        // Apply each difference since the commit that we last saw:
+        for (DifferenceEntry differenceEntry : this.repoHandler.computeDifferenceBetweenCommits(previousCommit, commit))
+        {
+            // Check whether the content was removed:
+            if (differenceEntry.state == DifferenceState.DELETED)
+            {
+                // Remove the content:
+                division.contentArea.removeContent(differenceEntry.path);
+
+                // Remove the path and any parents that are left empty:
+                RepoPathNode node = division.repoPathTree.getPath(differenceEntry.path);
+                while (node != null && node.getParent() != null && !node.hasChildren())
+                {
+                    RepoPathNode parent = node.getParent();
+                    division.repoPathTree.removeFromParent(node);
+                    node = parent;
+                }
+            }
+            else
+            {
+                // Add or replace the content:
+                addContentToDivision(division, differenceEntry.path, committedContentArea.getContent(differenceEntry.path));
+            }
+        }
+    }
+
+    /**
+     * Adds committed content to the division at the given path.
+     *
+     * @param division The division to add the content to.
+     * @param path     The path of the content.
+     * @param content  The content to add.
+     */
+    private void addContentToDivision(Division<TItem, TContent, TArea> division, RepoPath path, TContent content)
+    {
+        division.contentArea.putContent(path, content);
+        division.repoPathTree.addPath(path);
+    }
+
+    /**
+     * This finds the nearest item to the given item in the version of the index that was committed with the given commit.
+     *
+     * @param commit A commit that was returned when the index was {@link #commit committed}.
+     * @param item   The item to search for.
+     * @return The nearest item to the given item as of that commit. Null if the index was empty.
+     */
+    public TItem searchNearestAsOf(TCommit commit, TItem item)
+    {
+        // Start measuring the search if we are measuring the index:
+        long startNanos = this.measurement.startSearch();
+
+        TItem nearestItem = searchNearest(getSnapshotDivisions(commit), item);
+
+        // Tell the listener about the search:
+        this.measurement.endSearch(startNanos);
+        return nearestItem;
+    }
+
+    /**
+     * This finds all the items in the index that are within the given distance of the given item.
+     *
+     * @param item        The item to search around.
+     * @param maxDistance The largest distance (inclusive) of the items to find.
+     * @return The items within the distance of the given item.
+     */
+    public List<TItem> searchWithinDistance(TItem item, TDistance maxDistance)
+    {
+        // Start measuring the search if we are measuring the index:
+        long startNanos = this.measurement.startSearch();
+
+        List<TItem> foundItems = searchWithinDistance(this.divisionsByIndex, item, maxDistance);
+
+        // Tell the listener about the search:
+        this.measurement.endSearch(startNanos);
+        return foundItems;
+    }
+
+    /**
+     * This finds all the items that are within the given distance of the given item
+     * in the version of the index that was committed with the given commit.
+     *
+     * @param commit      A commit that was returned when the index was {@link #commit committed}.
+     * @param item        The item to search around.
+     * @param maxDistance The largest distance (inclusive) of the items to find.
+     * @return The items within the distance of the given item as of that commit.
+     */
+    public List<TItem> searchWithinDistanceAsOf(TCommit commit, TItem item, TDistance maxDistance)
+    {
+        // Start measuring the search if we are measuring the index:
+        long startNanos = this.measurement.startSearch();
+
+        List<TItem> foundItems = searchWithinDistance(getSnapshotDivisions(commit), item, maxDistance);
+
+        // Tell the listener about the search:
+        this.measurement.endSearch(startNanos);
+        return foundItems;
+    }
+
+    /**
+     * This finds all the items in the given divisions that are within the given distance of the given item.
+     *
+     * @param divisionsByIndex The divisions to search. These are either the live divisions or a snapshot of a committed version.
+     * @param item             The item to search around.
+     * @param maxDistance      The largest distance (inclusive) of the items to find.
+     * @return The items within the distance of the given item.
+     */
+    protected List<TItem> searchWithinDistance(NavigableMap<Integer, Division<TItem, TContent, TArea>> divisionsByIndex, TItem item, TDistance maxDistance)
+    {
+        // Keep track of the items that we find:
+        List<TItem> foundItems = new ArrayList<>();
+
+        // Find the index of the division in the range:
+        int divisionIndex = findIndexInRange(this.minRange, this.maxRange, this.divisions, item);
+
+        // Go through each division:
+        for (Division<TItem, TContent, TArea> division : divisionsByIndex.values())
+        {
+            // Check whether the nearest edge of the division is within the distance:
+            // NOTE: Divisions below the item are nearest at their max range and divisions above the item are nearest at their min range.
+            if (division.divisionIndex < divisionIndex && this.distanceComparator.compare(measureDistanceBetween(item, division.maxRange), maxDistance) > 0) continue;
+            if (division.divisionIndex > divisionIndex && this.distanceComparator.compare(measureDistanceBetween(item, division.minRange), maxDistance) > 0) continue;
+
+            // Count the division as a visited cell:
+            this.measurement.countCellVisited();
+
+            // Go through all content in this division:
+            for (AreaEntry<TContent> entry : division.contentArea)
+            {
+                // Check whether this is content for items:
+                if (entry.getPath().path.endsWith(CONTENT_PATH_NAME))
+                {
+                    // Get the item from this content:
+                    TItem indexedItem = readItemFromContent(entry.getContent());
+
+                    // Check whether the item is within the distance:
+                    if (this.distanceComparator.compare(measureDistanceBetween(indexedItem, item), maxDistance) <= 0) foundItems.add(indexedItem);
+                }
+            }
+        }
+        return foundItems;
+    }
+
+    /**
+     * Gets the divisions for the version of the index that was committed with the given commit.
+     * <p>
+     * Each division is resolved from the commit of its branch at that version.
+     * If another resolved version has the same commit for a branch then the division is shared instead of checking the branch out again,
+     * so only the divisions that changed between versions cost anything.
+     *
+     * @param commit A commit that was returned when the index was committed.
+     * @return The divisions for that version of the index, indexed by division index.
+     */
+    private NavigableMap<Integer, Division<TItem, TContent, TArea>> getSnapshotDivisions(TCommit commit)
+    {
+        // Get the version of the index for the commit:
+        Map<String, TCommit> version = this.versionLog.getVersion(commit);
+
+        // Check whether we have already resolved this version:
+        NavigableMap<Integer, Division<TItem, TContent, TArea>> snapshotDivisionsByIndex = this.snapshotDivisionsByVersion.get(version);
+        if (snapshotDivisionsByIndex != null) return snapshotDivisionsByIndex;
+
+        // Resolve each division for this version:
+        snapshotDivisionsByIndex = new TreeMap<>();
+        for (Map.Entry<String, TCommit> entry : version.entrySet())
+        {
+            String branchName = entry.getKey();
+            TCommit branchCommit = entry.getValue();
+
+            // Check whether another version already resolved this commit of the branch:
+            Division<TItem, TContent, TArea> division = null;
+            for (Map.Entry<Map<String, TCommit>, NavigableMap<Integer, Division<TItem, TContent, TArea>>> resolvedEntry : this.snapshotDivisionsByVersion.entrySet())
+            {
+                if (resolvedEntry.getKey().get(branchName) == branchCommit)
+                {
+                    division = resolvedEntry.getValue().get(getDivisionIndexForBranch(branchName));
+                    break;
+                }
+            }
+
+            // Check whether we need to check out the division:
+            if (division == null)
+            {
+                // Create the division from the committed content:
+                int divisionIndex = getDivisionIndexForBranch(branchName);
+                division = new Division<>();
+                division.divisionIndex = divisionIndex;
+                division.minRange = this.getDivisionMinRange(divisionIndex);
+                division.maxRange = this.getDivisionMaxRange(divisionIndex);
+                division.branchName = branchName;
+                division.contentArea = this.repoHandler.checkout(branchCommit);
+
+                // Rebuild the repo path tree for the content:
+                RepoPathTree repoPathTree = new RepoPathTree();
+                division.contentArea.getTypedContentStream().forEach(areaEntry -> repoPathTree.addPath(areaEntry.path));
+                division.repoPathTree = repoPathTree;
+            }
+            snapshotDivisionsByIndex.put(division.divisionIndex, division);
+        }
+
+        // Remember this version, forgetting the least recently used versions if we have too many:
+        this.snapshotDivisionsByVersion.put(version, snapshotDivisionsByIndex);
+        Iterator<NavigableMap<Integer, Division<TItem, TContent, TArea>>> iterator = this.snapshotDivisionsByVersion.values().iterator();
+        while (this.snapshotDivisionsByVersion.size() > this.maxSnapshotVersions && iterator.hasNext())
+        {
+            iterator.next();
+            iterator.remove();
+        }
+
+        return snapshotDivisionsByIndex;
+    }
+
+    /**
+     * Gets the name of the branch that the division with the given index is committed to.
+     *
+     * @param divisionIndex The index of the division.
+     * @return The name of the branch for the division.
+     */
+    protected String getBranchNameForDivision(int divisionIndex)
+    {
+        return Integer.toString(divisionIndex);
+    }
+
+    /**
+     * Gets the index of the division that is committed to the given branch.
+     *
+     * @param branchName The name of the branch for the division.
+     * @return The index of the division.
+     */
+    protected int getDivisionIndexForBranch(String branchName)
+    {
+        return Integer.parseInt(branchName);
+    }
+
+    /**
+     * Checks whether the given branch is named like the branch of a division of this index.
+     * The repo could have branches from other tools or other indexes, which we need to skip.
+     *
+     * @param branchName The name of the branch to check.
+     * @return True if the branch is named like the branch of a division. False if it belongs to something else.
+     */
+    protected boolean isBranchForDivision(String branchName)
+    {
+        try
+        {
+            return getBranchNameForDivision(getDivisionIndexForBranch(branchName)).equals(branchName);
+        }
+        catch (NumberFormatException e)
+        {
+            return false;
+        }
+    }
+
     /**
      * This finds the division index for an item in a range that is defined by two other items.
      *
@@ -764,6 +1407,7 @@ public abstract class RepoIndex1DBase<
      */
     protected TDistance measureDistanceBetween(TItem item1, TItem item2)
     {
+        this.measurement.countDistanceEvaluation();
         return this.measurer.measureDistanceBetween(item1, item2);
     }
 
@@ -795,6 +1439,7 @@ public abstract class RepoIndex1DBase<
                 division.maxRange = this.getDivisionMaxRange(index);
                 division.repoPathTree = new RepoPathTree();
                 division.contentArea = this.repoHandler.createArea();
+                division.branchName = getBranchNameForDivision(index);
                 return division;
             }
         );
@@ -808,9 +1453,21 @@ public abstract class RepoIndex1DBase<
      * @return The nearest division that is lower than the specific index. Null if there is no division lower than that index.
      */
     protected Division<TItem, TContent, TArea> getNearestLowerDivision(int index)
+    {
+        return getNearestLowerDivision(this.divisionsByIndex, index);
+    }
+
+    /**
+     * Gets the next nearest division that is lower than the given index.
+     *
+     * @param divisionsByIndex The divisions to look in.
+     * @param index            The index of the division that we want to get the division for.
+     * @return The nearest division that is lower than the specific index. Null if there is no division lower than that index.
+     */
+    private Division<TItem, TContent, TArea> getNearestLowerDivision(NavigableMap<Integer, Division<TItem, TContent, TArea>> divisionsByIndex, int index)
     {
         // Find the next lower entry:
-        Map.Entry<Integer, Division<TItem, TContent, TArea>> entry = this.divisionsByIndex.lowerEntry(index);
+        Map.Entry<Integer, Division<TItem, TContent, TArea>> entry = divisionsByIndex.lowerEntry(index);
         return entry == null ? null : entry.getValue();
     }
 
@@ -821,9 +1478,21 @@ public abstract class RepoIndex1DBase<
      * @return The nearest division that is higher than the specific index. Null if there is no division higher than that index.
      */
     protected Division<TItem, TContent, TArea> getNearestHigherDivision(int index)
+    {
+        return getNearestHigherDivision(this.divisionsByIndex, index);
+    }
+
+    /**
+     * Gets the next nearest division that is higher than the given index.
+     *
+     * @param divisionsByIndex The divisions to look in.
+     * @param index            The index of the division that we want to get the division for.
+     * @return The nearest division that is higher than the specific index. Null if there is no division higher than that index.
+     */
+    private Division<TItem, TContent, TArea> getNearestHigherDivision(NavigableMap<Integer, Division<TItem, TContent, TArea>> divisionsByIndex, int index)
     {
         // Find the next higher entry:
-        Map.Entry<Integer, Division<TItem, TContent, TArea>> entry = this.divisionsByIndex.higherEntry(index);
+        Map.Entry<Integer, Division<TItem, TContent, TArea>> entry = divisionsByIndex.higherEntry(index);
         return entry == null ? null : entry.getValue();
     }
 
@@ -972,4 +1641,46 @@ public abstract class RepoIndex1DBase<
     {
         return this.contentReader;
     }
+
+    /**
+     * Gets the maximum number of committed versions of this index to keep resolved.
+     *
+     * @return The maximum number of committed versions to keep resolved.
+     */
+    public int getMaxSnapshotVersions()
+    {
+        return maxSnapshotVersions;
+    }
+
+    /**
+     * Sets the maximum number of committed versions of this index to keep resolved.
+     *
+     * @param maxSnapshotVersions The maximum number of committed versions to keep resolved. Must be at least one.
+     */
+    public void setMaxSnapshotVersions(int maxSnapshotVersions)
+    {
+        if (maxSnapshotVersions < 1) throw new IllegalArgumentException("The maximum number of snapshot versions must be at least one but was " + maxSnapshotVersions);
+        this.maxSnapshotVersions = maxSnapshotVersions;
+    }
+
+    /**
+     * Gets whether the items of each division are stored in a path-compressed (radix) trie.
+     *
+     * @return True if each path name holds all the bytes up to the next point where the items diverge. False if there is one path name for each byte of the items.
+     */
+    public boolean isPathCompressedTrieEnabled()
+    {
+        return pathCompressedTrieEnabled;
+    }
+
+    /**
+     * Sets whether the items of each division are stored in a path-compressed (radix) trie.
+     * This should be set before the first item is added.
+     *
+     * @param pathCompressedTrieEnabled True if each path name holds all the bytes up to the next point where the items diverge. False if there is one path name for each byte of the items.
+     */
+    public void setPathCompressedTrieEnabled(boolean pathCompressedTrieEnabled)
+    {
+        this.pathCompressedTrieEnabled = pathCompressedTrieEnabled;
+    }
 }
@@ -4,6 +4,7 @@ import io.nanovc.*;
 import io.nanovc.indexing.*;
 
 import java.util.Comparator;
+import java.util.Map;
 
 /**
  * A k-dimensional {@link IndexKD} that uses a repo for its implementation.
@@ -80,4 +81,46 @@ public interface RepoIndexKD<
      * @return The definition of the hyper cube that defines the dimensions for this index.
      */
     HyperCubeDefinition getHyperCubeDefinition();
+
+    /**
+     * Removes the given item from the index.
+     *
+     * @param item The item to remove from the index.
+     * @return True if the item was found and removed. False if the item is not in the index.
+     */
+    boolean remove(TItem item);
+
+    /**
+     * Moves an item in the index by replacing the old item with the new item.
+     *
+     * @param oldItem The item to replace.
+     * @param newItem The item to replace it with.
+     * @return True if the old item was found and replaced. False if the old item is not in the index.
+     */
+    boolean move(TItem oldItem, TItem newItem);
+
+    /**
+     * Commits the content of each division of the index that has changed to the branch for that division.
+     *
+     * @param message The commit message to use for each branch.
+     * @return The commits that were made, indexed by branch name. Empty if nothing has changed.
+     */
+    Map<String, TCommit> commit(String message);
+
+    /**
+     * Opens the index from the branches that were committed to the given repo.
+     * This replaces anything that was in this index.
+     *
+     * @param repoHandler  The repo handler with the branches that were committed.
+     * @param rootRepoPath The repo path to the root of this repo index.
+     */
+    void open(TRepoHandler repoHandler, RepoPath rootRepoPath);
+
+    /**
+     * Brings this index up to date with the given commits of its branches,
+     * applying only the difference from the commits that this index last saw.
+     *
+     * @param commitsByBranchName The commits to bring this index up to date with, indexed by branch name.
+     */
+    void syncTo(Map<String, TCommit> commitsByBranchName);
 }
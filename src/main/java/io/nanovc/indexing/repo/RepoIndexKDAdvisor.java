@@ -0,0 +1,445 @@
+package io.nanovc.indexing.repo;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Recommends the divisions and bucket threshold for a {@link RepoIndexKDBase} from a sample of its data.
+ * <p>
+ * The best configuration depends heavily on the distribution of the data,
+ * so the advisor builds candidate indexes from a sample of the items and measures them with a sample of the queries.
+ * Each candidate is measured for its build time, the memory allocated while building it and its query latency.
+ * The measurements are normalised by the best candidate for each measurement and combined with the weights into a score
+ * so that the lowest score wins.
+ * <p>
+ * First every combination of uniform divisions and bucket thresholds is measured.
+ * Then the divisions of each dimension are tuned in turn while the other dimensions stay fixed,
+ * which gives us per-dimension divisions without measuring every combination of them.
+ *
+ * @param <TItem> The specific type of data that the index is for.
+ */
+public class RepoIndexKDAdvisor<TItem>
+{
+    /**
+     * The definition of the hyper cube that defines the dimensions for the index.
+     */
+    private final HyperCubeDefinition hyperCubeDefinition;
+
+    /**
+     * The factory that creates the candidate indexes.
+     */
+    private final IndexFactory<TItem> indexFactory;
+
+    /**
+     * The candidate numbers of divisions for each dimension.
+     */
+    private int[] candidateDivisions = {1, 2, 4, 8, 16, 32, 64};
+
+    /**
+     * The candidate bucket thresholds.
+     */
+    private int[] candidateBucketThresholds = {4, 8, 16, 32, 64, 128};
+
+    /**
+     * The number of times to run the sample queries on each candidate. The fastest run is used.
+     */
+    private int queryRepetitions = 3;
+
+    /**
+     * The weight of the query latency in the score.
+     */
+    private double queryLatencyWeight = 1.0;
+
+    /**
+     * The weight of the build time in the score.
+     */
+    private double buildTimeWeight = 0.25;
+
+    /**
+     * The weight of the memory allocated while building in the score.
+     */
+    private double memoryWeight = 0.25;
+
+    /**
+     * Creates an advisor for indexes with the given dimensions.
+     *
+     * @param hyperCubeDefinition The definition of the hyper cube that defines the dimensions for the index.
+     * @param indexFactory        The factory that creates the candidate indexes.
+     */
+    public RepoIndexKDAdvisor(HyperCubeDefinition hyperCubeDefinition, IndexFactory<TItem> indexFactory)
+    {
+        this.hyperCubeDefinition = hyperCubeDefinition;
+        this.indexFactory = indexFactory;
+    }
+
+    /**
+     * Recommends the configuration of the index for the given sample of the data.
+     *
+     * @param sampleItems   A sample of the items that will be added to the index.
+     * @param sampleQueries A sample of the items that will be searched for in the index.
+     * @return The recommended configuration of the index.
+     */
+    public Recommendation recommend(List<TItem> sampleItems, List<TItem> sampleQueries)
+    {
+        // Make sure we have something to measure:
+        if (sampleItems.isEmpty()) throw new IllegalArgumentException("We need a sample of items to recommend a configuration");
+        if (sampleQueries.isEmpty()) throw new IllegalArgumentException("We need a sample of queries to recommend a configuration");
+
+        // Measure every combination of uniform divisions and bucket thresholds:
+        int dimensionCount = this.hyperCubeDefinition.getDimensionCount();
+        List<Measurement> measurements = new ArrayList<>();
+        for (int divisions : this.candidateDivisions)
+        {
+            for (int bucketThreshold : this.candidateBucketThresholds)
+            {
+                int[] divisionsPerDimension = new int[dimensionCount];
+                Arrays.fill(divisionsPerDimension, divisions);
+                measurements.add(measure(divisionsPerDimension, bucketThreshold, sampleItems, sampleQueries));
+            }
+        }
+        Measurement best = findBest(measurements);
+
+        // Tune the divisions of each dimension while keeping the others fixed:
+        if (dimensionCount > 1)
+        {
+            for (int dimensionIndex = 0; dimensionIndex < dimensionCount; dimensionIndex++)
+            {
+                for (int divisions : this.candidateDivisions)
+                {
+                    // Skip the configuration that we already measured:
+                    if (divisions == best.divisionsPerDimension()[dimensionIndex]) continue;
+
+                    // Measure the best configuration with different divisions for this dimension:
+                    int[] divisionsPerDimension = best.divisionsPerDimension().clone();
+                    divisionsPerDimension[dimensionIndex] = divisions;
+                    measurements.add(measure(divisionsPerDimension, best.bucketThreshold(), sampleItems, sampleQueries));
+                }
+
+                // Keep the best divisions for this dimension before tuning the next:
+                best = findBest(measurements);
+            }
+        }
+
+        return new Recommendation(
+            this.hyperCubeDefinition.withDivisions(best.divisionsPerDimension()),
+            best.divisionsPerDimension(),
+            best.bucketThreshold(),
+            score(measurements)
+        );
+    }
+
+    /**
+     * Creates an index with the recommended configuration.
+     *
+     * @param recommendation The recommended configuration of the index.
+     * @return A new empty index with the recommended configuration.
+     */
+    public RepoIndexKDBase<TItem, ?, ?, ?, ?, ?> createIndex(Recommendation recommendation)
+    {
+        return this.indexFactory.createIndex(recommendation.hyperCubeDefinition(), 1, recommendation.bucketThreshold());
+    }
+
+    /**
+     * Builds a candidate index from the sample of items and measures it.
+     *
+     * @param divisionsPerDimension The number of divisions for each dimension of the candidate.
+     * @param bucketThreshold       The bucket threshold of the candidate.
+     * @param sampleItems           The sample of items to build the index from.
+     * @param sampleQueries         The sample of items to search for.
+     * @return The measurement of the candidate.
+     */
+    private Measurement measure(int[] divisionsPerDimension, int bucketThreshold, List<TItem> sampleItems, List<TItem> sampleQueries)
+    {
+        // Create the candidate index:
+        RepoIndexKDBase<TItem, ?, ?, ?, ?, ?> index = this.indexFactory.createIndex(this.hyperCubeDefinition.withDivisions(divisionsPerDimension), 1, bucketThreshold);
+
+        // Build the index, measuring the time and the memory that it takes:
+        long allocatedBytesBefore = getAllocatedBytes();
+        long buildStartNanos = System.nanoTime();
+        for (TItem item : sampleItems)
+        {
+            index.add(item);
+        }
+        index.index();
+        long buildNanos = System.nanoTime() - buildStartNanos;
+        long allocatedBytes = getAllocatedBytes() - allocatedBytesBefore;
+
+        // Run the queries, keeping the fastest run so that noise from the rest of the system is ignored:
+        long fastestQueryNanos = Long.MAX_VALUE;
+        for (int repetition = 0; repetition < this.queryRepetitions; repetition++)
+        {
+            long queryStartNanos = System.nanoTime();
+            for (TItem query : sampleQueries)
+            {
+                index.searchNearest(query);
+            }
+            fastestQueryNanos = Math.min(fastestQueryNanos, System.nanoTime() - queryStartNanos);
+        }
+
+        return new Measurement(divisionsPerDimension, bucketThreshold, buildNanos, allocatedBytes, (double) fastestQueryNanos / sampleQueries.size(), 0.0);
+    }
+
+    /**
+     * Finds the measurement with the best score.
+     *
+     * @param measurements The measurements to search.
+     * @return The measurement with the best (lowest) score.
+     */
+    private Measurement findBest(List<Measurement> measurements)
+    {
+        return Collections.min(score(measurements), (left, right) -> Double.compare(left.score(), right.score()));
+    }
+
+    /**
+     * Scores the measurements relative to each other.
+     * Each measurement is divided by the best value for that measurement and then weighted.
+     *
+     * @param measurements The measurements to score.
+     * @return The measurements with their scores, in the same order.
+     */
+    private List<Measurement> score(List<Measurement> measurements)
+    {
+        // Find the best value for each measurement:
+        double bestQueryNanos = Double.MAX_VALUE;
+        long bestBuildNanos = Long.MAX_VALUE;
+        long bestAllocatedBytes = Long.MAX_VALUE;
+        for (Measurement measurement : measurements)
+        {
+            bestQueryNanos = Math.min(bestQueryNanos, measurement.meanQueryNanos());
+            bestBuildNanos = Math.min(bestBuildNanos, measurement.buildNanos());
+            bestAllocatedBytes = Math.min(bestAllocatedBytes, measurement.allocatedBytes());
+        }
+
+        // Score each measurement relative to the best:
+        List<Measurement> scoredMeasurements = new ArrayList<>(measurements.size());
+        for (Measurement measurement : measurements)
+        {
+            double score =
+                this.queryLatencyWeight * relativeTo(measurement.meanQueryNanos(), bestQueryNanos) +
+                this.buildTimeWeight * relativeTo(measurement.buildNanos(), bestBuildNanos) +
+                this.memoryWeight * relativeTo(measurement.allocatedBytes(), bestAllocatedBytes);
+            scoredMeasurements.add(new Measurement(measurement.divisionsPerDimension(), measurement.bucketThreshold(), measurement.buildNanos(), measurement.allocatedBytes(), measurement.meanQueryNanos(), score));
+        }
+        return scoredMeasurements;
+    }
+
+    /**
+     * Gets the value relative to the best value.
+     *
+     * @param value     The value to compare.
+     * @param bestValue The best (lowest) value.
+     * @return The value relative to the best value. One if the value is the best. Zero if the values can't be compared.
+     */
+    private static double relativeTo(double value, double bestValue)
+    {
+        return bestValue <= 0 ? 0.0 : value / bestValue;
+    }
+
+    /**
+     * Gets the number of bytes that the current thread has allocated so far.
+     *
+     * @return The number of bytes that the current thread has allocated so far. Zero if the JVM doesn't track this.
+     */
+    private static long getAllocatedBytes()
+    {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean sunThreadMXBean && sunThreadMXBean.isThreadAllocatedMemoryEnabled())
+        {
+            return sunThreadMXBean.getCurrentThreadAllocatedBytes();
+        }
+        return 0L;
+    }
+
+    /**
+     * Gets the candidate numbers of divisions for each dimension.
+     *
+     * @return The candidate numbers of divisions for each dimension.
+     */
+    public int[] getCandidateDivisions()
+    {
+        return candidateDivisions;
+    }
+
+    /**
+     * Sets the candidate numbers of divisions for each dimension.
+     *
+     * @param candidateDivisions The candidate numbers of divisions for each dimension. Each must be at least one.
+     */
+    public void setCandidateDivisions(int... candidateDivisions)
+    {
+        if (candidateDivisions.length == 0) throw new IllegalArgumentException("We need at least one candidate number of divisions");
+        for (int divisions : candidateDivisions)
+        {
+            if (divisions < 1) throw new IllegalArgumentException("The candidate number of divisions must be at least one but was " + divisions);
+        }
+        this.candidateDivisions = candidateDivisions;
+    }
+
+    /**
+     * Gets the candidate bucket thresholds.
+     *
+     * @return The candidate bucket thresholds.
+     */
+    public int[] getCandidateBucketThresholds()
+    {
+        return candidateBucketThresholds;
+    }
+
+    /**
+     * Sets the candidate bucket thresholds.
+     *
+     * @param candidateBucketThresholds The candidate bucket thresholds. Each must be at least one.
+     */
+    public void setCandidateBucketThresholds(int... candidateBucketThresholds)
+    {
+        if (candidateBucketThresholds.length == 0) throw new IllegalArgumentException("We need at least one candidate bucket threshold");
+        for (int bucketThreshold : candidateBucketThresholds)
+        {
+            if (bucketThreshold < 1) throw new IllegalArgumentException("The candidate bucket threshold must be at least one but was " + bucketThreshold);
+        }
+        this.candidateBucketThresholds = candidateBucketThresholds;
+    }
+
+    /**
+     * Gets the number of times to run the sample queries on each candidate.
+     *
+     * @return The number of times to run the sample queries on each candidate.
+     */
+    public int getQueryRepetitions()
+    {
+        return queryRepetitions;
+    }
+
+    /**
+     * Sets the number of times to run the sample queries on each candidate. The fastest run is used.
+     *
+     * @param queryRepetitions The number of times to run the sample queries on each candidate. Must be at least one.
+     */
+    public void setQueryRepetitions(int queryRepetitions)
+    {
+        if (queryRepetitions < 1) throw new IllegalArgumentException("The number of query repetitions must be at least one but was " + queryRepetitions);
+        this.queryRepetitions = queryRepetitions;
+    }
+
+    /**
+     * Gets the weight of the query latency in the score.
+     *
+     * @return The weight of the query latency in the score.
+     */
+    public double getQueryLatencyWeight()
+    {
+        return queryLatencyWeight;
+    }
+
+    /**
+     * Sets the weight of the query latency in the score.
+     *
+     * @param queryLatencyWeight The weight of the query latency in the score.
+     */
+    public void setQueryLatencyWeight(double queryLatencyWeight)
+    {
+        this.queryLatencyWeight = queryLatencyWeight;
+    }
+
+    /**
+     * Gets the weight of the build time in the score.
+     *
+     * @return The weight of the build time in the score.
+     */
+    public double getBuildTimeWeight()
+    {
+        return buildTimeWeight;
+    }
+
+    /**
+     * Sets the weight of the build time in the score.
+     *
+     * @param buildTimeWeight The weight of the build time in the score.
+     */
+    public void setBuildTimeWeight(double buildTimeWeight)
+    {
+        this.buildTimeWeight = buildTimeWeight;
+    }
+
+    /**
+     * Gets the weight of the memory allocated while building in the score.
+     *
+     * @return The weight of the memory allocated while building in the score.
+     */
+    public double getMemoryWeight()
+    {
+        return memoryWeight;
+    }
+
+    /**
+     * Sets the weight of the memory allocated while building in the score.
+     *
+     * @param memoryWeight The weight of the memory allocated while building in the score.
+     */
+    public void setMemoryWeight(double memoryWeight)
+    {
+        this.memoryWeight = memoryWeight;
+    }
+
+    /**
+     * Creates the candidate indexes for the advisor.
+     *
+     * @param <TItem> The specific type of data that the index is for.
+     */
+    @FunctionalInterface
+    public interface IndexFactory<TItem>
+    {
+        /**
+         * Creates a new empty index with the given configuration.
+         *
+         * @param hyperCubeDefinition The definition of the hyper cube, with the divisions for each dimension.
+         * @param divisions           The number of divisions for dimensions that don't have their own.
+         * @param bucketThreshold     The number of items in a bucket before it is split.
+         * @return A new empty index with the given configuration.
+         */
+        RepoIndexKDBase<TItem, ?, ?, ?, ?, ?> createIndex(HyperCubeDefinition hyperCubeDefinition, int divisions, int bucketThreshold);
+    }
+
+    /**
+     * The measurement of a candidate configuration.
+     *
+     * @param divisionsPerDimension The number of divisions for each dimension of the candidate.
+     * @param bucketThreshold       The bucket threshold of the candidate.
+     * @param buildNanos            The time it took to add the sample items and index them, in nanoseconds.
+     * @param allocatedBytes        The memory that was allocated while building the index, in bytes.
+     * @param meanQueryNanos        The mean latency of the sample queries, in nanoseconds.
+     * @param score                 The score of the candidate relative to the other candidates. Lower is better.
+     */
+    public record Measurement(int[] divisionsPerDimension, int bucketThreshold, long buildNanos, long allocatedBytes, double meanQueryNanos, double score)
+    {
+        @Override
+        public String toString()
+        {
+            return String.format(
+                "divisions: %s, bucket threshold: %,d, build: %,dns, allocated: %,d bytes, query: %,.0fns, score: %.3f",
+                Arrays.toString(divisionsPerDimension), bucketThreshold, buildNanos, allocatedBytes, meanQueryNanos, score
+            );
+        }
+    }
+
+    /**
+     * The recommended configuration of an index.
+     *
+     * @param hyperCubeDefinition   The definition of the hyper cube with the recommended divisions for each dimension.
+     * @param divisionsPerDimension The recommended number of divisions for each dimension.
+     * @param bucketThreshold       The recommended bucket threshold.
+     * @param measurements          The measurements of all the candidates that were considered, in the order they were measured.
+     */
+    public record Recommendation(HyperCubeDefinition hyperCubeDefinition, int[] divisionsPerDimension, int bucketThreshold, List<Measurement> measurements)
+    {
+        @Override
+        public String toString()
+        {
+            return String.format("divisions: %s, bucket threshold: %,d", Arrays.toString(divisionsPerDimension), bucketThreshold);
+        }
+    }
+}
@@ -1,13 +1,16 @@
 package io.nanovc.indexing.repo;
 
 import io.nanovc.*;
+import io.nanovc.indexing.BoundedMeasurer;
 import io.nanovc.indexing.Extractor;
 import io.nanovc.indexing.IndexKDBase;
+import io.nanovc.indexing.IndexListener;
 import io.nanovc.indexing.Measurer;
 import io.nanovc.indexing.repo.ranges.Range;
 import io.nanovc.indexing.repo.ranges.RangeCalculator;
 import io.nanovc.indexing.repo.ranges.RangeSplit;
 import io.nanovc.indexing.repo.ranges.RangeSplitInclusion;
+import io.nanovc.indexing.repo.ranges.RangeSplitLocator;
 
 import java.util.*;
 
@@ -64,6 +67,12 @@ public abstract class RepoIndexKDBase<
      */
     private final Measurer<TItem, TDistance> measurer;
 
+    /**
+     * The {@link #measurer} as a {@link BoundedMeasurer} if it supports measuring distances that stop early once they exceed the best distance so far.
+     * Null if the measurer does not support bounded measurements.
+     */
+    private final BoundedMeasurer<TItem, TDistance> boundedMeasurer;
+
     /**
      * The comparator to use for comparing distances of items.
      */
@@ -71,13 +80,15 @@ public abstract class RepoIndexKDBase<
 
     /**
      * The repo handler to use for this repo index.
+     * This changes if we {@link #open open} the index from another repo.
      */
-    private final TRepoHandler repoHandler;
+    private TRepoHandler repoHandler;
 
     /**
      * The repo path to the root of this repo index where we update the index information.
+     * This changes if we {@link #open open} the index from another repo.
      */
-    private final RepoPath rootRepoPath;
+    private RepoPath rootRepoPath;
 
     /**
      * The content creator to use for getting content from the given item.
@@ -100,6 +111,69 @@ public abstract class RepoIndexKDBase<
      */
     protected DivisionCube<TItem, TContent, TArea> divisionCube;
 
+    /**
+     * True to look up {@link DivisionCell division cells} through a flat {@link DivisionCellDirectory} keyed by packed division coordinates.
+     * False to always walk the {@link DivisionDimension division dimension} chain.
+     * The directory is only used if the coordinates of the division cube can be packed into a long.
+     */
+    private boolean cellDirectoryEnabled = true;
+
+    /**
+     * The strategy that we use to discover the nearest {@link DivisionCell division cells} of each cell.
+     */
+    private DivisionCellNeighbourStrategy divisionCellNeighbourStrategy = DivisionCellNeighbourStrategy.Automatic;
+
+    /**
+     * Which representations of the items we keep in each {@link KDBucketNode bucket}.
+     */
+    private BucketStoragePolicy bucketStoragePolicy = BucketStoragePolicy.ItemsAndContent;
+
+    /**
+     * The maximum number of buckets to keep decoded items for when we only store content in the buckets.
+     */
+    private int maxDecodedBuckets = 64;
+
+    /**
+     * The maximum number of paths with changes to buffer for each {@link DivisionCell division cell} before writing them to its content area.
+     * Zero to write every change to the content area immediately, which is the default.
+     * When changes are buffered, the content area of a cell lags behind {@link #add} until the buffer is written.
+     */
+    private int maxPendingContentChanges = 0;
+
+    /**
+     * The items that were decoded from the content of the most recently scanned buckets, in least recently used order.
+     * This is only used when we only store content in the buckets.
+     */
+    private final LinkedHashMap<KDBucketNode<TItem, TContent, TArea>, List<TItem>> decodedItemsByBucket = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * The branches of {@link DivisionCell division cells} that were dropped because all of their items were removed.
+     * An empty content area is committed to each of these branches on the next {@link #commit} so that they are not opened again.
+     */
+    private final Set<String> droppedBranchNames = new LinkedHashSet<>();
+
+    /**
+     * The pager that pages {@link DivisionCell division cells} in and out of memory from their committed branches.
+     * Null if all division cells stay resident.
+     */
+    private DivisionCellPager<TItem, TContent, TArea> divisionCellPager;
+
+    /**
+     * The committed versions of this index so that we can search the index as of any of its commits.
+     */
+    private final IndexVersionLog<TCommit> versionLog = new IndexVersionLog<>();
+
+    /**
+     * The division cubes that we have resolved for committed versions of this index, in least-recently-used order.
+     * Division cells that did not change between versions share the same content and kd-tree.
+     */
+    private final LinkedHashMap<Map<String, TCommit>, DivisionCube<TItem, TContent, TArea>> snapshotDivisionCubesByVersion = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * The maximum number of division cubes to keep resolved for committed versions of this index.
+     */
+    private int maxSnapshotDivisionCubes = 8;
+
     public RepoIndexKDBase(
         HyperCubeDefinition hyperCubeDefinition,
         int divisions, int bucketThreshold,
@@ -113,6 +187,7 @@ public abstract class RepoIndexKDBase<
         this.bucketThreshold = bucketThreshold;
         this.extractor = extractor;
         this.measurer = measurer;
+        this.boundedMeasurer = measurer instanceof BoundedMeasurer<TItem, TDistance> bounded ? bounded : null;
         this.distanceComparator = distanceComparator;
         this.repoHandler = repoHandler;
         this.rootRepoPath = rootRepoPath;
@@ -140,39 +215,58 @@ public abstract class RepoIndexKDBase<
         // similar to how the git hash of the content gives us the address of the content,
         // thus making a content-addressable-file-system.
 
+        // Time the add if we are measuring the index:
+        IndexListener listener = this.measurement.getIndexListener();
+        long startNanos = listener == null ? 0L : System.nanoTime();
+
         // Get the coordinate of the given item:
         HyperCoord itemCoord = extractItemCoordinate(item, hyperCubeDefinition);
 
         // Find the right division for this item at the given coordinate:
         DivisionCell<TItem, TContent, TArea> divisionCell = getOrCreateDivisionCell(itemCoord);
 
-        // Make sure that we have a root node for this division cell:
-        if (divisionCell.kdTreeRoot == null)
+        // Make sure the division cell is resident while we add to it:
+        if (this.divisionCellPager != null) this.divisionCellPager.pin(divisionCell);
+        try
         {
-            // We don't have a root yet.
+            // Make sure that we have a root node for this division cell:
+            if (divisionCell.kdTreeRoot == null)
+            {
+                // We don't have a root yet.
 
-            // Create the root node:
-            KDBucketNode<TItem, TContent, TArea> root = new KDBucketNode<>();
+                // Create the root node:
+                KDBucketNode<TItem, TContent, TArea> root = new KDBucketNode<>();
 
-            // Save the reference to the division cell for this node:
-            root.divisionCell = divisionCell;
+                // Save the reference to the division cell for this node:
+                root.divisionCell = divisionCell;
 
-            // Create the hyper cube for this bucket:
-            root.hyperCube = divisionCell.hyperCube;
+                // Create the hyper cube for this bucket:
+                root.hyperCube = divisionCell.hyperCube;
 
-            // Set the content path root:
-            root.repoPathNode = divisionCell.repoPathTree.getRootNode();
+                // Set the content path root:
+                root.repoPathNode = divisionCell.repoPathTree.getRootNode();
 
-            // Define the path where bucket items go:
-            root.bucketItemsRepoPathNode = divisionCell.repoPathTree.getOrCreateChildNode(root.repoPathNode, BUCKET_ITEMS_PATH_NAME);
+                // Define the path where bucket items go:
+                root.bucketItemsRepoPathNode = divisionCell.repoPathTree.getOrCreateChildNode(root.repoPathNode, BUCKET_ITEMS_PATH_NAME);
 
-            // Save the root node:
-            divisionCell.kdTreeRoot = root;
-        }
+                // Save the root node:
+                divisionCell.kdTreeRoot = root;
+            }
 
-        // Index the item recursively:
-        divisionCell.kdTreeRoot = addItemToKDNode(item, itemCoord, divisionCell.kdTreeRoot);
+            // Index the item recursively:
+            divisionCell.kdTreeRoot = addItemToKDNode(item, itemCoord, divisionCell.kdTreeRoot);
 
+            // Flag that the division cell needs to be committed:
+            divisionCell.hasUncommittedChanges = true;
+        }
+        finally
+        {
+            // Allow the division cell to be paged out again:
+            if (this.divisionCellPager != null) this.divisionCellPager.unpin(divisionCell);
+        }
+
+        // Tell the listener about the add:
+        if (listener != null) listener.onAdd(System.nanoTime() - startNanos);
 
         // // Find the index of the division in the range:
         // int divisionIndex = findIndexInRange(this.minRange, this.maxRange, this.divisions, item);
@@ -185,6 +279,88 @@ public abstract class RepoIndexKDBase<
 
     }
 
+    /**
+     * Removes the given item from the index.
+     * If the bucket that held the item and its sibling bucket end up with fewer items than the bucket threshold between them,
+     * they are merged back into a single bucket.
+     * If the division cell ends up empty then it is dropped from the division cube and from the nearest cells of the other cells.
+     *
+     * @param item The item to remove from the index.
+     * @return True if the item was found and removed. False if the item is not in the index.
+     */
+    @Override public boolean remove(TItem item)
+    {
+        // Get the coordinate of the given item:
+        HyperCoord itemCoord = extractItemCoordinate(item, this.hyperCubeDefinition);
+
+        // Find the division cell for this item:
+        DivisionCell<TItem, TContent, TArea> divisionCell = getDivisionCell(itemCoord);
+        if (divisionCell == null) return false;
+
+        // Make sure the division cell is resident while we remove from it:
+        if (this.divisionCellPager != null) this.divisionCellPager.pin(divisionCell);
+        try
+        {
+            // Find the bucket with the item:
+            KDBucketNode<TItem, TContent, TArea> bucketNode = findBucketNodeWithItem(item, itemCoord, divisionCell.kdTreeRoot);
+            if (bucketNode == null) return false;
+
+            // Remove the item from the bucket:
+            removeItemFromBucket(bucketNode, findItemRepoPathNode(bucketNode, item));
+
+            // Merge buckets that are now small enough:
+            mergeSmallBuckets(bucketNode);
+
+            // Flag that the division cell needs to be committed:
+            divisionCell.hasUncommittedChanges = true;
+
+            // Drop the division cell if it is empty:
+            if (divisionCell.kdTreeRoot instanceof KDBucketNode<TItem, TContent, TArea> rootBucketNode && rootBucketNode.getItemCount() == 0)
+            {
+                dropDivisionCell(this.divisionCube, divisionCell);
+
+                // Remember to commit the empty branch if it was ever committed:
+                if (this.versionLog.getLatestCommit(divisionCell.branchName) != null) this.droppedBranchNames.add(divisionCell.branchName);
+            }
+            return true;
+        }
+        finally
+        {
+            // Allow the division cell to be paged out again:
+            if (this.divisionCellPager != null) this.divisionCellPager.unpin(divisionCell);
+        }
+    }
+
+    /**
+     * Moves an item in the index by replacing the old item with the new item.
+     * This is useful for items that change position over time.
+     *
+     * @param oldItem The item to replace.
+     * @param newItem The item to replace it with.
+     * @return True if the old item was found and replaced. False if the old item is not in the index, in which case nothing is changed.
+     */
+    @Override public boolean move(TItem oldItem, TItem newItem)
+    {
+        // Make sure we have the old item:
+        HyperCoord oldItemCoord = extractItemCoordinate(oldItem, this.hyperCubeDefinition);
+        DivisionCell<TItem, TContent, TArea> oldDivisionCell = getDivisionCell(oldItemCoord);
+        if (oldDivisionCell == null) return false;
+        if (this.divisionCellPager != null) this.divisionCellPager.pin(oldDivisionCell);
+        try
+        {
+            if (findBucketNodeWithItem(oldItem, oldItemCoord, oldDivisionCell.kdTreeRoot) == null) return false;
+        }
+        finally
+        {
+            if (this.divisionCellPager != null) this.divisionCellPager.unpin(oldDivisionCell);
+        }
+
+        // Add the new item before removing the old one so that a division cell is not dropped and created again when an item moves within it:
+        add(newItem);
+        remove(oldItem);
+        return true;
+    }
+
     /**
      * This walks the {@link #divisionCube} and gets or creates the {@link DivisionCell} that we need for the given coordinate.
      *
@@ -198,23 +374,71 @@ public abstract class RepoIndexKDBase<
         {
             // This is the first time we are adding.
             // We need to create the division cube.
+            this.divisionCube = createDivisionCube();
+        }
+
+        return getOrCreateDivisionCell(this.divisionCube, itemCoord);
+    }
+
+    /**
+     * Creates an empty division cube for the {@link #hyperCubeDefinition}.
+     *
+     * @return A new division cube without any division cells.
+     */
+    private DivisionCube<TItem, TContent, TArea> createDivisionCube()
+    {
+        // Create the division cube:
+        DivisionCube<TItem, TContent, TArea> divisionCube = new DivisionCube<>();
+
+        // Set the extents of the division cube:
+        divisionCube.hyperCube = this.hyperCubeDefinition.createHyperCube();
+
+        // Create the flat cell directory if we want it:
+        if (this.cellDirectoryEnabled) divisionCube.cellDirectory = createCellDirectory(divisionCube);
+
+        // Create the index of occupied cells if we want to discover neighbours through it:
+        if (this.divisionCellNeighbourStrategy != DivisionCellNeighbourStrategy.ShellWalk) divisionCube.occupiedCellIndex = new OccupiedDivisionCellIndex<>(this.hyperCubeDefinition.getDimensionCount());
+
+        // Create the root dimension:
+        divisionCube.rootDimension = createDivisionDimension(divisionCube, 0, null);
 
-            // Create the division cube:
-            this.divisionCube = new DivisionCube<>();
+        return divisionCube;
+    }
+
+    /**
+     * This walks the given division cube and gets or creates the {@link DivisionCell} that we need for the given coordinate.
+     *
+     * @param divisionCube The division cube to walk.
+     * @param itemCoord    The coordinate of the item that we want to find the cell of.
+     * @return The {@link DivisionCell} that corresponds to the given {@link HyperCoord hyper coordinate}. Null if the coordinate is outside the division cube.
+     */
+    private DivisionCell<TItem, TContent, TArea> getOrCreateDivisionCell(DivisionCube<TItem, TContent, TArea> divisionCube, HyperCoord itemCoord)
+    {
+        // Check whether we have a flat cell directory to look up the cell quickly:
+        DivisionCellDirectory<TItem, TContent, TArea> cellDirectory = divisionCube.cellDirectory;
+        if (cellDirectory != null)
+        {
+            // Find the key of the cell for this coordinate:
+            long cellKey = cellDirectory.findCellKey(itemCoord);
+            if (cellKey < 0) return null;
 
-            // Set the extents of the division cube:
-            this.divisionCube.hyperCube = this.hyperCubeDefinition.createHyperCube();
+            // Check whether we already have the cell:
+            DivisionCell<TItem, TContent, TArea> divisionCell = cellDirectory.get(cellKey);
+            if (divisionCell == null)
+            {
+                // This is the first time we are accessing this cell.
 
-            // Create the root dimension:
-            //noinspection UnnecessaryLocalVariable
-            DivisionDimension<TItem, TContent, TArea> rootDimension = createDivisionDimension(0, null);
+                // Walk the tree recursively to create the division cell:
+                divisionCell = getOrCreateDivisionCellRecursively(itemCoord, divisionCube.rootDimension, null);
 
-            // Save this as the root dimension for our division cube:
-            this.divisionCube.rootDimension = rootDimension;
+                // Save the cell in the directory:
+                if (divisionCell != null) cellDirectory.put(cellKey, divisionCell);
+            }
+            return divisionCell;
         }
 
         // Walk the tree recursively until we find the division cell:
-        return getOrCreateDivisionCellRecursively(itemCoord, this.divisionCube.rootDimension, null);
+        return getOrCreateDivisionCellRecursively(itemCoord, divisionCube.rootDimension, null);
     }
 
     /**
@@ -224,22 +448,114 @@ public abstract class RepoIndexKDBase<
      * @return The {@link DivisionCell} that corresponds to the given {@link HyperCoord hyper coordinate}. Null if there is no division cell for that coordinate.
      */
     protected DivisionCell<TItem, TContent, TArea> getDivisionCell(HyperCoord itemCoord)
+    {
+        return getDivisionCell(this.divisionCube, itemCoord);
+    }
+
+    /**
+     * This walks the given division cube and gets the {@link DivisionCell} that we need for the given coordinate.
+     *
+     * @param divisionCube The division cube to walk. Null if there is no division cube yet.
+     * @param itemCoord    The coordinate of the item that we want to find the cell of.
+     * @return The {@link DivisionCell} that corresponds to the given {@link HyperCoord hyper coordinate}. Null if there is no division cell for that coordinate.
+     */
+    private DivisionCell<TItem, TContent, TArea> getDivisionCell(DivisionCube<TItem, TContent, TArea> divisionCube, HyperCoord itemCoord)
     {
         // Make sure we have a division cube:
-        if (this.divisionCube == null) return null;
+        if (divisionCube == null) return null;
+
+        // Check whether we have a flat cell directory to look up the cell quickly:
+        DivisionCellDirectory<TItem, TContent, TArea> cellDirectory = divisionCube.cellDirectory;
+        if (cellDirectory != null)
+        {
+            // Look up the cell directly:
+            return cellDirectory.get(cellDirectory.findCellKey(itemCoord));
+        }
 
         // Walk the tree recursively until we find the division cell:
-        return getDivisionCellRecursively(itemCoord, this.divisionCube.rootDimension);
+        return getDivisionCellRecursively(itemCoord, divisionCube.rootDimension);
+    }
+
+    /**
+     * Creates the flat {@link DivisionCellDirectory} for the given division cube.
+     * This works out the range splits for every dimension up front because the directory needs to know the size of each dimension.
+     *
+     * @param divisionCube The division cube to create the directory for.
+     * @return The directory for the division cube. Null if there are too many possible cells to pack their coordinates into a long.
+     */
+    private DivisionCellDirectory<TItem, TContent, TArea> createCellDirectory(DivisionCube<TItem, TContent, TArea> divisionCube)
+    {
+        // Get the number of dimensions:
+        int dimensionCount = this.hyperCubeDefinition.getDimensionCount();
+
+        // Work out the range splits for every dimension:
+        //noinspection unchecked
+        RangeSplitLocator<Object>[] splitLocators = (RangeSplitLocator<Object>[]) new RangeSplitLocator[dimensionCount];
+        int[] radices = new int[dimensionCount];
+        for (int dimensionIndex = 0; dimensionIndex < dimensionCount; dimensionIndex++)
+        {
+            splitLocators[dimensionIndex] = getOrCalculateRangeSplitLocator(divisionCube, dimensionIndex);
+            radices[dimensionIndex] = splitLocators[dimensionIndex].getSplits().size();
+        }
+
+        // Make sure that we can pack the coordinates:
+        if (!DivisionCellDirectory.canPack(radices)) return null;
+
+        return new DivisionCellDirectory<>(splitLocators);
+    }
+
+    /**
+     * Gets the locator for the range splits of the given dimension,
+     * calculating the range splits if this is the first time we need them for the division cube.
+     * NOTE: The splits only depend on the dimension, so they are the same for every division dimension of this dimension.
+     *
+     * @param divisionCube   The division cube that the splits are for.
+     * @param dimensionIndex The index of the dimension to get the splits for.
+     * @return The locator for the range splits of the dimension.
+     */
+    private RangeSplitLocator<Object> getOrCalculateRangeSplitLocator(DivisionCube<TItem, TContent, TArea> divisionCube, int dimensionIndex)
+    {
+        // Check whether we have already worked out the splits for this dimension:
+        RangeSplitLocator<Object> splitLocator = divisionCube.rangeSplitLocatorsByDimensionIndex.get(dimensionIndex);
+        if (splitLocator == null)
+        {
+            // We have not worked out these splits before for the division cube.
+
+            // Get the dimension:
+            Dimension<Object> dimension = this.hyperCubeDefinition.getDimension(dimensionIndex);
+
+            // Get the number of divisions for this dimension, which can override the divisions of the index:
+            int divisionsForDimension = dimension.getDivisions() > 0 ? dimension.getDivisions() : this.divisions;
+
+            // Create the list for range splits to be the same size as the number of divisions that we want:
+            // NOTE: Depending on the smallest steps size for the dimension, it might be more or less than that.
+            List<Range<Object>> splits = new ArrayList<>(divisionsForDimension);
+
+            // Work out the range splits for this dimension:
+            dimension.calculateRangeSplitsForDimension(divisionsForDimension, splits);
+            // NOTE: The number of splits MIGHT be different to what was requested because of the smallest step size for the dimension.
+            //       Therefore, it's important to use the size of the splits array to know what index is appropriate.
+            //       We also create additional ranges for the values that are out of bounds.
+
+            // Precompute the boundaries of the splits so that we can locate values quickly:
+            splitLocator = new RangeSplitLocator<>(splits, dimension.getRangeCalculator());
+
+            // Add these splits to the division cube:
+            divisionCube.rangeSplitsByDimensionIndex.put(dimensionIndex, splits);
+            divisionCube.rangeSplitLocatorsByDimensionIndex.put(dimensionIndex, splitLocator);
+        }
+        return splitLocator;
     }
 
     /**
      * Creates the {@link DivisionDimension} with the given parameters.
      *
+     * @param divisionCube              The division cube that the dimension belongs to.
      * @param dimensionIndexToCreate    The dimensionIndex that we are creating.
      * @param previousDivisionDimension The previous division dimension that we are coming from. Null if this is the first dimension.
      * @return The {@link DivisionDimension} that was created.
      */
-    private DivisionDimension<TItem, TContent, TArea> createDivisionDimension(int dimensionIndexToCreate, DivisionDimension<TItem, TContent, TArea> previousDivisionDimension)
+    private DivisionDimension<TItem, TContent, TArea> createDivisionDimension(DivisionCube<TItem, TContent, TArea> divisionCube, int dimensionIndexToCreate, DivisionDimension<TItem, TContent, TArea> previousDivisionDimension)
     {
         // Check whether we have more than one division dimension so that we know what type of node to create:
         int dimensionCount = this.hyperCubeDefinition.getDimensionCount();
@@ -261,7 +577,7 @@ public abstract class RepoIndexKDBase<
             {
                 // This is the first and last dimension.
                 // Set the division cube that we came from:
-                last.divisionCube = this.divisionCube;
+                last.divisionCube = divisionCube;
             }
             else
             {
@@ -280,7 +596,7 @@ public abstract class RepoIndexKDBase<
             divisionDimension = first;
 
             // Set the division cube that we came from:
-            first.divisionCube = this.divisionCube;
+            first.divisionCube = divisionCube;
 
             // Use the same hyper cube as the division cube:
             first.hyperCube = first.divisionCube.hyperCube;
@@ -302,24 +618,9 @@ public abstract class RepoIndexKDBase<
         // Set the dimension that this is for:
         divisionDimension.dimension = this.hyperCubeDefinition.getDimension(dimensionIndexToCreate);
 
-        // Create the list for range splits to be the same size as the number of divisions that we want:
-        // NOTE: Depending on the smallest steps size for the dimension, it might be more or less than that.
-        divisionDimension.splits = new ArrayList<>(this.divisions);
-
-        // Work out the range splits for this dimension:
-        divisionDimension.dimension.calculateRangeSplitsForDimension(this.divisions, divisionDimension.splits);
-        // NOTE: The number of splits MIGHT be different to what was requested because of the smallest step size for the dimension.
-        //       Therefore, it's important to use the size of the splits array to know what index is appropriate.
-        //       We also create additional ranges for the values that are out of bounds.
-
-        // Check whether this is our first set of splits that we are calculating for this dimension:
-        if (!divisionDimension.divisionCube.rangeSplitsByDimensionIndex.containsKey(dimensionIndexToCreate))
-        {
-            // We have not worked out these splits before for the division cube.
-
-            // Add these splits to the division cube:
-            divisionDimension.divisionCube.rangeSplitsByDimensionIndex.put(dimensionIndexToCreate, divisionDimension.splits);
-        }
+        // Get the range splits for this dimension:
+        divisionDimension.splitLocator = getOrCalculateRangeSplitLocator(divisionDimension.divisionCube, dimensionIndexToCreate);
+        divisionDimension.splits = divisionDimension.splitLocator.getSplits();
 
         return divisionDimension;
     }
@@ -341,100 +642,103 @@ public abstract class RepoIndexKDBase<
         Object value = itemCoord.getValue(dimensionIndex);
 
         // Find the range split that this coordinate falls into:
-        for (int divisionIndex = 0; divisionIndex < currentDimensionNode.splits.size(); divisionIndex++)
+        int divisionIndex = currentDimensionNode.splitLocator.locate(value);
+        if (divisionIndex >= 0)
         {
             // Get the range for this split:
             Range<Object> splitRange = currentDimensionNode.splits.get(divisionIndex);
 
-            // Check whether the coordinate is in this range:
-            if (currentDimensionNode.dimension.getRangeCalculator().isInRange(value, splitRange))
-            {
-                // This item is in this split range.
+            // This item is in this split range.
 
-                // Create the division coordinate for this step:
-                DivisionCoord currentDivisionCoordinate = parentDivisionCoord == null ? new DivisionCoord(divisionIndex) : parentDivisionCoord.withNextValue(divisionIndex);
+            // Create the division coordinate for this step:
+            DivisionCoord currentDivisionCoordinate = parentDivisionCoord == null ? new DivisionCoord(divisionIndex) : parentDivisionCoord.withNextValue(divisionIndex);
 
-                // Check where we are in the dimension chain to decide how to walk next:
-                switch (currentDimensionNode)
+            // Check where we are in the dimension chain to decide how to walk next:
+            switch (currentDimensionNode)
+            {
+                case DivisionDimension.First<TItem, TContent, TArea> firstDivisionDimension ->
                 {
-                    case DivisionDimension.First<TItem, TContent, TArea> firstDivisionDimension ->
+                    // Make sure we have the next dimension to walk down:
+                    DivisionDimension<TItem, TContent, TArea> nextDivisionDimension = firstDivisionDimension.nextDivisionDimensionByIndex.get(divisionIndex);
+                    if (nextDivisionDimension == null)
                     {
-                        // Make sure we have the next dimension to walk down:
-                        DivisionDimension<TItem, TContent, TArea> nextDivisionDimension = firstDivisionDimension.nextDivisionDimensionByIndex.get(divisionIndex);
-                        if (nextDivisionDimension == null)
-                        {
-                            // Create the next dimension:
-                            nextDivisionDimension = createDivisionDimension(dimensionIndex + 1, firstDivisionDimension);
-
-                            // Set the hyper cube for this split range:
-                            nextDivisionDimension.hyperCube = firstDivisionDimension.hyperCube.createHyperCubeWithChangedRange(dimensionIndex, splitRange);
+                        // Create the next dimension:
+                        nextDivisionDimension = createDivisionDimension(firstDivisionDimension.divisionCube, dimensionIndex + 1, firstDivisionDimension);
 
-                            // Index the next dimension:
-                            firstDivisionDimension.nextDivisionDimensionByIndex.put(divisionIndex, nextDivisionDimension);
-                        }
+                        // Set the hyper cube for this split range:
+                        nextDivisionDimension.hyperCube = firstDivisionDimension.hyperCube.createHyperCubeWithChangedRange(dimensionIndex, splitRange);
 
-                        // Walk to the next dimension until we find the division cell:
-                        return getOrCreateDivisionCellRecursively(itemCoord, nextDivisionDimension, currentDivisionCoordinate);
+                        // Index the next dimension:
+                        firstDivisionDimension.nextDivisionDimensionByIndex.put(divisionIndex, nextDivisionDimension);
                     }
-                    case DivisionDimension.Intermediate<TItem, TContent, TArea> intermediateDivisionDimension ->
-                    {
-                        // Make sure we have the next dimension to walk down:
-                        DivisionDimension<TItem, TContent, TArea> nextDivisionDimension = intermediateDivisionDimension.nextDivisionDimensionByIndex.get(divisionIndex);
-                        if (nextDivisionDimension == null)
-                        {
-                            // Create the next dimension:
-                            nextDivisionDimension = createDivisionDimension(dimensionIndex + 1, intermediateDivisionDimension);
 
-                            // Set the hyper cube for this split range:
-                            nextDivisionDimension.hyperCube = intermediateDivisionDimension.hyperCube.createHyperCubeWithChangedRange(dimensionIndex, splitRange);
+                    // Walk to the next dimension until we find the division cell:
+                    return getOrCreateDivisionCellRecursively(itemCoord, nextDivisionDimension, currentDivisionCoordinate);
+                }
+                case DivisionDimension.Intermediate<TItem, TContent, TArea> intermediateDivisionDimension ->
+                {
+                    // Make sure we have the next dimension to walk down:
+                    DivisionDimension<TItem, TContent, TArea> nextDivisionDimension = intermediateDivisionDimension.nextDivisionDimensionByIndex.get(divisionIndex);
+                    if (nextDivisionDimension == null)
+                    {
+                        // Create the next dimension:
+                        nextDivisionDimension = createDivisionDimension(intermediateDivisionDimension.divisionCube, dimensionIndex + 1, intermediateDivisionDimension);
 
-                            // Index the next dimension:
-                            intermediateDivisionDimension.nextDivisionDimensionByIndex.put(divisionIndex, nextDivisionDimension);
-                        }
+                        // Set the hyper cube for this split range:
+                        nextDivisionDimension.hyperCube = intermediateDivisionDimension.hyperCube.createHyperCubeWithChangedRange(dimensionIndex, splitRange);
 
-                        // Walk to the next dimension until we find the division cell:
-                        return getOrCreateDivisionCellRecursively(itemCoord, nextDivisionDimension, currentDivisionCoordinate);
+                        // Index the next dimension:
+                        intermediateDivisionDimension.nextDivisionDimensionByIndex.put(divisionIndex, nextDivisionDimension);
                     }
-                    case DivisionDimension.Last<TItem, TContent, TArea> lastDivisionDimension ->
+
+                    // Walk to the next dimension until we find the division cell:
+                    return getOrCreateDivisionCellRecursively(itemCoord, nextDivisionDimension, currentDivisionCoordinate);
+                }
+                case DivisionDimension.Last<TItem, TContent, TArea> lastDivisionDimension ->
+                {
+                    // We are at the last dimension.
+
+                    // Search for the division cell:
+                    DivisionCell<TItem, TContent, TArea> divisionCell = lastDivisionDimension.cellsByIndex.get(divisionIndex);
+                    if (divisionCell == null)
                     {
-                        // We are at the last dimension.
+                        // This is the first time we are accessing this division cell.
+
+                        // Create the division cell:
+                        divisionCell = new DivisionCell<>();
+                        lastDivisionDimension.cellsByIndex.put(divisionIndex, divisionCell);
+                        divisionCell.parentDimension = lastDivisionDimension;
+                        divisionCell.hyperCube = lastDivisionDimension.hyperCube.createHyperCubeWithChangedRange(
+                            lastDivisionDimension.dimension.getDimensionIndex(),
+                            splitRange
+                        );
+                        divisionCell.divisionCellCoordinate = currentDivisionCoordinate;
 
-                        // Search for the division cell:
-                        DivisionCell<TItem, TContent, TArea> divisionCell = lastDivisionDimension.cellsByIndex.get(divisionIndex);
-                        if (divisionCell == null)
-                        {
-                            // This is the first time we are accessing this division cell.
-
-                            // Create the division cell:
-                            divisionCell = new DivisionCell<>();
-                            lastDivisionDimension.cellsByIndex.put(divisionIndex, divisionCell);
-                            divisionCell.parentDimension = lastDivisionDimension;
-                            divisionCell.hyperCube = lastDivisionDimension.hyperCube.createHyperCubeWithChangedRange(
-                                lastDivisionDimension.dimension.getDimensionIndex(),
-                                splitRange
-                            );
-                            divisionCell.divisionCellCoordinate = currentDivisionCoordinate;
-
-                            // Create the content area:
-                            //noinspection UnnecessaryLocalVariable
-                            TArea contentArea = getRepoHandler().createArea();
-                            divisionCell.contentArea = contentArea;
-
-                            // Initialise the repo path tree:
-                            //noinspection UnnecessaryLocalVariable
-                            RepoPathTree repoPathTree = new RepoPathTree();
-                            divisionCell.repoPathTree = repoPathTree;
-
-                            // Define the branch name for this cell:
-                            divisionCell.branchName = divisionCell.hyperCube.toString();
-
-                            // Register this division cell with the division cube:
-                            divisionCell.parentDimension.divisionCube.cellsByBranchName.put(divisionCell.branchName, divisionCell);
+                        // Create the content area:
+                        //noinspection UnnecessaryLocalVariable
+                        TArea contentArea = getRepoHandler().createArea();
+                        divisionCell.contentArea = contentArea;
+
+                        // Initialise the repo path tree:
+                        //noinspection UnnecessaryLocalVariable
+                        RepoPathTree repoPathTree = new RepoPathTree();
+                        divisionCell.repoPathTree = repoPathTree;
+
+                        // Define the branch name for this cell:
+                        divisionCell.branchName = divisionCell.hyperCube.toString();
+
+                        // Register this division cell with the division cube:
+                        divisionCell.parentDimension.divisionCube.cellsByBranchName.put(divisionCell.branchName, divisionCell);
+
+                        // Register this division cell with the index of occupied cells:
+                        if (divisionCell.parentDimension.divisionCube.occupiedCellIndex != null) divisionCell.parentDimension.divisionCube.occupiedCellIndex.add(divisionCell);
+
+                        // Link this division cell with its nearest cells:
+                        linkNewDivisionCellToNearestCells(divisionCell.parentDimension.divisionCube, divisionCell);
 
-                        }
-                        // Now we have the division cell.
-                        return divisionCell;
                     }
+                    // Now we have the division cell.
+                    return divisionCell;
                 }
             }
         }
@@ -457,59 +761,56 @@ public abstract class RepoIndexKDBase<
         Object value = itemCoord.getValue(dimensionIndex);
 
         // Find the range split that this coordinate falls into:
-        for (int divisionIndex = 0; divisionIndex < currentDimensionNode.splits.size(); divisionIndex++)
+        int divisionIndex = currentDimensionNode.splitLocator.locate(value);
+        if (divisionIndex >= 0)
         {
             // Get the range for this split:
             Range<Object> splitRange = currentDimensionNode.splits.get(divisionIndex);
 
-            // Check whether the coordinate is in this range:
-            if (currentDimensionNode.dimension.getRangeCalculator().isInRange(value, splitRange))
-            {
-                // This item is in this split range.
+            // This item is in this split range.
 
-                // Check where we are in the dimension chain to decide how to walk next:
-                switch (currentDimensionNode)
+            // Check where we are in the dimension chain to decide how to walk next:
+            switch (currentDimensionNode)
+            {
+                case DivisionDimension.First<TItem, TContent, TArea> firstDivisionDimension ->
                 {
-                    case DivisionDimension.First<TItem, TContent, TArea> firstDivisionDimension ->
+                    // Make sure we have the next dimension to walk down:
+                    DivisionDimension<TItem, TContent, TArea> nextDivisionDimension = firstDivisionDimension.nextDivisionDimensionByIndex.get(divisionIndex);
+                    if (nextDivisionDimension == null)
                     {
-                        // Make sure we have the next dimension to walk down:
-                        DivisionDimension<TItem, TContent, TArea> nextDivisionDimension = firstDivisionDimension.nextDivisionDimensionByIndex.get(divisionIndex);
-                        if (nextDivisionDimension == null)
-                        {
-                            // Flag that we don't have a division cell for this coordinate by breaking out early:
-                            return null;
-                        }
-
-                        // Walk to the next dimension until we find the division cell:
-                        return getDivisionCellRecursively(itemCoord, nextDivisionDimension);
+                        // Flag that we don't have a division cell for this coordinate by breaking out early:
+                        return null;
                     }
-                    case DivisionDimension.Intermediate<TItem, TContent, TArea> intermediateDivisionDimension ->
-                    {
-                        // Make sure we have the next dimension to walk down:
-                        DivisionDimension<TItem, TContent, TArea> nextDivisionDimension = intermediateDivisionDimension.nextDivisionDimensionByIndex.get(divisionIndex);
-                        if (nextDivisionDimension == null)
-                        {
-                            // Flag that we don't have a division cell for this coordinate by breaking out early:
-                            return null;
-                        }
 
-                        // Walk to the next dimension until we find the division cell:
-                        return getDivisionCellRecursively(itemCoord, nextDivisionDimension);
-                    }
-                    case DivisionDimension.Last<TItem, TContent, TArea> lastDivisionDimension ->
+                    // Walk to the next dimension until we find the division cell:
+                    return getDivisionCellRecursively(itemCoord, nextDivisionDimension);
+                }
+                case DivisionDimension.Intermediate<TItem, TContent, TArea> intermediateDivisionDimension ->
+                {
+                    // Make sure we have the next dimension to walk down:
+                    DivisionDimension<TItem, TContent, TArea> nextDivisionDimension = intermediateDivisionDimension.nextDivisionDimensionByIndex.get(divisionIndex);
+                    if (nextDivisionDimension == null)
                     {
-                        // We are at the last dimension.
+                        // Flag that we don't have a division cell for this coordinate by breaking out early:
+                        return null;
+                    }
 
-                        // Search for the division cell:
-                        DivisionCell<TItem, TContent, TArea> divisionCell = lastDivisionDimension.cellsByIndex.get(divisionIndex);
-                        if (divisionCell == null)
-                        {
-                            // Flag that we don't have a division cell for this coordinate by breaking out early:
-                            return null;
-                        }
-                        // Now we have the division cell.
-                        return divisionCell;
+                    // Walk to the next dimension until we find the division cell:
+                    return getDivisionCellRecursively(itemCoord, nextDivisionDimension);
+                }
+                case DivisionDimension.Last<TItem, TContent, TArea> lastDivisionDimension ->
+                {
+                    // We are at the last dimension.
+
+                    // Search for the division cell:
+                    DivisionCell<TItem, TContent, TArea> divisionCell = lastDivisionDimension.cellsByIndex.get(divisionIndex);
+                    if (divisionCell == null)
+                    {
+                        // Flag that we don't have a division cell for this coordinate by breaking out early:
+                        return null;
                     }
+                    // Now we have the division cell.
+                    return divisionCell;
                 }
             }
         }
@@ -551,6 +852,20 @@ public abstract class RepoIndexKDBase<
      * @return The replacement node to use in place of the inputted one. This is in case the node is replaced with another one.
      */
     protected KDNode<TItem, TContent, TArea> addItemToKDNode(TItem item, HyperCoord itemCoord, KDNode<TItem, TContent, TArea> node)
+    {
+        return addItemToKDNode(item, itemCoord, null, node);
+    }
+
+    /**
+     * Recursively adds the given item at the coordinate by adding to or building the KD-Tree.
+     *
+     * @param item        The item to add.
+     * @param itemCoord   The coordinate of the item.
+     * @param itemContent The content for the item if we already have it (because the item is being moved when a bucket is split). Null to create the content for the item.
+     * @param node        The node that we are walking.
+     * @return The replacement node to use in place of the inputted one. This is in case the node is replaced with another one.
+     */
+    private KDNode<TItem, TContent, TArea> addItemToKDNode(TItem item, HyperCoord itemCoord, TContent itemContent, KDNode<TItem, TContent, TArea> node)
     {
         // Check what type of node this is:
         switch (node)
@@ -572,7 +887,7 @@ public abstract class RepoIndexKDBase<
                 Object midPoint = null;
 
                 // Check whether we have exceeded our bucket threshold:
-                if (bucketNode.contentMap.size() == this.bucketThreshold)
+                if (bucketNode.getItemCount() == this.bucketThreshold)
                 {
                     // We have exceeded the bucket size for this node.
 
@@ -587,6 +902,10 @@ public abstract class RepoIndexKDBase<
                 // Split the node if we need to:
                 if (shouldSplit)
                 {
+                    // Tell the listener that we are splitting the bucket:
+                    IndexListener listener = this.measurement.getIndexListener();
+                    if (listener != null) listener.onSplit();
+
                     // Create a new intermediate node:
                     KDIntermediateNode<TItem, Object, TContent, TArea> newNode = new KDIntermediateNode<>();
                     newNode.parent = bucketNode.parent;
@@ -602,6 +921,8 @@ public abstract class RepoIndexKDBase<
 
                     // Work out the range split:
                     newNode.rangeSplit = rangeCalculator.splitRange(bucketRange, newNode.cutValue, RangeSplitInclusion.Lower);
+                    newNode.lowerRangePredicate = rangeCalculator.compile(newNode.rangeSplit.lower());
+                    newNode.higherRangePredicate = rangeCalculator.compile(newNode.rangeSplit.higher());
 
                     // Work out the new path for this node:
                     String newNodeName = newNode.dimension.getName() + ":" + newNode.cutValue.toString();
@@ -610,21 +931,19 @@ public abstract class RepoIndexKDBase<
                     // Keep track of the node to return as we iterate recursively:
                     KDNode<TItem, TContent, TArea> nodeToReturn = newNode;
 
-                    // Recursively update the new node with the items in the bucket:
-                    for (Map.Entry<RepoPathNode, TContent> entry : bucketNode.contentMap.entrySet())
-                    {
-                        // Get the content:
-                        TContent bucketItemContent = entry.getValue();
-
-                        // Get the item from the content:
-                        TItem bucketItem = readItemFromContent(bucketItemContent);
+                    // The bucket is being replaced so we don't need its decoded items anymore:
+                    this.decodedItemsByBucket.remove(bucketNode);
 
-                        // Get the repo path for the item:
-                        RepoPathNode bucketItemRepoPathNode = entry.getKey();
-                        RepoPath bucketItemRepoPath = bucketItemRepoPathNode.getRepoPath();
+                    // Recursively move the items in the bucket to the new node:
+                    // NOTE: We reuse the decoded items and their content instead of reading and creating them again.
+                    for (RepoPathNode bucketItemRepoPathNode : bucketNode.getItemRepoPathNodes())
+                    {
+                        // Get the content and the item, decoding the item only if we don't store it:
+                        TContent bucketItemContent = bucketNode.contentMap.get(bucketItemRepoPathNode);
+                        TItem bucketItem = this.bucketStoragePolicy == BucketStoragePolicy.ContentOnly ? readItemFromContent(bucketItemContent) : bucketNode.itemMap.get(bucketItemRepoPathNode);
 
                         // Remove the item from the content area:
-                        bucketNode.divisionCell.contentArea.removeContent(bucketItemRepoPath);
+                        if (bucketItemContent != null) removeContentFromDivisionCell(bucketNode.divisionCell, bucketItemRepoPathNode.getRepoPath());
 
                         // Get the repo path tree that we can use for navigating:
                         RepoPathTree repoPathTree = bucketNode.divisionCell.repoPathTree;
@@ -638,12 +957,12 @@ public abstract class RepoIndexKDBase<
                         // Get the coordinate for this item:
                         HyperCoord bucketItemCoord = extractItemCoordinate(bucketItem, this.hyperCubeDefinition);
 
-                        // Recursively add the bucket item:
-                        nodeToReturn = addItemToKDNode(bucketItem, bucketItemCoord, nodeToReturn);
+                        // Recursively add the bucket item with its existing content:
+                        nodeToReturn = addItemToKDNode(bucketItem, bucketItemCoord, bucketItemContent, nodeToReturn);
                     }
 
                     // Recursively update the new node with the items that was added (which triggered this re-indexing):
-                    nodeToReturn = addItemToKDNode(item, itemCoord, nodeToReturn);
+                    nodeToReturn = addItemToKDNode(item, itemCoord, itemContent, nodeToReturn);
 
                     // Replace the previous node with the new node:
                     return nodeToReturn;
@@ -652,24 +971,20 @@ public abstract class RepoIndexKDBase<
                 {
                     // We are still within the allowed bucket threshold.
 
-                    // Get the content for the item:
-                    TContent itemContent = createContentForItem(item);
+                    // Get the content for the item if we store it and don't already have it:
+                    if (itemContent == null && this.bucketStoragePolicy != BucketStoragePolicy.ItemsOnly) itemContent = createContentForItem(item);
 
                     // Get the index of the item in this bucket:
-                    int itemIndex = bucketNode.contentMap.size();
+                    int itemIndex = bucketNode.nextItemIndex++;
 
                     // Get the repo path for the content:
                     RepoPathNode itemRepoPathNode = bucketNode.divisionCell.repoPathTree.getOrCreateChildNode(bucketNode.bucketItemsRepoPathNode, Integer.toString(itemIndex));
-                    RepoPath itemRepoPath = itemRepoPathNode.getRepoPath();
-
-                    // Add the item to our item map:
-                    bucketNode.itemMap.put(itemRepoPathNode, item);
 
-                    // Add the content to our content map:
-                    bucketNode.contentMap.put(itemRepoPathNode, itemContent);
+                    // Add the item to the bucket:
+                    putItemInBucket(bucketNode, itemRepoPathNode, item, itemContent);
 
                     // Add the content to the content area:
-                    bucketNode.divisionCell.contentArea.putContent(itemRepoPath, itemContent);
+                    if (itemContent != null) putContentInDivisionCell(bucketNode.divisionCell, itemRepoPathNode.getRepoPath(), itemContent);
 
                     // Leave the node as it was:
                     return bucketNode;
@@ -683,17 +998,11 @@ public abstract class RepoIndexKDBase<
                 // Get the dimension that we are splitting by:
                 Dimension<Object> dimension = intermediateNode.dimension;
 
-                // Get the split for this node:
-                RangeSplit<Object> rangeSplit = intermediateNode.rangeSplit;
-
-                // Get the range calculator:
-                RangeCalculator<Object> rangeCalculator = dimension.getRangeCalculator();
-
                 // Get the coordinate for the item:
                 Object value = itemCoord.getValue(intermediateNode.dimension);
 
                 // Check whether to index the item in the lower branch:
-                if (rangeCalculator.isInRange(value, rangeSplit.lower()))
+                if (intermediateNode.lowerRangePredicate.isInRange(value))
                 {
                     // This item belongs in the lower range.
 
@@ -714,11 +1023,11 @@ public abstract class RepoIndexKDBase<
                     }
 
                     // Recursively add the item to that branch:
-                    intermediateNode.lowerNode = addItemToKDNode(item, itemCoord, intermediateNode.lowerNode);
+                    intermediateNode.lowerNode = addItemToKDNode(item, itemCoord, itemContent, intermediateNode.lowerNode);
                 }
 
                 // Check whether to index the item in the higher branch:
-                if (rangeCalculator.isInRange(value, rangeSplit.higher()))
+                if (intermediateNode.higherRangePredicate.isInRange(value))
                 {
                     // This item belongs in the higher range.
 
@@ -739,7 +1048,7 @@ public abstract class RepoIndexKDBase<
                     }
 
                     // Recursively add the item to that branch:
-                    intermediateNode.higherNode = addItemToKDNode(item, itemCoord, intermediateNode.higherNode);
+                    intermediateNode.higherNode = addItemToKDNode(item, itemCoord, itemContent, intermediateNode.higherNode);
                 }
 
                 // Return the intermediate node unchanged:
@@ -750,54 +1059,643 @@ public abstract class RepoIndexKDBase<
     }
 
     /**
-     * Indexes the items that have been added.
-     * This is a pre-computation step that needs to be called before we search for nearest neighbours.
+     * Finds the bucket that holds the given item by walking the kd-tree towards the coordinate of the item.
+     *
+     * @param item      The item to find.
+     * @param itemCoord The coordinate of the item.
+     * @param node      The node to start walking from. Null if there is no node.
+     * @return The bucket that holds the item. Null if the item is not under this node.
      */
-    @Override public void index()
+    private KDBucketNode<TItem, TContent, TArea> findBucketNodeWithItem(TItem item, HyperCoord itemCoord, KDNode<TItem, TContent, TArea> node)
     {
-        // We need to work out nearest neighbors for divisions in k-dimensions:
-        workOutNearestNeighborsForDivisionCells(this.divisionCube);
+        if (node == null) return null;
+        switch (node)
+        {
+            case KDBucketNode<TItem, TContent, TArea> bucketNode ->
+            {
+                return findItemRepoPathNode(bucketNode, item) == null ? null : bucketNode;
+            }
+            case KDIntermediateNode<TItem, ?, TContent, TArea> intermediateNodeUntyped ->
+            {
+                //noinspection unchecked
+                KDIntermediateNode<TItem, Object, TContent, TArea> intermediateNode = (KDIntermediateNode<TItem, Object, TContent, TArea>) intermediateNodeUntyped;
+
+                // Walk down each side that the coordinate is in, in the same way as when the item was added:
+                Object value = itemCoord.getValue(intermediateNode.dimension);
+                KDBucketNode<TItem, TContent, TArea> bucketNode = null;
+                if (intermediateNode.lowerRangePredicate.isInRange(value)) bucketNode = findBucketNodeWithItem(item, itemCoord, intermediateNode.lowerNode);
+                if (bucketNode == null && intermediateNode.higherRangePredicate.isInRange(value)) bucketNode = findBucketNodeWithItem(item, itemCoord, intermediateNode.higherNode);
+                return bucketNode;
+            }
+            default -> throw new IllegalStateException("Unexpected value: " + node);
+        }
     }
 
     /**
-     * The division cube to update with links to nearest neighbour division cells for each cell that actually exists.
+     * Finds the repo path node of the given item in the bucket.
      *
-     * @param divisionCube The division cube to update with nearest neighbour information.
+     * @param bucketNode The bucket to search.
+     * @param item       The item to find.
+     * @return The repo path node of the first item in the bucket that is equal to the given item. Null if the item is not in the bucket.
      */
-    protected void workOutNearestNeighborsForDivisionCells(DivisionCube<TItem, TContent, TArea> divisionCube)
+    private RepoPathNode findItemRepoPathNode(KDBucketNode<TItem, TContent, TArea> bucketNode, TItem item)
     {
-        // NOTE: The algorithm is to ripple out for each cell where we have a division cell in concentric multidimensional spheres.
-        //       If we come across any existing division cells within that sphere radius, we need to search all items in that cell.
-
-        // Get the number of dimensions that we have:
-        int dimensionCount = divisionCube.hyperCube.getDefinition().getDimensionCount();
-
-        // Index each of the cells by their coordinates so that we can look them up easily:
-        HashMap<DivisionCoord, DivisionCell<TItem, TContent, TArea>> cellsByCoord = new HashMap<>();
-        for (DivisionCell<TItem, TContent, TArea> existingDivisionCell : divisionCube.cellsByBranchName.values())
+        // Walk the items and their paths together (they are in the same order):
+        Iterator<RepoPathNode> itemRepoPathNodeIterator = bucketNode.getItemRepoPathNodes().iterator();
+        for (TItem bucketItem : getBucketItems(bucketNode))
         {
-            cellsByCoord.put(existingDivisionCell.divisionCellCoordinate, existingDivisionCell);
+            RepoPathNode itemRepoPathNode = itemRepoPathNodeIterator.next();
+            if (bucketItem.equals(item)) return itemRepoPathNode;
         }
-        // Now we have each of the cells indexed by their coordinates.
+        return null;
+    }
 
-        // Define the coordinate that we are going to be navigating:
-        int[] currentCoord = new int[dimensionCount];
+    /**
+     * Removes the item at the given repo path node from the bucket, along with its content and its repo path.
+     *
+     * @param bucketNode       The bucket to remove the item from.
+     * @param itemRepoPathNode The repo path node of the item in the bucket.
+     */
+    private void removeItemFromBucket(KDBucketNode<TItem, TContent, TArea> bucketNode, RepoPathNode itemRepoPathNode)
+    {
+        // Remove the content if we store it:
+        if (bucketNode.contentMap.remove(itemRepoPathNode) != null) removeContentFromDivisionCell(bucketNode.divisionCell, itemRepoPathNode.getRepoPath());
 
-        // Go through each division cell that we actually have:
-        for (DivisionCell<TItem, TContent, TArea> existingDivisionCell : divisionCube.cellsByBranchName.values())
-        {
-            // Create the list of cells that are the nearest for this existing cell:
-            Set<DivisionCell<TItem, TContent, TArea>> nearestCells = new LinkedHashSet<>();
+        // Remove the item:
+        bucketNode.itemMap.remove(itemRepoPathNode);
+        this.decodedItemsByBucket.remove(bucketNode);
 
-            // Start off searching for other cells.
-            // NOTE: We have a special case where there is only one cell, so we don't have to search:
-            boolean hasFoundAnyCells = cellsByCoord.size() == 1;
+        // Remove the path of the item:
+        bucketNode.divisionCell.repoPathTree.removeFromParent(itemRepoPathNode);
+    }
 
-            // Keep increasing the sphere radius until we find something:
-            int sphereRadius = 0;
-            search:
-            while (!hasFoundAnyCells)
-            {
+    /**
+     * Tidies up the kd-tree after items were removed from the given bucket.
+     * Empty buckets are detached from their parent (unless they are the root),
+     * and whenever both sides of a split are buckets (or missing) with fewer items than the bucket threshold between them,
+     * the split is merged back into a single bucket.
+     * This repeats up the kd-tree for as long as the merged buckets are small enough.
+     *
+     * @param bucketNode The bucket that items were removed from.
+     */
+    private void mergeSmallBuckets(KDBucketNode<TItem, TContent, TArea> bucketNode)
+    {
+        KDBucketNode<TItem, TContent, TArea> currentBucketNode = bucketNode;
+        while (currentBucketNode.parent instanceof KDIntermediateNode<TItem, ?, TContent, TArea> parentNode)
+        {
+            // Detach the bucket if it is empty:
+            if (currentBucketNode.getItemCount() == 0)
+            {
+                if (parentNode.lowerNode == currentBucketNode) parentNode.lowerNode = null;
+                if (parentNode.higherNode == currentBucketNode) parentNode.higherNode = null;
+                currentBucketNode.divisionCell.repoPathTree.removeFromParent(currentBucketNode.repoPathNode);
+            }
+
+            // Check whether the split can be merged:
+            if (!(parentNode.lowerNode == null || parentNode.lowerNode instanceof KDBucketNode) || !(parentNode.higherNode == null || parentNode.higherNode instanceof KDBucketNode)) return;
+            if (getItemCount(parentNode.lowerNode) + getItemCount(parentNode.higherNode) >= this.bucketThreshold) return;
+
+            // Merge the split back into a bucket:
+            currentBucketNode = mergeKDIntermediateNode(parentNode);
+        }
+    }
+
+    /**
+     * Checks whether the given node is still part of the kd-tree of its division cell.
+     *
+     * @param node The node to check.
+     * @return True if the node can be reached from the root of the kd-tree. False if it was detached or replaced.
+     */
+    private boolean isInKDTree(KDNode<TItem, TContent, TArea> node)
+    {
+        // Walk up to the root, making sure that each parent still links to the node that we came from:
+        while (node.parent instanceof KDIntermediateNode<TItem, ?, TContent, TArea> parentNode)
+        {
+            if (parentNode.lowerNode != node && parentNode.higherNode != node) return false;
+            node = parentNode;
+        }
+        return node.divisionCell.kdTreeRoot == node;
+    }
+
+    /**
+     * Gets the number of items in the given node if it is a bucket.
+     *
+     * @param node The node to count. Null if there is no node.
+     * @return The number of items in the bucket. Zero if there is no node.
+     */
+    private static int getItemCount(KDNode<?, ?, ?> node)
+    {
+        return node instanceof KDBucketNode<?, ?, ?> bucketNode ? bucketNode.getItemCount() : 0;
+    }
+
+    /**
+     * Merges the buckets on both sides of the given split back into a single bucket that replaces the split.
+     * Both sides of the split must be buckets or missing.
+     * The items keep their decoded items and content, but they get new paths in the merged bucket.
+     *
+     * @param intermediateNode The split to merge.
+     * @return The bucket that replaced the split.
+     */
+    private KDBucketNode<TItem, TContent, TArea> mergeKDIntermediateNode(KDIntermediateNode<TItem, ?, TContent, TArea> intermediateNode)
+    {
+        // Create the bucket in the place of the node that was split:
+        DivisionCell<TItem, TContent, TArea> divisionCell = intermediateNode.divisionCell;
+        KDBucketNode<TItem, TContent, TArea> mergedNode = new KDBucketNode<>();
+        mergedNode.level = intermediateNode.level;
+        mergedNode.parent = intermediateNode.parent;
+        mergedNode.divisionCell = divisionCell;
+        mergedNode.hyperCube = intermediateNode.hyperCube;
+        mergedNode.repoPathNode = intermediateNode.repoPathNode.getParent();
+        mergedNode.bucketItemsRepoPathNode = divisionCell.repoPathTree.getOrCreateChildNode(mergedNode.repoPathNode, BUCKET_ITEMS_PATH_NAME);
+
+        // Move the items from each side into the merged bucket, lower items first:
+        for (KDNode<TItem, TContent, TArea> childNode : Arrays.asList(intermediateNode.lowerNode, intermediateNode.higherNode))
+        {
+            if (!(childNode instanceof KDBucketNode<TItem, TContent, TArea> childBucketNode)) continue;
+            this.decodedItemsByBucket.remove(childBucketNode);
+            for (RepoPathNode itemRepoPathNode : childBucketNode.getItemRepoPathNodes())
+            {
+                // Get the item and the content that we store:
+                TItem item = childBucketNode.itemMap.get(itemRepoPathNode);
+                TContent itemContent = childBucketNode.contentMap.get(itemRepoPathNode);
+
+                // Move the content to the new path:
+                RepoPathNode mergedItemRepoPathNode = divisionCell.repoPathTree.getOrCreateChildNode(mergedNode.bucketItemsRepoPathNode, Integer.toString(mergedNode.nextItemIndex++));
+                if (itemContent != null)
+                {
+                    removeContentFromDivisionCell(divisionCell, itemRepoPathNode.getRepoPath());
+                    putContentInDivisionCell(divisionCell, mergedItemRepoPathNode.getRepoPath(), itemContent);
+                }
+
+                // Add the item to the merged bucket:
+                putItemInBucket(mergedNode, mergedItemRepoPathNode, item, itemContent);
+            }
+        }
+
+        // Remove the paths of the split:
+        divisionCell.repoPathTree.removeFromParent(intermediateNode.repoPathNode);
+
+        // Replace the split with the merged bucket:
+        if (!(intermediateNode.parent instanceof KDIntermediateNode<TItem, ?, TContent, TArea> parentNode)) divisionCell.kdTreeRoot = mergedNode;
+        else if (parentNode.lowerNode == intermediateNode) parentNode.lowerNode = mergedNode;
+        else parentNode.higherNode = mergedNode;
+
+        return mergedNode;
+    }
+
+    /**
+     * Indexes the items that have been added.
+     * This is a pre-computation step that needs to be called before we search for nearest neighbours.
+     * The nearest neighbours of the division cells are maintained as the cells are created
+     * (see {@link #linkNewDivisionCellToNearestCells}), so re-indexing after adding more items is cheap.
+     */
+    @Override public void index()
+    {
+        // Time the index if we are measuring the index:
+        IndexListener listener = this.measurement.getIndexListener();
+        long startNanos = listener == null ? 0L : System.nanoTime();
+
+        // NOTE: The nearest neighbours for divisions in k-dimensions are already up-to-date
+        //       because we link each division cell to its nearest cells when it is created.
+
+        // Write the buffered content changes to the content areas:
+        flushContentChanges();
+
+        // Tell the listener about the index:
+        if (listener != null) listener.onIndex(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Puts the content at the given path of the division cell,
+     * buffering the change until the content area is needed.
+     *
+     * @param divisionCell The division cell to put the content into.
+     * @param repoPath     The path to put the content at.
+     * @param content      The content to put.
+     */
+    private void putContentInDivisionCell(DivisionCell<TItem, TContent, TArea> divisionCell, RepoPath repoPath, TContent content)
+    {
+        // Check whether we buffer changes:
+        if (this.maxPendingContentChanges == 0) divisionCell.contentArea.putContent(repoPath, content);
+        else
+        {
+            // Buffer the change, writing the buffer out if it is full:
+            divisionCell.contentAreaWriteBuffer.putContent(repoPath, content);
+            if (divisionCell.contentAreaWriteBuffer.getPendingChangeCount() >= this.maxPendingContentChanges) flushContentChanges(divisionCell);
+        }
+    }
+
+    /**
+     * Removes the content at the given path of the division cell,
+     * buffering the change until the content area is needed.
+     *
+     * @param divisionCell The division cell to remove the content from.
+     * @param repoPath     The path to remove the content at.
+     */
+    private void removeContentFromDivisionCell(DivisionCell<TItem, TContent, TArea> divisionCell, RepoPath repoPath)
+    {
+        // Check whether we buffer changes:
+        if (this.maxPendingContentChanges == 0) divisionCell.contentArea.removeContent(repoPath);
+        else
+        {
+            // Buffer the change, writing the buffer out if it is full:
+            divisionCell.contentAreaWriteBuffer.removeContent(repoPath);
+            if (divisionCell.contentAreaWriteBuffer.getPendingChangeCount() >= this.maxPendingContentChanges) flushContentChanges(divisionCell);
+        }
+    }
+
+    /**
+     * Writes the buffered content changes of every {@link DivisionCell division cell} to its content area.
+     */
+    private void flushContentChanges()
+    {
+        if (this.divisionCube == null) return;
+        for (DivisionCell<TItem, TContent, TArea> divisionCell : this.divisionCube.cellsByBranchName.values())
+        {
+            flushContentChanges(divisionCell);
+        }
+    }
+
+    /**
+     * Writes the buffered content changes of the division cell to its content area.
+     *
+     * @param divisionCell The division cell to write the changes for.
+     */
+    private void flushContentChanges(DivisionCell<TItem, TContent, TArea> divisionCell)
+    {
+        // NOTE: Cells that were paged out have already written their changes.
+        if (divisionCell.contentArea != null) divisionCell.contentAreaWriteBuffer.flushTo(divisionCell.contentArea);
+    }
+
+    /**
+     * Links a newly created division cell with its nearest cells.
+     * Instead of working out the nearest cells for every cell again,
+     * this only updates the existing cells that the new cell is at least as near to as their current nearest cells,
+     * and then works out the nearest cells for the new cell.
+     * <p>
+     * Every existing cell has its nearest cells within {@link #getFurthestNearestCellsDivisionDistance the furthest nearest cells distance},
+     * so only cells within that neighbourhood of the new cell can change.
+     * We either walk every coordinate of that neighbourhood or query the {@link OccupiedDivisionCellIndex occupied cells} near it,
+     * depending on the {@link DivisionCellNeighbourStrategy strategy} and which needs to look at fewer cells.
+     * If neither is cheaper than the number of cells that we have, we check each cell in turn.
+     *
+     * @param divisionCube    The division cube that the new cell belongs to.
+     * @param newDivisionCell The division cell that was just created.
+     */
+    protected void linkNewDivisionCellToNearestCells(DivisionCube<TItem, TContent, TArea> divisionCube, DivisionCell<TItem, TContent, TArea> newDivisionCell)
+    {
+        // Start off without any nearest cells for the new cell:
+        newDivisionCell.nearestCells = new ArrayList<>();
+        newDivisionCell.nearestCellsDivisionDistance = Integer.MAX_VALUE;
+
+        // Work out the furthest that any existing cell has to look for its nearest cells:
+        int furthestDistance = getFurthestNearestCellsDivisionDistance(divisionCube);
+
+        // Check whether we can search the neighbourhood of the new cell instead of checking every cell:
+        DivisionCellDirectory<TItem, TContent, TArea> cellDirectory = divisionCube.cellDirectory;
+        OccupiedDivisionCellIndex<TItem, TContent, TArea> occupiedCellIndex = this.divisionCellNeighbourStrategy == DivisionCellNeighbourStrategy.ShellWalk ? null : divisionCube.occupiedCellIndex;
+        boolean hasSearchedNeighbourhood = false;
+        if (furthestDistance > 0)
+        {
+            // Work out the neighbourhood that we would need to walk:
+            int[] lowerIndexRangePerDimension = null;
+            int[] upperIndexRangePerDimension = null;
+            long neighbourhoodVolume = Long.MAX_VALUE;
+            if (cellDirectory != null && this.divisionCellNeighbourStrategy != DivisionCellNeighbourStrategy.OccupiedCells)
+            {
+                // Get the number of dimensions that we have:
+                int[] radices = cellDirectory.getRadices();
+                int dimensionCount = radices.length;
+
+                // Work out the range of each dimension:
+                lowerIndexRangePerDimension = new int[dimensionCount];
+                upperIndexRangePerDimension = new int[dimensionCount];
+                neighbourhoodVolume = 1;
+                for (int dimensionIndex = 0; dimensionIndex < dimensionCount; dimensionIndex++)
+                {
+                    // Get the coordinate of the new cell for this dimension:
+                    int coordinateValue = newDivisionCell.divisionCellCoordinate.getValue(dimensionIndex);
+
+                    // Work out the range for this dimension:
+                    lowerIndexRangePerDimension[dimensionIndex] = Math.max(coordinateValue - furthestDistance, 0);
+                    upperIndexRangePerDimension[dimensionIndex] = Math.min(coordinateValue + furthestDistance, radices[dimensionIndex] - 1);
+
+                    // Keep track of the volume (stopping before it can overflow):
+                    neighbourhoodVolume = Math.min(neighbourhoodVolume * (upperIndexRangePerDimension[dimensionIndex] - lowerIndexRangePerDimension[dimensionIndex] + 1), Integer.MAX_VALUE);
+                }
+            }
+
+            // Work out the number of occupied cells that we would need to check:
+            long occupiedCandidateCount = occupiedCellIndex == null ? Long.MAX_VALUE : occupiedCellIndex.countCandidateCells(newDivisionCell.divisionCellCoordinate, furthestDistance);
+
+            // Check whether either search is cheaper than checking every cell:
+            if (Math.min(neighbourhoodVolume, occupiedCandidateCount) < divisionCube.cellsByBranchName.size())
+            {
+                // Find the cells in the neighbourhood with the cheaper search:
+                List<DivisionCell<TItem, TContent, TArea>> neighbourhoodCells = new ArrayList<>();
+                if (neighbourhoodVolume <= occupiedCandidateCount)
+                {
+                    // Walk every coordinate in the neighbourhood:
+                    walkDivisionBoxToFindCells(lowerIndexRangePerDimension, upperIndexRangePerDimension, new int[lowerIndexRangePerDimension.length], lowerIndexRangePerDimension.length, null, cellDirectory, neighbourhoodCells);
+                }
+                else
+                {
+                    // Only check the occupied cells near the neighbourhood:
+                    occupiedCellIndex.findCellsWithinDivisionDistance(newDivisionCell.divisionCellCoordinate, 1, furthestDistance, neighbourhoodCells);
+                }
+
+                // Link the new cell with each cell in the neighbourhood:
+                for (DivisionCell<TItem, TContent, TArea> neighbourhoodCell : neighbourhoodCells)
+                {
+                    if (neighbourhoodCell != newDivisionCell) linkDivisionCells(divisionCube, newDivisionCell, neighbourhoodCell);
+                }
+                hasSearchedNeighbourhood = true;
+            }
+        }
+
+        // Check whether we still need to find the nearest cells for the new cell:
+        if (newDivisionCell.nearestCells.isEmpty())
+        {
+            // Either we didn't search the neighbourhood or the new cell is further away than the neighbourhood.
+            // NOTE: If we searched the neighbourhood then none of the existing cells were in it,
+            //       so linking them again won't change their nearest cells twice,
+            //       and the only cells that need to change are the ones that are nearest to the new cell.
+
+            // Get the cells that could be nearest to the new cell:
+            Collection<DivisionCell<TItem, TContent, TArea>> candidateCells;
+            if (hasSearchedNeighbourhood && occupiedCellIndex != null)
+            {
+                // Find the nearest occupied cells:
+                List<DivisionCell<TItem, TContent, TArea>> nearestOccupiedCells = new ArrayList<>();
+                occupiedCellIndex.findNearestCells(newDivisionCell.divisionCellCoordinate, nearestOccupiedCells);
+                candidateCells = nearestOccupiedCells;
+            }
+            else
+            {
+                // Check each cell in turn:
+                candidateCells = divisionCube.cellsByBranchName.values();
+            }
+
+            // Link the new cell with the candidates:
+            for (DivisionCell<TItem, TContent, TArea> candidateCell : candidateCells)
+            {
+                if (candidateCell != newDivisionCell) linkDivisionCells(divisionCube, newDivisionCell, candidateCell);
+            }
+        }
+
+        // Put the nearest cells of the new cell in their canonical order:
+        sortNearestCells(newDivisionCell.nearestCells);
+
+        // Count the distance to the nearest cells of the new cell:
+        if (!newDivisionCell.nearestCells.isEmpty()) countNearestCellsDivisionDistance(divisionCube, newDivisionCell.nearestCellsDivisionDistance, 1);
+    }
+
+    /**
+     * Links a new division cell and an existing division cell if they are at least as near to each other as their current nearest cells.
+     * This does not count the distance for the new cell because its nearest cells are still being worked out.
+     *
+     * @param divisionCube         The division cube that the cells belong to.
+     * @param newDivisionCell      The division cell that was just created.
+     * @param existingDivisionCell The existing division cell to link with.
+     */
+    private void linkDivisionCells(DivisionCube<TItem, TContent, TArea> divisionCube, DivisionCell<TItem, TContent, TArea> newDivisionCell, DivisionCell<TItem, TContent, TArea> existingDivisionCell)
+    {
+        // Get the division distance between the cells:
+        int distance = newDivisionCell.divisionCellCoordinate.divisionDistanceTo(existingDivisionCell.divisionCellCoordinate);
+
+        // Check whether the existing cell is nearer to the new cell than its nearest cells so far:
+        if (distance < newDivisionCell.nearestCellsDivisionDistance)
+        {
+            // Start again with nearer cells:
+            newDivisionCell.nearestCells.clear();
+            newDivisionCell.nearestCellsDivisionDistance = distance;
+        }
+        if (distance == newDivisionCell.nearestCellsDivisionDistance) newDivisionCell.nearestCells.add(existingDivisionCell);
+
+        // Check whether the new cell is nearer to the existing cell than its nearest cells:
+        if (distance < existingDivisionCell.nearestCellsDivisionDistance)
+        {
+            // Stop counting the previous distance for the existing cell:
+            if (existingDivisionCell.nearestCellsDivisionDistance != Integer.MAX_VALUE) countNearestCellsDivisionDistance(divisionCube, existingDivisionCell.nearestCellsDivisionDistance, -1);
+
+            // Start again with the nearer cell:
+            existingDivisionCell.nearestCells = new ArrayList<>();
+            existingDivisionCell.nearestCellsDivisionDistance = distance;
+            countNearestCellsDivisionDistance(divisionCube, distance, 1);
+        }
+        if (distance == existingDivisionCell.nearestCellsDivisionDistance) addNearestCellInOrder(existingDivisionCell.nearestCells, newDivisionCell);
+    }
+
+    /**
+     * Sorts the nearest cells into the canonical order of their {@link DivisionCell#divisionCellCoordinate division coordinates}.
+     * This makes the nearest cells the same no matter whether they were linked incrementally or worked out from scratch.
+     *
+     * @param nearestCells The nearest cells to sort.
+     */
+    private void sortNearestCells(List<DivisionCell<TItem, TContent, TArea>> nearestCells)
+    {
+        nearestCells.sort((first, second) -> first.divisionCellCoordinate.compareTo(second.divisionCellCoordinate));
+    }
+
+    /**
+     * Adds the cell to the nearest cells, keeping them in the canonical order of their {@link DivisionCell#divisionCellCoordinate division coordinates}.
+     *
+     * @param nearestCells The nearest cells, already in canonical order.
+     * @param divisionCell The cell to add.
+     */
+    private void addNearestCellInOrder(List<DivisionCell<TItem, TContent, TArea>> nearestCells, DivisionCell<TItem, TContent, TArea> divisionCell)
+    {
+        // Binary search for the position of the cell:
+        int low = 0;
+        int high = nearestCells.size();
+        while (low < high)
+        {
+            int middle = (low + high) >>> 1;
+            if (nearestCells.get(middle).divisionCellCoordinate.compareTo(divisionCell.divisionCellCoordinate) < 0) low = middle + 1;
+            else high = middle;
+        }
+        nearestCells.add(low, divisionCell);
+    }
+
+    /**
+     * Drops the given empty division cell from the division cube.
+     * Any cell that had the dropped cell as one of its nearest cells stops linking to it,
+     * and if that leaves it without any nearest cells then its nearest cells are worked out again.
+     *
+     * @param divisionCube The division cube that the cell belongs to.
+     * @param divisionCell The empty division cell to drop.
+     */
+    private void dropDivisionCell(DivisionCube<TItem, TContent, TArea> divisionCube, DivisionCell<TItem, TContent, TArea> divisionCell)
+    {
+        // Remove the cell from everything that indexes it:
+        divisionCube.cellsByBranchName.remove(divisionCell.branchName);
+        if (divisionCell.parentDimension instanceof DivisionDimension.Last<TItem, TContent, TArea> lastDivisionDimension)
+        {
+            lastDivisionDimension.cellsByIndex.remove(divisionCell.divisionCellCoordinate.getValue(lastDivisionDimension.dimension.getDimensionIndex()));
+        }
+        if (divisionCube.cellDirectory != null) divisionCube.cellDirectory.remove(divisionCube.cellDirectory.packCoordinate(divisionCell.divisionCellCoordinate));
+        if (divisionCube.occupiedCellIndex != null) divisionCube.occupiedCellIndex.remove(divisionCell);
+        if (this.divisionCellPager != null) this.divisionCellPager.unregister(divisionCell);
+
+        // Stop counting the distance to the nearest cells of the dropped cell:
+        if (divisionCell.nearestCells != null && !divisionCell.nearestCells.isEmpty()) countNearestCellsDivisionDistance(divisionCube, divisionCell.nearestCellsDivisionDistance, -1);
+
+        // Unlink the dropped cell from the cells that it was nearest to:
+        for (DivisionCell<TItem, TContent, TArea> existingDivisionCell : divisionCube.cellsByBranchName.values())
+        {
+            if (existingDivisionCell.nearestCells.remove(divisionCell) && existingDivisionCell.nearestCells.isEmpty())
+            {
+                // The dropped cell was the only nearest cell, so find the next nearest cells:
+                countNearestCellsDivisionDistance(divisionCube, existingDivisionCell.nearestCellsDivisionDistance, -1);
+                findNearestCells(divisionCube, existingDivisionCell);
+            }
+        }
+    }
+
+    /**
+     * Works out the nearest cells for the given cell from the other cells in the division cube,
+     * without changing the nearest cells of the other cells.
+     *
+     * @param divisionCube The division cube that the cell belongs to.
+     * @param divisionCell The cell to work out the nearest cells for.
+     */
+    private void findNearestCells(DivisionCube<TItem, TContent, TArea> divisionCube, DivisionCell<TItem, TContent, TArea> divisionCell)
+    {
+        // Start again without any nearest cells:
+        divisionCell.nearestCells = new ArrayList<>();
+        divisionCell.nearestCellsDivisionDistance = Integer.MAX_VALUE;
+
+        // Find the nearest cells:
+        if (divisionCube.occupiedCellIndex != null)
+        {
+            // Query the occupied cells:
+            divisionCell.nearestCellsDivisionDistance = divisionCube.occupiedCellIndex.findNearestCells(divisionCell.divisionCellCoordinate, divisionCell.nearestCells);
+        }
+        else
+        {
+            // Check each cell in turn:
+            for (DivisionCell<TItem, TContent, TArea> otherDivisionCell : divisionCube.cellsByBranchName.values())
+            {
+                if (otherDivisionCell == divisionCell) continue;
+                int distance = divisionCell.divisionCellCoordinate.divisionDistanceTo(otherDivisionCell.divisionCellCoordinate);
+                if (distance < divisionCell.nearestCellsDivisionDistance)
+                {
+                    divisionCell.nearestCells.clear();
+                    divisionCell.nearestCellsDivisionDistance = distance;
+                }
+                if (distance == divisionCell.nearestCellsDivisionDistance) divisionCell.nearestCells.add(otherDivisionCell);
+            }
+        }
+
+        // Put the nearest cells in their canonical order:
+        sortNearestCells(divisionCell.nearestCells);
+
+        // Count the distance to the nearest cells:
+        if (!divisionCell.nearestCells.isEmpty()) countNearestCellsDivisionDistance(divisionCube, divisionCell.nearestCellsDivisionDistance, 1);
+    }
+
+    /**
+     * Adjusts the number of cells whose nearest cells are at the given division distance.
+     *
+     * @param divisionCube The division cube to update.
+     * @param distance     The division distance to the nearest cells.
+     * @param delta        The change in the number of cells at that distance.
+     */
+    private void countNearestCellsDivisionDistance(DivisionCube<TItem, TContent, TArea> divisionCube, int distance, int delta)
+    {
+        // Make sure we have space for this distance:
+        if (distance >= divisionCube.cellCountsByNearestCellsDivisionDistance.length)
+        {
+            divisionCube.cellCountsByNearestCellsDivisionDistance = Arrays.copyOf(divisionCube.cellCountsByNearestCellsDivisionDistance, distance + 1);
+        }
+
+        // Update the count:
+        divisionCube.cellCountsByNearestCellsDivisionDistance[distance] += delta;
+    }
+
+    /**
+     * Gets the furthest division distance that any cell has to its nearest cells.
+     *
+     * @param divisionCube The division cube to check.
+     * @return The furthest division distance that any cell has to its nearest cells. -1 if no cells have any nearest cells yet.
+     */
+    private int getFurthestNearestCellsDivisionDistance(DivisionCube<TItem, TContent, TArea> divisionCube)
+    {
+        int[] counts = divisionCube.cellCountsByNearestCellsDivisionDistance;
+        for (int distance = counts.length - 1; distance >= 0; distance--)
+        {
+            if (counts[distance] > 0) return distance;
+        }
+        return -1;
+    }
+
+    /**
+     * The division cube to update with links to nearest neighbour division cells for each cell that actually exists.
+     * This works out the nearest cells for every cell from scratch.
+     * The nearest cells are normally maintained as cells are created, so this is only needed to rebuild them.
+     *
+     * @param divisionCube The division cube to update with nearest neighbour information.
+     */
+    protected void workOutNearestNeighborsForDivisionCells(DivisionCube<TItem, TContent, TArea> divisionCube)
+    {
+        // NOTE: The algorithm is to ripple out for each cell where we have a division cell in concentric multidimensional spheres.
+        //       If we come across any existing division cells within that sphere radius, we need to search all items in that cell.
+
+        // Get the number of dimensions that we have:
+        int dimensionCount = divisionCube.hyperCube.getDefinition().getDimensionCount();
+
+        // Index each of the cells by their coordinates so that we can look them up easily:
+        HashMap<DivisionCoord, DivisionCell<TItem, TContent, TArea>> cellsByCoord = new HashMap<>();
+        for (DivisionCell<TItem, TContent, TArea> existingDivisionCell : divisionCube.cellsByBranchName.values())
+        {
+            cellsByCoord.put(existingDivisionCell.divisionCellCoordinate, existingDivisionCell);
+        }
+        // Now we have each of the cells indexed by their coordinates.
+
+        // Define the coordinate that we are going to be navigating:
+        int[] currentCoord = new int[dimensionCount];
+
+        // Start counting the distances to the nearest cells again:
+        divisionCube.cellCountsByNearestCellsDivisionDistance = new int[0];
+
+        // Decide whether to query the occupied cells instead of walking the shells around each cell:
+        boolean useOccupiedCells = divisionCube.occupiedCellIndex != null && switch (this.divisionCellNeighbourStrategy)
+        {
+            case ShellWalk -> false;
+            case OccupiedCells -> true;
+            case Automatic -> isSparse(divisionCube);
+        };
+
+        // Go through each division cell that we actually have:
+        for (DivisionCell<TItem, TContent, TArea> existingDivisionCell : divisionCube.cellsByBranchName.values())
+        {
+            // Check whether we can just query the occupied cells:
+            if (useOccupiedCells)
+            {
+                // Find the nearest occupied cells:
+                List<DivisionCell<TItem, TContent, TArea>> nearestOccupiedCells = new ArrayList<>();
+                int nearestDistance = divisionCube.occupiedCellIndex.findNearestCells(existingDivisionCell.divisionCellCoordinate, nearestOccupiedCells);
+
+                // Save the nearest cells for this existing cell:
+                sortNearestCells(nearestOccupiedCells);
+                existingDivisionCell.nearestCells = nearestOccupiedCells;
+                existingDivisionCell.nearestCellsDivisionDistance = nearestDistance;
+                if (!nearestOccupiedCells.isEmpty()) countNearestCellsDivisionDistance(divisionCube, nearestDistance, 1);
+                continue;
+            }
+
+            // Create the list of cells that are the nearest for this existing cell:
+            Set<DivisionCell<TItem, TContent, TArea>> nearestCells = new LinkedHashSet<>();
+
+            // Start off searching for other cells.
+            // NOTE: We have a special case where there is only one cell, so we don't have to search:
+            boolean hasFoundAnyCells = cellsByCoord.size() == 1;
+
+            // Keep increasing the sphere radius until we find something:
+            int sphereRadius = 0;
+            search:
+            while (!hasFoundAnyCells)
+            {
                 // Increase the radius of the sphere for this iteration:
                 sphereRadius++;
 
@@ -864,7 +1762,7 @@ public abstract class RepoIndexKDBase<
                         // Walk the entire lowest plane:
                         walkDivisionPlaneToFindCells(
                             anchorLowestValue,
-                            anchorDimensionIndex, lowerIndexRangePerDimension, upperIndexRangePerDimension, currentCoord, dimensionCount, cellsByCoord, nearestCells
+                            anchorDimensionIndex, lowerIndexRangePerDimension, upperIndexRangePerDimension, currentCoord, dimensionCount, cellsByCoord, divisionCube.cellDirectory, nearestCells
                         );
                     }
                     // Now we have walked the entire lowest plane.
@@ -875,7 +1773,7 @@ public abstract class RepoIndexKDBase<
                         // Walk the entire highest plane:
                         walkDivisionPlaneToFindCells(
                             anchorHighestValue,
-                            anchorDimensionIndex, lowerIndexRangePerDimension, upperIndexRangePerDimension, currentCoord, dimensionCount, cellsByCoord, nearestCells
+                            anchorDimensionIndex, lowerIndexRangePerDimension, upperIndexRangePerDimension, currentCoord, dimensionCount, cellsByCoord, divisionCube.cellDirectory, nearestCells
                         );
                     }
                     // Now we have walked the entire highest plane.
@@ -889,12 +1787,35 @@ public abstract class RepoIndexKDBase<
 
             // Save the nearest cells for this existing cells:
             existingDivisionCell.nearestCells = new ArrayList<>(nearestCells);
+            sortNearestCells(existingDivisionCell.nearestCells);
+            existingDivisionCell.nearestCellsDivisionDistance = nearestCells.isEmpty() ? Integer.MAX_VALUE : sphereRadius;
+            if (!nearestCells.isEmpty()) countNearestCellsDivisionDistance(divisionCube, sphereRadius, 1);
         }
 
     }
 
+    /**
+     * Checks whether most of the division cube is empty,
+     * meaning that there are fewer occupied cells than there are coordinates in the division cube.
+     *
+     * @param divisionCube The division cube to check.
+     * @return True if there are fewer occupied cells than coordinates in the division cube.
+     */
+    private boolean isSparse(DivisionCube<TItem, TContent, TArea> divisionCube)
+    {
+        // Work out the number of coordinates in the division cube (stopping before it can overflow):
+        long coordinateCount = 1;
+        for (List<Range<Object>> rangeSplits : divisionCube.rangeSplitsByDimensionIndex.values())
+        {
+            coordinateCount = Math.min(coordinateCount * rangeSplits.size(), Integer.MAX_VALUE);
+        }
+        return divisionCube.cellsByBranchName.size() < coordinateCount;
+    }
+
     /**
      * This walks the set of coordinates and looks for division cells.
+     *
+     * @param cellDirectory The flat directory of cells to look up cells in. If this is null then we use the cellsByCoord map.
      */
     private void walkDivisionPlaneToFindCells(
         int anchorValue,
@@ -904,6 +1825,7 @@ public abstract class RepoIndexKDBase<
         int[] currentCoord,
         int dimensionCount,
         HashMap<DivisionCoord, DivisionCell<TItem, TContent, TArea>> cellsByCoord,
+        DivisionCellDirectory<TItem, TContent, TArea> cellDirectory,
         Set<DivisionCell<TItem, TContent, TArea>> nearestCells
     )
     {
@@ -911,22 +1833,47 @@ public abstract class RepoIndexKDBase<
         lowerIndexRangePerDimension[anchorDimensionIndex] = anchorValue;
         upperIndexRangePerDimension[anchorDimensionIndex] = anchorValue;
 
-        // Initialise the coordinate to the starting locations:
-        System.arraycopy(lowerIndexRangePerDimension, 0, currentCoord, 0, dimensionCount);
-        // Now we are at the starting locations for each dimension.
+        // Walk the plane:
+        walkDivisionBoxToFindCells(lowerIndexRangePerDimension, upperIndexRangePerDimension, currentCoord, dimensionCount, cellsByCoord, cellDirectory, nearestCells);
+    }
+
+    /**
+     * This walks every coordinate in the box between the given ranges and looks for division cells.
+     *
+     * @param lowerIndexRangePerDimension The lowest division index (inclusive) to walk in each dimension.
+     * @param upperIndexRangePerDimension The highest division index (inclusive) to walk in each dimension.
+     * @param currentCoord                The coordinate to use while navigating. This avoids allocating a new one.
+     * @param dimensionCount              The number of dimensions.
+     * @param cellsByCoord                The cells indexed by their coordinates. This is only used if the cellDirectory is null.
+     * @param cellDirectory               The flat directory of cells to look up cells in. If this is null then we use the cellsByCoord map.
+     * @param foundCells                  The collection to add the cells that we find to.
+     */
+    private void walkDivisionBoxToFindCells(
+        int[] lowerIndexRangePerDimension,
+        int[] upperIndexRangePerDimension,
+        int[] currentCoord,
+        int dimensionCount,
+        HashMap<DivisionCoord, DivisionCell<TItem, TContent, TArea>> cellsByCoord,
+        DivisionCellDirectory<TItem, TContent, TArea> cellDirectory,
+        Collection<DivisionCell<TItem, TContent, TArea>> foundCells
+    )
+    {
+        // Initialise the coordinate to the starting locations:
+        System.arraycopy(lowerIndexRangePerDimension, 0, currentCoord, 0, dimensionCount);
+        // Now we are at the starting locations for each dimension.
 
         // Start working through each cell:
         boolean stillGoing = true;
         do
         {
-            // Check whether we have a cell at the current value:
-            var cell = cellsByCoord.get(new DivisionCoord(currentCoord));
+            // Check whether we have a cell at the current value (using the flat directory if we have one, to avoid allocating a coordinate):
+            var cell = cellDirectory != null ? cellDirectory.get(cellDirectory.packCoordinate(currentCoord)) : cellsByCoord.get(new DivisionCoord(currentCoord));
             if (cell != null)
             {
                 // We found a cell.
 
-                // Add it as one of our nearest cells:
-                nearestCells.add(cell);
+                // Add it as one of the cells that we found:
+                foundCells.add(cell);
             }
 
             // Increment the coordinate:
@@ -960,7 +1907,592 @@ public abstract class RepoIndexKDBase<
             }
         }
         while (stillGoing);
-        // Now we have iterated the entire plane.
+        // Now we have iterated the entire box.
+    }
+
+    /**
+     * Commits the content area of each {@link DivisionCell division cell} that has changed to the branch for that cell.
+     * The index can then be restored with {@link #open} instead of adding every item again.
+     *
+     * @param message The commit message to use for each branch.
+     * @return The commits that were made, indexed by the branch name of the division cell. Empty if nothing has changed.
+     */
+    @Override public Map<String, TCommit> commit(String message)
+    {
+        // Keep track of the commits that we make:
+        Map<String, TCommit> commitsByBranchName = new LinkedHashMap<>();
+
+        // Make sure we have something to commit:
+        if (this.divisionCube == null) return commitsByBranchName;
+
+        // Go through each division cell:
+        for (DivisionCell<TItem, TContent, TArea> divisionCell : this.divisionCube.cellsByBranchName.values())
+        {
+            // Check whether this division cell has changed:
+            // NOTE: Cells that were paged out were committed when they were evicted.
+            if (!divisionCell.hasUncommittedChanges || divisionCell.contentArea == null) continue;
+
+            // Commit the content area for the division cell to its branch:
+            TCommit commit = this.repoHandler.commitToBranch(getContentAreaToCommit(divisionCell), divisionCell.branchName, message, null);
+            commitsByBranchName.put(divisionCell.branchName, commit);
+            this.versionLog.recordBranchCommit(divisionCell.branchName, commit);
+
+            // Flag that the division cell is committed:
+            divisionCell.hasUncommittedChanges = false;
+        }
+
+        // Commit an empty content area to the branches of division cells that were dropped (unless they have a division cell again):
+        for (String branchName : this.droppedBranchNames)
+        {
+            if (this.divisionCube.cellsByBranchName.containsKey(branchName)) continue;
+            TCommit commit = this.repoHandler.commitToBranch(this.repoHandler.createArea(), branchName, message, null);
+            commitsByBranchName.put(branchName, commit);
+            this.versionLog.recordBranchCommit(branchName, commit);
+        }
+        this.droppedBranchNames.clear();
+
+        // Record this version of the index so that we can search as of any of these commits:
+        if (!commitsByBranchName.isEmpty()) this.versionLog.recordVersion(commitsByBranchName.values());
+
+        // Tag the version in the repo so that we can still search as of it after the index is opened again:
+        this.versionLog.tagVersion(this.repoHandler, commitsByBranchName);
+
+        return commitsByBranchName;
+    }
+
+    /**
+     * Gets the content area to commit for the given division cell.
+     * If we only store items in the buckets then the content is created from the items now.
+     *
+     * @param divisionCell The division cell to commit.
+     * @return The content area with the content of every item in the division cell.
+     */
+    private TArea getContentAreaToCommit(DivisionCell<TItem, TContent, TArea> divisionCell)
+    {
+        // Check whether the content area already has the content:
+        if (this.bucketStoragePolicy != BucketStoragePolicy.ItemsOnly)
+        {
+            // Write any buffered changes first:
+            flushContentChanges(divisionCell);
+            return divisionCell.contentArea;
+        }
+
+        // Create the content for each item in the kd-tree:
+        TArea contentArea = this.repoHandler.createArea();
+        if (divisionCell.kdTreeRoot != null) putContentForKDNode(divisionCell.kdTreeRoot, contentArea);
+        return contentArea;
+    }
+
+    /**
+     * Recursively creates the content for each item under the given kd-tree node and puts it into the content area.
+     *
+     * @param node        The kd-tree node to create the content for.
+     * @param contentArea The content area to put the content into.
+     */
+    private void putContentForKDNode(KDNode<TItem, TContent, TArea> node, TArea contentArea)
+    {
+        switch (node)
+        {
+            case KDBucketNode<TItem, TContent, TArea> bucketNode ->
+            {
+                // Create the content for each item in the bucket:
+                for (Map.Entry<RepoPathNode, TItem> entry : bucketNode.itemMap.entrySet())
+                {
+                    contentArea.putContent(entry.getKey().getRepoPath(), createContentForItem(entry.getValue()));
+                }
+            }
+            case KDIntermediateNode<TItem, ?, TContent, TArea> intermediateNode ->
+            {
+                // Create the content for each side of the split:
+                if (intermediateNode.lowerNode != null) putContentForKDNode(intermediateNode.lowerNode, contentArea);
+                if (intermediateNode.higherNode != null) putContentForKDNode(intermediateNode.higherNode, contentArea);
+            }
+            default -> throw new IllegalStateException("Unexpected value: " + node);
+        }
+    }
+
+    /**
+     * Commits the content area of each {@link DivisionCell division cell} that has changed to the branch for that cell.
+     * The index can then be restored with {@link #open} instead of adding every item again.
+     *
+     * @return The commits that were made, indexed by the branch name of the division cell. Empty if nothing has changed.
+     */
+    public Map<String, TCommit> commit()
+    {
+        return commit("Index");
+    }
+
+    /**
+     * Opens the index from the branches that were committed to the given repo.
+     * This replaces anything that was in this index.
+     * <p>
+     * Each branch holds the content area of one {@link DivisionCell division cell}.
+     * The paths of the content encode the kd-tree of the cell
+     * (a {@code dimension:cut} path for each split, followed by {@code <} and {@code >} paths for each side),
+     * so we rebuild the division cube, the kd-tree and the nearest cells from the paths
+     * instead of adding every item again.
+     * This index must be configured the same way as the index that committed the branches.
+     * <p>
+     * The versions that were committed before are restored from their {@link IndexVersionLog tags} in the repo,
+     * so we can still search as of any commit that an index made to the repo.
+     *
+     * @param repoHandler  The repo handler with the branches that were committed.
+     * @param rootRepoPath The repo path to the root of this repo index.
+     */
+    @Override public void open(TRepoHandler repoHandler, RepoPath rootRepoPath)
+    {
+        // Use the given repo:
+        this.repoHandler = repoHandler;
+        this.rootRepoPath = rootRepoPath;
+
+        // Start again with an empty division cube and only the history that was tagged in the repo:
+        this.divisionCube = null;
+        this.versionLog.clear();
+        this.versionLog.restoreTaggedVersions(repoHandler);
+        this.snapshotDivisionCubesByVersion.clear();
+        this.droppedBranchNames.clear();
+
+        // Go through each branch:
+        List<TCommit> latestCommits = new ArrayList<>();
+        for (String branchName : repoHandler.getBranchNames())
+        {
+            // Get the content area for the branch:
+            TCommit latestCommit = repoHandler.getLatestCommitForBranch(branchName);
+            TArea contentArea = repoHandler.checkout(latestCommit);
+
+            // Open the division cell for the branch if there is content in it:
+            if (openDivisionCell(branchName, contentArea) == null) continue;
+
+            // Record the commit so that we can search as of the version that we opened:
+            this.versionLog.recordBranchCommit(branchName, latestCommit);
+            latestCommits.add(latestCommit);
+        }
+
+        // Record the version that we opened:
+        this.versionLog.recordVersion(latestCommits);
+    }
+
+    /**
+     * Opens the division cell for the given branch from its committed content.
+     *
+     * @param branchName  The name of the branch that the content was committed to.
+     * @param contentArea The committed content area for the branch.
+     * @return The division cell that was opened. Null if there is no content in the branch.
+     */
+    private DivisionCell<TItem, TContent, TArea> openDivisionCell(String branchName, TArea contentArea)
+    {
+        // Make sure that there is content in the branch:
+        AreaEntry<TContent> anyItemEntry = contentArea.getTypedContentStream().findFirst().orElse(null);
+        if (anyItemEntry == null) return null;
+
+        // Find the division cell from the coordinate of an item in the branch:
+        HyperCoord anyItemCoord = extractItemCoordinate(readItemFromContent(anyItemEntry.content), this.hyperCubeDefinition);
+        DivisionCell<TItem, TContent, TArea> divisionCell = getOrCreateDivisionCell(anyItemCoord);
+        if (divisionCell == null || !branchName.equals(divisionCell.branchName))
+        {
+            throw new IllegalStateException("The content in branch " + branchName + " does not belong to the division cell " + (divisionCell == null ? null : divisionCell.branchName) + ". Make sure the index is configured the same way as when it was committed.");
+        }
+
+        // Use the committed content for the division cell:
+        loadDivisionCellContent(divisionCell, contentArea);
+
+        // Let the pager evict the division cell if we have too many resident cells:
+        if (this.divisionCellPager != null) this.divisionCellPager.register(divisionCell);
+
+        return divisionCell;
+    }
+
+    /**
+     * Brings this index up to date with the given commits of its branches,
+     * which are usually the commits that another index made with {@link #commit} to the same repo.
+     * <p>
+     * For each branch, only the difference between the commit that this index last saw and the given commit is applied.
+     * Items that were added to or removed from a bucket are added to or removed from that bucket in place.
+     * If the kd-tree of a division cell changed shape (because a bucket was split) then only that cell is rebuilt from its paths.
+     * Branches that this index has never seen open new division cells.
+     * Division cells that are paged out are not touched because they are paged in from the commit that was synced to,
+     * unless all of their items were removed, in which case they are dropped.
+     *
+     * @param commitsByBranchName The commits to bring this index up to date with, indexed by branch name.
+     * @throws IllegalStateException If a division cell that changed has uncommitted changes in this index.
+     */
+    @Override public void syncTo(Map<String, TCommit> commitsByBranchName)
+    {
+        // Keep track of the commits that we sync to:
+        List<TCommit> syncedCommits = new ArrayList<>();
+
+        // Go through each branch:
+        for (Map.Entry<String, TCommit> entry : commitsByBranchName.entrySet())
+        {
+            String branchName = entry.getKey();
+            TCommit commit = entry.getValue();
+
+            // Check whether we are already at this commit:
+            TCommit previousCommit = this.versionLog.getLatestCommit(branchName);
+            if (previousCommit == commit) continue;
+
+            // Sync the division cell for the branch:
+            syncDivisionCell(branchName, previousCommit, commit);
+
+            // Record the commit so that we can search as of the version that we synced to:
+            this.versionLog.recordBranchCommit(branchName, commit);
+            syncedCommits.add(commit);
+        }
+
+        // Record the version that we synced to:
+        if (!syncedCommits.isEmpty()) this.versionLog.recordVersion(syncedCommits);
+    }
+
+    /**
+     * Brings this index up to date with the latest commit of every branch in the repo.
+     *
+     * @see #syncTo
+     */
+    public void sync()
+    {
+        // Get the latest commit of each branch:
+        Map<String, TCommit> latestCommitsByBranchName = new LinkedHashMap<>();
+        for (String branchName : this.repoHandler.getBranchNames())
+        {
+            latestCommitsByBranchName.put(branchName, this.repoHandler.getLatestCommitForBranch(branchName));
+        }
+
+        syncTo(latestCommitsByBranchName);
+    }
+
+    /**
+     * Brings the division cell for the given branch up to date with the given commit.
+     *
+     * @param branchName     The name of the branch for the division cell.
+     * @param previousCommit The commit of the branch that this index last saw. Null if this index has never seen the branch.
+     * @param commit         The commit to bring the division cell up to date with.
+     */
+    private void syncDivisionCell(String branchName, TCommit previousCommit, TCommit commit)
+    {
+        // Get the division cell for the branch:
+        DivisionCell<TItem, TContent, TArea> divisionCell = this.divisionCube == null ? null : this.divisionCube.cellsByBranchName.get(branchName);
+
+        // Check whether this is a new division cell:
+        if (divisionCell == null)
+        {
+            // Open the division cell from all of its content:
+            openDivisionCell(branchName, this.repoHandler.checkout(commit));
+            return;
+        }
+
+        // Make sure that we don't lose any changes that were made to this index:
+        if (divisionCell.hasUncommittedChanges)
+        {
+            throw new IllegalStateException("The division cell " + branchName + " has uncommitted changes so it can't be synced. Commit this index before syncing it.");
+        }
+
+        // Get the committed content:
+        TArea committedContentArea = this.repoHandler.checkout(commit);
+
+        // Check whether the division cell is paged out:
+        if (divisionCell.contentArea == null)
+        {
+            // Drop the division cell if all of its items were removed, otherwise it will be paged in from the commit that we sync to:
+            if (!committedContentArea.hasAnyContent()) dropDivisionCell(this.divisionCube, divisionCell);
+            return;
+        }
+
+        // Apply only the difference if we can, otherwise rebuild the division cell from all of its content:
+        if (previousCommit == null || !applyDifferenceToDivisionCell(divisionCell, this.repoHandler.computeDifferenceBetweenCommits(previousCommit, commit), committedContentArea))
+        {
+            loadDivisionCellContent(divisionCell, committedContentArea);
+        }
+
+        // Drop the division cell if all of its items were removed:
+        if (divisionCell.kdTreeRoot instanceof KDBucketNode<TItem, TContent, TArea> rootBucketNode && rootBucketNode.getItemCount() == 0)
+        {
+            dropDivisionCell(this.divisionCube, divisionCell);
+        }
+    }
+
+    /**
+     * Applies the difference between two commits of a division cell to the buckets of its kd-tree.
+     * The difference can only be applied if every path that changed is an item in a bucket that the kd-tree already has.
+     * Nothing is changed if the difference can't be applied.
+     *
+     * @param divisionCell         The division cell to apply the difference to.
+     * @param difference           The difference between the commit that the division cell has and the commit to sync to.
+     * @param committedContentArea The content of the commit to sync to.
+     * @return True if the difference was applied. False if the kd-tree changed shape and the division cell needs to be rebuilt.
+     */
+    private boolean applyDifferenceToDivisionCell(DivisionCell<TItem, TContent, TArea> divisionCell, DifferenceAPI difference, TArea committedContentArea)
+    {
+        // Make sure that every difference is for an item in a bucket before we change anything:
+        List<DifferenceEntry> differenceEntries = new ArrayList<>();
+        for (DifferenceEntry differenceEntry : difference)
+        {
+            // Find the bucket that the path belongs to:
+            String[] pathNames = differenceEntry.path.toAbsolutePath().splitIntoParts();
+            KDBucketNode<TItem, TContent, TArea> bucketNode = findBucketNodeForItemPath(divisionCell.kdTreeRoot, pathNames);
+            if (bucketNode == null) return false;
+
+            // Make sure that items we remove or change are in the bucket:
+            String itemName = pathNames[pathNames.length - 1];
+            if (differenceEntry.state != DifferenceState.ADDED && bucketNode.bucketItemsRepoPathNode.getChild(itemName) == null) return false;
+
+            differenceEntries.add(differenceEntry);
+        }
+
+        // Apply the differences in the order that the items were added to their buckets:
+        Set<KDBucketNode<TItem, TContent, TArea>> bucketNodesWithRemovedItems = new LinkedHashSet<>();
+        differenceEntries.sort(Comparator.comparingInt(differenceEntry -> getItemIndexFromPath(differenceEntry.path)));
+        for (DifferenceEntry differenceEntry : differenceEntries)
+        {
+            // Get the bucket for the item:
+            String[] pathNames = differenceEntry.path.toAbsolutePath().splitIntoParts();
+            KDBucketNode<TItem, TContent, TArea> bucketNode = findBucketNodeForItemPath(divisionCell.kdTreeRoot, pathNames);
+            String itemName = pathNames[pathNames.length - 1];
+
+            // Check whether the item was removed:
+            if (differenceEntry.state == DifferenceState.DELETED)
+            {
+                // Remove the item from the bucket:
+                RepoPathNode itemRepoPathNode = bucketNode.bucketItemsRepoPathNode.getChild(itemName);
+                bucketNode.itemMap.remove(itemRepoPathNode);
+                bucketNode.contentMap.remove(itemRepoPathNode);
+                this.decodedItemsByBucket.remove(bucketNode);
+                divisionCell.repoPathTree.removeFromParent(itemRepoPathNode);
+                divisionCell.contentArea.removeContent(differenceEntry.path);
+                bucketNodesWithRemovedItems.add(bucketNode);
+            }
+            else
+            {
+                // Put the committed content into the content area if we store it:
+                TContent itemContent = committedContentArea.getContent(differenceEntry.path);
+                if (this.bucketStoragePolicy != BucketStoragePolicy.ItemsOnly)
+                {
+                    divisionCell.contentArea.putContent(differenceEntry.path, itemContent);
+                    itemContent = divisionCell.contentArea.getContent(differenceEntry.path);
+                }
+
+                // Add or replace the item in the bucket:
+                RepoPathNode itemRepoPathNode = divisionCell.repoPathTree.getOrCreateChildNode(bucketNode.bucketItemsRepoPathNode, itemName);
+                putItemInBucket(bucketNode, itemRepoPathNode, this.bucketStoragePolicy == BucketStoragePolicy.ContentOnly ? null : readItemFromContent(itemContent), itemContent);
+                bucketNode.nextItemIndex = Math.max(bucketNode.nextItemIndex, Integer.parseInt(itemName) + 1);
+            }
+        }
+
+        // Tidy up the buckets that items were removed from in the same way as the index that removed them:
+        // NOTE: A bucket might already have been merged away while tidying up an earlier bucket.
+        for (KDBucketNode<TItem, TContent, TArea> bucketNode : bucketNodesWithRemovedItems)
+        {
+            if (isInKDTree(bucketNode)) mergeSmallBuckets(bucketNode);
+        }
+        flushContentChanges(divisionCell);
+        return true;
+    }
+
+    /**
+     * Gets the index of the item in its bucket from the repo path of the item.
+     *
+     * @param itemRepoPath The repo path of an item in a bucket.
+     * @return The index of the item in its bucket.
+     */
+    private static int getItemIndexFromPath(RepoPath itemRepoPath)
+    {
+        String[] pathNames = itemRepoPath.toAbsolutePath().splitIntoParts();
+        return Integer.parseInt(pathNames[pathNames.length - 1]);
+    }
+
+    /**
+     * Walks the kd-tree along the given path to find the bucket that holds the item at that path.
+     *
+     * @param node      The node of the kd-tree to start walking from.
+     * @param pathNames The names in the path of the item, starting from the root of the division cell.
+     * @return The bucket that holds the item at that path. Null if the path is not an item in a bucket of this kd-tree.
+     */
+    private KDBucketNode<TItem, TContent, TArea> findBucketNodeForItemPath(KDNode<TItem, TContent, TArea> node, String[] pathNames)
+    {
+        // Walk down the kd-tree, consuming the names in the path as we go:
+        int pathIndex = 0;
+        while (node != null)
+        {
+            switch (node)
+            {
+                case KDBucketNode<TItem, TContent, TArea> bucketNode ->
+                {
+                    // The rest of the path must be an item in this bucket:
+                    boolean isBucketItem = pathNames.length == pathIndex + 2 && BUCKET_ITEMS_PATH_NAME.equals(pathNames[pathIndex]);
+                    return isBucketItem ? bucketNode : null;
+                }
+                case KDIntermediateNode<TItem, ?, TContent, TArea> intermediateNode ->
+                {
+                    // The path must go through the split of this node:
+                    if (pathNames.length < pathIndex + 2 || !intermediateNode.repoPathNode.getName().equals(pathNames[pathIndex])) return null;
+
+                    // Move to the side of the split that the path goes to:
+                    String sideName = pathNames[pathIndex + 1];
+                    node = switch (sideName)
+                    {
+                        case "<" -> intermediateNode.lowerNode;
+                        case ">" -> intermediateNode.higherNode;
+                        default -> null;
+                    };
+                    pathIndex += 2;
+                }
+                default -> throw new IllegalStateException("Unexpected value: " + node);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Loads the given committed content into the division cell
+     * and rebuilds the repo path tree and kd-tree for the cell from the paths of the content.
+     *
+     * @param divisionCell The division cell to load.
+     * @param contentArea  The committed content area for the division cell.
+     */
+    private void loadDivisionCellContent(DivisionCell<TItem, TContent, TArea> divisionCell, TArea contentArea)
+    {
+        // Rebuild the repo path tree for the content:
+        RepoPathTree repoPathTree = new RepoPathTree();
+        contentArea.getTypedContentStream().forEach(entry -> repoPathTree.addPath(entry.path));
+
+        // Use the committed content for the division cell:
+        divisionCell.contentArea = contentArea;
+        divisionCell.contentAreaWriteBuffer.clear();
+        divisionCell.repoPathTree = repoPathTree;
+
+        // Rebuild the kd-tree from the repo paths:
+        divisionCell.kdTreeRoot = openKDNode(divisionCell, null, 0, divisionCell.hyperCube, repoPathTree.getRootNode());
+        divisionCell.hasUncommittedChanges = false;
+
+        // Drop the committed content if we only store items:
+        if (this.bucketStoragePolicy == BucketStoragePolicy.ItemsOnly) divisionCell.contentArea = this.repoHandler.createArea();
+    }
+
+    /**
+     * Pages the given division cell in from its committed branch.
+     *
+     * @param divisionCell The division cell to page in.
+     */
+    private void pageInDivisionCell(DivisionCell<TItem, TContent, TArea> divisionCell)
+    {
+        // Get the latest commit for the division cell that this index knows about:
+        TCommit latestCommit = this.versionLog.getLatestCommit(divisionCell.branchName);
+        if (latestCommit == null) throw new IllegalStateException("There is no committed content for the division cell " + divisionCell.branchName);
+
+        // Load the content:
+        loadDivisionCellContent(divisionCell, this.repoHandler.checkout(latestCommit));
+    }
+
+    /**
+     * Pages the given division cell out, committing it to its branch first if it has changed.
+     * Only the hyper cube, coordinate, branch name and nearest cells of the division cell stay resident.
+     *
+     * @param divisionCell The division cell to page out.
+     */
+    private void pageOutDivisionCell(DivisionCell<TItem, TContent, TArea> divisionCell)
+    {
+        // Make sure the changes are committed before we drop them:
+        if (divisionCell.hasUncommittedChanges)
+        {
+            TCommit commit = this.repoHandler.commitToBranch(getContentAreaToCommit(divisionCell), divisionCell.branchName, "Page out", null);
+            this.versionLog.recordBranchCommit(divisionCell.branchName, commit);
+            divisionCell.hasUncommittedChanges = false;
+        }
+
+        // Drop the content:
+        divisionCell.contentArea = null;
+        divisionCell.repoPathTree = null;
+        divisionCell.kdTreeRoot = null;
+    }
+
+    /**
+     * Rebuilds the kd-tree node at the given repo path from the committed content.
+     *
+     * @param divisionCell The division cell that the node belongs to. Its {@link DivisionCell#contentArea content area} and {@link DivisionCell#repoPathTree repo path tree} must already be loaded.
+     * @param parent       The parent of the node. Null if this is the root node.
+     * @param level        The level of the node in the kd-tree.
+     * @param hyperCube    The hyper cube that the node encloses.
+     * @param repoPathNode The repo path node for the node.
+     * @return The kd-tree node that was rebuilt.
+     */
+    private KDNode<TItem, TContent, TArea> openKDNode(DivisionCell<TItem, TContent, TArea> divisionCell, KDNode<TItem, TContent, TArea> parent, int level, HyperCube hyperCube, RepoPathNode repoPathNode)
+    {
+        // Get the dimension that this level splits by:
+        int dimensionIndex = level % this.hyperCubeDefinition.getDimensionCount();
+        Dimension<Object> dimension = this.hyperCubeDefinition.getDimension(dimensionIndex);
+
+        // Check whether this node holds bucket items or was split:
+        if (!repoPathNode.hasChildren() || repoPathNode.getChild(BUCKET_ITEMS_PATH_NAME) != null)
+        {
+            // This is a bucket node.
+
+            // Create the bucket node:
+            KDBucketNode<TItem, TContent, TArea> bucketNode = new KDBucketNode<>();
+            bucketNode.level = level;
+            bucketNode.parent = parent;
+            bucketNode.divisionCell = divisionCell;
+            bucketNode.hyperCube = hyperCube;
+            bucketNode.repoPathNode = repoPathNode;
+            bucketNode.bucketItemsRepoPathNode = divisionCell.repoPathTree.getOrCreateChildNode(repoPathNode, BUCKET_ITEMS_PATH_NAME);
+
+            // Load the items in the order that they were added:
+            List<RepoPathNode> itemRepoPathNodes = new ArrayList<>(bucketNode.bucketItemsRepoPathNode.getChildren());
+            itemRepoPathNodes.sort(Comparator.comparingInt(itemRepoPathNode -> Integer.parseInt(itemRepoPathNode.getName())));
+            for (RepoPathNode itemRepoPathNode : itemRepoPathNodes)
+            {
+                // Get the content and the item, decoding the item only if we store it:
+                TContent itemContent = divisionCell.contentArea.getContent(itemRepoPathNode.getRepoPath());
+                TItem item = this.bucketStoragePolicy == BucketStoragePolicy.ContentOnly ? null : readItemFromContent(itemContent);
+
+                // Add the item to the bucket:
+                putItemInBucket(bucketNode, itemRepoPathNode, item, itemContent);
+                bucketNode.nextItemIndex = Integer.parseInt(itemRepoPathNode.getName()) + 1;
+            }
+            return bucketNode;
+        }
+        else
+        {
+            // This node was split.
+
+            // Work out the cut value in the same way as when the node was split:
+            RangeCalculator<Object> rangeCalculator = dimension.getRangeCalculator();
+            Range<Object> range = hyperCube.getRangeForDimension(dimensionIndex);
+            Object cutValue = rangeCalculator.midPoint(range);
+
+            // Get the repo path for the split:
+            RepoPathNode intermediateRepoPathNode = repoPathNode.getChild(dimension.getName() + ":" + cutValue.toString());
+            if (intermediateRepoPathNode == null || repoPathNode.getChildCount() != 1)
+            {
+                throw new IllegalStateException("Unexpected kd-tree path at " + repoPathNode.getRepoPath() + ": " + repoPathNode.getChildrenByName().keySet());
+            }
+
+            // Create the intermediate node:
+            KDIntermediateNode<TItem, Object, TContent, TArea> intermediateNode = new KDIntermediateNode<>();
+            intermediateNode.level = level;
+            intermediateNode.parent = parent;
+            intermediateNode.divisionCell = divisionCell;
+            intermediateNode.hyperCube = hyperCube;
+            intermediateNode.repoPathNode = intermediateRepoPathNode;
+            intermediateNode.dimension = dimension;
+            intermediateNode.cutValue = cutValue;
+            intermediateNode.rangeSplit = rangeCalculator.splitRange(range, cutValue, RangeSplitInclusion.Lower);
+            intermediateNode.lowerRangePredicate = rangeCalculator.compile(intermediateNode.rangeSplit.lower());
+            intermediateNode.higherRangePredicate = rangeCalculator.compile(intermediateNode.rangeSplit.higher());
+
+            // Rebuild the lower node if it exists:
+            RepoPathNode lowerRepoPathNode = intermediateRepoPathNode.getChild("<");
+            if (lowerRepoPathNode != null)
+            {
+                intermediateNode.lowerNode = openKDNode(divisionCell, intermediateNode, level + 1, hyperCube.createHyperCubeWithChangedRange(dimensionIndex, intermediateNode.rangeSplit.lower()), lowerRepoPathNode);
+            }
+
+            // Rebuild the higher node if it exists:
+            RepoPathNode higherRepoPathNode = intermediateRepoPathNode.getChild(">");
+            if (higherRepoPathNode != null)
+            {
+                intermediateNode.higherNode = openKDNode(divisionCell, intermediateNode, level + 1, hyperCube.createHyperCubeWithChangedRange(dimensionIndex, intermediateNode.rangeSplit.higher()), higherRepoPathNode);
+            }
+            return intermediateNode;
+        }
     }
 
     /**
@@ -971,6 +2503,28 @@ public abstract class RepoIndexKDBase<
      */
     public TItem searchNearest(TItem item)
     {
+        // Start measuring the search if we are measuring the index:
+        long startNanos = this.measurement.startSearch();
+
+        TItem nearestItem = searchNearest(this.divisionCube, item);
+
+        // Tell the listener about the search:
+        this.measurement.endSearch(startNanos);
+        return nearestItem;
+    }
+
+    /**
+     * This finds the nearest item in the given division cube to the given item.
+     *
+     * @param divisionCube The division cube to search. This is either the live division cube or a snapshot of a committed version.
+     * @param item         The item to search for.
+     * @return The nearest item to the given item. Null if the division cube is empty.
+     */
+    protected TItem searchNearest(DivisionCube<TItem, TContent, TArea> divisionCube, TItem item)
+    {
+        // Make sure we have something to search:
+        if (divisionCube == null) return null;
+
         // Get the coordinate of the given item:
         HyperCoord itemCoordinate = extractItemCoordinate(item, hyperCubeDefinition);
 
@@ -978,7 +2532,7 @@ public abstract class RepoIndexKDBase<
         List<DivisionCell<TItem, TContent, TArea>> divisionCellsToSearch = new ArrayList<>();
         {
             // Find the right division for this item at the given coordinate:
-            DivisionCell<TItem, TContent, TArea> divisionCell = getDivisionCell(itemCoordinate);
+            DivisionCell<TItem, TContent, TArea> divisionCell = getDivisionCell(divisionCube, itemCoordinate);
 
             // Check whether we found the division cell:
             if (divisionCell == null)
@@ -986,7 +2540,7 @@ public abstract class RepoIndexKDBase<
                 // We are not within the extents that we have indexed.
 
                 // Search ALL the division cells that we have:
-                divisionCellsToSearch.addAll(this.divisionCube.cellsByBranchName.values());
+                divisionCellsToSearch.addAll(divisionCube.cellsByBranchName.values());
             }
             else
             {
@@ -1009,6 +2563,9 @@ public abstract class RepoIndexKDBase<
         MeasuredItem<TItem, TDistance> bestResult = null;
         for (DivisionCell<TItem, TContent, TArea> divisionCellToSearch : divisionCellsToSearch)
         {
+            // Count the division cell as a considered cell:
+            this.measurement.countCellConsidered();
+
             // Search for the item in this division cell:
             MeasuredItem<TItem, TDistance> measuredItem = null;
 
@@ -1055,6 +2612,9 @@ public abstract class RepoIndexKDBase<
                     }
                     // Now we know whether the division cell is within the nearest range to the item.
 
+                    // Count whether the division cell was pruned:
+                    this.measurement.countPruningDecision(isWithinRange);
+
                     // Check whether the division cell is within range across all dimensions:
                     if (isWithinRange)
                     {
@@ -1080,165 +2640,610 @@ public abstract class RepoIndexKDBase<
                 }
                 // Now we know that it wasn't an exact match.
 
-                // Check if it is better than the best result so far:
-                if (bestResult == null)
-                {
-                    // We don't have a best yet.
+                // Check if it is better than the best result so far:
+                if (bestResult == null)
+                {
+                    // We don't have a best yet.
+
+                    // This is our new best:
+                    bestResult = measuredItem;
+                }
+                else
+                {
+                    // We have a best result so far.
+
+                    // Check whether this distance is the best so far:
+                    if (this.distanceComparator.compare(measuredItem.distance, bestResult.distance) < 0)
+                    {
+                        // This item is closer.
+
+                        // Flag this as the best item so far:
+                        bestResult = measuredItem;
+                    }
+                }
+            }
+        }
+        // Return the result:
+        return bestResult == null ? null : bestResult.item;
+    }
+
+
+    /**
+     * Searches for the nearest item for this kd-node.
+     *
+     * @param itemToSearchFor    The item to search for.
+     * @param itemCoord          The coordinate of the item in the hyper cube.
+     * @param currentNode        The current node that we are searching.
+     * @param bestResultToUpdate This is a measured item instance to update while searching with the best result so far. This is used so that we can avoid memory allocations.
+     */
+    protected void searchNearestInKDNode(TItem itemToSearchFor, HyperCoord itemCoord, KDNode<TItem, TContent, TArea> currentNode, MeasuredItem<TItem, TDistance> bestResultToUpdate)
+    {
+        // Count the node as a visited node:
+        this.measurement.countNodeVisited();
+
+        // Perform the search based on what type of node it is:
+        switch (currentNode)
+        {
+            case KDBucketNode<TItem, TContent, TArea> bucketNode ->
+            {
+                // Count the bucket as a visited bucket:
+                this.measurement.countBucketVisited();
+
+                // Search through the bucket:
+                // NOTE: The items are decoded from the content if we only store content in the buckets.
+                for (TItem item : getBucketItems(bucketNode))
+                {
+
+                    // Check whether the existing item is equal to the item:
+                    if (item.equals(itemToSearchFor))
+                    {
+                        // This item is equal.
+
+                        // Flag this as an exact result:
+                        bestResultToUpdate.item = item;
+                        bestResultToUpdate.distance = null;
+
+                        // Break out early:
+                        this.measurement.countExactMatch();
+                        return;
+                    }
+                    // Now we know that the items are not equal.
+
+                    // Get the distance to the item, stopping early if it is further than the best distance so far:
+                    TDistance distance = measureDistanceBetween(item, itemToSearchFor, bestResultToUpdate.distance);
+
+                    // Check whether this distance is the best so far:
+                    if (bestResultToUpdate.distance == null || this.distanceComparator.compare(distance, bestResultToUpdate.distance) < 0)
+                    {
+                        // This item is closer.
+
+                        // Flag this as the best item so far:
+                        bestResultToUpdate.item = item;
+                        bestResultToUpdate.distance = distance;
+                    }
+                }
+            }
+            case KDIntermediateNode<TItem, ?, TContent, TArea> intermediateNodeUntyped ->
+            {
+                //noinspection unchecked
+                KDIntermediateNode<TItem, Object, TContent, TArea> intermediateNode = (KDIntermediateNode<TItem, Object, TContent, TArea>) intermediateNodeUntyped;
+
+                // Get the value for the dimension of this node:
+                Object value = itemCoord.getValue(intermediateNode.dimension);
+
+                // Get the range calculator so that we can inspect the ranges for this value:
+                RangeCalculator<Object> rangeCalculator = intermediateNode.dimension.getRangeCalculator();
+
+                // Check whether to go down the lower node:
+                if (intermediateNode.lowerNode != null)
+                {
+                    // We have a lower node.
+
+                    // Check whether the item is within the current best distance from the lower range:
+                    boolean isWithinDistance = rangeCalculator.isWithinDistanceOfRange(value, bestResultToUpdate.distance, true, intermediateNode.rangeSplit.lower());
+                    this.measurement.countPruningDecision(isWithinDistance);
+                    if (isWithinDistance)
+                    {
+                        // This item is either in the range or within the distance of the range that we must check.
+
+                        // Walk down the lower node recursively:
+                        searchNearestInKDNode(itemToSearchFor, itemCoord, intermediateNode.lowerNode, bestResultToUpdate);
+
+                        // Check for an exact match (no distance):
+                        if (bestResultToUpdate.hasExactMatch())
+                        {
+                            // We got an exact match.
+                            // Break out early:
+                            return;
+                        }
+                    }
+                }
+
+                // Check whether to go down the higher node:
+                if (intermediateNode.higherNode != null)
+                {
+                    // We have a higher node.
+
+                    // Check whether the item is within the current best distance from the higher range:
+                    boolean isWithinDistance = rangeCalculator.isWithinDistanceOfRange(value, bestResultToUpdate.distance, true, intermediateNode.rangeSplit.higher());
+                    this.measurement.countPruningDecision(isWithinDistance);
+                    if (isWithinDistance)
+                    {
+                        // This item is either in the range or within the distance of the range that we must check.
+
+                        // Walk down the higher node recursively:
+                        searchNearestInKDNode(itemToSearchFor, itemCoord, intermediateNode.higherNode, bestResultToUpdate);
+
+                        // Check for an exact match (no distance):
+                        if (bestResultToUpdate.hasExactMatch())
+                        {
+                            // We got an exact match.
+                            // Break out early:
+                            return;
+                        }
+                    }
+                }
+            }
+            default -> throw new IllegalStateException("Unexpected value: " + currentNode);
+        }
+    }
+
+    /**
+     * Searches for the nearest item in all the division cells.
+     * CAUTION: Slow Performance
+     *
+     * @param item           The item to search for.
+     * @param itemCoordinate The coordinate of the item in the hyper cube.
+     * @param divisionCell   The division cell to search in.
+     * @return The nearest item in that division cell. Null if there is no item in this division.
+     */
+    protected MeasuredItem<TItem, TDistance> searchNearestInDivisionCell(TItem item, HyperCoord itemCoordinate, DivisionCell<TItem, TContent, TArea> divisionCell)
+    {
+        // Count the division cell as a visited cell:
+        this.measurement.countCellVisited();
+
+        // Make sure the division cell is resident while we search it:
+        boolean isPaged = isPagedDivisionCell(divisionCell);
+        if (isPaged) this.divisionCellPager.pin(divisionCell);
+        try
+        {
+            // Search for the nearest item in this division recursively:
+            MeasuredItem<TItem, TDistance> bestResultToUpdate = new MeasuredItem<>();
+            searchNearestInKDNode(item, itemCoordinate, divisionCell.kdTreeRoot, bestResultToUpdate);
+            return bestResultToUpdate;
+        }
+        finally
+        {
+            // Allow the division cell to be paged out again:
+            if (isPaged) this.divisionCellPager.unpin(divisionCell);
+        }
+    }
+
+    /**
+     * Checks whether the given division cell is paged by the {@link #divisionCellPager}.
+     * Only the cells of the live {@link #divisionCube} are paged. Cells of committed versions are never changed or evicted.
+     *
+     * @param divisionCell The division cell to check.
+     * @return True if the division cell needs to be pinned while we use it.
+     */
+    private boolean isPagedDivisionCell(DivisionCell<TItem, TContent, TArea> divisionCell)
+    {
+        return this.divisionCellPager != null && divisionCell.parentDimension.divisionCube == this.divisionCube;
+    }
+
+    /**
+     * This finds the nearest item to the given item in the version of the index that was committed with the given commit.
+     *
+     * @param commit A commit that was returned when the index was {@link #commit committed} (or the latest commit of a branch when it was {@link #open opened}).
+     * @param item   The item to search for.
+     * @return The nearest item to the given item as of that commit. Null if the index was empty.
+     */
+    public TItem searchNearestAsOf(TCommit commit, TItem item)
+    {
+        // Start measuring the search if we are measuring the index:
+        long startNanos = this.measurement.startSearch();
+
+        TItem nearestItem = searchNearest(getSnapshotDivisionCube(commit), item);
+
+        // Tell the listener about the search:
+        this.measurement.endSearch(startNanos);
+        return nearestItem;
+    }
+
+    /**
+     * This finds all the items in the index that are within the given distance of the given item.
+     *
+     * @param item        The item to search around.
+     * @param maxDistance The largest distance (inclusive) of the items to find.
+     * @return The items within the distance of the given item.
+     */
+    public List<TItem> searchWithinDistance(TItem item, TDistance maxDistance)
+    {
+        // Start measuring the search if we are measuring the index:
+        long startNanos = this.measurement.startSearch();
+
+        List<TItem> foundItems = searchWithinDistance(this.divisionCube, item, maxDistance);
+
+        // Tell the listener about the search:
+        this.measurement.endSearch(startNanos);
+        return foundItems;
+    }
+
+    /**
+     * This finds all the items that are within the given distance of the given item
+     * in the version of the index that was committed with the given commit.
+     *
+     * @param commit      A commit that was returned when the index was {@link #commit committed} (or the latest commit of a branch when it was {@link #open opened}).
+     * @param item        The item to search around.
+     * @param maxDistance The largest distance (inclusive) of the items to find.
+     * @return The items within the distance of the given item as of that commit.
+     */
+    public List<TItem> searchWithinDistanceAsOf(TCommit commit, TItem item, TDistance maxDistance)
+    {
+        // Start measuring the search if we are measuring the index:
+        long startNanos = this.measurement.startSearch();
+
+        List<TItem> foundItems = searchWithinDistance(getSnapshotDivisionCube(commit), item, maxDistance);
+
+        // Tell the listener about the search:
+        this.measurement.endSearch(startNanos);
+        return foundItems;
+    }
+
+    /**
+     * This finds all the items in the given division cube that are within the given distance of the given item.
+     *
+     * @param divisionCube The division cube to search. This is either the live division cube or a snapshot of a committed version.
+     * @param item         The item to search around.
+     * @param maxDistance  The largest distance (inclusive) of the items to find.
+     * @return The items within the distance of the given item.
+     */
+    protected List<TItem> searchWithinDistance(DivisionCube<TItem, TContent, TArea> divisionCube, TItem item, TDistance maxDistance)
+    {
+        // Keep track of the items that we find:
+        List<TItem> foundItems = new ArrayList<>();
+
+        // Make sure we have something to search:
+        if (divisionCube == null) return foundItems;
+
+        // Get the coordinate of the given item:
+        HyperCoord itemCoordinate = extractItemCoordinate(item, hyperCubeDefinition);
+
+        // Search each division cell that is within the distance:
+        for (DivisionCell<TItem, TContent, TArea> divisionCell : divisionCube.cellsByBranchName.values())
+        {
+            // Check whether the division cell is within the distance in every dimension:
+            if (!divisionCell.hyperCube.isWithinDistance(itemCoordinate, maxDistance)) continue;
+
+            // Count the division cell as a visited cell:
+            this.measurement.countCellVisited();
+
+            // Make sure the division cell is resident while we search it:
+            boolean isPaged = isPagedDivisionCell(divisionCell);
+            if (isPaged) this.divisionCellPager.pin(divisionCell);
+            try
+            {
+                // Search the kd-tree of the division cell:
+                if (divisionCell.kdTreeRoot != null) searchWithinDistanceInKDNode(item, itemCoordinate, maxDistance, divisionCell.kdTreeRoot, foundItems);
+            }
+            finally
+            {
+                // Allow the division cell to be paged out again:
+                if (isPaged) this.divisionCellPager.unpin(divisionCell);
+            }
+        }
+        return foundItems;
+    }
+
+    /**
+     * Searches for the items within the given distance of an item for this kd-node.
+     *
+     * @param itemToSearchFor The item to search around.
+     * @param itemCoord       The coordinate of the item in the hyper cube.
+     * @param maxDistance     The largest distance (inclusive) of the items to find.
+     * @param currentNode     The current node that we are searching.
+     * @param foundItems      The list to add the items that we find to.
+     */
+    protected void searchWithinDistanceInKDNode(TItem itemToSearchFor, HyperCoord itemCoord, TDistance maxDistance, KDNode<TItem, TContent, TArea> currentNode, List<TItem> foundItems)
+    {
+        // Perform the search based on what type of node it is:
+        switch (currentNode)
+        {
+            case KDBucketNode<TItem, TContent, TArea> bucketNode ->
+            {
+                // Count the bucket as a visited bucket:
+                this.measurement.countBucketVisited();
+
+                // Check each item in the bucket:
+                for (TItem item : getBucketItems(bucketNode))
+                {
+                    // Get the distance to the item, stopping early if it is further than the distance we want:
+                    TDistance distance = measureDistanceBetween(item, itemToSearchFor, maxDistance);
+                    if (this.distanceComparator.compare(distance, maxDistance) <= 0) foundItems.add(item);
+                }
+            }
+            case KDIntermediateNode<TItem, ?, TContent, TArea> intermediateNodeUntyped ->
+            {
+                //noinspection unchecked
+                KDIntermediateNode<TItem, Object, TContent, TArea> intermediateNode = (KDIntermediateNode<TItem, Object, TContent, TArea>) intermediateNodeUntyped;
+
+                // Get the value for the dimension of this node:
+                Object value = itemCoord.getValue(intermediateNode.dimension);
+
+                // Get the range calculator so that we can inspect the ranges for this value:
+                RangeCalculator<Object> rangeCalculator = intermediateNode.dimension.getRangeCalculator();
+
+                // Walk down each side that is within the distance:
+                if (intermediateNode.lowerNode != null && rangeCalculator.isWithinDistanceOfRange(value, maxDistance, true, intermediateNode.rangeSplit.lower()))
+                {
+                    searchWithinDistanceInKDNode(itemToSearchFor, itemCoord, maxDistance, intermediateNode.lowerNode, foundItems);
+                }
+                if (intermediateNode.higherNode != null && rangeCalculator.isWithinDistanceOfRange(value, maxDistance, true, intermediateNode.rangeSplit.higher()))
+                {
+                    searchWithinDistanceInKDNode(itemToSearchFor, itemCoord, maxDistance, intermediateNode.higherNode, foundItems);
+                }
+            }
+            default -> throw new IllegalStateException("Unexpected value: " + currentNode);
+        }
+    }
+
+    /**
+     * This finds all the items in the index whose coordinates are in the given region.
+     *
+     * @param region The {@link HyperCube hyper cube} to search in. It must be for the same {@link #getHyperCubeDefinition() definition} as the index.
+     * @return The items with coordinates in the region.
+     */
+    public List<TItem> searchWithinHyperCube(HyperCube region)
+    {
+        // Start measuring the search if we are measuring the index:
+        long startNanos = this.measurement.startSearch();
+
+        List<TItem> foundItems = searchWithinHyperCube(this.divisionCube, region);
+
+        // Tell the listener about the search:
+        this.measurement.endSearch(startNanos);
+        return foundItems;
+    }
+
+    /**
+     * This finds all the items whose coordinates are in the given region
+     * in the version of the index that was committed with the given commit.
+     *
+     * @param commit A commit that was returned when the index was {@link #commit committed} (or the latest commit of a branch when it was {@link #open opened}).
+     * @param region The {@link HyperCube hyper cube} to search in. It must be for the same {@link #getHyperCubeDefinition() definition} as the index.
+     * @return The items with coordinates in the region as of that commit.
+     */
+    public List<TItem> searchWithinHyperCubeAsOf(TCommit commit, HyperCube region)
+    {
+        // Start measuring the search if we are measuring the index:
+        long startNanos = this.measurement.startSearch();
+
+        List<TItem> foundItems = searchWithinHyperCube(getSnapshotDivisionCube(commit), region);
+
+        // Tell the listener about the search:
+        this.measurement.endSearch(startNanos);
+        return foundItems;
+    }
+
+    /**
+     * This finds all the items in the given division cube whose coordinates are in the given region.
+     * Division cells and kd-tree subtrees outside the region are pruned with one check,
+     * and those that are completely inside the region are accepted without checking each item.
+     *
+     * @param divisionCube The division cube to search. This is either the live division cube or a snapshot of a committed version.
+     * @param region       The {@link HyperCube hyper cube} to search in.
+     * @return The items with coordinates in the region.
+     */
+    protected List<TItem> searchWithinHyperCube(DivisionCube<TItem, TContent, TArea> divisionCube, HyperCube region)
+    {
+        // Keep track of the items that we find:
+        List<TItem> foundItems = new ArrayList<>();
+
+        // Make sure we have something to search:
+        if (divisionCube == null) return foundItems;
 
-                    // This is our new best:
-                    bestResult = measuredItem;
-                }
-                else
-                {
-                    // We have a best result so far.
+        // Search each division cell that overlaps the region:
+        for (DivisionCell<TItem, TContent, TArea> divisionCell : divisionCube.cellsByBranchName.values())
+        {
+            // Skip the division cell if it is outside the region:
+            if (!region.intersects(divisionCell.hyperCube)) continue;
 
-                    // Check whether this distance is the best so far:
-                    if (this.distanceComparator.compare(measuredItem.distance, bestResult.distance) < 0)
-                    {
-                        // This item is closer.
+            // Count the division cell as a visited cell:
+            this.measurement.countCellVisited();
 
-                        // Flag this as the best item so far:
-                        bestResult = measuredItem;
-                    }
-                }
+            // Make sure the division cell is resident while we search it:
+            boolean isPaged = isPagedDivisionCell(divisionCell);
+            if (isPaged) this.divisionCellPager.pin(divisionCell);
+            try
+            {
+                // Search the kd-tree of the division cell:
+                // NOTE: The kd-tree is only checked once the division cell is pinned because paged out cells have no kd-tree.
+                if (divisionCell.kdTreeRoot != null) searchWithinHyperCubeInKDNode(region, divisionCell.kdTreeRoot, region.contains(divisionCell.hyperCube), foundItems);
+            }
+            finally
+            {
+                // Allow the division cell to be paged out again:
+                if (isPaged) this.divisionCellPager.unpin(divisionCell);
             }
         }
-        // Return the result:
-        return bestResult == null ? null : bestResult.item;
+        return foundItems;
     }
 
-
     /**
-     * Searches for the nearest item for this kd-node.
+     * Searches for the items in the given region for this kd-node.
      *
-     * @param itemToSearchFor    The item to search for.
-     * @param itemCoord          The coordinate of the item in the hyper cube.
-     * @param currentNode        The current node that we are searching.
-     * @param bestResultToUpdate This is a measured item instance to update while searching with the best result so far. This is used so that we can avoid memory allocations.
+     * @param region         The {@link HyperCube hyper cube} to search in.
+     * @param currentNode    The current node that we are searching.
+     * @param isInsideRegion True if we already know that the node is completely inside the region, so every item is accepted.
+     * @param foundItems     The list to add the items that we find to.
      */
-    protected void searchNearestInKDNode(TItem itemToSearchFor, HyperCoord itemCoord, KDNode<TItem, TContent, TArea> currentNode, MeasuredItem<TItem, TDistance> bestResultToUpdate)
+    protected void searchWithinHyperCubeInKDNode(HyperCube region, KDNode<TItem, TContent, TArea> currentNode, boolean isInsideRegion, List<TItem> foundItems)
     {
+        // Check whether the node is completely inside the region:
+        if (!isInsideRegion) isInsideRegion = region.contains(currentNode.hyperCube);
+
         // Perform the search based on what type of node it is:
         switch (currentNode)
         {
             case KDBucketNode<TItem, TContent, TArea> bucketNode ->
             {
-                // NOTE: We currently cache the items in the bucket,
-                //       but we could easily re-hydrate them from the content if we needed to
-                //       (for example if we were offloading the division cell to offline storage)
-                // Search through the bucket:
-                // for (TContent itemContent : bucketNode.contentMap.values())
-                // {
-                //     // Get the item from the content:
-                //     TItem item = readItemFromContent(itemContent);
+                // Count the bucket as a visited bucket:
+                this.measurement.countBucketVisited();
 
-                // Search through the bucket:
-                for (TItem item : bucketNode.itemMap.values())
+                // Check each item in the bucket:
+                for (TItem item : getBucketItems(bucketNode))
                 {
-                    // Check whether the existing item is equal to the item:
-                    if (item.equals(itemToSearchFor))
-                    {
-                        // This item is equal.
-
-                        // Flag this as an exact result:
-                        bestResultToUpdate.item = item;
-                        bestResultToUpdate.distance = null;
-
-                        // Break out early:
-                        return;
-                    }
-                    // Now we know that the items are not equal.
-
-                    // Get the distance to the item:
-                    TDistance distance = measureDistanceBetween(item, itemToSearchFor);
-
-                    // Check whether this distance is the best so far:
-                    if (bestResultToUpdate.distance == null || this.distanceComparator.compare(distance, bestResultToUpdate.distance) < 0)
-                    {
-                        // This item is closer.
-
-                        // Flag this as the best item so far:
-                        bestResultToUpdate.item = item;
-                        bestResultToUpdate.distance = distance;
-                    }
+                    if (isInsideRegion || region.isCoordinateInRange(extractItemCoordinate(item, this.hyperCubeDefinition))) foundItems.add(item);
                 }
             }
-            case KDIntermediateNode<TItem, ?, TContent, TArea> intermediateNodeUntyped ->
+            case KDIntermediateNode<TItem, ?, TContent, TArea> intermediateNode ->
             {
-                //noinspection unchecked
-                KDIntermediateNode<TItem, Object, TContent, TArea> intermediateNode = (KDIntermediateNode<TItem, Object, TContent, TArea>) intermediateNodeUntyped;
-
-                // Get the value for the dimension of this node:
-                Object value = itemCoord.getValue(intermediateNode.dimension);
-
-                // Get the range calculator so that we can inspect the ranges for this value:
-                RangeCalculator<Object> rangeCalculator = intermediateNode.dimension.getRangeCalculator();
-
-                // Check whether to go down the lower node:
-                if (intermediateNode.lowerNode != null)
+                // Walk down each side that overlaps the region:
+                if (intermediateNode.lowerNode != null && (isInsideRegion || region.intersects(intermediateNode.lowerNode.hyperCube)))
                 {
-                    // We have a lower node.
+                    searchWithinHyperCubeInKDNode(region, intermediateNode.lowerNode, isInsideRegion, foundItems);
+                }
+                if (intermediateNode.higherNode != null && (isInsideRegion || region.intersects(intermediateNode.higherNode.hyperCube)))
+                {
+                    searchWithinHyperCubeInKDNode(region, intermediateNode.higherNode, isInsideRegion, foundItems);
+                }
+            }
+            default -> throw new IllegalStateException("Unexpected value: " + currentNode);
+        }
+    }
 
-                    // Check whether the item is within the current best distance from the lower range:
-                    if (rangeCalculator.isWithinDistanceOfRange(value, bestResultToUpdate.distance, true, intermediateNode.rangeSplit.lower()))
-                    {
-                        // This item is either in the range or within the distance of the range that we must check.
+    /**
+     * Gets the division cube for the version of the index that was committed with the given commit.
+     * <p>
+     * Each division cell is resolved from the commit of its branch at that version.
+     * If another resolved version has the same commit for a branch,
+     * the new division cell shares the content and kd-tree of that cell instead of checking the branch out again,
+     * so only the division cells that changed between versions cost anything.
+     * Only the nearest cells are worked out again for each version because the set of cells can differ.
+     *
+     * @param commit A commit that was returned when the index was committed or opened.
+     * @return The division cube for that version of the index.
+     */
+    private DivisionCube<TItem, TContent, TArea> getSnapshotDivisionCube(TCommit commit)
+    {
+        // Get the version of the index for the commit:
+        Map<String, TCommit> version = this.versionLog.getVersion(commit);
 
-                        // Walk down the lower node recursively:
-                        searchNearestInKDNode(itemToSearchFor, itemCoord, intermediateNode.lowerNode, bestResultToUpdate);
+        // Check whether we have already resolved this version:
+        DivisionCube<TItem, TContent, TArea> snapshotDivisionCube = this.snapshotDivisionCubesByVersion.get(version);
+        if (snapshotDivisionCube != null) return snapshotDivisionCube;
 
-                        // Check for an exact match (no distance):
-                        if (bestResultToUpdate.hasExactMatch())
-                        {
-                            // We got an exact match.
-                            // Break out early:
-                            return;
-                        }
-                    }
-                }
+        // Create the division cube for this version:
+        snapshotDivisionCube = createDivisionCube();
+        for (Map.Entry<String, TCommit> entry : version.entrySet())
+        {
+            String branchName = entry.getKey();
+            TCommit branchCommit = entry.getValue();
 
-                // Check whether to go down the higher node:
-                if (intermediateNode.higherNode != null)
+            // Check whether another version already resolved this commit of the branch:
+            DivisionCell<TItem, TContent, TArea> sharedDivisionCell = null;
+            for (Map.Entry<Map<String, TCommit>, DivisionCube<TItem, TContent, TArea>> resolvedEntry : this.snapshotDivisionCubesByVersion.entrySet())
+            {
+                if (resolvedEntry.getKey().get(branchName) == branchCommit)
                 {
-                    // We have a higher node.
+                    sharedDivisionCell = resolvedEntry.getValue().cellsByBranchName.get(branchName);
+                    break;
+                }
+            }
 
-                    // Check whether the item is within the current best distance from the higher range:
-                    if (rangeCalculator.isWithinDistanceOfRange(value, bestResultToUpdate.distance, true, intermediateNode.rangeSplit.higher()))
-                    {
-                        // This item is either in the range or within the distance of the range that we must check.
+            // Get the committed content for the branch:
+            // NOTE: The content area of a shared division cell is empty if we only store items.
+            TArea contentArea = sharedDivisionCell != null && this.bucketStoragePolicy != BucketStoragePolicy.ItemsOnly ? sharedDivisionCell.contentArea : this.repoHandler.checkout(branchCommit);
 
-                        // Walk down the higher node recursively:
-                        searchNearestInKDNode(itemToSearchFor, itemCoord, intermediateNode.higherNode, bestResultToUpdate);
+            // Find the division cell from the coordinate of an item in the branch:
+            AreaEntry<TContent> anyItemEntry = contentArea.getTypedContentStream().findFirst().orElse(null);
+            if (anyItemEntry == null) continue;
+            HyperCoord anyItemCoord = extractItemCoordinate(readItemFromContent(anyItemEntry.content), this.hyperCubeDefinition);
+            DivisionCell<TItem, TContent, TArea> divisionCell = getOrCreateDivisionCell(snapshotDivisionCube, anyItemCoord);
+            if (divisionCell == null || !branchName.equals(divisionCell.branchName))
+            {
+                throw new IllegalStateException("The content in branch " + branchName + " does not belong to the division cell " + (divisionCell == null ? null : divisionCell.branchName) + ". Make sure the index is configured the same way as when it was committed.");
+            }
 
-                        // Check for an exact match (no distance):
-                        if (bestResultToUpdate.hasExactMatch())
-                        {
-                            // We got an exact match.
-                            // Break out early:
-                            return;
-                        }
-                    }
-                }
+            // Use the committed content for the division cell:
+            if (sharedDivisionCell != null)
+            {
+                // Share the structures of the unchanged division cell:
+                divisionCell.contentArea = sharedDivisionCell.contentArea;
+                divisionCell.repoPathTree = sharedDivisionCell.repoPathTree;
+                divisionCell.kdTreeRoot = sharedDivisionCell.kdTreeRoot;
             }
-            default -> throw new IllegalStateException("Unexpected value: " + currentNode);
+            else
+            {
+                // Rebuild the structures from the committed content:
+                loadDivisionCellContent(divisionCell, contentArea);
+            }
+        }
+
+        // Remember this version, forgetting the least recently used versions if we have too many:
+        this.snapshotDivisionCubesByVersion.put(version, snapshotDivisionCube);
+        Iterator<DivisionCube<TItem, TContent, TArea>> iterator = this.snapshotDivisionCubesByVersion.values().iterator();
+        while (this.snapshotDivisionCubesByVersion.size() > this.maxSnapshotDivisionCubes && iterator.hasNext())
+        {
+            iterator.next();
+            iterator.remove();
         }
+
+        return snapshotDivisionCube;
     }
 
     /**
-     * Searches for the nearest item in all the division cells.
-     * CAUTION: Slow Performance
+     * Puts the item into the bucket, keeping only the representations of the item that the {@link #getBucketStoragePolicy() bucket storage policy} stores.
      *
-     * @param item           The item to search for.
-     * @param itemCoordinate The coordinate of the item in the hyper cube.
-     * @param divisionCell   The division cell to search in.
-     * @return The nearest item in that division cell. Null if there is no item in this division.
+     * @param bucketNode       The bucket to put the item into.
+     * @param itemRepoPathNode The repo path node for the item in the bucket.
+     * @param item             The item. This may be null if we only store content.
+     * @param itemContent      The content for the item. This may be null if we only store items.
      */
-    protected MeasuredItem<TItem, TDistance> searchNearestInDivisionCell(TItem item, HyperCoord itemCoordinate, DivisionCell<TItem, TContent, TArea> divisionCell)
+    private void putItemInBucket(KDBucketNode<TItem, TContent, TArea> bucketNode, RepoPathNode itemRepoPathNode, TItem item, TContent itemContent)
+    {
+        // Keep the representations that we store:
+        if (this.bucketStoragePolicy != BucketStoragePolicy.ContentOnly) bucketNode.itemMap.put(itemRepoPathNode, item);
+        if (this.bucketStoragePolicy != BucketStoragePolicy.ItemsOnly) bucketNode.contentMap.put(itemRepoPathNode, itemContent);
+
+        // The decoded items of the bucket are now out of date:
+        this.decodedItemsByBucket.remove(bucketNode);
+    }
+
+    /**
+     * Gets the items in the given bucket.
+     * If we only store content in the buckets then the items are decoded from the content
+     * and cached for the most recently scanned buckets.
+     *
+     * @param bucketNode The bucket to get the items for.
+     * @return The items in the bucket in the order that they were added.
+     */
+    protected Collection<TItem> getBucketItems(KDBucketNode<TItem, TContent, TArea> bucketNode)
     {
-        // Search for the nearest item in this division recursively:
-        MeasuredItem<TItem, TDistance> bestResultToUpdate = new MeasuredItem<>();
-        searchNearestInKDNode(item, itemCoordinate, divisionCell.kdTreeRoot, bestResultToUpdate);
-        return bestResultToUpdate;
+        // Check whether we store the decoded items:
+        if (this.bucketStoragePolicy != BucketStoragePolicy.ContentOnly) return bucketNode.itemMap.values();
+
+        // Check whether we decoded the items of this bucket recently:
+        List<TItem> items = this.decodedItemsByBucket.get(bucketNode);
+        if (items != null) return items;
+
+        // Decode the items from the content:
+        items = new ArrayList<>(bucketNode.contentMap.size());
+        for (TContent itemContent : bucketNode.contentMap.values())
+        {
+            items.add(readItemFromContent(itemContent));
+        }
+
+        // Remember the decoded items, forgetting the least recently scanned buckets if we have too many:
+        this.decodedItemsByBucket.put(bucketNode, items);
+        Iterator<List<TItem>> iterator = this.decodedItemsByBucket.values().iterator();
+        while (this.decodedItemsByBucket.size() > this.maxDecodedBuckets && iterator.hasNext())
+        {
+            iterator.next();
+            iterator.remove();
+        }
+
+        return items;
     }
 
     /**
@@ -1284,11 +3289,40 @@ public abstract class RepoIndexKDBase<
      */
     protected TDistance measureDistanceBetween(TItem item1, TItem item2)
     {
+        this.measurement.countDistanceEvaluation();
         return this.measurer.measureDistanceBetween(item1, item2);
     }
 
+    /**
+     * Measures the distance between the two items,
+     * stopping early if the measurer supports it and the distance is known to exceed the given bound.
+     *
+     * @param item1       The first item to measure the distance between.
+     * @param item2       The second item to measure the distance between.
+     * @param maxDistance The best distance so far. If the distance exceeds this then the measurement may stop early and return any distance that is greater than this. Null if there is no bound.
+     * @return The distance between the two items, or a partial distance that is greater than the bound.
+     */
+    protected TDistance measureDistanceBetween(TItem item1, TItem item2, TDistance maxDistance)
+    {
+        // Check whether we can measure with a bound:
+        if (maxDistance == null || this.boundedMeasurer == null)
+        {
+            // We don't have a bound, so measure the full distance:
+            return measureDistanceBetween(item1, item2);
+        }
+        else
+        {
+            // Measure the distance, stopping early if it exceeds the bound:
+            this.measurement.countDistanceEvaluation();
+            return this.boundedMeasurer.measureDistanceBetween(item1, item2, maxDistance);
+        }
+    }
+
     @Override public String toString()
     {
+        // Make sure the content areas have all of the content:
+        flushContentChanges();
+
         // Print out the content tree:
         StringBuilder stringBuilder = new StringBuilder();
 
@@ -1316,6 +3350,7 @@ public abstract class RepoIndexKDBase<
 
     /**
      * Gets the number of divisions to use for this grid index.
+     * {@link Dimension#getDivisions() Dimensions} can override this with their own number of divisions.
      *
      * @return The number of divisions to use for this grid index.
      */
@@ -1325,6 +3360,16 @@ public abstract class RepoIndexKDBase<
         return this.divisions;
     }
 
+    /**
+     * Gets the number of items in a bucket before it is split.
+     *
+     * @return The number of items in a bucket before it is split.
+     */
+    public int getBucketThreshold()
+    {
+        return bucketThreshold;
+    }
+
     /**
      * Gets the measurer that measures distances between items.
      *
@@ -1398,4 +3443,160 @@ public abstract class RepoIndexKDBase<
     {
         return hyperCubeDefinition;
     }
+
+    /**
+     * Checks whether {@link DivisionCell division cells} are looked up through a flat {@link DivisionCellDirectory} keyed by packed division coordinates.
+     *
+     * @return True if cells are looked up through the flat directory (when the coordinates can be packed). False if we always walk the {@link DivisionDimension division dimension} chain.
+     */
+    public boolean isCellDirectoryEnabled()
+    {
+        return cellDirectoryEnabled;
+    }
+
+    /**
+     * Sets whether {@link DivisionCell division cells} are looked up through a flat {@link DivisionCellDirectory} keyed by packed division coordinates.
+     * This must be set before the first item is added.
+     *
+     * @param cellDirectoryEnabled True to look up cells through the flat directory (when the coordinates can be packed). False to always walk the {@link DivisionDimension division dimension} chain.
+     */
+    public void setCellDirectoryEnabled(boolean cellDirectoryEnabled)
+    {
+        this.cellDirectoryEnabled = cellDirectoryEnabled;
+    }
+
+    /**
+     * Gets the strategy that we use to discover the nearest {@link DivisionCell division cells} of each cell.
+     *
+     * @return The strategy that we use to discover the nearest division cells of each cell.
+     */
+    public DivisionCellNeighbourStrategy getDivisionCellNeighbourStrategy()
+    {
+        return divisionCellNeighbourStrategy;
+    }
+
+    /**
+     * Sets the strategy that we use to discover the nearest {@link DivisionCell division cells} of each cell.
+     * This must be set before the first item is added.
+     *
+     * @param divisionCellNeighbourStrategy The strategy that we use to discover the nearest division cells of each cell.
+     */
+    public void setDivisionCellNeighbourStrategy(DivisionCellNeighbourStrategy divisionCellNeighbourStrategy)
+    {
+        this.divisionCellNeighbourStrategy = divisionCellNeighbourStrategy;
+    }
+
+    /**
+     * Gets which representations of the items we keep in each {@link KDBucketNode bucket}.
+     *
+     * @return Which representations of the items we keep in each bucket.
+     */
+    public BucketStoragePolicy getBucketStoragePolicy()
+    {
+        return bucketStoragePolicy;
+    }
+
+    /**
+     * Sets which representations of the items we keep in each {@link KDBucketNode bucket}.
+     * This lets us trade CPU for memory.
+     * This must be set before the first item is added.
+     *
+     * @param bucketStoragePolicy Which representations of the items we keep in each bucket.
+     */
+    public void setBucketStoragePolicy(BucketStoragePolicy bucketStoragePolicy)
+    {
+        this.bucketStoragePolicy = bucketStoragePolicy;
+    }
+
+    /**
+     * Gets the maximum number of buckets to keep decoded items for when we {@link BucketStoragePolicy#ContentOnly only store content} in the buckets.
+     *
+     * @return The maximum number of buckets to keep decoded items for.
+     */
+    public int getMaxDecodedBuckets()
+    {
+        return maxDecodedBuckets;
+    }
+
+    /**
+     * Sets the maximum number of buckets to keep decoded items for when we {@link BucketStoragePolicy#ContentOnly only store content} in the buckets.
+     *
+     * @param maxDecodedBuckets The maximum number of buckets to keep decoded items for. Zero to decode the items every time a bucket is scanned.
+     */
+    public void setMaxDecodedBuckets(int maxDecodedBuckets)
+    {
+        if (maxDecodedBuckets < 0) throw new IllegalArgumentException("The maximum number of decoded buckets can't be negative but was " + maxDecodedBuckets);
+        this.maxDecodedBuckets = maxDecodedBuckets;
+        this.decodedItemsByBucket.clear();
+    }
+
+    /**
+     * Gets the maximum number of paths with changes to buffer for each {@link DivisionCell division cell} before writing them to its content area.
+     * The buffered changes are also written on {@link #index()} and {@link #commit}.
+     *
+     * @return The maximum number of paths with changes to buffer for each division cell. Zero if every change is written to the content area immediately, which is the default.
+     */
+    public int getMaxPendingContentChanges()
+    {
+        return maxPendingContentChanges;
+    }
+
+    /**
+     * Sets the maximum number of paths with changes to buffer for each {@link DivisionCell division cell} before writing them to its content area.
+     * The buffered changes are also written on {@link #index()} and {@link #commit}.
+     * While changes are buffered, the content area of each cell does not reflect the latest {@link #add adds} until the buffer is written.
+     * This should be set before the first item is added.
+     *
+     * @param maxPendingContentChanges The maximum number of paths with changes to buffer for each division cell. Zero to write every change to the content area immediately.
+     */
+    public void setMaxPendingContentChanges(int maxPendingContentChanges)
+    {
+        if (maxPendingContentChanges < 0) throw new IllegalArgumentException("The maximum number of pending content changes can't be negative but was " + maxPendingContentChanges);
+        this.maxPendingContentChanges = maxPendingContentChanges;
+    }
+
+    /**
+     * Gets the pager that pages {@link DivisionCell division cells} in and out of memory from their committed branches.
+     * This has the hit, miss and eviction counters for the paging.
+     *
+     * @return The pager for the division cells. Null if all division cells stay resident.
+     */
+    public DivisionCellPager<TItem, TContent, TArea> getDivisionCellPager()
+    {
+        return divisionCellPager;
+    }
+
+    /**
+     * Sets the maximum number of {@link DivisionCell division cells} to keep resident in memory.
+     * Beyond this, the least recently used cells are committed to their branches and paged out,
+     * and they are paged back in from their branches when they are next needed.
+     * This should be set before the first item is added.
+     *
+     * @param maxResidentDivisionCells The maximum number of division cells to keep resident. Zero to keep all division cells resident.
+     */
+    public void setMaxResidentDivisionCells(int maxResidentDivisionCells)
+    {
+        this.divisionCellPager = maxResidentDivisionCells == 0 ? null : new DivisionCellPager<>(maxResidentDivisionCells, this::pageInDivisionCell, this::pageOutDivisionCell);
+    }
+
+    /**
+     * Gets the maximum number of division cubes to keep resolved for committed versions of this index.
+     *
+     * @return The maximum number of committed versions to keep resolved.
+     */
+    public int getMaxSnapshotDivisionCubes()
+    {
+        return maxSnapshotDivisionCubes;
+    }
+
+    /**
+     * Sets the maximum number of division cubes to keep resolved for committed versions of this index.
+     *
+     * @param maxSnapshotDivisionCubes The maximum number of committed versions to keep resolved. Must be at least one.
+     */
+    public void setMaxSnapshotDivisionCubes(int maxSnapshotDivisionCubes)
+    {
+        if (maxSnapshotDivisionCubes < 1) throw new IllegalArgumentException("The maximum number of snapshot division cubes must be at least one but was " + maxSnapshotDivisionCubes);
+        this.maxSnapshotDivisionCubes = maxSnapshotDivisionCubes;
+    }
 }
@@ -2,6 +2,11 @@ package io.nanovc.indexing.repo;
 
 import io.nanovc.RepoPath;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.NavigableMap;
 import java.util.TreeMap;
 
@@ -28,9 +33,22 @@ public class RepoPathNode
     private RepoPath repoPath;
 
     /**
-     * A map of all the child nodes, indexed by their name.
+     * The most children that we keep in a small sorted array before switching to a bigger container.
      */
-    private NavigableMap<String, RepoPathNode> childrenByName;
+    public static final int MAX_SORTED_ARRAY_CHILDREN = 8;
+
+    /**
+     * The child nodes of this node, sorted by name with {@link EmojiFirstComparator}.
+     * The container adapts to the children that the node has so that most nodes only hold what they need:
+     * <ul>
+     *     <li>null when there are no children,</li>
+     *     <li>the {@link RepoPathNode} itself when there is a single child,</li>
+     *     <li>a {@link RepoPathNode RepoPathNode[]} sorted by name for a few children,</li>
+     *     <li>{@link ByteIndexedChildren} for the levels of a byte trie where the children are named by single byte characters,</li>
+     *     <li>a {@link TreeMap} for anything bigger.</li>
+     * </ul>
+     */
+    private Object children;
 
     public RepoPathNode(RepoPathNode parent, String name)
     {
@@ -44,7 +62,7 @@ public class RepoPathNode
      */
     public boolean hasChildren()
     {
-        return this.childrenByName != null && !this.childrenByName.isEmpty();
+        return this.children != null;
     }
 
     /**
@@ -108,24 +126,494 @@ public class RepoPathNode
         return repoPath;
     }
 
+    /**
+     * Gets the number of child nodes.
+     * @return The number of child nodes.
+     */
+    public int getChildCount()
+    {
+        return switch (this.children)
+        {
+            case null -> 0;
+            case RepoPathNode ignored -> 1;
+            case RepoPathNode[] sortedChildren -> sortedChildren.length;
+            case ByteIndexedChildren byteIndexedChildren -> byteIndexedChildren.count;
+            case TreeMap<?, ?> childrenByName -> childrenByName.size();
+            default -> throw new IllegalStateException("Unexpected value: " + this.children);
+        };
+    }
+
+    /**
+     * Gets the child node with the given name.
+     * @param name The name of the child node.
+     * @return The child node with the given name. Null if there is no child with that name.
+     */
+    public RepoPathNode getChild(String name)
+    {
+        switch (this.children)
+        {
+            case null ->
+            {
+                return null;
+            }
+            case RepoPathNode child ->
+            {
+                return child.name.equals(name) ? child : null;
+            }
+            case RepoPathNode[] sortedChildren ->
+            {
+                int index = binarySearch(sortedChildren, name);
+                return index >= 0 ? sortedChildren[index] : null;
+            }
+            case ByteIndexedChildren byteIndexedChildren ->
+            {
+                return byteIndexedChildren.get(name);
+            }
+            case TreeMap<?, ?> childrenByName ->
+            {
+                return (RepoPathNode) childrenByName.get(name);
+            }
+            default -> throw new IllegalStateException("Unexpected value: " + this.children);
+        }
+    }
+
+    /**
+     * Gets the first child node whose name is the same as or sorts after the given name.
+     * @param name The name to search from.
+     * @return The first child node whose name is the same as or sorts after the given name. Null if there is no such child.
+     */
+    public RepoPathNode getCeilingChild(String name)
+    {
+        switch (this.children)
+        {
+            case null ->
+            {
+                return null;
+            }
+            case RepoPathNode child ->
+            {
+                return EmojiFirstComparator.compareTo(child.name, name) >= 0 ? child : null;
+            }
+            case RepoPathNode[] sortedChildren ->
+            {
+                int index = binarySearch(sortedChildren, name);
+                int ceilingIndex = index >= 0 ? index : -(index + 1);
+                return ceilingIndex < sortedChildren.length ? sortedChildren[ceilingIndex] : null;
+            }
+            case ByteIndexedChildren byteIndexedChildren ->
+            {
+                return byteIndexedChildren.ceiling(name);
+            }
+            case TreeMap<?, ?> childrenByName ->
+            {
+                //noinspection unchecked
+                Map.Entry<String, RepoPathNode> entry = ((TreeMap<String, RepoPathNode>) childrenByName).ceilingEntry(name);
+                return entry == null ? null : entry.getValue();
+            }
+            default -> throw new IllegalStateException("Unexpected value: " + this.children);
+        }
+    }
+
+    /**
+     * Gets the child nodes, sorted by name.
+     * This is a copy, so it is safe to add and remove children while iterating over it.
+     * Use {@link #getChild} and {@link #getCeilingChild} to look up children without copying them.
+     * @return The child nodes, sorted by name.
+     */
+    public List<RepoPathNode> getChildren()
+    {
+        switch (this.children)
+        {
+            case null ->
+            {
+                return List.of();
+            }
+            case RepoPathNode child ->
+            {
+                return List.of(child);
+            }
+            case RepoPathNode[] sortedChildren ->
+            {
+                return List.of(sortedChildren);
+            }
+            case ByteIndexedChildren byteIndexedChildren ->
+            {
+                List<RepoPathNode> list = new ArrayList<>(byteIndexedChildren.count);
+                byteIndexedChildren.addTo(list);
+                return list;
+            }
+            case TreeMap<?, ?> childrenByName ->
+            {
+                //noinspection unchecked
+                return new ArrayList<>(((TreeMap<String, RepoPathNode>) childrenByName).values());
+            }
+            default -> throw new IllegalStateException("Unexpected value: " + this.children);
+        }
+    }
+
     /**
      * Gets a map of all the child nodes, indexed by their name.
-     * @return A map of all the child nodes, indexed by their name.
+     * This is a sorted, read-only copy of the children, so it can't be used to change this node.
+     * Use {@link #putChild} and {@link #removeChild} to change the children.
+     * @return A read-only map of all the child nodes, indexed by their name.
      */
     public NavigableMap<String, RepoPathNode> getChildrenByName()
     {
-        // Check whether we have the children indexed already:
-        if (this.childrenByName != null) return this.childrenByName;
-        else
+        // NOTE: We want emoji's sorted at the top of the list of children.
+        NavigableMap<String, RepoPathNode> childrenByName = new TreeMap<>(EmojiFirstComparator::compareTo);
+        for (RepoPathNode child : getChildren())
+        {
+            childrenByName.put(child.name, child);
+        }
+        return Collections.unmodifiableNavigableMap(childrenByName);
+    }
+
+    /**
+     * Puts the given child node under this node, replacing any child with the same name.
+     * @param child The child node to put. Its parent must be this node.
+     */
+    public void putChild(RepoPathNode child)
+    {
+        switch (this.children)
+        {
+            case null -> this.children = child;
+            case RepoPathNode existingChild ->
+            {
+                // Check whether we are replacing the only child:
+                int comparison = EmojiFirstComparator.compareTo(child.name, existingChild.name);
+                if (comparison == 0) this.children = child;
+                else this.children = comparison < 0 ? new RepoPathNode[]{child, existingChild} : new RepoPathNode[]{existingChild, child};
+            }
+            case RepoPathNode[] sortedChildren ->
+            {
+                // Check whether we are replacing an existing child:
+                int index = binarySearch(sortedChildren, child.name);
+                if (index >= 0)
+                {
+                    sortedChildren[index] = child;
+                    return;
+                }
+
+                // Check whether the array is full:
+                if (sortedChildren.length == MAX_SORTED_ARRAY_CHILDREN)
+                {
+                    // Move the children to a bigger container:
+                    growChildren(sortedChildren);
+                    putChild(child);
+                    return;
+                }
+
+                // Insert the child in order:
+                int insertionIndex = -(index + 1);
+                RepoPathNode[] newSortedChildren = new RepoPathNode[sortedChildren.length + 1];
+                System.arraycopy(sortedChildren, 0, newSortedChildren, 0, insertionIndex);
+                newSortedChildren[insertionIndex] = child;
+                System.arraycopy(sortedChildren, insertionIndex, newSortedChildren, insertionIndex + 1, sortedChildren.length - insertionIndex);
+                this.children = newSortedChildren;
+            }
+            case ByteIndexedChildren byteIndexedChildren ->
+            {
+                // Check whether the child can be indexed by byte:
+                if (!byteIndexedChildren.put(child))
+                {
+                    // Move the children to a tree map:
+                    List<RepoPathNode> list = new ArrayList<>(byteIndexedChildren.count + 1);
+                    byteIndexedChildren.addTo(list);
+                    this.children = createTreeMap(list);
+                    putChild(child);
+                }
+            }
+            case TreeMap<?, ?> childrenByName ->
+            {
+                //noinspection unchecked
+                ((TreeMap<String, RepoPathNode>) childrenByName).put(child.name, child);
+            }
+            default -> throw new IllegalStateException("Unexpected value: " + this.children);
+        }
+    }
+
+    /**
+     * Removes the child node with the given name.
+     * @param name The name of the child node to remove.
+     * @return The child node that was removed. Null if there was no child with that name.
+     */
+    public RepoPathNode removeChild(String name)
+    {
+        switch (this.children)
         {
-            // We do not have the children yet.
-            // Create the map of children:
-            // NOTE: We want emoji's sorted at the top of the list of children.
-            this.childrenByName = new TreeMap<>(EmojiFirstComparator::compareTo);
+            case null ->
+            {
+                return null;
+            }
+            case RepoPathNode child ->
+            {
+                if (!child.name.equals(name)) return null;
+                this.children = null;
+                return child;
+            }
+            case RepoPathNode[] sortedChildren ->
+            {
+                int index = binarySearch(sortedChildren, name);
+                if (index < 0) return null;
+                RepoPathNode removedChild = sortedChildren[index];
+
+                // Shrink the array, or go back to a single child:
+                if (sortedChildren.length == 2)
+                {
+                    this.children = sortedChildren[1 - index];
+                }
+                else
+                {
+                    RepoPathNode[] newSortedChildren = new RepoPathNode[sortedChildren.length - 1];
+                    System.arraycopy(sortedChildren, 0, newSortedChildren, 0, index);
+                    System.arraycopy(sortedChildren, index + 1, newSortedChildren, index, sortedChildren.length - index - 1);
+                    this.children = newSortedChildren;
+                }
+                return removedChild;
+            }
+            case ByteIndexedChildren byteIndexedChildren ->
+            {
+                RepoPathNode removedChild = byteIndexedChildren.remove(name);
+                if (byteIndexedChildren.count == 0) this.children = null;
+                return removedChild;
+            }
+            case TreeMap<?, ?> childrenByName ->
+            {
+                RepoPathNode removedChild = (RepoPathNode) childrenByName.remove(name);
+                if (childrenByName.isEmpty()) this.children = null;
+                return removedChild;
+            }
+            default -> throw new IllegalStateException("Unexpected value: " + this.children);
+        }
+    }
+
+    /**
+     * Moves a full sorted array of children to a bigger container.
+     * Children that are all named by single byte characters (and emojis) go into {@link ByteIndexedChildren}, anything else goes into a {@link TreeMap}.
+     * @param sortedChildren The full array of children.
+     */
+    private void growChildren(RepoPathNode[] sortedChildren)
+    {
+        // Check whether all the children can be indexed by byte:
+        ByteIndexedChildren byteIndexedChildren = new ByteIndexedChildren();
+        for (RepoPathNode child : sortedChildren)
+        {
+            if (!byteIndexedChildren.put(child))
+            {
+                // Use a tree map for the children:
+                this.children = createTreeMap(List.of(sortedChildren));
+                return;
+            }
+        }
+        this.children = byteIndexedChildren;
+    }
+
+    /**
+     * Creates a tree map of the given children, indexed by name.
+     * @param children The children to put in the map.
+     * @return A tree map of the given children.
+     */
+    private static TreeMap<String, RepoPathNode> createTreeMap(List<RepoPathNode> children)
+    {
+        // NOTE: We want emoji's sorted at the top of the list of children.
+        TreeMap<String, RepoPathNode> childrenByName = new TreeMap<>(EmojiFirstComparator::compareTo);
+        for (RepoPathNode child : children)
+        {
+            childrenByName.put(child.name, child);
         }
         return childrenByName;
     }
 
+    /**
+     * Finds the child with the given name in the sorted array of children.
+     * @param sortedChildren The children, sorted by name.
+     * @param name           The name to search for.
+     * @return The index of the child if it was found, otherwise {@code -(insertionIndex + 1)}.
+     */
+    private static int binarySearch(RepoPathNode[] sortedChildren, String name)
+    {
+        int low = 0;
+        int high = sortedChildren.length - 1;
+        while (low <= high)
+        {
+            int middle = (low + high) >>> 1;
+            int comparison = EmojiFirstComparator.compareTo(sortedChildren[middle].name, name);
+            if (comparison < 0) low = middle + 1;
+            else if (comparison > 0) high = middle - 1;
+            else return middle;
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * The children of a byte trie level, where each child is named by a single byte character.
+     * Children named with emojis (like the content of the level) are kept in a small sorted array because they sort first.
+     */
+    private static final class ByteIndexedChildren
+    {
+        /**
+         * The children that are named by a single byte character, indexed by that character.
+         */
+        private final RepoPathNode[] childrenByChar = new RepoPathNode[256];
+
+        /**
+         * The children that are named with emojis, sorted by name.
+         */
+        private RepoPathNode[] emojiChildren = new RepoPathNode[0];
+
+        /**
+         * The number of children.
+         */
+        private int count;
+
+        /**
+         * Checks whether the name is a single byte character.
+         * @param name The name to check.
+         * @return True if the name is a single character that fits in a byte.
+         */
+        private static boolean isByteName(String name)
+        {
+            return name.length() == 1 && name.charAt(0) < 256;
+        }
+
+        /**
+         * Checks whether the name starts with an emoji.
+         * @param name The name to check.
+         * @return True if the name starts with an emoji.
+         */
+        private static boolean isEmojiName(String name)
+        {
+            return !name.isEmpty() && Character.isSurrogate(name.charAt(0));
+        }
+
+        /**
+         * Gets the child with the given name.
+         * @param name The name of the child.
+         * @return The child with the given name. Null if there is no child with that name.
+         */
+        private RepoPathNode get(String name)
+        {
+            if (isByteName(name)) return this.childrenByChar[name.charAt(0)];
+            int index = binarySearch(this.emojiChildren, name);
+            return index >= 0 ? this.emojiChildren[index] : null;
+        }
+
+        /**
+         * Gets the first child whose name is the same as or sorts after the given name.
+         * Emojis sort before the byte characters, so we only need to look at the emoji children for names that start with an emoji.
+         * @param name The name to search from.
+         * @return The first child whose name is the same as or sorts after the given name. Null if there is no such child.
+         */
+        private RepoPathNode ceiling(String name)
+        {
+            // Work out the first character that could be named at or after the given name:
+            int firstChar;
+            if (name.isEmpty() || isEmojiName(name))
+            {
+                // Check the emoji children first because they sort before every character:
+                int index = binarySearch(this.emojiChildren, name);
+                int ceilingIndex = index >= 0 ? index : -(index + 1);
+                if (ceilingIndex < this.emojiChildren.length) return this.emojiChildren[ceilingIndex];
+                firstChar = 0;
+            }
+            else
+            {
+                // A single character name matches its own child, but longer names sort after it:
+                char c = name.charAt(0);
+                firstChar = name.length() == 1 ? c : c + 1;
+            }
+
+            // Find the first child from that character:
+            for (int c = firstChar; c < this.childrenByChar.length; c++)
+            {
+                if (this.childrenByChar[c] != null) return this.childrenByChar[c];
+            }
+            return null;
+        }
+
+        /**
+         * Puts the given child, replacing any child with the same name.
+         * @param child The child to put.
+         * @return True if the child was put. False if its name can't be indexed by byte.
+         */
+        private boolean put(RepoPathNode child)
+        {
+            // Check whether the child is named by a byte:
+            if (isByteName(child.name))
+            {
+                char c = child.name.charAt(0);
+                if (this.childrenByChar[c] == null) this.count++;
+                this.childrenByChar[c] = child;
+                return true;
+            }
+
+            // Check whether the child is named with an emoji:
+            if (!isEmojiName(child.name)) return false;
+
+            // Insert the emoji child in order:
+            int index = binarySearch(this.emojiChildren, child.name);
+            if (index >= 0)
+            {
+                this.emojiChildren[index] = child;
+            }
+            else
+            {
+                int insertionIndex = -(index + 1);
+                RepoPathNode[] newEmojiChildren = new RepoPathNode[this.emojiChildren.length + 1];
+                System.arraycopy(this.emojiChildren, 0, newEmojiChildren, 0, insertionIndex);
+                newEmojiChildren[insertionIndex] = child;
+                System.arraycopy(this.emojiChildren, insertionIndex, newEmojiChildren, insertionIndex + 1, this.emojiChildren.length - insertionIndex);
+                this.emojiChildren = newEmojiChildren;
+                this.count++;
+            }
+            return true;
+        }
+
+        /**
+         * Removes the child with the given name.
+         * @param name The name of the child to remove.
+         * @return The child that was removed. Null if there was no child with that name.
+         */
+        private RepoPathNode remove(String name)
+        {
+            // Check whether the child is named by a byte:
+            if (isByteName(name))
+            {
+                RepoPathNode removedChild = this.childrenByChar[name.charAt(0)];
+                if (removedChild != null)
+                {
+                    this.childrenByChar[name.charAt(0)] = null;
+                    this.count--;
+                }
+                return removedChild;
+            }
+
+            // Remove the emoji child:
+            int index = binarySearch(this.emojiChildren, name);
+            if (index < 0) return null;
+            RepoPathNode removedChild = this.emojiChildren[index];
+            RepoPathNode[] newEmojiChildren = new RepoPathNode[this.emojiChildren.length - 1];
+            System.arraycopy(this.emojiChildren, 0, newEmojiChildren, 0, index);
+            System.arraycopy(this.emojiChildren, index + 1, newEmojiChildren, index, this.emojiChildren.length - index - 1);
+            this.emojiChildren = newEmojiChildren;
+            this.count--;
+            return removedChild;
+        }
+
+        /**
+         * Adds the children to the given list in sorted order: emojis first, then by character.
+         * @param list The list to add to.
+         */
+        private void addTo(List<RepoPathNode> list)
+        {
+            list.addAll(Arrays.asList(this.emojiChildren));
+            for (RepoPathNode child : this.childrenByChar)
+            {
+                if (child != null) list.add(child);
+            }
+        }
+    }
+
     @Override
     public String toString()
     {
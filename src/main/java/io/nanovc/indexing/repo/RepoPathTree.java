@@ -2,9 +2,7 @@ package io.nanovc.indexing.repo;
 
 import io.nanovc.RepoPath;
 
-import java.util.ArrayList;
-import java.util.Map;
-import java.util.NavigableMap;
+import java.util.List;
 import java.util.Scanner;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -48,8 +46,7 @@ public class RepoPathTree
             String pathName = scanner.next();
 
             // Check whether we have a child with this name:
-            NavigableMap<String, RepoPathNode> childrenByName = currenNode.getChildrenByName();
-            RepoPathNode child = childrenByName.get(pathName);
+            RepoPathNode child = currenNode.getChild(pathName);
             if (child == null)
             {
                 // We do not have a child with this name yet.
@@ -58,7 +55,7 @@ public class RepoPathTree
                 child = new RepoPathNode(currenNode, pathName);
 
                 // Index the child:
-                childrenByName.put(pathName, child);
+                currenNode.putChild(child);
             }
 
             // Move to the child node:
@@ -70,6 +67,28 @@ public class RepoPathTree
         return currenNode;
     }
 
+    /**
+     * Gets the node at the given repo path without adding it to the tree.
+     *
+     * @param path The repo path to get the node for.
+     * @return The node at that path in the tree. Null if the path is not in the tree.
+     */
+    public RepoPathNode getPath(RepoPath path)
+    {
+        // Make sure we have a path:
+        if (path == null || path.path == null) return null;
+
+        // Walk the tree for each part of the path:
+        RepoPathNode currentNode = this.rootNode;
+        for (String pathName : path.toAbsolutePath().splitIntoParts())
+        {
+            // Move to the child with this name:
+            currentNode = currentNode.getChild(pathName);
+            if (currentNode == null) return null;
+        }
+        return currentNode;
+    }
+
     /**
      * This either gets the existing child node or creates a new one if necessary.
      *
@@ -80,8 +99,7 @@ public class RepoPathTree
     public RepoPathNode getOrCreateChildNode(RepoPathNode nodeToAddTo, String childName)
     {
         // Check whether the node already has a child with this name:
-        NavigableMap<String, RepoPathNode> childrenByName = nodeToAddTo.getChildrenByName();
-        RepoPathNode childNode = childrenByName.get(childName);
+        RepoPathNode childNode = nodeToAddTo.getChild(childName);
         if (childNode == null)
         {
             // We do not have this child node yet.
@@ -90,7 +108,7 @@ public class RepoPathTree
             childNode = new RepoPathNode(nodeToAddTo, childName);
 
             // Index the child node:
-            childrenByName.put(childName, childNode);
+            nodeToAddTo.putChild(childNode);
         }
 
         // Return the child node:
@@ -107,9 +125,7 @@ public class RepoPathTree
     public RepoPathNode getChildNode(RepoPathNode nodeToQuery, String childName)
     {
         // Check whether the node already has a child with this name:
-        NavigableMap<String, RepoPathNode> childrenByName = nodeToQuery.getChildrenByName();
-        RepoPathNode childNode = childrenByName.get(childName);
-        return childNode;
+        return nodeToQuery.getChild(childName);
     }
 
     /**
@@ -128,8 +144,8 @@ public class RepoPathTree
         {
             // This node is not a leaf and it has children.
 
-            // Create a copy of the child nodes at this point (because children will remove from the actual collection as it iterates):
-            ArrayList<RepoPathNode> childrenSnapshot = new ArrayList<>(node.getChildrenByName().values());
+            // Get a copy of the child nodes at this point (because children will remove from the actual collection as it iterates):
+            List<RepoPathNode> childrenSnapshot = node.getChildren();
 
             // Go through the snapshot of children:
             for (RepoPathNode childNode : childrenSnapshot)
@@ -150,7 +166,7 @@ public class RepoPathTree
         RepoPathNode parent = node.getParent();
         if (parent != null)
         {
-            parent.getChildrenByName().remove(node.getName());
+            parent.removeChild(node.getName());
         }
     }
 
@@ -170,7 +186,7 @@ public class RepoPathTree
             // This node is not a leaf and it has children.
 
             // Go through the snapshot of children:
-            for (RepoPathNode childNode : node.getChildrenByName().values())
+            for (RepoPathNode childNode : node.getChildren())
             {
                 // Walk each child recursively:
                 iterateAndRemoveEachDescendant(childNode, nodeConsumer);
@@ -198,7 +214,7 @@ public class RepoPathTree
         if (parent != null)
         {
             // Remove the node from the parent:
-            parent.getChildrenByName().remove(nodeToRemoveFromParent.getName());
+            parent.removeChild(nodeToRemoveFromParent.getName());
         }
     }
 
@@ -233,7 +249,7 @@ public class RepoPathTree
             // Check whether there are any children and check those recursively:
             if (currentNode.hasChildren())
             {
-                for (RepoPathNode childNode : currentNode.getChildrenByName().values())
+                for (RepoPathNode childNode : currentNode.getChildren())
                 {
                     // Check if it matches:
                     boolean childMatches = hasAnySubContentThatMatches(childNode, filter);
@@ -316,19 +332,17 @@ public class RepoPathTree
             // The node has children.
 
             // Write each child:
-            NavigableMap<String, RepoPathNode> childrenByName = node.getChildrenByName();
-            for (Map.Entry<String, RepoPathNode> entry : childrenByName.entrySet())
+            List<RepoPathNode> children = node.getChildren();
+            for (int i = 0; i < children.size(); i++)
             {
-                // Get the values:
-                String childName = entry.getKey();
-                RepoPathNode childNode = entry.getValue();
+                // Get the child:
+                RepoPathNode childNode = children.get(i);
 
                 // Create a new line:
                 stringBuilder.append("\n");
 
                 // Check whether the child has another sibling:
-                String childSiblingName = childrenByName.higherKey(childName);
-                boolean hasChildSibling = childSiblingName != null;
+                boolean hasChildSibling = i < children.size() - 1;
 
                 // Create the new indent for this child:
                 String nextIndent = indent + (hasSibling ? "│   " : (isRootNode ? "" : "    "));
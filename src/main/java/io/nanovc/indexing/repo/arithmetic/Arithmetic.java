@@ -130,4 +130,32 @@ public abstract class Arithmetic<TUnit>
      * @return The distance between the two values.
      */
     public abstract TUnit distanceBetween(TUnit left, TUnit right);
+
+    /**
+     * Checks whether this arithmetic can estimate step indexes directly with {@link #estimateStepIndex(Object, Object, Object)}.
+     * This is used to locate values in uniformly split ranges without searching through every split.
+     *
+     * @return True if this arithmetic can estimate step indexes. False if it cannot, in which case callers need to search for the value instead.
+     */
+    public boolean canEstimateStepIndex()
+    {
+        return false;
+    }
+
+    /**
+     * Estimates how many whole steps of the given size fit between the origin and the value.
+     * result = floor((value - origin) / step)
+     * <p>
+     * This is used as a starting point for locating values in uniformly split ranges,
+     * so it does not need to be exact, but it should be within a step or two of the exact answer.
+     *
+     * @param origin The value that we are counting steps from.
+     * @param step   The size of each step.
+     * @param value  The value that we want to count the steps to.
+     * @return The estimated number of whole steps from the origin to the value. This is negative if the value is before the origin.
+     */
+    public int estimateStepIndex(TUnit origin, TUnit step, TUnit value)
+    {
+        throw new UnsupportedOperationException("This arithmetic cannot estimate step indexes");
+    }
 }
@@ -3,7 +3,7 @@ package io.nanovc.indexing.repo.arithmetic;
 /**
  * Arithmetic with {@link Double doubles}.
  */
-public class DoubleArithmetic extends Arithmetic<Double>
+public class DoubleArithmetic extends Arithmetic<Double> implements DoubleOps
 {
     /**
      * Compares the left value to the right value.
@@ -22,7 +22,7 @@ public class DoubleArithmetic extends Arithmetic<Double>
      */
     @Override public int compare(Double leftValue, Double rightValue)
     {
-        return Double.compare(leftValue, rightValue);
+        return compareDouble(leftValue, rightValue);
     }
 
     /**
@@ -35,7 +35,7 @@ public class DoubleArithmetic extends Arithmetic<Double>
      */
     @Override public Double add(Double leftValue, Double rightValue)
     {
-        return leftValue + rightValue;
+        return addDouble(leftValue, rightValue);
     }
 
     /**
@@ -48,7 +48,7 @@ public class DoubleArithmetic extends Arithmetic<Double>
      */
     @Override public Double subtract(Double leftValue, Double rightValue)
     {
-        return leftValue - rightValue;
+        return subtractDouble(leftValue, rightValue);
     }
 
     /**
@@ -111,7 +111,7 @@ public class DoubleArithmetic extends Arithmetic<Double>
      */
     @Override public Double midPoint(Double leftValue, Double rightValue)
     {
-        return (leftValue + rightValue) / 2.0;
+        return midPointDouble(leftValue, rightValue);
     }
 
     /**
@@ -161,10 +161,100 @@ public class DoubleArithmetic extends Arithmetic<Double>
      * @return The distance between the two values.
      */
     @Override public Double distanceBetween(Double left, Double right)
+    {
+        return distanceBetweenDouble(left, right);
+    }
+
+    /**
+     * Compares the left value to the right value without boxing.
+     *
+     * @param leftValue  The left value to compare.
+     * @param rightValue The right value to compare.
+     * @return A negative integer, zero, or a positive integer as the first argument is less than, equal to, or greater than the second.
+     */
+    @Override public int compareDouble(double leftValue, double rightValue)
+    {
+        return Double.compare(leftValue, rightValue);
+    }
+
+    /**
+     * Adds the two values without boxing.
+     * result = leftValue + rightValue
+     *
+     * @param leftValue  The left value to add.
+     * @param rightValue The right value to add.
+     * @return The result of adding the two values. result = leftValue + rightValue
+     */
+    @Override public double addDouble(double leftValue, double rightValue)
+    {
+        return leftValue + rightValue;
+    }
+
+    /**
+     * Subtracts the two values without boxing.
+     * result = leftValue - rightValue
+     *
+     * @param leftValue  The left value to subtract.
+     * @param rightValue The right value to subtract.
+     * @return The result of subtracting the two values. result = leftValue - rightValue
+     */
+    @Override public double subtractDouble(double leftValue, double rightValue)
+    {
+        return leftValue - rightValue;
+    }
+
+    /**
+     * Gets the midpoint between the two values without boxing.
+     *
+     * @param leftValue  The left value to get the midpoint between.
+     * @param rightValue The right value to get the midpoint between.
+     * @return The midpoint between the two values. result = (leftValue + rightValue) / 2
+     */
+    @Override public double midPointDouble(double leftValue, double rightValue)
+    {
+        return (leftValue + rightValue) / 2.0;
+    }
+
+    /**
+     * Gets the distance between the two values without boxing.
+     *
+     * @param left  The left value to measure between.
+     * @param right The right value to measure between.
+     * @return The distance between the two values.
+     */
+    @Override public double distanceBetweenDouble(double left, double right)
     {
         return Math.abs(left - right);
     }
 
+    /**
+     * Checks whether this arithmetic can estimate step indexes directly with {@link #estimateStepIndex}.
+     *
+     * @return True because we can divide {@link Double doubles} directly.
+     */
+    @Override public boolean canEstimateStepIndex()
+    {
+        return true;
+    }
+
+    /**
+     * Estimates how many whole steps of the given size fit between the origin and the value.
+     * result = floor((value - origin) / step)
+     *
+     * @param origin The value that we are counting steps from.
+     * @param step   The size of each step.
+     * @param value  The value that we want to count the steps to.
+     * @return The estimated number of whole steps from the origin to the value. This is negative if the value is before the origin.
+     */
+    @Override public int estimateStepIndex(Double origin, Double step, Double value)
+    {
+        // Work out the number of steps:
+        double steps = Math.floor((value - origin) / step);
+
+        // Clamp the steps so that it fits in an integer (NaN is treated as zero):
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, steps));
+    }
+
     /**
      * The singleton reusable instance.
      */
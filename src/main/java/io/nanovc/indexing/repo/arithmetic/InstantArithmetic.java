@@ -0,0 +1,305 @@
+package io.nanovc.indexing.repo.arithmetic;
+
+import java.time.Instant;
+
+/**
+ * Arithmetic with {@link Instant instants}.
+ * <p>
+ * Each instant is treated as the number of nanoseconds since the epoch,
+ * so this can represent instants between the years 1677 and 2262.
+ * Distances and step sizes are also instants, measured from the epoch.
+ * For example, a step size of one second is {@code Instant.ofEpochSecond(1)}.
+ */
+public class InstantArithmetic extends Arithmetic<Instant> implements LongOps<Instant>
+{
+    /**
+     * The number of nanoseconds in a second.
+     */
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    /**
+     * The arithmetic for the nanoseconds since the epoch.
+     */
+    private final LongArithmetic nanos = LongArithmetic.instance();
+
+    /**
+     * Compares the left value to the right value.
+     * <p>
+     * You can use it like this:
+     * compare(left, right) <  0 // for left <= right
+     * compare(left, right) <= 0 // for left <= right
+     * compare(left, right) == 0 // for left == right
+     * compare(left, right) != 0 // for left != right
+     * compare(left, right) >= 0 // for left >= right
+     * compare(left, right) >  0 // for left >  right
+     *
+     * @param leftValue  The left value to compare.
+     * @param rightValue The right value to compare.
+     * @return A negative integer, zero, or a positive integer as the first argument is less than, equal to, or greater than the second.
+     */
+    @Override public int compare(Instant leftValue, Instant rightValue)
+    {
+        return leftValue.compareTo(rightValue);
+    }
+
+    /**
+     * Adds the two values.
+     * result = leftValue + rightValue
+     *
+     * @param leftValue  The left value to add.
+     * @param rightValue The right value to add.
+     * @return The result of adding the two values. result = leftValue + rightValue
+     */
+    @Override public Instant add(Instant leftValue, Instant rightValue)
+    {
+        return fromLong(addLong(toLong(leftValue), toLong(rightValue)));
+    }
+
+    /**
+     * Subtracts the two values.
+     * result = leftValue - rightValue
+     *
+     * @param leftValue  The left value to subtract.
+     * @param rightValue The right value to subtract.
+     * @return The result of subtracting the two values. result = leftValue - rightValue
+     */
+    @Override public Instant subtract(Instant leftValue, Instant rightValue)
+    {
+        return fromLong(subtractLong(toLong(leftValue), toLong(rightValue)));
+    }
+
+    /**
+     * Multiplies the two values.
+     * result = leftValue * rightValue
+     *
+     * @param leftValue  The left value to multiply.
+     * @param rightValue The right value to multiply.
+     * @return The result of multiplying the two values. result = leftValue * rightValue
+     */
+    @Override public Instant multiply(Instant leftValue, Instant rightValue)
+    {
+        return fromLong(toLong(leftValue) * toLong(rightValue));
+    }
+
+    /**
+     * Divides the two values.
+     * result = leftValue / rightValue
+     *
+     * @param leftValue  The left value to divide.
+     * @param rightValue The right value to divide.
+     * @return The result of dividing the two values. result = leftValue / rightValue
+     */
+    @Override public Instant divide(Instant leftValue, Instant rightValue)
+    {
+        return fromLong(toLong(leftValue) / toLong(rightValue));
+    }
+
+    /**
+     * Halves the value.
+     * result = value / 2
+     *
+     * @param value The value to half.
+     * @return The result of halving the value. result = value / 2
+     */
+    @Override public Instant halveValue(Instant value)
+    {
+        return fromLong(toLong(value) >> 1);
+    }
+
+    /**
+     * Doubles the value.
+     * result = value * 2
+     *
+     * @param value The value to double.
+     * @return The result of doubling the value. result = value * 2
+     */
+    @Override public Instant doubleValue(Instant value)
+    {
+        return fromLong(toLong(value) << 1);
+    }
+
+    /**
+     * Gets the midpoint between the two values.
+     * result = (leftValue + rightValue) / 2 or mid(left,right), depending on the context.
+     *
+     * @param leftValue  The left value to get the midpoint between.
+     * @param rightValue The right value to get the midpoint between.
+     * @return The result of getting the midpoint between the two values. result = (leftValue + rightValue) / 2 or mid(left,right)
+     */
+    @Override public Instant midPoint(Instant leftValue, Instant rightValue)
+    {
+        return fromLong(midPointLong(toLong(leftValue), toLong(rightValue)));
+    }
+
+    /**
+     * Gets the scaled value.
+     * result = value * scale
+     *
+     * @param value The value to scale.
+     * @param scale The amount to scale by.
+     * @return The result of scaling the given value. result = value * scale
+     */
+    @Override public Instant scaleByMultiplier(Instant value, double scale)
+    {
+        return fromLong(this.nanos.scaleByMultiplier(toLong(value), scale));
+    }
+
+    /**
+     * Gets the scaled value.
+     * result = value / scale
+     *
+     * @param value The value to scale.
+     * @param scale The amount to scale by.
+     * @return The result of scaling the given value. result = value / scale
+     */
+    @Override public Instant scaleByDivisor(Instant value, double scale)
+    {
+        return fromLong(this.nanos.scaleByDivisor(toLong(value), scale));
+    }
+
+    /**
+     * Quantizes the value to the smallest steps size given.
+     * This is the same as rounding to multiples of a base unit.
+     *
+     * @param value        The value to quantize.
+     * @param smallestStep The smallest size to quantize at.
+     * @return The result of quantizing the value.
+     */
+    @Override public Instant quantize(Instant value, Instant smallestStep)
+    {
+        return fromLong(this.nanos.quantize(toLong(value), toLong(smallestStep)));
+    }
+
+    /**
+     * Gets the distance between the two values.
+     *
+     * @param left  The left value to measure between.
+     * @param right The right value to measure between.
+     * @return The distance between the two values, as an instant that far from the epoch.
+     */
+    @Override public Instant distanceBetween(Instant left, Instant right)
+    {
+        return fromLong(distanceBetweenLong(toLong(left), toLong(right)));
+    }
+
+    /**
+     * Checks whether this arithmetic can estimate step indexes directly with {@link #estimateStepIndex}.
+     *
+     * @return True because we can divide the nanoseconds directly.
+     */
+    @Override public boolean canEstimateStepIndex()
+    {
+        return true;
+    }
+
+    /**
+     * Estimates how many whole steps of the given size fit between the origin and the value.
+     * result = floor((value - origin) / step)
+     *
+     * @param origin The value that we are counting steps from.
+     * @param step   The size of each step.
+     * @param value  The value that we want to count the steps to.
+     * @return The estimated number of whole steps from the origin to the value. This is negative if the value is before the origin.
+     */
+    @Override public int estimateStepIndex(Instant origin, Instant step, Instant value)
+    {
+        return this.nanos.estimateStepIndex(toLong(origin), toLong(step), toLong(value));
+    }
+
+    /**
+     * Converts the instant to the number of nanoseconds since the epoch.
+     *
+     * @param value The instant to convert.
+     * @return The number of nanoseconds since the epoch.
+     * @throws ArithmeticException If the instant is too far from the epoch to fit in a long.
+     */
+    @Override public long toLong(Instant value)
+    {
+        return Math.addExact(Math.multiplyExact(value.getEpochSecond(), NANOS_PER_SECOND), value.getNano());
+    }
+
+    /**
+     * Converts the number of nanoseconds since the epoch to an instant.
+     *
+     * @param value The number of nanoseconds since the epoch.
+     * @return The instant.
+     */
+    @Override public Instant fromLong(long value)
+    {
+        return Instant.ofEpochSecond(Math.floorDiv(value, NANOS_PER_SECOND), Math.floorMod(value, NANOS_PER_SECOND));
+    }
+
+    /**
+     * Compares the left value to the right value without boxing.
+     *
+     * @param leftValue  The nanoseconds since the epoch of the left value to compare.
+     * @param rightValue The nanoseconds since the epoch of the right value to compare.
+     * @return A negative integer, zero, or a positive integer as the first argument is less than, equal to, or greater than the second.
+     */
+    @Override public int compareLong(long leftValue, long rightValue)
+    {
+        return this.nanos.compareLong(leftValue, rightValue);
+    }
+
+    /**
+     * Adds the two values without boxing.
+     *
+     * @param leftValue  The nanoseconds since the epoch of the left value to add.
+     * @param rightValue The nanoseconds since the epoch of the right value to add.
+     * @return The result of adding the two values.
+     */
+    @Override public long addLong(long leftValue, long rightValue)
+    {
+        return this.nanos.addLong(leftValue, rightValue);
+    }
+
+    /**
+     * Subtracts the two values without boxing.
+     *
+     * @param leftValue  The nanoseconds since the epoch of the left value to subtract.
+     * @param rightValue The nanoseconds since the epoch of the right value to subtract.
+     * @return The result of subtracting the two values.
+     */
+    @Override public long subtractLong(long leftValue, long rightValue)
+    {
+        return this.nanos.subtractLong(leftValue, rightValue);
+    }
+
+    /**
+     * Gets the midpoint between the two values without boxing.
+     *
+     * @param leftValue  The nanoseconds since the epoch of the left value to get the midpoint between.
+     * @param rightValue The nanoseconds since the epoch of the right value to get the midpoint between.
+     * @return The midpoint between the two values, rounded down.
+     */
+    @Override public long midPointLong(long leftValue, long rightValue)
+    {
+        return this.nanos.midPointLong(leftValue, rightValue);
+    }
+
+    /**
+     * Gets the distance between the two values without boxing.
+     *
+     * @param left  The nanoseconds since the epoch of the left value to measure between.
+     * @param right The nanoseconds since the epoch of the right value to measure between.
+     * @return The distance between the two values in nanoseconds.
+     */
+    @Override public long distanceBetweenLong(long left, long right)
+    {
+        return this.nanos.distanceBetweenLong(left, right);
+    }
+
+    /**
+     * The singleton reusable instance.
+     */
+    private final static InstantArithmetic instance = new InstantArithmetic();
+
+    /**
+     * The singleton reusable instance.
+     * @return The singleton reusable instance.
+     */
+    public static InstantArithmetic instance()
+    {
+        return instance;
+    }
+}
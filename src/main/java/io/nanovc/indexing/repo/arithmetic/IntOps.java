@@ -0,0 +1,64 @@
+package io.nanovc.indexing.repo.arithmetic;
+
+/**
+ * Arithmetic on primitive {@code int} values.
+ * <p>
+ * An {@link Arithmetic} for {@link Integer integers} implements this
+ * so that the {@link io.nanovc.indexing.repo.ranges.RangeCalculator range calculator} and the kd-tree can detect it
+ * and do their calculations without boxing every intermediate result.
+ * Each method must give the same answer as the corresponding boxed method of the {@link Arithmetic}.
+ */
+public interface IntOps
+{
+    /**
+     * Compares the left value to the right value.
+     *
+     * @param leftValue  The left value to compare.
+     * @param rightValue The right value to compare.
+     * @return A negative integer, zero, or a positive integer as the first argument is less than, equal to, or greater than the second.
+     * @see Arithmetic#compare
+     */
+    int compareInt(int leftValue, int rightValue);
+
+    /**
+     * Adds the two values.
+     * result = leftValue + rightValue
+     *
+     * @param leftValue  The left value to add.
+     * @param rightValue The right value to add.
+     * @return The result of adding the two values.
+     * @see Arithmetic#add
+     */
+    int addInt(int leftValue, int rightValue);
+
+    /**
+     * Subtracts the two values.
+     * result = leftValue - rightValue
+     *
+     * @param leftValue  The left value to subtract.
+     * @param rightValue The right value to subtract.
+     * @return The result of subtracting the two values.
+     * @see Arithmetic#subtract
+     */
+    int subtractInt(int leftValue, int rightValue);
+
+    /**
+     * Gets the midpoint between the two values.
+     *
+     * @param leftValue  The left value to get the midpoint between.
+     * @param rightValue The right value to get the midpoint between.
+     * @return The midpoint between the two values.
+     * @see Arithmetic#midPoint
+     */
+    int midPointInt(int leftValue, int rightValue);
+
+    /**
+     * Gets the distance between the two values.
+     *
+     * @param left  The left value to measure between.
+     * @param right The right value to measure between.
+     * @return The distance between the two values.
+     * @see Arithmetic#distanceBetween
+     */
+    int distanceBetweenInt(int left, int right);
+}
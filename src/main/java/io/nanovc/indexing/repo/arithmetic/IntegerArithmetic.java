@@ -3,7 +3,7 @@ package io.nanovc.indexing.repo.arithmetic;
 /**
  * Arithmetic with {@link Integer integers}.
  */
-public class IntegerArithmetic extends Arithmetic<Integer>
+public class IntegerArithmetic extends Arithmetic<Integer> implements IntOps
 {
     /**
      * Compares the left value to the right value.
@@ -22,7 +22,7 @@ public class IntegerArithmetic extends Arithmetic<Integer>
      */
     @Override public int compare(Integer leftValue, Integer rightValue)
     {
-        return Integer.compare(leftValue, rightValue);
+        return compareInt(leftValue, rightValue);
     }
 
     /**
@@ -35,7 +35,7 @@ public class IntegerArithmetic extends Arithmetic<Integer>
      */
     @Override public Integer add(Integer leftValue, Integer rightValue)
     {
-        return leftValue + rightValue;
+        return addInt(leftValue, rightValue);
     }
 
     /**
@@ -48,7 +48,7 @@ public class IntegerArithmetic extends Arithmetic<Integer>
      */
     @Override public Integer subtract(Integer leftValue, Integer rightValue)
     {
-        return leftValue - rightValue;
+        return subtractInt(leftValue, rightValue);
     }
 
     /**
@@ -111,7 +111,7 @@ public class IntegerArithmetic extends Arithmetic<Integer>
      */
     @Override public Integer midPoint(Integer leftValue, Integer rightValue)
     {
-        return (leftValue + rightValue) / 2;
+        return midPointInt(leftValue, rightValue);
     }
 
     /**
@@ -161,10 +161,100 @@ public class IntegerArithmetic extends Arithmetic<Integer>
      * @return The distance between the two values.
      */
     @Override public Integer distanceBetween(Integer left, Integer right)
+    {
+        return distanceBetweenInt(left, right);
+    }
+
+    /**
+     * Compares the left value to the right value without boxing.
+     *
+     * @param leftValue  The left value to compare.
+     * @param rightValue The right value to compare.
+     * @return A negative integer, zero, or a positive integer as the first argument is less than, equal to, or greater than the second.
+     */
+    @Override public int compareInt(int leftValue, int rightValue)
+    {
+        return Integer.compare(leftValue, rightValue);
+    }
+
+    /**
+     * Adds the two values without boxing.
+     * result = leftValue + rightValue
+     *
+     * @param leftValue  The left value to add.
+     * @param rightValue The right value to add.
+     * @return The result of adding the two values. result = leftValue + rightValue
+     */
+    @Override public int addInt(int leftValue, int rightValue)
+    {
+        return leftValue + rightValue;
+    }
+
+    /**
+     * Subtracts the two values without boxing.
+     * result = leftValue - rightValue
+     *
+     * @param leftValue  The left value to subtract.
+     * @param rightValue The right value to subtract.
+     * @return The result of subtracting the two values. result = leftValue - rightValue
+     */
+    @Override public int subtractInt(int leftValue, int rightValue)
+    {
+        return leftValue - rightValue;
+    }
+
+    /**
+     * Gets the midpoint between the two values without boxing.
+     *
+     * @param leftValue  The left value to get the midpoint between.
+     * @param rightValue The right value to get the midpoint between.
+     * @return The midpoint between the two values. result = (leftValue + rightValue) / 2
+     */
+    @Override public int midPointInt(int leftValue, int rightValue)
+    {
+        return (leftValue + rightValue) / 2;
+    }
+
+    /**
+     * Gets the distance between the two values without boxing.
+     *
+     * @param left  The left value to measure between.
+     * @param right The right value to measure between.
+     * @return The distance between the two values.
+     */
+    @Override public int distanceBetweenInt(int left, int right)
     {
         return Math.abs(left - right);
     }
 
+    /**
+     * Checks whether this arithmetic can estimate step indexes directly with {@link #estimateStepIndex}.
+     *
+     * @return True because we can divide {@link Integer integers} directly.
+     */
+    @Override public boolean canEstimateStepIndex()
+    {
+        return true;
+    }
+
+    /**
+     * Estimates how many whole steps of the given size fit between the origin and the value.
+     * result = floor((value - origin) / step)
+     *
+     * @param origin The value that we are counting steps from.
+     * @param step   The size of each step.
+     * @param value  The value that we want to count the steps to.
+     * @return The estimated number of whole steps from the origin to the value. This is negative if the value is before the origin.
+     */
+    @Override public int estimateStepIndex(Integer origin, Integer step, Integer value)
+    {
+        // Work out the number of steps:
+        long steps = Math.floorDiv((long) value - (long) origin, (long) step);
+
+        // Clamp the steps so that it fits in an integer:
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, steps));
+    }
+
     /**
      * The singleton reusable instance.
      */
@@ -0,0 +1,295 @@
+package io.nanovc.indexing.repo.arithmetic;
+
+/**
+ * Arithmetic with {@link Long longs}.
+ */
+public class LongArithmetic extends Arithmetic<Long> implements LongOps<Long>
+{
+    /**
+     * Compares the left value to the right value.
+     * <p>
+     * You can use it like this:
+     * compare(left, right) <  0 // for left <= right
+     * compare(left, right) <= 0 // for left <= right
+     * compare(left, right) == 0 // for left == right
+     * compare(left, right) != 0 // for left != right
+     * compare(left, right) >= 0 // for left >= right
+     * compare(left, right) >  0 // for left >  right
+     *
+     * @param leftValue  The left value to compare.
+     * @param rightValue The right value to compare.
+     * @return A negative integer, zero, or a positive integer as the first argument is less than, equal to, or greater than the second.
+     */
+    @Override public int compare(Long leftValue, Long rightValue)
+    {
+        return compareLong(leftValue, rightValue);
+    }
+
+    /**
+     * Adds the two values.
+     * result = leftValue + rightValue
+     *
+     * @param leftValue  The left value to add.
+     * @param rightValue The right value to add.
+     * @return The result of adding the two values. result = leftValue + rightValue
+     */
+    @Override public Long add(Long leftValue, Long rightValue)
+    {
+        return addLong(leftValue, rightValue);
+    }
+
+    /**
+     * Subtracts the two values.
+     * result = leftValue - rightValue
+     *
+     * @param leftValue  The left value to subtract.
+     * @param rightValue The right value to subtract.
+     * @return The result of subtracting the two values. result = leftValue - rightValue
+     */
+    @Override public Long subtract(Long leftValue, Long rightValue)
+    {
+        return subtractLong(leftValue, rightValue);
+    }
+
+    /**
+     * Multiplies the two values.
+     * result = leftValue * rightValue
+     *
+     * @param leftValue  The left value to multiply.
+     * @param rightValue The right value to multiply.
+     * @return The result of multiplying the two values. result = leftValue * rightValue
+     */
+    @Override public Long multiply(Long leftValue, Long rightValue)
+    {
+        return leftValue * rightValue;
+    }
+
+    /**
+     * Divides the two values.
+     * result = leftValue / rightValue
+     *
+     * @param leftValue  The left value to divide.
+     * @param rightValue The right value to divide.
+     * @return The result of dividing the two values. result = leftValue / rightValue
+     */
+    @Override public Long divide(Long leftValue, Long rightValue)
+    {
+        return leftValue / rightValue;
+    }
+
+    /**
+     * Halves the value.
+     * result = value / 2
+     *
+     * @param value The value to half.
+     * @return The result of halving the value. result = value / 2
+     */
+    @Override public Long halveValue(Long value)
+    {
+        return value >> 1;
+    }
+
+    /**
+     * Doubles the value.
+     * result = value * 2
+     *
+     * @param value The value to double.
+     * @return The result of doubling the value. result = value * 2
+     */
+    @Override public Long doubleValue(Long value)
+    {
+        return value << 1;
+    }
+
+    /**
+     * Gets the midpoint between the two values.
+     * result = (leftValue + rightValue) / 2 or mid(left,right), depending on the context.
+     *
+     * @param leftValue  The left value to get the midpoint between.
+     * @param rightValue The right value to get the midpoint between.
+     * @return The result of getting the midpoint between the two values. result = (leftValue + rightValue) / 2 or mid(left,right)
+     */
+    @Override public Long midPoint(Long leftValue, Long rightValue)
+    {
+        return midPointLong(leftValue, rightValue);
+    }
+
+    /**
+     * Gets the scaled value.
+     * result = value * scale
+     *
+     * @param value The value to scale.
+     * @param scale The amount to scale by.
+     * @return The result of scaling the given value. result = value * scale
+     */
+    @Override public Long scaleByMultiplier(Long value, double scale)
+    {
+        return (long) (value * scale);
+    }
+
+    /**
+     * Gets the scaled value.
+     * result = value / scale
+     *
+     * @param value The value to scale.
+     * @param scale The amount to scale by.
+     * @return The result of scaling the given value. result = value / scale
+     */
+    @Override public Long scaleByDivisor(Long value, double scale)
+    {
+        return (long) (value / scale);
+    }
+
+    /**
+     * Quantizes the value to the smallest steps size given.
+     * This is the same as rounding to multiples of a base unit.
+     *
+     * @param value        The value to quantize.
+     * @param smallestStep The smallest size to quantize at.
+     * @return The result of quantizing the value.
+     */
+    @Override public Long quantize(Long value, Long smallestStep)
+    {
+        // Round to the nearest multiple of the step without going through doubles (which can't hold every long exactly):
+        return Math.floorDiv(value + smallestStep / 2, smallestStep) * smallestStep;
+    }
+
+    /**
+     * Gets the distance between the two values.
+     *
+     * @param left  The left value to measure between.
+     * @param right The right value to measure between.
+     * @return The distance between the two values.
+     */
+    @Override public Long distanceBetween(Long left, Long right)
+    {
+        return distanceBetweenLong(left, right);
+    }
+
+    /**
+     * Converts the value to its primitive representation.
+     *
+     * @param value The value to convert.
+     * @return The primitive value.
+     */
+    @Override public long toLong(Long value)
+    {
+        return value;
+    }
+
+    /**
+     * Converts the primitive representation back to a value.
+     *
+     * @param value The primitive value.
+     * @return The boxed value.
+     */
+    @Override public Long fromLong(long value)
+    {
+        return value;
+    }
+
+    /**
+     * Compares the left value to the right value without boxing.
+     *
+     * @param leftValue  The left value to compare.
+     * @param rightValue The right value to compare.
+     * @return A negative integer, zero, or a positive integer as the first argument is less than, equal to, or greater than the second.
+     */
+    @Override public int compareLong(long leftValue, long rightValue)
+    {
+        return Long.compare(leftValue, rightValue);
+    }
+
+    /**
+     * Adds the two values without boxing.
+     * result = leftValue + rightValue
+     *
+     * @param leftValue  The left value to add.
+     * @param rightValue The right value to add.
+     * @return The result of adding the two values. result = leftValue + rightValue
+     */
+    @Override public long addLong(long leftValue, long rightValue)
+    {
+        return leftValue + rightValue;
+    }
+
+    /**
+     * Subtracts the two values without boxing.
+     * result = leftValue - rightValue
+     *
+     * @param leftValue  The left value to subtract.
+     * @param rightValue The right value to subtract.
+     * @return The result of subtracting the two values. result = leftValue - rightValue
+     */
+    @Override public long subtractLong(long leftValue, long rightValue)
+    {
+        return leftValue - rightValue;
+    }
+
+    /**
+     * Gets the midpoint between the two values without boxing.
+     *
+     * @param leftValue  The left value to get the midpoint between.
+     * @param rightValue The right value to get the midpoint between.
+     * @return The midpoint between the two values, rounded down. result = floor((leftValue + rightValue) / 2)
+     */
+    @Override public long midPointLong(long leftValue, long rightValue)
+    {
+        // Average the values without overflowing, since longs are often large (like nanoseconds since the epoch):
+        return (leftValue & rightValue) + ((leftValue ^ rightValue) >> 1);
+    }
+
+    /**
+     * Gets the distance between the two values without boxing.
+     *
+     * @param left  The left value to measure between.
+     * @param right The right value to measure between.
+     * @return The distance between the two values.
+     */
+    @Override public long distanceBetweenLong(long left, long right)
+    {
+        return Math.abs(left - right);
+    }
+
+    /**
+     * Checks whether this arithmetic can estimate step indexes directly with {@link #estimateStepIndex}.
+     *
+     * @return True because we can divide {@link Long longs} directly.
+     */
+    @Override public boolean canEstimateStepIndex()
+    {
+        return true;
+    }
+
+    /**
+     * Estimates how many whole steps of the given size fit between the origin and the value.
+     * result = floor((value - origin) / step)
+     *
+     * @param origin The value that we are counting steps from.
+     * @param step   The size of each step.
+     * @param value  The value that we want to count the steps to.
+     * @return The estimated number of whole steps from the origin to the value. This is negative if the value is before the origin.
+     */
+    @Override public int estimateStepIndex(Long origin, Long step, Long value)
+    {
+        // Work out the number of steps:
+        long steps = Math.floorDiv(value - origin, step);
+
+        // Clamp the steps so that it fits in an integer:
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, steps));
+    }
+
+    /**
+     * The singleton reusable instance.
+     */
+    private final static LongArithmetic instance = new LongArithmetic();
+
+    /**
+     * The singleton reusable instance.
+     * @return The singleton reusable instance.
+     */
+    public static LongArithmetic instance()
+    {
+        return instance;
+    }
+}
@@ -0,0 +1,83 @@
+package io.nanovc.indexing.repo.arithmetic;
+
+/**
+ * Arithmetic on primitive {@code long} values.
+ * <p>
+ * An {@link Arithmetic} whose units can be represented exactly as a {@code long} implements this
+ * so that the {@link io.nanovc.indexing.repo.ranges.RangeCalculator range calculator} and the kd-tree can detect it
+ * and do their calculations without boxing every intermediate result.
+ * {@link LongArithmetic} uses the values directly and {@link InstantArithmetic} uses nanoseconds since the epoch.
+ * Each method must give the same answer as the corresponding method of the {@link Arithmetic} on the converted values.
+ *
+ * @param <TUnit> The data type of the unit for the dimension that this arithmetic is for.
+ */
+public interface LongOps<TUnit>
+{
+    /**
+     * Converts the value to its primitive representation.
+     *
+     * @param value The value to convert.
+     * @return The primitive representation of the value.
+     */
+    long toLong(TUnit value);
+
+    /**
+     * Converts the primitive representation back to a value.
+     *
+     * @param value The primitive representation of the value.
+     * @return The value.
+     */
+    TUnit fromLong(long value);
+
+    /**
+     * Compares the left value to the right value.
+     *
+     * @param leftValue  The left value to compare.
+     * @param rightValue The right value to compare.
+     * @return A negative integer, zero, or a positive integer as the first argument is less than, equal to, or greater than the second.
+     * @see Arithmetic#compare
+     */
+    int compareLong(long leftValue, long rightValue);
+
+    /**
+     * Adds the two values.
+     * result = leftValue + rightValue
+     *
+     * @param leftValue  The left value to add.
+     * @param rightValue The right value to add.
+     * @return The result of adding the two values.
+     * @see Arithmetic#add
+     */
+    long addLong(long leftValue, long rightValue);
+
+    /**
+     * Subtracts the two values.
+     * result = leftValue - rightValue
+     *
+     * @param leftValue  The left value to subtract.
+     * @param rightValue The right value to subtract.
+     * @return The result of subtracting the two values.
+     * @see Arithmetic#subtract
+     */
+    long subtractLong(long leftValue, long rightValue);
+
+    /**
+     * Gets the midpoint between the two values.
+     *
+     * @param leftValue  The left value to get the midpoint between.
+     * @param rightValue The right value to get the midpoint between.
+     * @return The midpoint between the two values.
+     * @see Arithmetic#midPoint
+     */
+    long midPointLong(long leftValue, long rightValue);
+
+    /**
+     * Gets the distance between the two values.
+     *
+     * @param left  The left value to measure between.
+     * @param right The right value to measure between.
+     * @return The distance between the two values.
+     * @see Arithmetic#distanceBetween
+     */
+    long distanceBetweenLong(long left, long right);
+}
@@ -2,9 +2,87 @@ package io.nanovc.indexing.repo.arithmetic;
 
 /**
  * Arithmetic with {@link String strings}.
+ * <p>
+ * Strings are compared lexicographically, but to split ranges of strings we need to add, subtract and halve them.
+ * We do this by projecting the first few characters of each string onto a fixed-length, big-endian, base-N number,
+ * where N is the number of characters in the alphabet between {@link #getMinChar()} and {@link #getMaxChar()}.
+ * The {@link #getPrefixLength() prefix length} is as many characters as fit in a long.
+ * <p>
+ * The projection never reverses the order of two strings, so midpoints and split values always fall between the strings that they came from.
+ * Strings that only differ after the prefix project to the same number,
+ * so a range between them can't be split any further.
+ * Quantizing to a step of {@link #stepForPrefixLength(int)} rounds strings to a shorter prefix.
+ * <p>
+ * Characters below the alphabet are treated as the end of the string and characters above the alphabet as the end of the alphabet,
+ * which keeps the projection in order for any string.
+ * Results are strings of characters in the alphabet, without trailing {@link #getMinChar() minimum characters}.
+ * Results that would fall before the empty string or past the end of the alphabet saturate there.
+ * The default alphabet is '0' to 'z', which covers digits, letters and '_' but not '/',
+ * because split values become part of repo paths.
  */
 public class StringArithmetic extends Arithmetic<String>
 {
+    /**
+     * The smallest character in the alphabet.
+     */
+    private final char minChar;
+
+    /**
+     * The largest character in the alphabet.
+     */
+    private final char maxChar;
+
+    /**
+     * The number of characters in the alphabet.
+     * This is the base of the projection.
+     */
+    private final long base;
+
+    /**
+     * The number of characters at the start of each string that we project.
+     */
+    private final int prefixLength;
+
+    /**
+     * The largest value of the projection, which is the maximum character repeated for the whole prefix.
+     */
+    private final long maxProjection;
+
+    /**
+     * Creates string arithmetic for the default alphabet of '0' to 'z'.
+     */
+    public StringArithmetic()
+    {
+        this('0', 'z');
+    }
+
+    /**
+     * Creates string arithmetic for the alphabet of characters between the given characters (inclusive).
+     *
+     * @param minChar The smallest character in the alphabet.
+     * @param maxChar The largest character in the alphabet.
+     */
+    public StringArithmetic(char minChar, char maxChar)
+    {
+        // Make sure the alphabet has at least two characters:
+        if (maxChar <= minChar) throw new IllegalArgumentException("The alphabet needs at least two characters but it was from '" + minChar + "' to '" + maxChar + "'");
+
+        this.minChar = minChar;
+        this.maxChar = maxChar;
+        this.base = (long) maxChar - minChar + 1;
+
+        // Work out how many characters fit in a long:
+        int length = 0;
+        long projection = 0;
+        while (projection <= (Long.MAX_VALUE - (this.base - 1)) / this.base)
+        {
+            projection = projection * this.base + (this.base - 1);
+            length++;
+        }
+        this.prefixLength = length;
+        this.maxProjection = projection;
+    }
+
     /**
      * Compares the left value to the right value.
      * <p>
@@ -35,7 +113,9 @@ public class StringArithmetic extends Arithmetic<String>
      */
     @Override public String add(String leftValue, String rightValue)
     {
-        return leftValue + rightValue;
+        // Add the projections, saturating at the end of the alphabet if they overflow:
+        long sum = project(leftValue) + project(rightValue);
+        return unprojectClamped(sum < 0 ? Long.MAX_VALUE : sum);
     }
 
     /**
@@ -48,7 +128,7 @@ public class StringArithmetic extends Arithmetic<String>
      */
     @Override public String subtract(String leftValue, String rightValue)
     {
-        throw new UnsupportedOperationException("Cannot subtract strings");
+        return unprojectClamped(project(leftValue) - project(rightValue));
     }
 
     /**
@@ -61,7 +141,10 @@ public class StringArithmetic extends Arithmetic<String>
      */
     @Override public String multiply(String leftValue, String rightValue)
     {
-        throw new UnsupportedOperationException("Cannot multiply strings");
+        // Multiply the projections, saturating at the end of the alphabet if they overflow:
+        long left = project(leftValue);
+        long right = project(rightValue);
+        return unprojectClamped(Math.multiplyHigh(left, right) != 0 || left * right < 0 ? Long.MAX_VALUE : left * right);
     }
 
     /**
@@ -74,7 +157,7 @@ public class StringArithmetic extends Arithmetic<String>
      */
     @Override public String divide(String leftValue, String rightValue)
     {
-        throw new UnsupportedOperationException("Cannot divide strings");
+        return unproject(project(leftValue) / project(rightValue));
     }
 
     /**
@@ -87,7 +170,9 @@ public class StringArithmetic extends Arithmetic<String>
      */
     @Override public String midPoint(String leftValue, String rightValue)
     {
-        throw new UnsupportedOperationException("Cannot find midpoint of strings");
+        long left = project(leftValue);
+        long right = project(rightValue);
+        return unproject((left & right) + ((left ^ right) >> 1));
     }
 
     /**
@@ -99,7 +184,7 @@ public class StringArithmetic extends Arithmetic<String>
      */
     @Override public String halveValue(String value)
     {
-        return value.substring(0, value.length() / 2);
+        return unproject(project(value) >> 1);
     }
 
     /**
@@ -111,7 +196,7 @@ public class StringArithmetic extends Arithmetic<String>
      */
     @Override public String doubleValue(String value)
     {
-        return value + value;
+        return unprojectClamped(project(value) > this.maxProjection / 2 ? Long.MAX_VALUE : project(value) << 1);
     }
 
     /**
@@ -124,7 +209,7 @@ public class StringArithmetic extends Arithmetic<String>
      */
     @Override public String scaleByMultiplier(String value, double scale)
     {
-        throw new UnsupportedOperationException("Cannot scale strings by multiplication");
+        return unprojectClamped((long) (project(value) * scale));
     }
 
     /**
@@ -137,12 +222,13 @@ public class StringArithmetic extends Arithmetic<String>
      */
     @Override public String scaleByDivisor(String value, double scale)
     {
-        throw new UnsupportedOperationException("Cannot scale strings by division");
+        return unprojectClamped((long) (project(value) / scale));
     }
 
     /**
      * Quantizes the value to the smallest steps size given.
      * This is the same as rounding to multiples of a base unit.
+     * Use {@link #stepForPrefixLength(int)} to round to a shorter prefix.
      *
      * @param value        The value to quantize.
      * @param smallestStep The smallest size to quantize at.
@@ -150,7 +236,14 @@ public class StringArithmetic extends Arithmetic<String>
      */
     @Override public String quantize(String value, String smallestStep)
     {
-        throw new UnsupportedOperationException("Cannot quantize strings");
+        // Round to the nearest multiple of the step:
+        long step = project(smallestStep);
+        long projection = project(value);
+        long quantized = Math.floorDiv(projection + step / 2, step) * step;
+
+        // Round down instead if rounding up goes past the end of the alphabet:
+        if (quantized > this.maxProjection) quantized -= step;
+        return unproject(quantized);
     }
 
     /**
@@ -162,7 +255,163 @@ public class StringArithmetic extends Arithmetic<String>
      */
     @Override public String distanceBetween(String left, String right)
     {
-        throw new UnsupportedOperationException("Cannot measure distance between strings");
+        return unproject(Math.abs(project(left) - project(right)));
+    }
+
+    /**
+     * Checks whether this arithmetic can estimate step indexes directly with {@link #estimateStepIndex}.
+     *
+     * @return True because we can divide the projections of the strings directly.
+     */
+    @Override public boolean canEstimateStepIndex()
+    {
+        return true;
+    }
+
+    /**
+     * Estimates how many whole steps of the given size fit between the origin and the value.
+     * result = floor((value - origin) / step)
+     *
+     * @param origin The value that we are counting steps from.
+     * @param step   The size of each step.
+     * @param value  The value that we want to count the steps to.
+     * @return The estimated number of whole steps from the origin to the value. This is negative if the value is before the origin.
+     */
+    @Override public int estimateStepIndex(String origin, String step, String value)
+    {
+        // Work out the number of steps:
+        long steps = Math.floorDiv(project(value) - project(origin), project(step));
+
+        // Clamp the steps so that it fits in an integer:
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, steps));
+    }
+
+    /**
+     * Projects the prefix of the string onto a big-endian, base-N number.
+     * This never reverses the order of two strings: if left &lt; right then project(left) &lt;= project(right).
+     *
+     * @param value The string to project.
+     * @return The projection of the prefix of the string.
+     */
+    public long project(String value)
+    {
+        // Add a digit for each character in the prefix:
+        long projection = 0;
+        int index = 0;
+        for (; index < this.prefixLength && index < value.length(); index++)
+        {
+            // Get the character:
+            char c = value.charAt(index);
+
+            // Check whether the character is below the alphabet, in which case we treat it as the end of the string:
+            if (c < this.minChar) break;
+
+            // Check whether the character is above the alphabet, in which case we treat the rest of the prefix as the end of the alphabet:
+            if (c > this.maxChar)
+            {
+                for (; index < this.prefixLength; index++) projection = projection * this.base + (this.base - 1);
+                return projection;
+            }
+
+            // Add the digit for this character:
+            projection = projection * this.base + (c - this.minChar);
+        }
+
+        // Pad the rest of the prefix with the minimum character:
+        for (; index < this.prefixLength; index++) projection = projection * this.base;
+        return projection;
+    }
+
+    /**
+     * Gets the shortest string with the given projection.
+     *
+     * @param projection The projection to get the string for.
+     * @return The shortest string with the given projection.
+     * @throws ArithmeticException If the projection is negative or past the end of the alphabet.
+     */
+    public String unproject(long projection)
+    {
+        // Make sure the projection is for a string:
+        if (projection < 0 || projection > this.maxProjection)
+        {
+            throw new ArithmeticException("The projection " + projection + " is outside the strings from '' to '" + unproject(this.maxProjection) + "'");
+        }
+
+        // Work out the characters from the least significant digit:
+        char[] chars = new char[this.prefixLength];
+        for (int index = this.prefixLength - 1; index >= 0; index--)
+        {
+            chars[index] = (char) (this.minChar + projection % this.base);
+            projection /= this.base;
+        }
+
+        // Remove the trailing minimum characters because they don't change the projection:
+        int length = this.prefixLength;
+        while (length > 0 && chars[length - 1] == this.minChar) length--;
+        return new String(chars, 0, length);
+    }
+
+    /**
+     * Gets the shortest string with the given projection,
+     * saturating at the empty string and at the end of the alphabet if the projection is outside the strings that we can represent.
+     *
+     * @param projection The projection to get the string for.
+     * @return The shortest string with the given projection, after clamping it.
+     */
+    private String unprojectClamped(long projection)
+    {
+        return unproject(Math.clamp(projection, 0, this.maxProjection));
+    }
+
+    /**
+     * Gets the step that {@link #quantize quantizes} strings to the given prefix length.
+     * This is also useful as the smallest division step size for a string dimension.
+     *
+     * @param prefixLength The number of characters to keep. This must be between 1 and {@link #getPrefixLength()}.
+     * @return The step for the given prefix length.
+     */
+    public String stepForPrefixLength(int prefixLength)
+    {
+        // Make sure the prefix length is one that we can project:
+        if (prefixLength < 1 || prefixLength > this.prefixLength)
+        {
+            throw new IllegalArgumentException("The prefix length must be between 1 and " + this.prefixLength + " but it was " + prefixLength);
+        }
+
+        // The step is one unit of the last character in the prefix:
+        long step = 1;
+        for (int index = prefixLength; index < this.prefixLength; index++) step *= this.base;
+        return unproject(step);
+    }
+
+    /**
+     * Gets the smallest character in the alphabet.
+     *
+     * @return The smallest character in the alphabet.
+     */
+    public char getMinChar()
+    {
+        return minChar;
+    }
+
+    /**
+     * Gets the largest character in the alphabet.
+     *
+     * @return The largest character in the alphabet.
+     */
+    public char getMaxChar()
+    {
+        return maxChar;
+    }
+
+    /**
+     * Gets the number of characters at the start of each string that we project.
+     *
+     * @return The number of characters at the start of each string that we project.
+     */
+    public int getPrefixLength()
+    {
+        return prefixLength;
     }
 
     /**
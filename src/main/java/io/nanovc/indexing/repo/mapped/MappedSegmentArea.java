@@ -0,0 +1,320 @@
+package io.nanovc.indexing.repo.mapped;
+
+import io.nanovc.AreaAPI;
+import io.nanovc.AreaEntry;
+import io.nanovc.ContentAPI;
+import io.nanovc.RepoPath;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * A content area that keeps the bytes of its content in an append-only {@link MappedSegmentFile}.
+ * <p>
+ * Only the table of paths to content slices is kept on the heap.
+ * Putting content appends its bytes to the segment, and removing or replacing content only marks the old bytes as dead.
+ * Once enough of the segment is dead, the live content is copied into a fresh segment and the old one is deleted.
+ * <p>
+ * Content that was removed from the area before a compaction keeps pointing at the old mapping,
+ * which stays readable until that content is garbage collected.
+ */
+public class MappedSegmentArea implements AreaAPI<MappedSegmentContent>, AutoCloseable
+{
+    /**
+     * The default number of bytes to map for a new segment.
+     */
+    public static final int DEFAULT_INITIAL_CAPACITY = 4 * 1024;
+
+    /**
+     * The default fraction of the segment that must be dead before we compact it.
+     */
+    public static final double DEFAULT_COMPACTION_DEAD_BYTE_RATIO = 0.5;
+
+    /**
+     * The default number of dead bytes that there must be before we compact a segment.
+     * This stops us from compacting small segments over and over.
+     */
+    public static final int DEFAULT_COMPACTION_MIN_DEAD_BYTES = 64 * 1024;
+
+    /**
+     * The directory where the segment files are created.
+     */
+    private final Path directory;
+
+    /**
+     * The number of bytes to map for a new segment.
+     */
+    private final int initialCapacity;
+
+    /**
+     * The content in this area, indexed by absolute path.
+     */
+    private final Map<String, MappedSegmentContent> contentByPath = new LinkedHashMap<>();
+
+    /**
+     * The segment where the bytes of the content are appended.
+     */
+    private MappedSegmentFile segmentFile;
+
+    /**
+     * The fraction of the segment that must be dead before we compact it.
+     */
+    private double compactionDeadByteRatio = DEFAULT_COMPACTION_DEAD_BYTE_RATIO;
+
+    /**
+     * The number of dead bytes that there must be before we compact the segment.
+     */
+    private int compactionMinDeadBytes = DEFAULT_COMPACTION_MIN_DEAD_BYTES;
+
+    /**
+     * The number of times that the segment was compacted.
+     */
+    private int compactionCount;
+
+    /**
+     * Creates a new area with segment files in the given directory.
+     *
+     * @param directory The directory where the segment files are created.
+     */
+    public MappedSegmentArea(Path directory)
+    {
+        this(directory, DEFAULT_INITIAL_CAPACITY);
+    }
+
+    /**
+     * Creates a new area with segment files in the given directory.
+     *
+     * @param directory       The directory where the segment files are created.
+     * @param initialCapacity The number of bytes to map for a new segment. The mapping grows as necessary.
+     */
+    public MappedSegmentArea(Path directory, int initialCapacity)
+    {
+        this.directory = directory;
+        this.initialCapacity = initialCapacity;
+        this.segmentFile = new MappedSegmentFile(directory, initialCapacity);
+    }
+
+    /**
+     * Gets the absolute path that we index content with.
+     *
+     * @param path The path to get the key for.
+     * @return The absolute path for the content.
+     */
+    private static String getKey(RepoPath path)
+    {
+        return path.toAbsolutePath().path;
+    }
+
+    @Override public boolean hasAnyContent()
+    {
+        return !this.contentByPath.isEmpty();
+    }
+
+    @Override public boolean hasContent(RepoPath path)
+    {
+        return this.contentByPath.containsKey(getKey(path));
+    }
+
+    @Override public void putContent(RepoPath path, MappedSegmentContent content)
+    {
+        // Append the bytes to the segment:
+        ByteBuffer bytes = content.asByteBuffer();
+        int offset = this.segmentFile.append(bytes);
+
+        // Check whether the content is already stored in a segment:
+        MappedSegmentContent storedContent;
+        if (content.isStoredInSegment())
+        {
+            // The content already belongs to another path, so store a copy of it for this path:
+            storedContent = new MappedSegmentContent(this.segmentFile, offset, bytes.remaining());
+        }
+        else
+        {
+            // Move the new content to the segment so that its heap copy can be collected:
+            content.moveToSegment(this.segmentFile, offset);
+            storedContent = content;
+        }
+
+        // Index the content, releasing any content that it replaces:
+        MappedSegmentContent previousContent = this.contentByPath.put(getKey(path), storedContent);
+        if (previousContent != null) release(previousContent);
+    }
+
+    @Override public MappedSegmentContent getContent(RepoPath path)
+    {
+        return this.contentByPath.get(getKey(path));
+    }
+
+    @Override public void removeContent(RepoPath path)
+    {
+        MappedSegmentContent removedContent = this.contentByPath.remove(getKey(path));
+        if (removedContent != null) release(removedContent);
+    }
+
+    @Override public void replaceAllContent(Stream<AreaEntry<MappedSegmentContent>> contentToReplace)
+    {
+        // Collect the new content first in case it comes from this area:
+        List<AreaEntry<MappedSegmentContent>> entries = contentToReplace.toList();
+
+        // Start a fresh segment for the new content:
+        clear();
+        for (AreaEntry<MappedSegmentContent> entry : entries)
+        {
+            putContent(entry.path, entry.content);
+        }
+    }
+
+    @Override public Stream<AreaEntry<ContentAPI>> getContentStream()
+    {
+        return this.contentByPath.entrySet().stream().map(entry -> new AreaEntry<>(RepoPath.at(entry.getKey()), entry.getValue()));
+    }
+
+    @Override public Stream<AreaEntry<MappedSegmentContent>> getTypedContentStream()
+    {
+        return this.contentByPath.entrySet().stream().map(entry -> new AreaEntry<>(RepoPath.at(entry.getKey()), entry.getValue()));
+    }
+
+    @Override public Iterator<AreaEntry<MappedSegmentContent>> iterator()
+    {
+        return getTypedContentStream().iterator();
+    }
+
+    @Override public void clear()
+    {
+        // Drop the content:
+        this.contentByPath.clear();
+
+        // Start a fresh segment:
+        this.segmentFile.close();
+        this.segmentFile = new MappedSegmentFile(this.directory, this.initialCapacity);
+    }
+
+    /**
+     * Releases the bytes of content that is no longer in this area and compacts the segment if enough of it is dead.
+     *
+     * @param content The content that is no longer in this area.
+     */
+    private void release(MappedSegmentContent content)
+    {
+        // Only count the bytes if they are in the current segment (and not one that was compacted away):
+        if (content.segmentFile == this.segmentFile) this.segmentFile.release(content.getLength());
+
+        // Check whether it is worth compacting the segment:
+        long deadByteCount = this.segmentFile.getDeadByteCount();
+        if (deadByteCount >= this.compactionMinDeadBytes && deadByteCount >= this.segmentFile.getSize() * this.compactionDeadByteRatio)
+        {
+            compact();
+        }
+    }
+
+    /**
+     * Copies the live content into a fresh segment and deletes the old segment.
+     */
+    public void compact()
+    {
+        // Create the new segment with enough space for the live content:
+        MappedSegmentFile oldSegmentFile = this.segmentFile;
+        MappedSegmentFile newSegmentFile = new MappedSegmentFile(this.directory, (int) Math.max(this.initialCapacity, oldSegmentFile.getLiveByteCount()));
+
+        // Copy each piece of live content:
+        for (MappedSegmentContent content : this.contentByPath.values())
+        {
+            int offset = newSegmentFile.append(content.asByteBuffer());
+            content.moveToSegment(newSegmentFile, offset);
+        }
+
+        // Switch to the new segment:
+        this.segmentFile = newSegmentFile;
+        oldSegmentFile.close();
+        this.compactionCount++;
+    }
+
+    /**
+     * Closes the segment of this area and deletes the file.
+     * The area must not be used after it is closed.
+     */
+    @Override public void close()
+    {
+        this.segmentFile.close();
+    }
+
+    /**
+     * Gets the segment where the bytes of the content are appended.
+     *
+     * @return The current segment of this area.
+     */
+    public MappedSegmentFile getSegmentFile()
+    {
+        return segmentFile;
+    }
+
+    /**
+     * Gets the number of pieces of content in this area.
+     *
+     * @return The number of pieces of content in this area.
+     */
+    public int size()
+    {
+        return this.contentByPath.size();
+    }
+
+    /**
+     * Gets the number of times that the segment was compacted.
+     *
+     * @return The number of times that the segment was compacted.
+     */
+    public int getCompactionCount()
+    {
+        return compactionCount;
+    }
+
+    /**
+     * Gets the fraction of the segment that must be dead before we compact it.
+     *
+     * @return The fraction of the segment that must be dead before we compact it.
+     */
+    public double getCompactionDeadByteRatio()
+    {
+        return compactionDeadByteRatio;
+    }
+
+    /**
+     * Sets the fraction of the segment that must be dead before we compact it.
+     *
+     * @param compactionDeadByteRatio The fraction of the segment that must be dead before we compact it.
+     */
+    public void setCompactionDeadByteRatio(double compactionDeadByteRatio)
+    {
+        this.compactionDeadByteRatio = compactionDeadByteRatio;
+    }
+
+    /**
+     * Gets the number of dead bytes that there must be before we compact the segment.
+     *
+     * @return The number of dead bytes that there must be before we compact the segment.
+     */
+    public int getCompactionMinDeadBytes()
+    {
+        return compactionMinDeadBytes;
+    }
+
+    /**
+     * Sets the number of dead bytes that there must be before we compact the segment.
+     *
+     * @param compactionMinDeadBytes The number of dead bytes that there must be before we compact the segment.
+     */
+    public void setCompactionMinDeadBytes(int compactionMinDeadBytes)
+    {
+        this.compactionMinDeadBytes = compactionMinDeadBytes;
+    }
+
+    @Override public String toString()
+    {
+        return asListString();
+    }
+}
@@ -0,0 +1,155 @@
+package io.nanovc.indexing.repo.mapped;
+
+import io.nanovc.ContentBase;
+import io.nanovc.content.ContentWithByteBufferAPI;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Content that is kept in a {@link MappedSegmentFile} once it is put into a {@link MappedSegmentArea}.
+ * <p>
+ * New content starts off holding its bytes on the heap.
+ * When it is put into an area, the bytes are appended to the segment of the area
+ * and the content is moved to point at a slice of the mapping instead, so the heap copy can be collected.
+ * {@link #asByteBuffer()} gives a read-only view of the bytes without copying them,
+ * which is what bucket scans should use to read items.
+ */
+public class MappedSegmentContent extends ContentBase implements ContentWithByteBufferAPI
+{
+    /**
+     * The bytes of the content.
+     * This is either a heap buffer for new content or a read-only slice of a segment mapping for stored content.
+     */
+    private ByteBuffer bytes;
+
+    /**
+     * The segment that the content is stored in. Null if the content has not been stored yet.
+     */
+    MappedSegmentFile segmentFile;
+
+    /**
+     * Creates new content with the given bytes.
+     * The bytes are not copied, so they must not be changed afterwards.
+     *
+     * @param bytes The bytes of the content.
+     */
+    public MappedSegmentContent(byte[] bytes)
+    {
+        this.bytes = ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+    }
+
+    /**
+     * Creates new content with the UTF-8 bytes of the given value.
+     *
+     * @param value The value of the content.
+     */
+    public MappedSegmentContent(String value)
+    {
+        this(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Creates content for bytes that were already written to a segment.
+     *
+     * @param segmentFile The segment that the bytes were written to.
+     * @param offset      The offset in the segment where the bytes were written.
+     * @param length      The number of bytes in the content.
+     */
+    MappedSegmentContent(MappedSegmentFile segmentFile, int offset, int length)
+    {
+        this.bytes = segmentFile.slice(offset, length);
+        this.segmentFile = segmentFile;
+    }
+
+    /**
+     * Moves the content to a slice of the given segment, dropping the heap copy of the bytes.
+     *
+     * @param segmentFile The segment that the bytes were written to.
+     * @param offset      The offset in the segment where the bytes were written.
+     */
+    void moveToSegment(MappedSegmentFile segmentFile, int offset)
+    {
+        this.bytes = segmentFile.slice(offset, this.bytes.remaining());
+        this.segmentFile = segmentFile;
+    }
+
+    /**
+     * Checks whether this content has been stored in a segment.
+     *
+     * @return True if the bytes of this content are in a segment. False if they are still on the heap.
+     */
+    public boolean isStoredInSegment()
+    {
+        return this.segmentFile != null;
+    }
+
+    /**
+     * Gets the number of bytes in the content.
+     *
+     * @return The number of bytes in the content.
+     */
+    public int getLength()
+    {
+        return this.bytes.remaining();
+    }
+
+    /**
+     * Gets the content as a UTF-8 string.
+     *
+     * @return The content decoded as a UTF-8 string.
+     */
+    public String asString()
+    {
+        return StandardCharsets.UTF_8.decode(asByteBuffer()).toString();
+    }
+
+    /**
+     * Gets a read-only view of the bytes of the content without copying them.
+     *
+     * @return A read-only view of the bytes of the content.
+     */
+    @Override public ByteBuffer asByteBuffer()
+    {
+        return this.bytes.duplicate();
+    }
+
+    @Override public ByteBuffer getEfficientByteBuffer()
+    {
+        return asByteBuffer();
+    }
+
+    @Override public byte[] cloneContentAsByteArray()
+    {
+        byte[] clone = new byte[this.bytes.remaining()];
+        this.bytes.get(this.bytes.position(), clone);
+        return clone;
+    }
+
+    @Override public List<Byte> cloneContentAsByteList()
+    {
+        List<Byte> byteList = new ArrayList<>(this.bytes.remaining());
+        for (int i = this.bytes.position(); i < this.bytes.limit(); i++) byteList.add(this.bytes.get(i));
+        return byteList;
+    }
+
+    @Override public ByteBuffer cloneContentAsByteBuffer()
+    {
+        return ByteBuffer.wrap(cloneContentAsByteArray());
+    }
+
+    @Override public Stream<Byte> cloneContentAsByteStream()
+    {
+        ByteBuffer view = asByteBuffer();
+        return IntStream.range(view.position(), view.limit()).mapToObj(view::get);
+    }
+
+    @Override public String toString()
+    {
+        return asString();
+    }
+}
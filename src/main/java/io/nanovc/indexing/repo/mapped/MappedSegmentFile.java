@@ -0,0 +1,252 @@
+package io.nanovc.indexing.repo.mapped;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An append-only segment file that is accessed through a memory mapping.
+ * <p>
+ * Content is appended to the end of the segment and read back as slices of the mapping,
+ * so the bytes live in the page cache instead of on the GC heap.
+ * Bytes are never overwritten. When content is released, its bytes are only counted as dead
+ * so that the owner can decide when it is worth {@link MappedSegmentArea#compact() compacting} into a new segment.
+ * <p>
+ * The mapping doubles in size as the segment grows.
+ * Slices that were handed out from a previous mapping stay valid because they map the same file.
+ * The file is deleted when the segment is {@link #close() closed} or when it becomes unreachable.
+ * Slices that are still referenced after that keep their mapping alive until they are garbage collected.
+ */
+public class MappedSegmentFile implements AutoCloseable
+{
+    /**
+     * The cleaner that deletes segment files that were never closed explicitly.
+     */
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    /**
+     * The largest segment that we support, since a single mapping is indexed with an int.
+     */
+    public static final int MAX_SEGMENT_SIZE = Integer.MAX_VALUE - 8;
+
+    /**
+     * The path of the segment file.
+     */
+    private final Path path;
+
+    /**
+     * The state that needs to be cleaned up when the segment is closed.
+     */
+    private final SegmentResources resources;
+
+    /**
+     * The registration with the cleaner so that we can clean up explicitly.
+     */
+    private final Cleaner.Cleanable cleanable;
+
+    /**
+     * The current mapping of the segment file.
+     */
+    private MappedByteBuffer mapping;
+
+    /**
+     * The position in the segment where the next content will be appended.
+     */
+    private int writePosition;
+
+    /**
+     * The number of bytes in the segment that belong to content that was released.
+     */
+    private long deadByteCount;
+
+    /**
+     * Creates a new segment file in the given directory.
+     *
+     * @param directory       The directory to create the segment file in.
+     * @param initialCapacity The number of bytes to map initially. The mapping grows as necessary.
+     */
+    public MappedSegmentFile(Path directory, int initialCapacity)
+    {
+        if (initialCapacity < 1) throw new IllegalArgumentException("The initial capacity of a segment must be at least one byte but was " + initialCapacity);
+        try
+        {
+            // Create the file:
+            Files.createDirectories(directory);
+            this.path = Files.createTempFile(directory, "segment-", ".bin");
+
+            // Open the file:
+            FileChannel channel = FileChannel.open(this.path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.resources = new SegmentResources(this.path, channel);
+            this.cleanable = CLEANER.register(this, this.resources);
+
+            // Map the file:
+            this.mapping = channel.map(FileChannel.MapMode.READ_WRITE, 0, initialCapacity);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Could not create a segment file in " + directory, e);
+        }
+    }
+
+    /**
+     * Appends the remaining bytes of the given buffer to the end of the segment.
+     * The position of the buffer is not changed.
+     *
+     * @param bytes The bytes to append.
+     * @return The offset in the segment where the bytes were written.
+     */
+    public int append(ByteBuffer bytes)
+    {
+        // Get the length of the content:
+        int length = bytes.remaining();
+
+        // Make sure there is space in the mapping:
+        ensureCapacity((long) this.writePosition + length);
+
+        // Write the bytes:
+        int offset = this.writePosition;
+        this.mapping.put(offset, bytes, bytes.position(), length);
+        this.writePosition += length;
+        return offset;
+    }
+
+    /**
+     * Gets a read-only slice of the segment without copying the bytes.
+     *
+     * @param offset The offset in the segment where the bytes start.
+     * @param length The number of bytes in the slice.
+     * @return A read-only view of the bytes in the segment.
+     */
+    public ByteBuffer slice(int offset, int length)
+    {
+        if (offset < 0 || length < 0 || offset + length > this.writePosition) throw new IllegalArgumentException("The slice [" + offset + ", " + (offset + length) + ") is outside the " + this.writePosition + " bytes written to the segment");
+        return this.mapping.slice(offset, length).asReadOnlyBuffer();
+    }
+
+    /**
+     * Marks bytes in the segment as dead because the content that they belong to was released.
+     *
+     * @param length The number of bytes that were released.
+     */
+    public void release(int length)
+    {
+        this.deadByteCount += length;
+    }
+
+    /**
+     * Makes sure that the mapping can hold the given number of bytes, doubling it if necessary.
+     *
+     * @param requiredCapacity The number of bytes that the mapping must be able to hold.
+     */
+    private void ensureCapacity(long requiredCapacity)
+    {
+        // Check whether we already have enough space:
+        int capacity = this.mapping.capacity();
+        if (requiredCapacity <= capacity) return;
+
+        // Check whether the segment can hold this much:
+        if (requiredCapacity > MAX_SEGMENT_SIZE) throw new IllegalStateException("The segment " + this.path + " cannot grow beyond " + MAX_SEGMENT_SIZE + " bytes");
+
+        // Work out the new capacity:
+        long newCapacity = capacity;
+        while (newCapacity < requiredCapacity) newCapacity *= 2;
+        newCapacity = Math.min(newCapacity, MAX_SEGMENT_SIZE);
+
+        // Remap the file:
+        try
+        {
+            this.mapping = this.resources.channel.map(FileChannel.MapMode.READ_WRITE, 0, newCapacity);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Could not grow the segment " + this.path + " to " + newCapacity + " bytes", e);
+        }
+    }
+
+    /**
+     * Gets the path of the segment file.
+     *
+     * @return The path of the segment file.
+     */
+    public Path getPath()
+    {
+        return path;
+    }
+
+    /**
+     * Gets the number of bytes that have been appended to the segment.
+     *
+     * @return The number of bytes that have been appended to the segment.
+     */
+    public int getSize()
+    {
+        return writePosition;
+    }
+
+    /**
+     * Gets the number of bytes in the segment that belong to content that was released.
+     *
+     * @return The number of dead bytes in the segment.
+     */
+    public long getDeadByteCount()
+    {
+        return deadByteCount;
+    }
+
+    /**
+     * Gets the number of bytes in the segment that belong to content that is still in use.
+     *
+     * @return The number of live bytes in the segment.
+     */
+    public long getLiveByteCount()
+    {
+        return writePosition - deadByteCount;
+    }
+
+    /**
+     * Closes the segment and deletes the file.
+     */
+    @Override public void close()
+    {
+        this.cleanable.clean();
+    }
+
+    @Override public String toString()
+    {
+        return "MappedSegmentFile{" +
+               "path=" + path +
+               ", size=" + writePosition +
+               ", dead=" + deadByteCount +
+               '}';
+    }
+
+    /**
+     * The resources of a segment file that need to be released when it is closed.
+     * This must not refer back to the segment so that the segment can become unreachable.
+     *
+     * @param path    The path of the segment file.
+     * @param channel The channel that the segment file is mapped through.
+     */
+    private record SegmentResources(Path path, FileChannel channel) implements Runnable
+    {
+        @Override public void run()
+        {
+            try
+            {
+                // Existing mappings stay valid after the channel is closed and the file is deleted:
+                this.channel.close();
+                Files.deleteIfExists(this.path);
+            }
+            catch (IOException e)
+            {
+                // The file is in a temporary location, so leave it for the operating system to clean up.
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package io.nanovc.indexing.repo.mapped;
+
+import io.nanovc.memory.MemoryRepoHandler;
+
+import java.nio.file.Path;
+
+/**
+ * A repo handler whose content areas keep their bytes in memory-mapped {@link MappedSegmentFile segment files}.
+ * <p>
+ * The repo indexes do all of their reads and writes against the content areas of their divisions and cells,
+ * so those areas are {@link MappedSegmentArea mapped segment areas} and item content is read straight out of the mapping.
+ * <p>
+ * Commits are still recorded by the memory repo engine, which copies the content of each committed area into heap byte arrays
+ * for the snapshot of the commit. This handler therefore only reduces heap use for the working areas that hold the
+ * uncommitted state of the index. The working areas keep their content in the segments after a commit,
+ * but every commit holds its own heap copy of the content that it recorded.
+ */
+public class MappedSegmentRepoHandler extends MemoryRepoHandler<MappedSegmentContent, MappedSegmentArea>
+{
+    /**
+     * The directory where the segment files of the content areas are created.
+     */
+    private final Path directory;
+
+    /**
+     * Creates a repo handler with the segment files of its content areas in the given directory.
+     *
+     * @param directory The directory where the segment files of the content areas are created.
+     */
+    public MappedSegmentRepoHandler(Path directory)
+    {
+        this(directory, MappedSegmentArea.DEFAULT_INITIAL_CAPACITY);
+    }
+
+    /**
+     * Creates a repo handler with the segment files of its content areas in the given directory.
+     *
+     * @param directory              The directory where the segment files of the content areas are created.
+     * @param initialSegmentCapacity The number of bytes to map for each new segment. The mapping grows as necessary.
+     */
+    public MappedSegmentRepoHandler(Path directory, int initialSegmentCapacity)
+    {
+        super(MappedSegmentContent::new, () -> new MappedSegmentArea(directory, initialSegmentCapacity));
+        this.directory = directory;
+    }
+
+    /**
+     * Gets the directory where the segment files of the content areas are created.
+     *
+     * @return The directory where the segment files of the content areas are created.
+     */
+    public Path getDirectory()
+    {
+        return directory;
+    }
+}
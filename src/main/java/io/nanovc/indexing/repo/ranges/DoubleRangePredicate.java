@@ -0,0 +1,30 @@
+package io.nanovc.indexing.repo.ranges;
+
+/**
+ * A {@link RangePredicate} for {@link Double doubles} that compares primitive values.
+ *
+ * @see RangeCalculator#compile(Range)
+ */
+@FunctionalInterface
+public interface DoubleRangePredicate extends RangePredicate<Double>
+{
+    /**
+     * Checks whether the given value is in the range.
+     * Values are compared with {@link io.nanovc.indexing.repo.arithmetic.DoubleOps#compareDouble}.
+     *
+     * @param value The value to check whether it is in the range.
+     * @return True if the value is in the range. False if not.
+     */
+    boolean isInRange(double value);
+
+    /**
+     * Checks whether the given value is in the range.
+     *
+     * @param value The value to check whether it is in the range.
+     * @return True if the value is in the range. False if not.
+     */
+    @Override default boolean isInRange(Double value)
+    {
+        return isInRange(value.doubleValue());
+    }
+}
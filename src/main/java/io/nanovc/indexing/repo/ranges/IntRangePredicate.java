@@ -0,0 +1,29 @@
+package io.nanovc.indexing.repo.ranges;
+
+/**
+ * A {@link RangePredicate} for {@link Integer integers} that compares primitive values.
+ *
+ * @see RangeCalculator#compile(Range)
+ */
+@FunctionalInterface
+public interface IntRangePredicate extends RangePredicate<Integer>
+{
+    /**
+     * Checks whether the given value is in the range.
+     *
+     * @param value The value to check whether it is in the range.
+     * @return True if the value is in the range. False if not.
+     */
+    boolean isInRange(int value);
+
+    /**
+     * Checks whether the given value is in the range.
+     *
+     * @param value The value to check whether it is in the range.
+     * @return True if the value is in the range. False if not.
+     */
+    @Override default boolean isInRange(Integer value)
+    {
+        return isInRange(value.intValue());
+    }
+}
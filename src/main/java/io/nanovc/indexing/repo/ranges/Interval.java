@@ -0,0 +1,15 @@
+package io.nanovc.indexing.repo.ranges;
+
+/**
+ * A contiguous interval of values.
+ * Any {@link Range} can be normalized into a sorted list of disjoint intervals so that ranges can be related to each other.
+ *
+ * @param min          The lower bound of the interval. Null if the interval is unbounded below.
+ * @param minInclusive True if the lower bound is in the interval. False if it is excluded.
+ * @param max          The upper bound of the interval. Null if the interval is unbounded above.
+ * @param maxInclusive True if the upper bound is in the interval. False if it is excluded.
+ * @param <TUnit>      The data type of the unit for the dimension that the interval is for.
+ */
+record Interval<TUnit>(TUnit min, boolean minInclusive, TUnit max, boolean maxInclusive)
+{
+}
@@ -0,0 +1,31 @@
+package io.nanovc.indexing.repo.ranges;
+
+/**
+ * A {@link RangePredicate} for {@link Long longs} that compares primitive values.
+ * This is also used for units that {@link io.nanovc.indexing.repo.arithmetic.LongOps#toLong convert} to longs, like instants.
+ *
+ * @see RangeCalculator#compile(Range)
+ */
+@FunctionalInterface
+public interface LongRangePredicate extends RangePredicate<Long>
+{
+    /**
+     * Checks whether the given value is in the range.
+     * Values are compared with {@link io.nanovc.indexing.repo.arithmetic.LongOps#compareLong}.
+     *
+     * @param value The value to check whether it is in the range.
+     * @return True if the value is in the range. False if not.
+     */
+    boolean isInRange(long value);
+
+    /**
+     * Checks whether the given value is in the range.
+     *
+     * @param value The value to check whether it is in the range.
+     * @return True if the value is in the range. False if not.
+     */
+    @Override default boolean isInRange(Long value)
+    {
+        return isInRange(value.longValue());
+    }
+}
@@ -1,9 +1,16 @@
 package io.nanovc.indexing.repo.ranges;
 
 import io.nanovc.indexing.repo.arithmetic.Arithmetic;
+import io.nanovc.indexing.repo.arithmetic.DoubleOps;
+import io.nanovc.indexing.repo.arithmetic.IntOps;
+import io.nanovc.indexing.repo.arithmetic.LongArithmetic;
+import io.nanovc.indexing.repo.arithmetic.LongOps;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Performs calculations on ranges of values.
@@ -17,9 +24,33 @@ public class RangeCalculator<TUnit>
      */
     private final Arithmetic<TUnit> arithmetic;
 
+    /**
+     * The primitive arithmetic for {@code double} values if the {@link #arithmetic} supports it.
+     * Null if it does not.
+     */
+    private final DoubleOps doubleOps;
+
+    /**
+     * The primitive arithmetic for {@code int} values if the {@link #arithmetic} supports it.
+     * Null if it does not.
+     */
+    private final IntOps intOps;
+
+    /**
+     * The primitive arithmetic for {@code long} values if the {@link #arithmetic} supports it.
+     * Null if it does not.
+     */
+    private final LongOps<TUnit> longOps;
+
     public RangeCalculator(Arithmetic<TUnit> arithmetic)
     {
         this.arithmetic = arithmetic;
+
+        // Detect whether the arithmetic can work with primitive values so that we can avoid boxing:
+        this.doubleOps = arithmetic instanceof DoubleOps ops ? ops : null;
+        this.intOps = arithmetic instanceof IntOps ops ? ops : null;
+        //noinspection unchecked
+        this.longOps = arithmetic instanceof LongOps<?> ops ? (LongOps<TUnit>) ops : null;
     }
 
     /**
@@ -57,6 +88,453 @@ public class RangeCalculator<TUnit>
         };
     }
 
+    /**
+     * Compiles the range into a predicate that checks values against the range without dispatching on the type of range each time.
+     * This is useful for ranges that get checked many times, like the range splits of a dimension or of a kd-tree node.
+     * <p>
+     * If the arithmetic implements {@link DoubleOps}, {@link IntOps} or {@link LongOps} then the predicate compares primitive values
+     * ({@link DoubleRangePredicate}, {@link IntRangePredicate} or {@link LongRangePredicate}).
+     * Multi-value ranges are compiled into a hashed set (or a sorted primitive array for primitive predicates).
+     *
+     * @param range The range to compile.
+     * @return A predicate that gives the same answer as {@link #isInRange(Object, Range)} for the range.
+     */
+    public RangePredicate<TUnit> compile(Range<TUnit> range)
+    {
+        // Check whether we can compare primitive values:
+        if (this.doubleOps != null)
+        {
+            //noinspection unchecked
+            return (RangePredicate<TUnit>) compileDouble((Range<Double>) range, this.doubleOps);
+        }
+        if (this.intOps != null)
+        {
+            //noinspection unchecked
+            return (RangePredicate<TUnit>) compileInt((Range<Integer>) range, this.intOps);
+        }
+        if (this.longOps != null)
+        {
+            // Compile the range of longs:
+            LongOps<TUnit> longOps = this.longOps;
+            LongRangePredicate predicate = compileLong(range, longOps);
+
+            // Longs can be checked directly but other units need to be converted to longs first:
+            //noinspection unchecked
+            return this.arithmetic instanceof LongArithmetic ? (RangePredicate<TUnit>) predicate : value -> predicate.isInRange(longOps.toLong(value));
+        }
+
+        // Get the arithmetic to compare with:
+        Arithmetic<TUnit> arithmetic = this.arithmetic;
+        return switch (range)
+        {
+            case NotRange<TUnit> r ->
+            {
+                RangePredicate<TUnit> inner = compile(r.innerRange());
+                yield value -> !inner.isInRange(value);
+            }
+            case OrRange<TUnit> r ->
+            {
+                RangePredicate<TUnit> left = compile(r.range());
+                RangePredicate<TUnit> right = compile(r.other());
+                yield value -> left.isInRange(value) || right.isInRange(value);
+            }
+            case AndRange<TUnit> r ->
+            {
+                RangePredicate<TUnit> left = compile(r.range());
+                RangePredicate<TUnit> right = compile(r.other());
+                yield value -> left.isInRange(value) && right.isInRange(value);
+            }
+            case UnBoundedRange<TUnit> r -> value -> true;
+            case NeverInRange<TUnit> r -> value -> false;
+            case SingleValueRange<TUnit> r ->
+            {
+                TUnit expected = r.value();
+                yield value -> arithmetic.compare(expected, value) == 0;
+            }
+            case NotSingleValueRange<TUnit> r ->
+            {
+                TUnit expected = r.value();
+                yield value -> arithmetic.compare(expected, value) != 0;
+            }
+            case MultiValueRange<TUnit> r ->
+            {
+                Set<TUnit> values = new HashSet<>(r.values());
+                yield values::contains;
+            }
+            case NotMultiValueRange<TUnit> r ->
+            {
+                Set<TUnit> values = new HashSet<>(r.values());
+                yield value -> !values.contains(value);
+            }
+            case MinInclusiveRange<TUnit> r ->
+            {
+                TUnit min = r.min();
+                yield value -> arithmetic.compare(min, value) <= 0;
+            }
+            case MinExclusiveRange<TUnit> r ->
+            {
+                TUnit min = r.min();
+                yield value -> arithmetic.compare(min, value) < 0;
+            }
+            case MaxInclusiveRange<TUnit> r ->
+            {
+                TUnit max = r.max();
+                yield value -> arithmetic.compare(value, max) <= 0;
+            }
+            case MaxExclusiveRange<TUnit> r ->
+            {
+                TUnit max = r.max();
+                yield value -> arithmetic.compare(value, max) < 0;
+            }
+            case MinInclusiveMaxInclusiveRange<TUnit> r ->
+            {
+                TUnit min = r.min();
+                TUnit max = r.max();
+                yield value -> arithmetic.compare(value, min) >= 0 && arithmetic.compare(value, max) <= 0;
+            }
+            case MinInclusiveMaxExclusiveRange<TUnit> r ->
+            {
+                TUnit min = r.min();
+                TUnit max = r.max();
+                yield value -> arithmetic.compare(value, min) >= 0 && arithmetic.compare(value, max) < 0;
+            }
+            case MinExclusiveMaxInclusiveRange<TUnit> r ->
+            {
+                TUnit min = r.min();
+                TUnit max = r.max();
+                yield value -> arithmetic.compare(value, min) > 0 && arithmetic.compare(value, max) <= 0;
+            }
+            case MinExclusiveMaxExclusiveRange<TUnit> r ->
+            {
+                TUnit min = r.min();
+                TUnit max = r.max();
+                yield value -> arithmetic.compare(value, min) > 0 && arithmetic.compare(value, max) < 0;
+            }
+        };
+    }
+
+    /**
+     * Compiles the range of doubles into a predicate that compares primitive values.
+     *
+     * @param range The range to compile.
+     * @param ops   The primitive arithmetic to compare values with.
+     * @return A predicate for the range.
+     */
+    private static DoubleRangePredicate compileDouble(Range<Double> range, DoubleOps ops)
+    {
+        return switch (range)
+        {
+            case NotRange<Double> r ->
+            {
+                DoubleRangePredicate inner = compileDouble(r.innerRange(), ops);
+                yield value -> !inner.isInRange(value);
+            }
+            case OrRange<Double> r ->
+            {
+                DoubleRangePredicate left = compileDouble(r.range(), ops);
+                DoubleRangePredicate right = compileDouble(r.other(), ops);
+                yield value -> left.isInRange(value) || right.isInRange(value);
+            }
+            case AndRange<Double> r ->
+            {
+                DoubleRangePredicate left = compileDouble(r.range(), ops);
+                DoubleRangePredicate right = compileDouble(r.other(), ops);
+                yield value -> left.isInRange(value) && right.isInRange(value);
+            }
+            case UnBoundedRange<Double> r -> value -> true;
+            case NeverInRange<Double> r -> value -> false;
+            case SingleValueRange<Double> r ->
+            {
+                double expected = r.value();
+                yield value -> ops.compareDouble(expected, value) == 0;
+            }
+            case NotSingleValueRange<Double> r ->
+            {
+                double expected = r.value();
+                yield value -> ops.compareDouble(expected, value) != 0;
+            }
+            case MultiValueRange<Double> r ->
+            {
+                double[] values = toSortedDoubles(r.values());
+                yield value -> Arrays.binarySearch(values, value) >= 0;
+            }
+            case NotMultiValueRange<Double> r ->
+            {
+                double[] values = toSortedDoubles(r.values());
+                yield value -> Arrays.binarySearch(values, value) < 0;
+            }
+            case MinInclusiveRange<Double> r ->
+            {
+                double min = r.min();
+                yield value -> ops.compareDouble(min, value) <= 0;
+            }
+            case MinExclusiveRange<Double> r ->
+            {
+                double min = r.min();
+                yield value -> ops.compareDouble(min, value) < 0;
+            }
+            case MaxInclusiveRange<Double> r ->
+            {
+                double max = r.max();
+                yield value -> ops.compareDouble(value, max) <= 0;
+            }
+            case MaxExclusiveRange<Double> r ->
+            {
+                double max = r.max();
+                yield value -> ops.compareDouble(value, max) < 0;
+            }
+            case MinInclusiveMaxInclusiveRange<Double> r ->
+            {
+                double min = r.min();
+                double max = r.max();
+                yield value -> ops.compareDouble(value, min) >= 0 && ops.compareDouble(value, max) <= 0;
+            }
+            case MinInclusiveMaxExclusiveRange<Double> r ->
+            {
+                double min = r.min();
+                double max = r.max();
+                yield value -> ops.compareDouble(value, min) >= 0 && ops.compareDouble(value, max) < 0;
+            }
+            case MinExclusiveMaxInclusiveRange<Double> r ->
+            {
+                double min = r.min();
+                double max = r.max();
+                yield value -> ops.compareDouble(value, min) > 0 && ops.compareDouble(value, max) <= 0;
+            }
+            case MinExclusiveMaxExclusiveRange<Double> r ->
+            {
+                double min = r.min();
+                double max = r.max();
+                yield value -> ops.compareDouble(value, min) > 0 && ops.compareDouble(value, max) < 0;
+            }
+        };
+    }
+
+    /**
+     * Compiles the range of integers into a predicate that compares primitive values.
+     *
+     * @param range The range to compile.
+     * @param ops   The primitive arithmetic to compare values with.
+     * @return A predicate for the range.
+     */
+    private static IntRangePredicate compileInt(Range<Integer> range, IntOps ops)
+    {
+        return switch (range)
+        {
+            case NotRange<Integer> r ->
+            {
+                IntRangePredicate inner = compileInt(r.innerRange(), ops);
+                yield value -> !inner.isInRange(value);
+            }
+            case OrRange<Integer> r ->
+            {
+                IntRangePredicate left = compileInt(r.range(), ops);
+                IntRangePredicate right = compileInt(r.other(), ops);
+                yield value -> left.isInRange(value) || right.isInRange(value);
+            }
+            case AndRange<Integer> r ->
+            {
+                IntRangePredicate left = compileInt(r.range(), ops);
+                IntRangePredicate right = compileInt(r.other(), ops);
+                yield value -> left.isInRange(value) && right.isInRange(value);
+            }
+            case UnBoundedRange<Integer> r -> value -> true;
+            case NeverInRange<Integer> r -> value -> false;
+            case SingleValueRange<Integer> r ->
+            {
+                int expected = r.value();
+                yield value -> ops.compareInt(value, expected) == 0;
+            }
+            case NotSingleValueRange<Integer> r ->
+            {
+                int expected = r.value();
+                yield value -> ops.compareInt(value, expected) != 0;
+            }
+            case MultiValueRange<Integer> r ->
+            {
+                int[] values = toSortedInts(r.values());
+                yield value -> Arrays.binarySearch(values, value) >= 0;
+            }
+            case NotMultiValueRange<Integer> r ->
+            {
+                int[] values = toSortedInts(r.values());
+                yield value -> Arrays.binarySearch(values, value) < 0;
+            }
+            case MinInclusiveRange<Integer> r ->
+            {
+                int min = r.min();
+                yield value -> ops.compareInt(value, min) >= 0;
+            }
+            case MinExclusiveRange<Integer> r ->
+            {
+                int min = r.min();
+                yield value -> ops.compareInt(value, min) > 0;
+            }
+            case MaxInclusiveRange<Integer> r ->
+            {
+                int max = r.max();
+                yield value -> ops.compareInt(value, max) <= 0;
+            }
+            case MaxExclusiveRange<Integer> r ->
+            {
+                int max = r.max();
+                yield value -> ops.compareInt(value, max) < 0;
+            }
+            case MinInclusiveMaxInclusiveRange<Integer> r ->
+            {
+                int min = r.min();
+                int max = r.max();
+                yield value -> ops.compareInt(value, min) >= 0 && ops.compareInt(value, max) <= 0;
+            }
+            case MinInclusiveMaxExclusiveRange<Integer> r ->
+            {
+                int min = r.min();
+                int max = r.max();
+                yield value -> ops.compareInt(value, min) >= 0 && ops.compareInt(value, max) < 0;
+            }
+            case MinExclusiveMaxInclusiveRange<Integer> r ->
+            {
+                int min = r.min();
+                int max = r.max();
+                yield value -> ops.compareInt(value, min) > 0 && ops.compareInt(value, max) <= 0;
+            }
+            case MinExclusiveMaxExclusiveRange<Integer> r ->
+            {
+                int min = r.min();
+                int max = r.max();
+                yield value -> ops.compareInt(value, min) > 0 && ops.compareInt(value, max) < 0;
+            }
+        };
+    }
+
+    /**
+     * Compiles the range into a predicate that compares the primitive {@code long} representation of values.
+     *
+     * @param range   The range to compile.
+     * @param ops     The primitive arithmetic to convert and compare values with.
+     * @param <TUnit> The data type of the unit for the dimension that the range is for.
+     * @return A predicate for the primitive representation of values in the range.
+     */
+    private static <TUnit> LongRangePredicate compileLong(Range<TUnit> range, LongOps<TUnit> ops)
+    {
+        return switch (range)
+        {
+            case NotRange<TUnit> r ->
+            {
+                LongRangePredicate inner = compileLong(r.innerRange(), ops);
+                yield value -> !inner.isInRange(value);
+            }
+            case OrRange<TUnit> r ->
+            {
+                LongRangePredicate left = compileLong(r.range(), ops);
+                LongRangePredicate right = compileLong(r.other(), ops);
+                yield value -> left.isInRange(value) || right.isInRange(value);
+            }
+            case AndRange<TUnit> r ->
+            {
+                LongRangePredicate left = compileLong(r.range(), ops);
+                LongRangePredicate right = compileLong(r.other(), ops);
+                yield value -> left.isInRange(value) && right.isInRange(value);
+            }
+            case UnBoundedRange<TUnit> r -> value -> true;
+            case NeverInRange<TUnit> r -> value -> false;
+            case SingleValueRange<TUnit> r ->
+            {
+                long expected = ops.toLong(r.value());
+                yield value -> ops.compareLong(value, expected) == 0;
+            }
+            case NotSingleValueRange<TUnit> r ->
+            {
+                long expected = ops.toLong(r.value());
+                yield value -> ops.compareLong(value, expected) != 0;
+            }
+            case MultiValueRange<TUnit> r ->
+            {
+                long[] values = toSortedLongs(r.values(), ops);
+                yield value -> Arrays.binarySearch(values, value) >= 0;
+            }
+            case NotMultiValueRange<TUnit> r ->
+            {
+                long[] values = toSortedLongs(r.values(), ops);
+                yield value -> Arrays.binarySearch(values, value) < 0;
+            }
+            case MinInclusiveRange<TUnit> r ->
+            {
+                long min = ops.toLong(r.min());
+                yield value -> ops.compareLong(value, min) >= 0;
+            }
+            case MinExclusiveRange<TUnit> r ->
+            {
+                long min = ops.toLong(r.min());
+                yield value -> ops.compareLong(value, min) > 0;
+            }
+            case MaxInclusiveRange<TUnit> r ->
+            {
+                long max = ops.toLong(r.max());
+                yield value -> ops.compareLong(value, max) <= 0;
+            }
+            case MaxExclusiveRange<TUnit> r ->
+            {
+                long max = ops.toLong(r.max());
+                yield value -> ops.compareLong(value, max) < 0;
+            }
+            case MinInclusiveMaxInclusiveRange<TUnit> r ->
+            {
+                long min = ops.toLong(r.min());
+                long max = ops.toLong(r.max());
+                yield value -> ops.compareLong(value, min) >= 0 && ops.compareLong(value, max) <= 0;
+            }
+            case MinInclusiveMaxExclusiveRange<TUnit> r ->
+            {
+                long min = ops.toLong(r.min());
+                long max = ops.toLong(r.max());
+                yield value -> ops.compareLong(value, min) >= 0 && ops.compareLong(value, max) < 0;
+            }
+            case MinExclusiveMaxInclusiveRange<TUnit> r ->
+            {
+                long min = ops.toLong(r.min());
+                long max = ops.toLong(r.max());
+                yield value -> ops.compareLong(value, min) > 0 && ops.compareLong(value, max) <= 0;
+            }
+            case MinExclusiveMaxExclusiveRange<TUnit> r ->
+            {
+                long min = ops.toLong(r.min());
+                long max = ops.toLong(r.max());
+                yield value -> ops.compareLong(value, min) > 0 && ops.compareLong(value, max) < 0;
+            }
+        };
+    }
+
+    /**
+     * Gets the values as a sorted array of primitive doubles so that we can binary search them without boxing.
+     *
+     * @param values The values to sort.
+     * @return The sorted values.
+     */
+    private static double[] toSortedDoubles(Set<Double> values)
+    {
+        double[] sortedValues = new double[values.size()];
+        int index = 0;
+        for (Double value : values) sortedValues[index++] = value;
+        Arrays.sort(sortedValues);
+        return sortedValues;
+    }
+
+    /**
+     * Gets the values as a sorted array of primitive integers so that we can binary search them without boxing.
+     *
+     * @param values The values to sort.
+     * @return The sorted values.
+     */
+    private static int[] toSortedInts(Set<Integer> values)
+    {
+        int[] sortedValues = new int[values.size()];
+        int index = 0;
+        for (Integer value : values) sortedValues[index++] = value;
+        Arrays.sort(sortedValues);
+        return sortedValues;
+    }
+
     /**
      * @param value                   The value to check.
      * @param distance                The distance within which we should check. If this is null then it implies infinity and should probably return true.
@@ -98,108 +576,64 @@ public class RangeCalculator<TUnit>
         {
             case MinInclusiveRange<TUnit> r ->
             {
-                // Get the distance to the range:
-                TUnit rangeDistance = arithmetic.distanceBetween(r.min(), value);
-
-                // Check whether it is in range:
-                return arithmetic.compare(rangeDistance, distance) <= 0;
+                // Check whether it is within the distance of the lower bound:
+                return compareDistance(r.min(), value, distance) <= 0;
             }
             case MinExclusiveRange<TUnit> r ->
             {
-                // Get the distance to the range:
-                TUnit rangeDistance = arithmetic.distanceBetween(r.min(), value);
-
-                // Check whether it is in range:
-                return arithmetic.compare(rangeDistance, distance) < 0;
+                // Check whether it is within the distance of the lower bound:
+                return compareDistance(r.min(), value, distance) < 0;
             }
             case MaxInclusiveRange<TUnit> r ->
             {
-                // Get the distance to the range:
-                TUnit rangeDistance = arithmetic.distanceBetween(r.max(), value);
-
-                // Check whether it is in range:
-                return arithmetic.compare(rangeDistance, distance) <= 0;
+                // Check whether it is within the distance of the upper bound:
+                return compareDistance(r.max(), value, distance) <= 0;
             }
             case MaxExclusiveRange<TUnit> r ->
             {
-                // Get the distance to the range:
-                TUnit rangeDistance = arithmetic.distanceBetween(r.max(), value);
-
-                // Check whether it is in range:
-                return arithmetic.compare(rangeDistance, distance) < 0;
+                // Check whether it is within the distance of the upper bound:
+                return compareDistance(r.max(), value, distance) < 0;
             }
             case MinInclusiveMaxInclusiveRange<TUnit> r ->
             {
-                TUnit rangeDistance;
-
-                // Get the distance to the range:
-                rangeDistance = arithmetic.distanceBetween(r.min(), value);
+                // Check whether it is within the distance of the lower bound:
+                if (compareDistance(r.min(), value, distance) <= 0) return true;
 
-                // Check whether it is in range:
-                if (arithmetic.compare(rangeDistance, distance) <= 0) return true;
-
-                // Get the distance to the range:
-                rangeDistance = arithmetic.distanceBetween(r.max(), value);
-
-                // Check whether it is in range:
-                if (arithmetic.compare(rangeDistance, distance) <= 0) return true;
+                // Check whether it is within the distance of the upper bound:
+                if (compareDistance(r.max(), value, distance) <= 0) return true;
 
                 // If we get here then we are not within the distance:
                 return false;
             }
             case MinInclusiveMaxExclusiveRange<TUnit> r ->
             {
-                TUnit rangeDistance;
-
-                // Get the distance to the range:
-                rangeDistance = arithmetic.distanceBetween(r.min(), value);
+                // Check whether it is within the distance of the lower bound:
+                if (compareDistance(r.min(), value, distance) <= 0) return true;
 
-                // Check whether it is in range:
-                if (arithmetic.compare(rangeDistance, distance) <= 0) return true;
-
-                // Get the distance to the range:
-                rangeDistance = arithmetic.distanceBetween(r.max(), value);
-
-                // Check whether it is in range:
-                if (arithmetic.compare(rangeDistance, distance) < 0) return true;
+                // Check whether it is within the distance of the upper bound:
+                if (compareDistance(r.max(), value, distance) < 0) return true;
 
                 // If we get here then we are not within the distance:
                 return false;
             }
             case MinExclusiveMaxInclusiveRange<TUnit> r ->
             {
-                TUnit rangeDistance;
-
-                // Get the distance to the range:
-                rangeDistance = arithmetic.distanceBetween(r.min(), value);
+                // Check whether it is within the distance of the lower bound:
+                if (compareDistance(r.min(), value, distance) < 0) return true;
 
-                // Check whether it is in range:
-                if (arithmetic.compare(rangeDistance, distance) < 0) return true;
-
-                // Get the distance to the range:
-                rangeDistance = arithmetic.distanceBetween(r.max(), value);
-
-                // Check whether it is in range:
-                if (arithmetic.compare(rangeDistance, distance) <= 0) return true;
+                // Check whether it is within the distance of the upper bound:
+                if (compareDistance(r.max(), value, distance) <= 0) return true;
 
                 // If we get here then we are not within the distance:
                 return false;
             }
             case MinExclusiveMaxExclusiveRange<TUnit> r ->
             {
-                TUnit rangeDistance;
-
-                // Get the distance to the range:
-                rangeDistance = arithmetic.distanceBetween(r.min(), value);
+                // Check whether it is within the distance of the lower bound:
+                if (compareDistance(r.min(), value, distance) < 0) return true;
 
-                // Check whether it is in range:
-                if (arithmetic.compare(rangeDistance, distance) < 0) return true;
-
-                // Get the distance to the range:
-                rangeDistance = arithmetic.distanceBetween(r.max(), value);
-
-                // Check whether it is in range:
-                if (arithmetic.compare(rangeDistance, distance) < 0) return true;
+                // Check whether it is within the distance of the upper bound:
+                if (compareDistance(r.max(), value, distance) < 0) return true;
 
                 // If we get here then we are not within the distance:
                 return false;
@@ -213,6 +647,370 @@ public class RangeCalculator<TUnit>
         }
     }
 
+    /**
+     * Compares the distance between the bound and the value to the given distance.
+     * This uses primitive arithmetic if we have it so that we don't box the distance.
+     *
+     * @param bound    The bound of the range to measure from.
+     * @param value    The value to measure to.
+     * @param distance The distance to compare with.
+     * @return A negative integer, zero, or a positive integer as the distance between the bound and the value is less than, equal to, or greater than the given distance.
+     */
+    private int compareDistance(TUnit bound, TUnit value, TUnit distance)
+    {
+        // Check whether we can use primitive arithmetic:
+        if (this.doubleOps != null)
+        {
+            return this.doubleOps.compareDouble(this.doubleOps.distanceBetweenDouble((Double) bound, (Double) value), (Double) distance);
+        }
+        if (this.intOps != null)
+        {
+            return this.intOps.compareInt(this.intOps.distanceBetweenInt((Integer) bound, (Integer) value), (Integer) distance);
+        }
+        if (this.longOps != null)
+        {
+            return this.longOps.compareLong(this.longOps.distanceBetweenLong(this.longOps.toLong(bound), this.longOps.toLong(value)), this.longOps.toLong(distance));
+        }
+
+        // Use the boxed arithmetic:
+        return this.arithmetic.compare(this.arithmetic.distanceBetween(bound, value), distance);
+    }
+
+    /**
+     * Checks whether the two ranges have any value in common.
+     * This works for the full range algebra by normalizing each range into disjoint intervals.
+     * <p>
+     * For discrete units, an open interval between adjacent values (like (1,2) for integers) is treated as non-empty,
+     * so this can say that ranges intersect when they have no discrete value in common.
+     * That is the safe answer for pruning because it only means that we search more than we strictly need to.
+     *
+     * @param range The first range to check.
+     * @param other The second range to check.
+     * @return True if the ranges intersect. False if they have no value in common.
+     */
+    public boolean intersects(Range<TUnit> range, Range<TUnit> other)
+    {
+        return !intersectIntervals(toIntervals(range), toIntervals(other)).isEmpty();
+    }
+
+    /**
+     * Checks whether every value of the inner range is also in the outer range.
+     * This works for the full range algebra by normalizing each range into disjoint intervals.
+     *
+     * @param outerRange The range that must contain the inner range.
+     * @param innerRange The range that must be contained.
+     * @return True if the outer range contains all of the inner range. False if some of the inner range is outside the outer range.
+     */
+    public boolean contains(Range<TUnit> outerRange, Range<TUnit> innerRange)
+    {
+        // The inner range is contained if none of it is outside the outer range:
+        return intersectIntervals(toIntervals(innerRange), complementIntervals(toIntervals(outerRange))).isEmpty();
+    }
+
+    /**
+     * Gets the smallest distance from the given value to any value in the range.
+     *
+     * @param value The value to measure from.
+     * @param range The range to measure to.
+     * @return The smallest distance from the value to the range. This is the distance of the value to itself (zero) if the value is in the range. Null if the range is empty.
+     */
+    public TUnit minDistanceTo(TUnit value, Range<TUnit> range)
+    {
+        // Check each interval of the range for the nearest bound:
+        TUnit minDistance = null;
+        for (Interval<TUnit> interval : toIntervals(range))
+        {
+            // Work out the distance to this interval:
+            TUnit distance;
+            if (interval.min() != null && isBeforeLowerBound(value, interval))
+            {
+                // The value is below the interval.
+                distance = this.arithmetic.distanceBetween(interval.min(), value);
+            }
+            else if (interval.max() != null && isAfterUpperBound(value, interval))
+            {
+                // The value is above the interval.
+                distance = this.arithmetic.distanceBetween(value, interval.max());
+            }
+            else
+            {
+                // The value is in the interval.
+                return this.arithmetic.distanceBetween(value, value);
+            }
+
+            // Keep the smallest distance:
+            if (minDistance == null || this.arithmetic.compare(distance, minDistance) < 0) minDistance = distance;
+        }
+        return minDistance;
+    }
+
+    /**
+     * Normalizes the range into a sorted list of disjoint intervals.
+     *
+     * @param range The range to normalize.
+     * @return The sorted list of disjoint intervals that have the same values as the range. An empty list if the range is never in range.
+     */
+    private List<Interval<TUnit>> toIntervals(Range<TUnit> range)
+    {
+        return switch (range)
+        {
+            case NotRange<TUnit> r -> complementIntervals(toIntervals(r.innerRange()));
+            case OrRange<TUnit> r -> unionIntervals(toIntervals(r.range()), toIntervals(r.other()));
+            case AndRange<TUnit> r -> intersectIntervals(toIntervals(r.range()), toIntervals(r.other()));
+            case UnBoundedRange<TUnit> r -> List.of(new Interval<>(null, false, null, false));
+            case NeverInRange<TUnit> r -> List.of();
+            case SingleValueRange<TUnit> r -> List.of(new Interval<>(r.value(), true, r.value(), true));
+            case NotSingleValueRange<TUnit> r -> complementIntervals(List.of(new Interval<>(r.value(), true, r.value(), true)));
+            case MultiValueRange<TUnit> r -> toPointIntervals(r.values());
+            case NotMultiValueRange<TUnit> r -> complementIntervals(toPointIntervals(r.values()));
+            case MinInclusiveRange<TUnit> r -> List.of(new Interval<>(r.min(), true, null, false));
+            case MinExclusiveRange<TUnit> r -> List.of(new Interval<>(r.min(), false, null, false));
+            case MaxInclusiveRange<TUnit> r -> List.of(new Interval<>(null, false, r.max(), true));
+            case MaxExclusiveRange<TUnit> r -> List.of(new Interval<>(null, false, r.max(), false));
+            case MinInclusiveMaxInclusiveRange<TUnit> r -> toIntervalList(new Interval<>(r.min(), true, r.max(), true));
+            case MinInclusiveMaxExclusiveRange<TUnit> r -> toIntervalList(new Interval<>(r.min(), true, r.max(), false));
+            case MinExclusiveMaxInclusiveRange<TUnit> r -> toIntervalList(new Interval<>(r.min(), false, r.max(), true));
+            case MinExclusiveMaxExclusiveRange<TUnit> r -> toIntervalList(new Interval<>(r.min(), false, r.max(), false));
+        };
+    }
+
+    /**
+     * Gets a list with the given interval, or an empty list if the interval is empty.
+     *
+     * @param interval The interval to put in the list.
+     * @return A list with the interval if it is not empty.
+     */
+    private List<Interval<TUnit>> toIntervalList(Interval<TUnit> interval)
+    {
+        return isEmpty(interval) ? List.of() : List.of(interval);
+    }
+
+    /**
+     * Gets a sorted list of single point intervals for the given values.
+     *
+     * @param values The values to create the point intervals for.
+     * @return The sorted list of disjoint point intervals.
+     */
+    private List<Interval<TUnit>> toPointIntervals(Set<TUnit> values)
+    {
+        // Sort the values:
+        List<TUnit> sortedValues = new ArrayList<>(values);
+        sortedValues.sort(this.arithmetic::compare);
+
+        // Create a point interval for each distinct value:
+        List<Interval<TUnit>> intervals = new ArrayList<>(sortedValues.size());
+        TUnit previousValue = null;
+        for (TUnit value : sortedValues)
+        {
+            if (previousValue != null && this.arithmetic.compare(previousValue, value) == 0) continue;
+            intervals.add(new Interval<>(value, true, value, true));
+            previousValue = value;
+        }
+        return intervals;
+    }
+
+    /**
+     * Gets the intervals that are not covered by the given sorted disjoint intervals.
+     *
+     * @param intervals The sorted disjoint intervals to complement.
+     * @return The sorted disjoint intervals of all the values that are not in the given intervals.
+     */
+    private List<Interval<TUnit>> complementIntervals(List<Interval<TUnit>> intervals)
+    {
+        List<Interval<TUnit>> complement = new ArrayList<>(intervals.size() + 1);
+
+        // Walk the gaps between the intervals, starting from negative infinity:
+        TUnit gapMin = null;
+        boolean gapMinInclusive = false;
+        boolean isGapOpen = true;
+        for (Interval<TUnit> interval : intervals)
+        {
+            // Add the gap before this interval (unless the interval is unbounded below):
+            if (interval.min() != null)
+            {
+                Interval<TUnit> gap = new Interval<>(gapMin, gapMinInclusive, interval.min(), !interval.minInclusive());
+                if (!isEmpty(gap)) complement.add(gap);
+            }
+
+            // The next gap starts after this interval:
+            if (interval.max() == null)
+            {
+                // The interval is unbounded above so there are no more gaps.
+                isGapOpen = false;
+                break;
+            }
+            gapMin = interval.max();
+            gapMinInclusive = !interval.maxInclusive();
+        }
+
+        // Add the gap after the last interval:
+        if (isGapOpen) complement.add(new Interval<>(gapMin, gapMinInclusive, null, false));
+        return complement;
+    }
+
+    /**
+     * Gets the union of the given sorted disjoint intervals.
+     *
+     * @param intervals The first sorted disjoint intervals.
+     * @param others    The second sorted disjoint intervals.
+     * @return The sorted disjoint intervals with all the values that are in either of the given intervals.
+     */
+    private List<Interval<TUnit>> unionIntervals(List<Interval<TUnit>> intervals, List<Interval<TUnit>> others)
+    {
+        // Sort all the intervals by their lower bound:
+        List<Interval<TUnit>> sortedIntervals = new ArrayList<>(intervals.size() + others.size());
+        sortedIntervals.addAll(intervals);
+        sortedIntervals.addAll(others);
+        sortedIntervals.sort(this::compareLowerBounds);
+
+        // Merge the intervals that overlap or touch:
+        List<Interval<TUnit>> union = new ArrayList<>(sortedIntervals.size());
+        Interval<TUnit> current = null;
+        for (Interval<TUnit> interval : sortedIntervals)
+        {
+            if (current == null)
+            {
+                current = interval;
+            }
+            else if (overlapsOrTouches(current, interval))
+            {
+                // Extend the current interval to the larger upper bound:
+                if (compareUpperBounds(interval, current) > 0) current = new Interval<>(current.min(), current.minInclusive(), interval.max(), interval.maxInclusive());
+            }
+            else
+            {
+                union.add(current);
+                current = interval;
+            }
+        }
+        if (current != null) union.add(current);
+        return union;
+    }
+
+    /**
+     * Gets the intersection of the given sorted disjoint intervals.
+     *
+     * @param intervals The first sorted disjoint intervals.
+     * @param others    The second sorted disjoint intervals.
+     * @return The sorted disjoint intervals with the values that are in both of the given intervals.
+     */
+    private List<Interval<TUnit>> intersectIntervals(List<Interval<TUnit>> intervals, List<Interval<TUnit>> others)
+    {
+        List<Interval<TUnit>> intersection = new ArrayList<>();
+
+        // Walk both sorted lists together:
+        int index = 0;
+        int otherIndex = 0;
+        while (index < intervals.size() && otherIndex < others.size())
+        {
+            Interval<TUnit> interval = intervals.get(index);
+            Interval<TUnit> other = others.get(otherIndex);
+
+            // Take the larger lower bound and the smaller upper bound:
+            Interval<TUnit> lower = compareLowerBounds(interval, other) >= 0 ? interval : other;
+            Interval<TUnit> upper = compareUpperBounds(interval, other) <= 0 ? interval : other;
+            Interval<TUnit> overlap = new Interval<>(lower.min(), lower.minInclusive(), upper.max(), upper.maxInclusive());
+            if (!isEmpty(overlap)) intersection.add(overlap);
+
+            // Move past the interval that ends first:
+            if (upper == interval) index++;
+            else otherIndex++;
+        }
+        return intersection;
+    }
+
+    /**
+     * Checks whether the interval has no values.
+     *
+     * @param interval The interval to check.
+     * @return True if the interval is empty.
+     */
+    private boolean isEmpty(Interval<TUnit> interval)
+    {
+        if (interval.min() == null || interval.max() == null) return false;
+        int comparison = this.arithmetic.compare(interval.min(), interval.max());
+        return comparison > 0 || (comparison == 0 && !(interval.minInclusive() && interval.maxInclusive()));
+    }
+
+    /**
+     * Checks whether the second interval starts before the first interval ends, or right where it ends, so that they can be merged.
+     * The second interval must not start before the first interval.
+     *
+     * @param interval The first interval.
+     * @param next     The next interval.
+     * @return True if the intervals can be merged into one.
+     */
+    private boolean overlapsOrTouches(Interval<TUnit> interval, Interval<TUnit> next)
+    {
+        if (interval.max() == null || next.min() == null) return true;
+        int comparison = this.arithmetic.compare(next.min(), interval.max());
+        return comparison < 0 || (comparison == 0 && (interval.maxInclusive() || next.minInclusive()));
+    }
+
+    /**
+     * Compares the lower bounds of the intervals.
+     *
+     * @param interval The first interval.
+     * @param other    The second interval.
+     * @return A negative integer, zero, or a positive integer as the first interval starts before, at, or after the second interval.
+     */
+    private int compareLowerBounds(Interval<TUnit> interval, Interval<TUnit> other)
+    {
+        // Unbounded lower bounds come first:
+        if (interval.min() == null) return other.min() == null ? 0 : -1;
+        if (other.min() == null) return 1;
+
+        // An inclusive bound starts before an exclusive bound at the same value:
+        int comparison = this.arithmetic.compare(interval.min(), other.min());
+        if (comparison != 0) return comparison;
+        return Boolean.compare(other.minInclusive(), interval.minInclusive());
+    }
+
+    /**
+     * Compares the upper bounds of the intervals.
+     *
+     * @param interval The first interval.
+     * @param other    The second interval.
+     * @return A negative integer, zero, or a positive integer as the first interval ends before, at, or after the second interval.
+     */
+    private int compareUpperBounds(Interval<TUnit> interval, Interval<TUnit> other)
+    {
+        // Unbounded upper bounds come last:
+        if (interval.max() == null) return other.max() == null ? 0 : 1;
+        if (other.max() == null) return -1;
+
+        // An inclusive bound ends after an exclusive bound at the same value:
+        int comparison = this.arithmetic.compare(interval.max(), other.max());
+        if (comparison != 0) return comparison;
+        return Boolean.compare(interval.maxInclusive(), other.maxInclusive());
+    }
+
+    /**
+     * Checks whether the value is below the lower bound of the interval.
+     *
+     * @param value    The value to check.
+     * @param interval The interval with a lower bound.
+     * @return True if the value is below the interval.
+     */
+    private boolean isBeforeLowerBound(TUnit value, Interval<TUnit> interval)
+    {
+        int comparison = this.arithmetic.compare(value, interval.min());
+        return comparison < 0 || (comparison == 0 && !interval.minInclusive());
+    }
+
+    /**
+     * Checks whether the value is above the upper bound of the interval.
+     *
+     * @param value    The value to check.
+     * @param interval The interval with an upper bound.
+     * @return True if the value is above the interval.
+     */
+    private boolean isAfterUpperBound(TUnit value, Interval<TUnit> interval)
+    {
+        int comparison = this.arithmetic.compare(value, interval.max());
+        return comparison > 0 || (comparison == 0 && !interval.maxInclusive());
+    }
+
     /**
      * Checks whether the range can still be split into a smaller range.
      *
@@ -445,11 +1243,19 @@ public class RangeCalculator<TUnit>
 
             // Take the next step:
             stepIndex++;
-            currentValue = arithmetic.add(currentValue, step);
+            TUnit nextValue = arithmetic.add(currentValue, step);
 
             // Quantize the value to the smallest step size:
-            currentValue = arithmetic.quantize(currentValue, smallestStep);
+            nextValue = arithmetic.quantize(nextValue, smallestStep);
+
+            // Make sure that we are still moving forward (arithmetic that saturates or rounds can get stuck):
+            if (arithmetic.compare(nextValue, currentValue) <= 0) break;
+            currentValue = nextValue;
         }
+
+        // Make sure the last value is the ending value so that there is no gap at the end of the range:
+        // NOTE: This happens when the steps don't land exactly on the ending value.
+        if (arithmetic.compare(values.get(values.size() - 1), endingValue) < 0) values.add(endingValue);
         // Now we know what the values are.
 
         // Get the first and last indexes:
@@ -672,5 +1478,20 @@ public class RangeCalculator<TUnit>
         return arithmetic;
     }
 
-
+    /**
+     * Gets the primitive representation of the values as a sorted array so that we can binary search them without boxing.
+     *
+     * @param values  The values to sort.
+     * @param ops     The primitive arithmetic to convert the values with.
+     * @param <TUnit> The data type of the unit for the dimension that the values are for.
+     * @return The sorted primitive values.
+     */
+    private static <TUnit> long[] toSortedLongs(Set<TUnit> values, LongOps<TUnit> ops)
+    {
+        long[] sortedValues = new long[values.size()];
+        int index = 0;
+        for (TUnit value : values) sortedValues[index++] = ops.toLong(value);
+        Arrays.sort(sortedValues);
+        return sortedValues;
+    }
 }
@@ -0,0 +1,22 @@
+package io.nanovc.indexing.repo.ranges;
+
+/**
+ * A {@link Range range} that has been compiled into a predicate so that values can be checked against it quickly.
+ * <p>
+ * Use {@link RangeCalculator#compile(Range)} to create these.
+ * Each kind of range compiles to its own predicate, so checking a value does not need to dispatch on the type of range
+ * and a hot loop that always checks the same range only ever sees one kind of predicate.
+ *
+ * @param <TUnit> The data type of the unit for the dimension that the range is for.
+ */
+@FunctionalInterface
+public interface RangePredicate<TUnit>
+{
+    /**
+     * Checks whether the given value is in the range.
+     *
+     * @param value The value to check whether it is in the range.
+     * @return True if the value is in the range. False if not.
+     */
+    boolean isInRange(TUnit value);
+}
@@ -0,0 +1,350 @@
+package io.nanovc.indexing.repo.ranges;
+
+import io.nanovc.indexing.repo.arithmetic.Arithmetic;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Locates which range split a value falls into.
+ * <p>
+ * The range splits that come from {@link RangeCalculator#calculateRangeSplits} are sorted and contiguous,
+ * so we can precompute the lower boundary of each split
+ * and then use a binary search to find the split instead of checking every split in turn.
+ * <p>
+ * If the {@link Arithmetic} can {@link Arithmetic#canEstimateStepIndex() estimate step indexes}
+ * then we jump straight to the estimated split (because the splits are uniform)
+ * and only nudge the estimate by a step or two to correct for rounding and quantization.
+ * <p>
+ * If the splits are not sorted and contiguous then we fall back to checking each split in turn.
+ *
+ * @param <TUnit> The data type of the unit for the dimension that the range splits are for.
+ */
+public class RangeSplitLocator<TUnit>
+{
+    /**
+     * The maximum number of steps that we nudge an estimated split index before we fall back to a binary search.
+     */
+    private static final int MAX_ESTIMATE_CORRECTION_STEPS = 2;
+
+    /**
+     * The range splits that we are locating values in.
+     * The index in this list is the split index that we return.
+     */
+    private final List<Range<TUnit>> splits;
+
+    /**
+     * The {@link RangeCalculator#compile(Range) compiled} predicate for each split.
+     * The index in this list is the split index.
+     */
+    private final List<RangePredicate<TUnit>> splitPredicates;
+
+    /**
+     * The range calculator for the dimension that the splits are for.
+     */
+    private final RangeCalculator<TUnit> rangeCalculator;
+
+    /**
+     * The arithmetic for the dimension that the splits are for.
+     */
+    private final Arithmetic<TUnit> arithmetic;
+
+    /**
+     * The lower boundary value for each split.
+     * Null if the split is unbounded below (such as the additional range that catches values to the left of the dimension).
+     */
+    private final Object[] lowerBounds;
+
+    /**
+     * Flags whether the lower boundary of each split is inclusive.
+     */
+    private final boolean[] lowerBoundInclusive;
+
+    /**
+     * True if the lower boundaries are sorted so that we can binary search them.
+     * False if we need to check each split in turn.
+     */
+    private final boolean isSorted;
+
+    /**
+     * The split index of the first split that has a lower boundary.
+     * This is where we start counting steps from when we estimate the split index.
+     */
+    private final int firstBoundedSplitIndex;
+
+    /**
+     * The origin that we count steps from when we estimate the split index.
+     * Null if we cannot estimate split indexes.
+     */
+    private final TUnit estimateOrigin;
+
+    /**
+     * The average size of each step between the lower boundaries when we estimate the split index.
+     * Null if we cannot estimate split indexes.
+     */
+    private final TUnit estimateStep;
+
+    /**
+     * Creates a locator for the given range splits.
+     *
+     * @param splits          The range splits to locate values in. These are expected to be sorted and contiguous, as they are from {@link RangeCalculator#calculateRangeSplits}.
+     * @param rangeCalculator The range calculator for the dimension that the splits are for.
+     */
+    public RangeSplitLocator(List<Range<TUnit>> splits, RangeCalculator<TUnit> rangeCalculator)
+    {
+        this.splits = splits;
+        this.rangeCalculator = rangeCalculator;
+        this.arithmetic = rangeCalculator.getArithmetic();
+
+        // Compile each split so that we can check values against it quickly:
+        int splitCount = splits.size();
+        this.splitPredicates = new ArrayList<>(splitCount);
+        for (Range<TUnit> split : splits)
+        {
+            this.splitPredicates.add(rangeCalculator.compile(split));
+        }
+
+        // Work out the lower boundaries of each split:
+        this.lowerBounds = new Object[splitCount];
+        this.lowerBoundInclusive = new boolean[splitCount];
+        boolean sorted = true;
+        int firstBoundedIndex = -1;
+        int lastBoundedIndex = -1;
+        for (int splitIndex = 0; splitIndex < splitCount; splitIndex++)
+        {
+            // Get the range for this split:
+            Range<TUnit> split = splits.get(splitIndex);
+
+            // Get the lower boundary of this split:
+            switch (split)
+            {
+                case MinInclusiveRange<TUnit> r -> setLowerBound(splitIndex, r.min(), true);
+                case MinExclusiveRange<TUnit> r -> setLowerBound(splitIndex, r.min(), false);
+                case MinInclusiveMaxInclusiveRange<TUnit> r -> setLowerBound(splitIndex, r.min(), true);
+                case MinInclusiveMaxExclusiveRange<TUnit> r -> setLowerBound(splitIndex, r.min(), true);
+                case MinExclusiveMaxInclusiveRange<TUnit> r -> setLowerBound(splitIndex, r.min(), false);
+                case MinExclusiveMaxExclusiveRange<TUnit> r -> setLowerBound(splitIndex, r.min(), false);
+                case MaxInclusiveRange<TUnit> r -> {}
+                case MaxExclusiveRange<TUnit> r -> {}
+                case UnBoundedRange<TUnit> r -> {}
+                default -> sorted = false;
+            }
+
+            // Check whether this split has a lower boundary:
+            if (this.lowerBounds[splitIndex] == null)
+            {
+                // Only the first split is allowed to be unbounded below if we want to binary search:
+                if (splitIndex > 0) sorted = false;
+            }
+            else
+            {
+                // Check that the lower boundaries are increasing:
+                if (lastBoundedIndex >= 0)
+                {
+                    //noinspection unchecked
+                    int comparison = this.arithmetic.compare((TUnit) this.lowerBounds[lastBoundedIndex], (TUnit) this.lowerBounds[splitIndex]);
+                    if (comparison > 0 || (comparison == 0 && !(this.lowerBoundInclusive[lastBoundedIndex] && !this.lowerBoundInclusive[splitIndex]))) sorted = false;
+                }
+
+                // Keep track of the bounded splits:
+                if (firstBoundedIndex < 0) firstBoundedIndex = splitIndex;
+                lastBoundedIndex = splitIndex;
+            }
+        }
+        this.isSorted = sorted;
+        this.firstBoundedSplitIndex = firstBoundedIndex;
+
+        // Work out whether we can estimate the split index directly because the splits are uniform:
+        TUnit origin = null;
+        TUnit step = null;
+        if (sorted && this.arithmetic.canEstimateStepIndex() && firstBoundedIndex >= 0 && lastBoundedIndex - firstBoundedIndex >= 1)
+        {
+            // Get the first and last lower boundaries:
+            //noinspection unchecked
+            TUnit firstLowerBound = (TUnit) this.lowerBounds[firstBoundedIndex];
+            //noinspection unchecked
+            TUnit lastLowerBound = (TUnit) this.lowerBounds[lastBoundedIndex];
+
+            // Work out the average step between the lower boundaries:
+            TUnit averageStep = this.arithmetic.scaleByDivisor(this.arithmetic.subtract(lastLowerBound, firstLowerBound), lastBoundedIndex - firstBoundedIndex);
+
+            // Make sure the step is positive so that we can divide by it:
+            if (this.arithmetic.compare(averageStep, this.arithmetic.subtract(firstLowerBound, firstLowerBound)) > 0)
+            {
+                origin = firstLowerBound;
+                step = averageStep;
+            }
+        }
+        this.estimateOrigin = origin;
+        this.estimateStep = step;
+    }
+
+    /**
+     * Saves the lower boundary for the given split.
+     *
+     * @param splitIndex The index of the split.
+     * @param lowerBound The lower boundary value of the split.
+     * @param inclusive  True if the lower boundary is inclusive.
+     */
+    private void setLowerBound(int splitIndex, TUnit lowerBound, boolean inclusive)
+    {
+        this.lowerBounds[splitIndex] = lowerBound;
+        this.lowerBoundInclusive[splitIndex] = inclusive;
+    }
+
+    /**
+     * Finds the index of the split that the given value falls into.
+     *
+     * @param value The value to locate.
+     * @return The index of the split that the value is in. -1 if the value is not in any of the splits.
+     */
+    public int locate(TUnit value)
+    {
+        // Check whether we can search the splits quickly:
+        if (!this.isSorted)
+        {
+            // The splits are not sorted, so check each split in turn:
+            return locateLinearly(value);
+        }
+
+        // Find the last split whose lower boundary admits the value:
+        int splitIndex = this.estimateStep != null ? locateByEstimate(value) : locateByBinarySearch(value);
+        if (splitIndex < 0) return -1;
+
+        // Make sure that the value is actually in the split (it might be beyond the upper boundary of the last split):
+        return this.splitPredicates.get(splitIndex).isInRange(value) ? splitIndex : -1;
+    }
+
+    /**
+     * Finds the index of the split that the given value falls into by checking each split in turn.
+     *
+     * @param value The value to locate.
+     * @return The index of the split that the value is in. -1 if the value is not in any of the splits.
+     */
+    public int locateLinearly(TUnit value)
+    {
+        for (int splitIndex = 0; splitIndex < this.splits.size(); splitIndex++)
+        {
+            if (this.splitPredicates.get(splitIndex).isInRange(value)) return splitIndex;
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the last split whose lower boundary admits the value, by estimating the index arithmetically and then correcting it.
+     *
+     * @param value The value to locate.
+     * @return The index of the last split whose lower boundary admits the value. -1 if the value is below every split.
+     */
+    private int locateByEstimate(TUnit value)
+    {
+        // Estimate the split index:
+        long estimate = (long) this.firstBoundedSplitIndex + this.arithmetic.estimateStepIndex(this.estimateOrigin, this.estimateStep, value);
+
+        // Clamp the estimate to the splits that we have:
+        int lastSplitIndex = this.splits.size() - 1;
+        int splitIndex = (int) Math.max(0, Math.min(lastSplitIndex, estimate));
+
+        // Nudge the estimate down if the value is below the lower boundary:
+        int corrections = 0;
+        while (!admitsLowerBound(splitIndex, value))
+        {
+            // Check whether we are below every split:
+            if (splitIndex == 0) return -1;
+
+            // Check whether the estimate is too far off to keep nudging:
+            if (++corrections > MAX_ESTIMATE_CORRECTION_STEPS) return locateByBinarySearch(value);
+
+            splitIndex--;
+        }
+
+        // Nudge the estimate up if the value is also above the lower boundary of the next split:
+        while (splitIndex < lastSplitIndex && admitsLowerBound(splitIndex + 1, value))
+        {
+            // Check whether the estimate is too far off to keep nudging:
+            if (++corrections > MAX_ESTIMATE_CORRECTION_STEPS) return locateByBinarySearch(value);
+
+            splitIndex++;
+        }
+        return splitIndex;
+    }
+
+    /**
+     * Finds the last split whose lower boundary admits the value, by binary searching the lower boundaries.
+     *
+     * @param value The value to locate.
+     * @return The index of the last split whose lower boundary admits the value. -1 if the value is below every split.
+     */
+    private int locateByBinarySearch(TUnit value)
+    {
+        // Binary search for the last split whose lower boundary admits the value:
+        int low = 0;
+        int high = this.splits.size() - 1;
+        int found = -1;
+        while (low <= high)
+        {
+            int middle = (low + high) >>> 1;
+            if (admitsLowerBound(middle, value))
+            {
+                // This split admits the value, so the answer is here or later:
+                found = middle;
+                low = middle + 1;
+            }
+            else
+            {
+                // This split does not admit the value, so the answer is earlier:
+                high = middle - 1;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Checks whether the value is at or above the lower boundary of the given split.
+     *
+     * @param splitIndex The index of the split to check.
+     * @param value      The value to check.
+     * @return True if the value is at or above the lower boundary of the split (or the split is unbounded below).
+     */
+    private boolean admitsLowerBound(int splitIndex, TUnit value)
+    {
+        // Get the lower boundary:
+        Object lowerBound = this.lowerBounds[splitIndex];
+        if (lowerBound == null) return true;
+
+        // Compare the value to the lower boundary:
+        //noinspection unchecked
+        int comparison = this.arithmetic.compare(value, (TUnit) lowerBound);
+        return this.lowerBoundInclusive[splitIndex] ? comparison >= 0 : comparison > 0;
+    }
+
+    /**
+     * Gets the range splits that we are locating values in.
+     *
+     * @return The range splits that we are locating values in.
+     */
+    public List<Range<TUnit>> getSplits()
+    {
+        return splits;
+    }
+
+    /**
+     * Checks whether the splits are sorted so that we can search them quickly.
+     *
+     * @return True if the splits are sorted so that we can search them quickly. False if we check each split in turn.
+     */
+    public boolean isSorted()
+    {
+        return isSorted;
+    }
+
+    /**
+     * Checks whether we estimate split indexes arithmetically because the splits are uniform.
+     *
+     * @return True if we estimate split indexes arithmetically. False if we binary search for them.
+     */
+    public boolean canEstimate()
+    {
+        return estimateStep != null;
+    }
+}
@@ -0,0 +1,137 @@
+package io.nanovc.indexing;
+
+import io.nanovc.RepoPath;
+import io.nanovc.areas.StringHashMapArea;
+import io.nanovc.content.StringContent;
+import io.nanovc.indexing.examples.xy.XY;
+import io.nanovc.indexing.examples.xy.XYKDTree;
+import io.nanovc.indexing.examples.xy.XYRepoIndexKD;
+import io.nanovc.indexing.kdtree.bentley1990.KDTree;
+import io.nanovc.indexing.repo.RepoIndexKDImplementation;
+import io.nanovc.memory.MemoryCommit;
+import io.nanovc.memory.strings.StringMemoryRepoHandler;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that indexes use a {@link BoundedMeasurer} to stop measuring early
+ * and that they still find the same nearest items as they would with the full measurement.
+ */
+public class BoundedMeasurerTests
+{
+    @Test
+    public void kdTree_BoundedMeasurer_FindsSameNearestAsUnbounded()
+    {
+        // Count how many measurements were given a bound:
+        AtomicInteger boundedMeasurementCount = new AtomicInteger();
+        BoundedMeasurer<XY, Double> boundedMeasurer = (o1, o2, maxDistance) ->
+        {
+            if (maxDistance != null) boundedMeasurementCount.incrementAndGet();
+            return XY.measureDistanceL2NormEuclideanBounded(o1, o2, maxDistance);
+        };
+
+        // Create the indexes:
+        var referenceIndex = new XYKDTree();
+        var testedIndex = new KDTree<XY, Double>(
+            XY::extractCoordinate,
+            boundedMeasurer,
+            Double::compare,
+            Double::sum,
+            (left, right) -> left - right,
+            Double.MAX_VALUE,
+            2
+        );
+
+        // Add and query the items:
+        assertSameNearestItems(referenceIndex, testedIndex);
+
+        // Make sure that the bound was actually used:
+        assertTrue(boundedMeasurementCount.get() > 0, "The bounded measurer should have been given the nearest distance so far.");
+    }
+
+    @Test
+    public void repoIndexKD_BoundedMeasurer_FindsSameNearestAsUnbounded()
+    {
+        // Count how many measurements were given a bound:
+        AtomicInteger boundedMeasurementCount = new AtomicInteger();
+        BoundedMeasurer<XY, Double> boundedMeasurer = (o1, o2, maxDistance) ->
+        {
+            if (maxDistance != null) boundedMeasurementCount.incrementAndGet();
+            return XY.measureDistanceL2NormEuclideanBounded(o1, o2, maxDistance);
+        };
+
+        // Create the indexes:
+        var referenceIndex = new XYRepoIndexKD(new XY(-10, -10), new XY(10, 10), 4, 8);
+        var testedIndex = new RepoIndexKDImplementation<XY, Double, StringContent, StringHashMapArea, MemoryCommit, StringMemoryRepoHandler>(
+            XY.defineHyperCube(new XY(-10, -10), new XY(10, 10)),
+            4, 8,
+            XY::extractCoordinate, boundedMeasurer, Double::compare,
+            new StringMemoryRepoHandler(), RepoPath.atRoot(),
+            XYRepoIndexKD::createXYContent, XYRepoIndexKD::readXYFromContent
+        );
+
+        // Add and query the items:
+        assertSameNearestItems(referenceIndex, testedIndex);
+
+        // Make sure that the bound was actually used:
+        assertTrue(boundedMeasurementCount.get() > 0, "The bounded measurer should have been given the best distance so far.");
+    }
+
+    @Test
+    public void boundedMeasurement_ExceedingBound_ReturnsDistanceGreaterThanBound()
+    {
+        // Measure with a bound that the first dimension already exceeds:
+        double partialDistance = XY.measureDistanceL2NormEuclideanBounded(new XY(0, 0), new XY(3, 4), 2.0);
+        assertTrue(partialDistance > 2.0);
+        assertEquals(3.0, partialDistance);
+
+        // Measure with a bound that is not exceeded:
+        assertEquals(5.0, XY.measureDistanceL2NormEuclideanBounded(new XY(0, 0), new XY(3, 4), 5.0));
+
+        // Measure without a bound:
+        assertEquals(5.0, XY.measureDistanceL2NormEuclideanBounded(new XY(0, 0), new XY(3, 4), null));
+    }
+
+    /**
+     * Adds the same random items to both indexes and makes sure that they find the same nearest items.
+     *
+     * @param referenceIndex The index that measures the full distances.
+     * @param testedIndex    The index that uses a bounded measurer.
+     */
+    private static void assertSameNearestItems(Index<XY> referenceIndex, Index<XY> testedIndex)
+    {
+        // Create the random number generators:
+        Random addRandom = new Random(1);
+        Random searchRandom = new Random(10);
+
+        // Add the items to the indexes:
+        for (int i = 0; i < 10_000; i++)
+        {
+            // Generate the next random item to add:
+            XY item = new XY(addRandom.nextDouble(-10, 10), addRandom.nextDouble(-10, 10));
+
+            // Add the item to the indexes:
+            referenceIndex.add(item);
+            testedIndex.add(item);
+        }
+
+        // Index the items:
+        referenceIndex.index();
+        testedIndex.index();
+
+        // Query the items:
+        for (int i = 0; i < 1_000; i++)
+        {
+            // Generate the next random item to search for:
+            XY item = new XY(searchRandom.nextDouble(-20, 20), searchRandom.nextDouble(-20, 20));
+
+            // Make sure that the results are the same:
+            assertEquals(referenceIndex.searchNearest(item), testedIndex.searchNearest(item), "Input was: " + item);
+        }
+    }
+}
@@ -68,6 +68,33 @@ public record XY(double x, double y)
         return Math.sqrt((diffX * diffX) + (diffY * diffY));
     }
 
+    /**
+     * This is the same as {@link #measureDistanceL2NormEuclidean(XY, XY)}
+     * except that it stops accumulating the sum of squares as soon as it exceeds the square of the given bound.
+     * When it stops early, it returns the partial distance, which is guaranteed to be greater than the bound.
+     * <p>
+     * This is a {@link io.nanovc.indexing.BoundedMeasurer}.
+     *
+     * @param item1       The first item to measure the distance from.
+     * @param item2       The second item to measure the distance to.
+     * @param maxDistance The bound for the distance. Null if there is no bound.
+     * @return The distance between the two items, or a partial distance that is greater than the bound.
+     */
+    public static Double measureDistanceL2NormEuclideanBounded(XY item1, XY item2, Double maxDistance)
+    {
+        // Accumulate the first dimension:
+        double diffX = item2.x() - item1.x();
+        double sumOfSquares = diffX * diffX;
+
+        // Check whether we have already exceeded the bound:
+        if (maxDistance != null && sumOfSquares > maxDistance * maxDistance) return Math.sqrt(sumOfSquares);
+
+        // Accumulate the second dimension:
+        double diffY = item2.y() - item1.y();
+        sumOfSquares += diffY * diffY;
+        return Math.sqrt(sumOfSquares);
+    }
+
     /**
      * In many applications, and in particular when comparing distances,
      * it may be more convenient to omit the final square root in the calculation of Euclidean distances,
@@ -1,10 +1,11 @@
 package io.nanovc.indexing.examples.xy;
 
-import io.nanovc.RepoPath;
+import io.nanovc.*;
 import io.nanovc.areas.StringHashMapArea;
 import io.nanovc.content.StringContent;
 import io.nanovc.indexing.repo.ContentCreator;
 import io.nanovc.indexing.repo.ContentReader;
+import io.nanovc.indexing.repo.HyperCubeDefinition;
 import io.nanovc.indexing.repo.RepoIndexKDImplementation;
 import io.nanovc.memory.MemoryCommit;
 import io.nanovc.memory.strings.StringMemoryRepoHandler;
@@ -21,6 +22,20 @@ public class XYRepoIndexKD extends RepoIndexKDImplementation<
     StringMemoryRepoHandler
     >
 {
+    /**
+     * The minimum corner of the indexes that commit to a given repo handler.
+     */
+    private static final XY REPO_MIN_RANGE = new XY(-1, -1);
+
+    /**
+     * The maximum corner of the indexes that commit to a given repo handler.
+     */
+    private static final XY REPO_MAX_RANGE = new XY(1, 1);
+
+    /**
+     * The number of divisions of the indexes that commit to a given repo handler.
+     */
+    private static final int REPO_DIVISIONS = 10;
 
     public XYRepoIndexKD(
         XY minRange, XY maxRange, int divisions, int bucketThreshold,
@@ -37,6 +52,17 @@ public class XYRepoIndexKD extends RepoIndexKDImplementation<
             );
     }
 
+    public XYRepoIndexKD(HyperCubeDefinition hyperCubeDefinition, int divisions, int bucketThreshold)
+    {
+        super(
+            hyperCubeDefinition,
+            divisions, bucketThreshold,
+            XY::extractCoordinate, XY::measureDistanceL2NormEuclidean, Double::compare,
+            new StringMemoryRepoHandler(), RepoPath.atRoot(),
+            XYRepoIndexKD::createXYContent, XYRepoIndexKD::readXYFromContent
+            );
+    }
+
     public XYRepoIndexKD(XY minRange, XY maxRange, int divisions, int bucketThreshold)
     {
         this(
@@ -46,6 +72,56 @@ public class XYRepoIndexKD extends RepoIndexKDImplementation<
         );
     }
 
+    /**
+     * Creates an index from (-1, -1) to (1, 1) with 10 divisions that commits to the given repo handler.
+     * This is the index that the persistence, sync, paging and removal tests share.
+     * Use {@link #createWithRepo} for repo handlers with other types of content.
+     *
+     * @param repoHandler     The repo handler for the index.
+     * @param bucketThreshold The number of items in a bucket before it is split.
+     */
+    public XYRepoIndexKD(StringMemoryRepoHandler repoHandler, int bucketThreshold)
+    {
+        this(
+            REPO_MIN_RANGE, REPO_MAX_RANGE, REPO_DIVISIONS, bucketThreshold,
+            repoHandler, RepoPath.atRoot(),
+            XYRepoIndexKD::createXYContent, XYRepoIndexKD::readXYFromContent
+        );
+    }
+
+    /**
+     * Creates the same index as {@link #XYRepoIndexKD(StringMemoryRepoHandler, int)} for a repo handler with any type of content.
+     *
+     * @param repoHandler     The repo handler for the index.
+     * @param bucketThreshold The number of items in a bucket before it is split.
+     * @param contentCreator  Creates the content for an item.
+     * @param contentReader   Reads an item from its content.
+     * @param <TContent>      The specific type of content that the repo commits.
+     * @param <TArea>         The specific type of content area that the repo commits.
+     * @param <TCommit>       The specific type of commit that the repo creates.
+     * @param <TRepoHandler>  The specific type of repo handler to use for the index.
+     * @return A new index.
+     */
+    public static <
+        TContent extends ContentAPI,
+        TArea extends AreaAPI<TContent>,
+        TCommit extends CommitAPI,
+        TRepoHandler extends RepoHandlerAPI<TContent, TArea, TCommit, ? extends SearchQueryAPI<TCommit>, ? extends SearchResultsAPI<?, ?>, ? extends RepoAPI<TContent, TArea, TCommit>, ? extends RepoEngineAPI<TContent, TArea, TCommit, ?, ?, ?>>
+        >
+    RepoIndexKDImplementation<XY, Double, TContent, TArea, TCommit, TRepoHandler> createWithRepo(
+        TRepoHandler repoHandler, int bucketThreshold,
+        ContentCreator<XY, TContent> contentCreator, ContentReader<XY, TContent> contentReader
+    )
+    {
+        return new RepoIndexKDImplementation<>(
+            XY.defineHyperCube(REPO_MIN_RANGE, REPO_MAX_RANGE),
+            REPO_DIVISIONS, bucketThreshold,
+            XY::extractCoordinate, XY::measureDistanceL2NormEuclidean, Double::compare,
+            repoHandler, RepoPath.atRoot(),
+            contentCreator, contentReader
+        );
+    }
+
     /**
      * Gets the content for the given item.
      * @param item The item to create the content for.
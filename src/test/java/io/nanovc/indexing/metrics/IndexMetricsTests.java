@@ -0,0 +1,94 @@
+package io.nanovc.indexing.metrics;
+
+import io.nanovc.indexing.Index;
+import io.nanovc.indexing.examples.x.X;
+import io.nanovc.indexing.examples.x.XBinaryTreeIndex1D;
+import io.nanovc.indexing.examples.x.XGridIndex1D;
+import io.nanovc.indexing.examples.x.XKDTreeIndex1D;
+import io.nanovc.indexing.examples.x.XLinearIndex1D;
+import io.nanovc.indexing.examples.x.XRepoIndex1D;
+import io.nanovc.indexing.examples.xy.XY;
+import io.nanovc.indexing.examples.xy.XYRepoIndexKD;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the {@link IndexMetrics} that indexes report to.
+ */
+public class IndexMetricsTests
+{
+    @Test
+    public void repoIndexKD_ReportsOperations()
+    {
+        // Create the index with small buckets so that they split:
+        XYRepoIndexKD index = new XYRepoIndexKD(new XY(-1, -1), new XY(1, 1), 4, 4);
+        IndexMetrics metrics = new IndexMetrics();
+        index.setIndexListener(metrics);
+        assertSame(metrics, index.getIndexListener());
+
+        // Add the items:
+        Random random = new Random(1);
+        for (int i = 0; i < 1_000; i++)
+        {
+            index.add(new XY(random.nextDouble(-1, 1), random.nextDouble(-1, 1)));
+        }
+        index.index();
+
+        // Search the index:
+        for (int i = 0; i < 100; i++)
+        {
+            index.searchNearest(new XY(random.nextDouble(-1, 1), random.nextDouble(-1, 1)));
+        }
+        index.searchWithinDistance(new XY(0, 0), 0.1);
+
+        // Make sure the operations were measured:
+        assertEquals(1_000, metrics.getAddCount());
+        assertEquals(1, metrics.getIndexCount());
+        assertEquals(101, metrics.getSearchCount());
+        assertTrue(metrics.getSplitCount() > 0);
+        assertTrue(metrics.getDistanceEvaluationsPerSearch().getMean() >= 1);
+        assertTrue(metrics.getBucketsVisitedPerSearch().getMean() >= 1);
+        assertTrue(metrics.getCellsVisitedPerSearch().getMean() >= 1);
+        assertTrue(metrics.getSearchLatencies().getMaxValue() > 0);
+
+        // Make sure the index stops reporting without a listener:
+        index.setIndexListener(null);
+        index.searchNearest(new XY(0, 0));
+        assertEquals(101, metrics.getSearchCount());
+    }
+
+    @Test
+    public void everyIndex_ReportsOperations()
+    {
+        List<Index<X>> indexes = List.of(
+            new XLinearIndex1D(),
+            new XBinaryTreeIndex1D(),
+            new XGridIndex1D(new X(0), new X(1_000), 10),
+            new XKDTreeIndex1D(),
+            new XRepoIndex1D(new X(0), new X(1_000), 10)
+        );
+        for (Index<X> index : indexes)
+        {
+            // Measure the index:
+            IndexMetrics metrics = new IndexMetrics();
+            index.setIndexListener(metrics);
+
+            // Add, index and search the items:
+            Random random = new Random(1);
+            for (int i = 0; i < 100; i++) index.add(new X(random.nextInt(1_000)));
+            index.index();
+            for (int i = 0; i < 10; i++) index.searchNearest(new X(random.nextInt(1_000)));
+
+            // Make sure the operations were measured:
+            String indexName = index.getClass().getSimpleName();
+            assertEquals(100, metrics.getAddCount(), indexName);
+            assertEquals(1, metrics.getIndexCount(), indexName);
+            assertEquals(10, metrics.getSearchCount(), indexName);
+            assertTrue(metrics.getDistanceEvaluationsPerSearch().getTotalValue() > 0, indexName);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package io.nanovc.indexing.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the {@link LogLinearHistogram}.
+ */
+public class LogLinearHistogramTests
+{
+    @Test
+    public void bins_CoverEveryValueWithBoundedError()
+    {
+        LogLinearHistogram histogram = new LogLinearHistogram();
+
+        // Make sure the bins are contiguous and cover every long value:
+        assertEquals(0, histogram.getBinStartInclusive(0));
+        for (int binIndex = 1; binIndex < histogram.getNumberOfBins(); binIndex++)
+        {
+            assertEquals(histogram.getBinEndInclusive(binIndex - 1) + 1, histogram.getBinStartInclusive(binIndex));
+        }
+        assertEquals(Long.MAX_VALUE, histogram.getBinEndInclusive(histogram.getNumberOfBins() - 1));
+
+        // Make sure each value lands in a bin that contains it and that the bins are narrow:
+        Random random = new Random(1);
+        for (int i = 0; i < 100_000; i++)
+        {
+            long value = random.nextLong(Long.MAX_VALUE) >>> random.nextInt(64);
+            int binIndex = histogram.getBinIndex(value);
+            long startInclusive = histogram.getBinStartInclusive(binIndex);
+            long endInclusive = histogram.getBinEndInclusive(binIndex);
+            assertTrue(startInclusive <= value && value <= endInclusive, value + " is not in bin " + binIndex);
+            assertTrue(endInclusive - startInclusive <= Math.max(0, startInclusive / 16), "Bin " + binIndex + " is too wide");
+        }
+    }
+
+    @Test
+    public void percentiles()
+    {
+        LogLinearHistogram histogram = new LogLinearHistogram();
+        assertEquals(0, histogram.getValueAtPercentile(50));
+
+        // Record the values from 1 to 1000:
+        for (long value = 1; value <= 1_000; value++) histogram.record(value);
+
+        assertEquals(1_000, histogram.getTotalCount());
+        assertEquals(500.5, histogram.getMean());
+        assertEquals(1_000, histogram.getMaxValue());
+        assertEquals(1_000, histogram.getValueAtPercentile(100));
+        assertEquals(1, histogram.getValueAtPercentile(0));
+
+        // Make sure the percentiles are within the resolution of the bins:
+        for (int percentile = 1; percentile < 100; percentile++)
+        {
+            long value = histogram.getValueAtPercentile(percentile);
+            assertTrue(value >= percentile * 10 && value <= percentile * 10 * 17 / 16, "Percentile " + percentile + " was " + value);
+        }
+
+        // Make sure we can clear the histogram:
+        histogram.reset();
+        assertEquals(0, histogram.getTotalCount());
+        assertEquals(0, histogram.getMaxValue());
+    }
+
+    @Test
+    public void concurrentRecording() throws InterruptedException
+    {
+        LogLinearHistogram histogram = new LogLinearHistogram();
+
+        // Record from many threads at once:
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++)
+        {
+            threads.add(Thread.ofPlatform().start(() -> { for (long value = 0; value < 10_000; value++) histogram.record(value); }));
+        }
+        for (Thread thread : threads) thread.join();
+
+        // Make sure no values were lost:
+        assertEquals(80_000, histogram.getTotalCount());
+        assertEquals(8 * (9_999L * 10_000 / 2), histogram.getTotalValue());
+        long binnedCount = 0;
+        for (int binIndex = 0; binIndex < histogram.getNumberOfBins(); binIndex++) binnedCount += histogram.getCountInBin(binIndex);
+        assertEquals(80_000, binnedCount);
+    }
+}
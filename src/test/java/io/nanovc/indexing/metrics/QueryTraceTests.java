@@ -0,0 +1,124 @@
+package io.nanovc.indexing.metrics;
+
+import io.nanovc.indexing.IndexListener;
+import io.nanovc.indexing.QueryTrace;
+import io.nanovc.indexing.examples.xy.XY;
+import io.nanovc.indexing.examples.xy.XYKDTree;
+import io.nanovc.indexing.examples.xy.XYRepoIndexKD;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the {@link QueryTrace} that indexes report to their {@link IndexListener listener} for each search.
+ */
+public class QueryTraceTests
+{
+    @Test
+    public void repoIndexKD_TracesSearches()
+    {
+        // Create the index with small buckets so that the kd-trees have some depth:
+        XYRepoIndexKD index = new XYRepoIndexKD(new XY(-1, -1), new XY(1, 1), 4, 4);
+
+        // Add the items:
+        Random random = new Random(1);
+        List<XY> items = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++)
+        {
+            XY item = new XY(random.nextDouble(-1, 1), random.nextDouble(-1, 1));
+            items.add(item);
+            index.add(item);
+        }
+        index.index();
+
+        // Measure the searches:
+        LastTraceMetrics metrics = new LastTraceMetrics();
+        index.setIndexListener(metrics);
+
+        // Search the index and check each trace:
+        for (int i = 0; i < 100; i++)
+        {
+            index.searchNearest(new XY(random.nextDouble(-1, 1), random.nextDouble(-1, 1)));
+
+            QueryTrace trace = metrics.lastTrace;
+            assertTrue(trace.cellsConsidered >= 1);
+            assertTrue(trace.cellsVisited >= 1 && trace.cellsVisited <= trace.cellsConsidered);
+            assertTrue(trace.nodesVisited >= trace.cellsVisited);
+            assertTrue(trace.distanceEvaluations >= 1);
+            assertEquals(0, trace.exactMatches);
+        }
+
+        // Make sure the traces were aggregated:
+        assertEquals(100, metrics.getSearchCount());
+        assertTrue(metrics.getPruningEfficiency() > 0 && metrics.getPruningEfficiency() < 1);
+        assertTrue(metrics.getCellsConsideredPerSearch().getValueAtPercentile(50) >= metrics.getCellsVisitedPerSearch().getValueAtPercentile(50));
+        assertTrue(metrics.getDistanceEvaluationsPerSearch().getValueAtPercentile(99) < items.size());
+
+        // Search for an item in the index to get an exact match:
+        assertEquals(items.get(0), index.searchNearest(items.get(0)));
+        assertEquals(1, metrics.lastTrace.exactMatches);
+        assertEquals(1, metrics.getExactMatchCount());
+    }
+
+    @Test
+    public void kdTree_TracesSearches()
+    {
+        // Create the kd-tree:
+        XYKDTree index = new XYKDTree();
+        LastTraceMetrics metrics = new LastTraceMetrics();
+        index.setIndexListener(metrics);
+
+        // Add the items:
+        Random random = new Random(1);
+        for (int i = 0; i < 1_000; i++)
+        {
+            index.add(new XY(random.nextDouble(-1, 1), random.nextDouble(-1, 1)));
+        }
+        index.index();
+
+        // Search the index:
+        for (int i = 0; i < 100; i++)
+        {
+            index.searchNearest(new XY(random.nextDouble(-1, 1), random.nextDouble(-1, 1)));
+
+            // The kd-tree has no cells:
+            QueryTrace trace = metrics.lastTrace;
+            assertEquals(0, trace.cellsConsidered);
+            assertTrue(trace.nodesVisited >= 1);
+            assertTrue(trace.distanceEvaluations >= 1);
+            assertTrue(trace.pruningDecisions >= 1);
+        }
+
+        // Make sure the traces were aggregated:
+        assertEquals(100, metrics.getSearchCount());
+        assertTrue(metrics.getPruningEfficiency() > 0 && metrics.getPruningEfficiency() < 1);
+        assertTrue(metrics.getNodesVisitedPerSearch().getMean() >= 1);
+
+        // Make sure we can clear the metrics:
+        metrics.reset();
+        assertEquals(0, metrics.getSearchCount());
+        assertEquals(0.0, metrics.getPruningEfficiency());
+    }
+
+    /**
+     * Index metrics that also keep the trace of the last search so that we can check each search.
+     */
+    private static class LastTraceMetrics extends IndexMetrics
+    {
+        /**
+         * The trace of the last search. This is updated in place by the next search of the index.
+         */
+        QueryTrace lastTrace;
+
+        @Override
+        public void onSearch(long durationNanos, QueryTrace trace)
+        {
+            super.onSearch(durationNanos, trace);
+            this.lastTrace = trace;
+        }
+    }
+}
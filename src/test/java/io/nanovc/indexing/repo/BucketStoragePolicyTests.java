@@ -0,0 +1,166 @@
+package io.nanovc.indexing.repo;
+
+import io.nanovc.RepoPath;
+import io.nanovc.areas.StringHashMapArea;
+import io.nanovc.content.StringContent;
+import io.nanovc.indexing.examples.xy.XY;
+import io.nanovc.indexing.examples.xy.XYRepoIndexKD;
+import io.nanovc.memory.strings.StringMemoryRepoHandler;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the {@link BucketStoragePolicy bucket storage policies} of the {@link RepoIndexKDBase}.
+ */
+public class BucketStoragePolicyTests
+{
+    @Test
+    public void contentOnly_SameResultsAsItemsAndContent()
+    {
+        assertSameResultsAsItemsAndContent(BucketStoragePolicy.ContentOnly, 0);
+    }
+
+    @Test
+    public void contentOnly_WithoutDecodeCache_SameResultsAsItemsAndContent()
+    {
+        XYRepoIndexKD index = assertSameResultsAsItemsAndContent(BucketStoragePolicy.ContentOnly, 0);
+        index.setMaxDecodedBuckets(0);
+        assertEquals(new XY(0.5, 0.5), index.searchNearest(new XY(0.5, 0.5)));
+    }
+
+    @Test
+    public void itemsOnly_SameResultsAsItemsAndContent()
+    {
+        assertSameResultsAsItemsAndContent(BucketStoragePolicy.ItemsOnly, 0);
+    }
+
+    @Test
+    public void itemsOnly_WithPaging_SameResultsAsItemsAndContent()
+    {
+        assertSameResultsAsItemsAndContent(BucketStoragePolicy.ItemsOnly, 5);
+    }
+
+    @Test
+    public void contentOnly_DoesNotKeepItems()
+    {
+        XYRepoIndexKD index = createIndex(new StringMemoryRepoHandler(), BucketStoragePolicy.ContentOnly, 0);
+        addItems(index);
+        for (DivisionCell<XY, StringContent, StringHashMapArea> cell : index.divisionCube.cellsByBranchName.values())
+        {
+            assertBuckets(cell.kdTreeRoot, BucketStoragePolicy.ContentOnly);
+        }
+    }
+
+    @Test
+    public void itemsOnly_DoesNotKeepContent()
+    {
+        XYRepoIndexKD index = createIndex(new StringMemoryRepoHandler(), BucketStoragePolicy.ItemsOnly, 0);
+        addItems(index);
+        for (DivisionCell<XY, StringContent, StringHashMapArea> cell : index.divisionCube.cellsByBranchName.values())
+        {
+            assertBuckets(cell.kdTreeRoot, BucketStoragePolicy.ItemsOnly);
+            assertEquals(0, cell.contentArea.size());
+        }
+    }
+
+    /**
+     * Makes sure that an index with the given storage policy finds the same items
+     * and commits the same content as an index that stores both items and content.
+     *
+     * @param bucketStoragePolicy      The storage policy to test.
+     * @param maxResidentDivisionCells The maximum number of division cells to keep resident. Zero to keep all division cells resident.
+     * @return The index with the given storage policy.
+     */
+    private static XYRepoIndexKD assertSameResultsAsItemsAndContent(BucketStoragePolicy bucketStoragePolicy, int maxResidentDivisionCells)
+    {
+        // Create the indexes with the same items:
+        StringMemoryRepoHandler expectedRepoHandler = new StringMemoryRepoHandler();
+        StringMemoryRepoHandler actualRepoHandler = new StringMemoryRepoHandler();
+        XYRepoIndexKD expectedIndex = createIndex(expectedRepoHandler, BucketStoragePolicy.ItemsAndContent, maxResidentDivisionCells);
+        XYRepoIndexKD actualIndex = createIndex(actualRepoHandler, bucketStoragePolicy, maxResidentDivisionCells);
+        addItems(expectedIndex);
+        addItems(actualIndex);
+        expectedIndex.index();
+        actualIndex.index();
+
+        // Make sure the searches find the same items:
+        Random random = new Random(2);
+        for (int i = 0; i < 200; i++)
+        {
+            XY query = new XY(random.nextDouble(-1.5, 1.5), random.nextDouble(-1.5, 1.5));
+            assertEquals(expectedIndex.searchNearest(query), actualIndex.searchNearest(query));
+            assertEquals(new HashSet<>(expectedIndex.searchWithinDistance(query, 0.2)), new HashSet<>(actualIndex.searchWithinDistance(query, 0.2)));
+        }
+
+        // Make sure the same content is committed by opening both repos:
+        expectedIndex.commit("Items");
+        actualIndex.commit("Items");
+        XYRepoIndexKD expectedOpenedIndex = createIndex(new StringMemoryRepoHandler(), BucketStoragePolicy.ItemsAndContent, 0);
+        XYRepoIndexKD actualOpenedIndex = createIndex(new StringMemoryRepoHandler(), BucketStoragePolicy.ItemsAndContent, 0);
+        expectedOpenedIndex.open(expectedRepoHandler, RepoPath.atRoot());
+        actualOpenedIndex.open(actualRepoHandler, RepoPath.atRoot());
+        assertEquals(expectedOpenedIndex.toString(), actualOpenedIndex.toString());
+
+        return actualIndex;
+    }
+
+    /**
+     * Makes sure that every bucket under the node only stores the representations of the storage policy.
+     *
+     * @param node                The node to check.
+     * @param bucketStoragePolicy The storage policy of the index.
+     */
+    private static void assertBuckets(KDNode<XY, StringContent, StringHashMapArea> node, BucketStoragePolicy bucketStoragePolicy)
+    {
+        switch (node)
+        {
+            case KDBucketNode<XY, StringContent, StringHashMapArea> bucketNode ->
+            {
+                assertTrue(bucketNode.getItemCount() > 0);
+                assertEquals(bucketStoragePolicy == BucketStoragePolicy.ItemsOnly, bucketNode.contentMap.isEmpty());
+                assertEquals(bucketStoragePolicy == BucketStoragePolicy.ContentOnly, bucketNode.itemMap.isEmpty());
+            }
+            case KDIntermediateNode<XY, ?, StringContent, StringHashMapArea> intermediateNode ->
+            {
+                if (intermediateNode.lowerNode != null) assertBuckets(intermediateNode.lowerNode, bucketStoragePolicy);
+                if (intermediateNode.higherNode != null) assertBuckets(intermediateNode.higherNode, bucketStoragePolicy);
+            }
+            default -> fail("Unexpected node: " + node);
+        }
+    }
+
+    /**
+     * Adds the same items to the index each time.
+     *
+     * @param index The index to add the items to.
+     */
+    private static void addItems(XYRepoIndexKD index)
+    {
+        Random random = new Random(1);
+        for (int i = 0; i < 2_000; i++)
+        {
+            index.add(new XY(random.nextDouble(-1.2, 1.2), random.nextDouble(-1.2, 1.2)));
+        }
+        index.add(new XY(0.5, 0.5));
+    }
+
+    /**
+     * Creates the index that we test with.
+     *
+     * @param repoHandler              The repo handler for the index.
+     * @param bucketStoragePolicy      Which representations of the items to keep in each bucket.
+     * @param maxResidentDivisionCells The maximum number of division cells to keep resident. Zero to keep all division cells resident.
+     * @return A new index.
+     */
+    private static XYRepoIndexKD createIndex(StringMemoryRepoHandler repoHandler, BucketStoragePolicy bucketStoragePolicy, int maxResidentDivisionCells)
+    {
+        XYRepoIndexKD index = new XYRepoIndexKD(repoHandler, 4);
+        index.setBucketStoragePolicy(bucketStoragePolicy);
+        index.setMaxResidentDivisionCells(maxResidentDivisionCells);
+        return index;
+    }
+}
@@ -0,0 +1,116 @@
+package io.nanovc.indexing.repo;
+
+import io.nanovc.RepoPath;
+import io.nanovc.areas.StringHashMapArea;
+import io.nanovc.content.StringContent;
+import io.nanovc.indexing.examples.xy.XY;
+import io.nanovc.indexing.examples.xy.XYRepoIndexKD;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the {@link ContentAreaWriteBuffer} and how the {@link RepoIndexKDBase} uses it.
+ */
+public class ContentAreaWriteBufferTests
+{
+    @Test
+    public void changesToTheSamePath_AreCoalesced()
+    {
+        StringHashMapArea contentArea = new StringHashMapArea();
+        contentArea.putContent(RepoPath.at("/existing"), new StringContent("Existing"));
+
+        // Buffer several changes to the same paths:
+        ContentAreaWriteBuffer<StringContent> writeBuffer = new ContentAreaWriteBuffer<>();
+        writeBuffer.putContent(RepoPath.at("/a"), new StringContent("A1"));
+        writeBuffer.putContent(RepoPath.at("a"), new StringContent("A2"));
+        writeBuffer.putContent(RepoPath.at("/b"), new StringContent("B"));
+        writeBuffer.removeContent(RepoPath.at("/b"));
+        writeBuffer.removeContent(RepoPath.at("/existing"));
+        assertEquals(3, writeBuffer.getPendingChangeCount());
+        assertEquals(2, writeBuffer.getCoalescedChangeCount());
+
+        // Nothing is written until the buffer is flushed:
+        assertFalse(contentArea.hasContent(RepoPath.at("/a")));
+        writeBuffer.flushTo(contentArea);
+
+        // Only the final state of each path is written:
+        assertEquals("A2", contentArea.getContent(RepoPath.at("/a")).value);
+        assertFalse(contentArea.hasContent(RepoPath.at("/b")));
+        assertFalse(contentArea.hasContent(RepoPath.at("/existing")));
+        assertEquals(0, writeBuffer.getPendingChangeCount());
+    }
+
+    @Test
+    public void bufferedIndex_SameContentAsWriteThrough()
+    {
+        // Create an index that buffers changes and one that writes them immediately:
+        XYRepoIndexKD bufferedIndex = new XYRepoIndexKD(new XY(-1, -1), new XY(1, 1), 4, 4);
+        XYRepoIndexKD writeThroughIndex = new XYRepoIndexKD(new XY(-1, -1), new XY(1, 1), 4, 4);
+        bufferedIndex.setMaxPendingContentChanges(1_024);
+
+        // Add a burst of items that split buckets many times:
+        Random random = new Random(1);
+        for (int i = 0; i < 2_000; i++)
+        {
+            XY item = new XY(random.nextDouble(-1, 1), random.nextDouble(-1, 1));
+            bufferedIndex.add(item);
+            writeThroughIndex.add(item);
+        }
+
+        // Make sure the buffered changes were coalesced and are only written on index:
+        long coalescedChangeCount = 0;
+        for (DivisionCell<XY, StringContent, StringHashMapArea> divisionCell : bufferedIndex.divisionCube.cellsByBranchName.values())
+        {
+            coalescedChangeCount += divisionCell.contentAreaWriteBuffer.getCoalescedChangeCount();
+            assertEquals(0, divisionCell.contentArea.size());
+        }
+        assertTrue(coalescedChangeCount > 0);
+        bufferedIndex.index();
+
+        // Make sure the content areas end up the same:
+        for (DivisionCell<XY, StringContent, StringHashMapArea> divisionCell : bufferedIndex.divisionCube.cellsByBranchName.values())
+        {
+            DivisionCell<XY, StringContent, StringHashMapArea> writeThroughCell = writeThroughIndex.divisionCube.cellsByBranchName.get(divisionCell.branchName);
+            assertEquals(writeThroughCell.contentArea.asListString(), divisionCell.contentArea.asListString());
+        }
+    }
+
+    @Test
+    public void defaultIndex_WritesThrough()
+    {
+        // Create an index with the default settings:
+        XYRepoIndexKD index = new XYRepoIndexKD(new XY(-1, -1), new XY(1, 1), 1, 1_000);
+        assertEquals(0, index.getMaxPendingContentChanges());
+
+        // Make sure every add is in the content area straight away:
+        for (int i = 0; i < 25; i++)
+        {
+            index.add(new XY(i / 100.0, i / 100.0));
+        }
+        DivisionCell<XY, StringContent, StringHashMapArea> divisionCell = index.divisionCube.cellsByBranchName.values().iterator().next();
+        assertEquals(25, divisionCell.contentArea.size());
+        assertEquals(0, divisionCell.contentAreaWriteBuffer.getPendingChangeCount());
+    }
+
+    @Test
+    public void fullBuffer_IsWrittenToTheContentArea()
+    {
+        // Create an index with a small buffer and a single division cell:
+        XYRepoIndexKD index = new XYRepoIndexKD(new XY(-1, -1), new XY(1, 1), 1, 1_000);
+        index.setMaxPendingContentChanges(10);
+
+        // Add enough items to fill the buffer a few times:
+        for (int i = 0; i < 25; i++)
+        {
+            index.add(new XY(i / 100.0, i / 100.0));
+        }
+
+        // Make sure only the changes since the buffer was last written are pending:
+        DivisionCell<XY, StringContent, StringHashMapArea> divisionCell = index.divisionCube.cellsByBranchName.values().iterator().next();
+        assertEquals(20, divisionCell.contentArea.size());
+        assertEquals(5, divisionCell.contentAreaWriteBuffer.getPendingChangeCount());
+    }
+}
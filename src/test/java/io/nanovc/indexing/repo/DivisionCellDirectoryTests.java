@@ -0,0 +1,200 @@
+package io.nanovc.indexing.repo;
+
+import io.nanovc.areas.StringHashMapArea;
+import io.nanovc.content.StringContent;
+import io.nanovc.indexing.examples.xy.XY;
+import io.nanovc.indexing.examples.xy.XYRepoIndexKD;
+import io.nanovc.indexing.repo.arithmetic.IntegerArithmetic;
+import io.nanovc.indexing.repo.ranges.MinInclusiveMaxExclusiveRange;
+import io.nanovc.indexing.repo.ranges.Range;
+import io.nanovc.indexing.repo.ranges.RangeCalculator;
+import io.nanovc.indexing.repo.ranges.RangeSplitLocator;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the {@link DivisionCellDirectory}.
+ */
+public class DivisionCellDirectoryTests
+{
+    @Test
+    public void canPack()
+    {
+        assertTrue(DivisionCellDirectory.canPack(new int[] { 12, 12 }));
+        assertTrue(DivisionCellDirectory.canPack(new int[] { 102, 102, 102, 102, 102, 102 }));
+        assertFalse(DivisionCellDirectory.canPack(new int[] { 1_002, 1_002, 1_002, 1_002, 1_002, 1_002, 1_002 }));
+        assertFalse(DivisionCellDirectory.canPack(new int[] { 0 }));
+    }
+
+    @Test
+    public void denseDirectory_PutAndGet()
+    {
+        // Create a small directory:
+        DivisionCellDirectory<Integer, StringContent, StringHashMapArea> directory = new DivisionCellDirectory<>(createSplitLocators(2, 10));
+        assertTrue(directory.isDense());
+
+        assertPutAndGet(directory);
+    }
+
+    @Test
+    public void hashedDirectory_PutAndGet()
+    {
+        // Create a directory with too many possible cells for a dense array:
+        DivisionCellDirectory<Integer, StringContent, StringHashMapArea> directory = new DivisionCellDirectory<>(createSplitLocators(4, 100));
+        assertFalse(directory.isDense());
+
+        assertPutAndGet(directory);
+    }
+
+    @Test
+    public void findCellKey_MatchesPackedCoordinate()
+    {
+        // Create the directory:
+        DivisionCellDirectory<Integer, StringContent, StringHashMapArea> directory = new DivisionCellDirectory<>(createSplitLocators(2, 10));
+
+        // The splits are: (-inf,0), [0,10), [10,20), ... [90,100), [100,inf)
+        assertEquals(directory.packCoordinate(new int[] { 1, 1 }), directory.findCellKey(new HyperCoord(0, 9)));
+        assertEquals(directory.packCoordinate(new int[] { 0, 11 }), directory.findCellKey(new HyperCoord(-5, 100)));
+        assertEquals(directory.packCoordinate(new int[] { 10, 2 }), directory.findCellKey(new HyperCoord(95, 10)));
+        assertEquals(-1, directory.packCoordinate(new int[] { 12, 0 }));
+    }
+
+    @Test
+    public void repoIndex_WithAndWithoutDirectory_AreTheSame()
+    {
+        // Create the indexes:
+        XYRepoIndexKD indexWithDirectory = new XYRepoIndexKD(new XY(-1, -1), new XY(1, 1), 10, 4);
+        XYRepoIndexKD indexWithoutDirectory = new XYRepoIndexKD(new XY(-1, -1), new XY(1, 1), 10, 4);
+        indexWithoutDirectory.setCellDirectoryEnabled(false);
+
+        // Add the items:
+        Random random = new Random(1);
+        for (int i = 0; i < 1_000; i++)
+        {
+            XY item = new XY(random.nextDouble(-1.5, 1.5), random.nextDouble(-1.5, 1.5));
+            indexWithDirectory.add(item);
+            indexWithoutDirectory.add(item);
+        }
+        indexWithDirectory.index();
+        indexWithoutDirectory.index();
+
+        // Make sure the directory was used:
+        assertNotNull(indexWithDirectory.divisionCube.cellDirectory);
+        assertNull(indexWithoutDirectory.divisionCube.cellDirectory);
+        assertEquals(indexWithDirectory.divisionCube.cellsByBranchName.size(), indexWithDirectory.divisionCube.cellDirectory.size());
+
+        // Make sure the indexes are the same:
+        assertEquals(indexWithoutDirectory.toString(), indexWithDirectory.toString());
+        for (int i = 0; i < 1_000; i++)
+        {
+            XY item = new XY(random.nextDouble(-2, 2), random.nextDouble(-2, 2));
+            assertEquals(indexWithoutDirectory.searchNearest(item), indexWithDirectory.searchNearest(item));
+        }
+
+        // Make sure the nearest cells are the same and in the same order:
+        for (DivisionCell<XY, StringContent, StringHashMapArea> cellWithDirectory : indexWithDirectory.divisionCube.cellsByBranchName.values())
+        {
+            DivisionCell<XY, StringContent, StringHashMapArea> cellWithoutDirectory = indexWithoutDirectory.divisionCube.cellsByBranchName.get(cellWithDirectory.branchName);
+            assertEquals(getBranchNames(cellWithoutDirectory.nearestCells), getBranchNames(cellWithDirectory.nearestCells));
+        }
+    }
+
+    /**
+     * Gets the branch names of the given cells in order.
+     *
+     * @param cells The cells to get the branch names of.
+     * @return The branch names of the cells.
+     */
+    private static List<String> getBranchNames(List<DivisionCell<XY, StringContent, StringHashMapArea>> cells)
+    {
+        List<String> branchNames = new ArrayList<>();
+        for (DivisionCell<XY, StringContent, StringHashMapArea> cell : cells) branchNames.add(cell.branchName);
+        return branchNames;
+    }
+
+    /**
+     * Puts many cells into the directory and makes sure that we get them back.
+     *
+     * @param directory The directory to test.
+     */
+    private static void assertPutAndGet(DivisionCellDirectory<Integer, StringContent, StringHashMapArea> directory)
+    {
+        // Put cells at random coordinates:
+        Random random = new Random(1);
+        int[] radices = directory.getRadices();
+        Map<Long, DivisionCell<Integer, StringContent, StringHashMapArea>> expectedCells = new HashMap<>();
+        for (int i = 0; i < 1_000; i++)
+        {
+            // Create a random coordinate:
+            int[] coordinate = new int[radices.length];
+            for (int dimensionIndex = 0; dimensionIndex < radices.length; dimensionIndex++) coordinate[dimensionIndex] = random.nextInt(radices[dimensionIndex]);
+
+            // Create the cell:
+            DivisionCell<Integer, StringContent, StringHashMapArea> cell = new DivisionCell<>();
+            cell.divisionCellCoordinate = new DivisionCoord(coordinate);
+
+            // Put the cell:
+            long key = directory.packCoordinate(cell.divisionCellCoordinate);
+            directory.put(key, cell);
+            expectedCells.put(key, cell);
+        }
+
+        // Make sure we get all the cells back:
+        assertEquals(expectedCells.size(), directory.size());
+        for (Map.Entry<Long, DivisionCell<Integer, StringContent, StringHashMapArea>> entry : expectedCells.entrySet())
+        {
+            assertSame(entry.getValue(), directory.get(entry.getKey()));
+        }
+
+        // Make sure that missing cells are not found:
+        for (long key = 0; key < 1_000; key++)
+        {
+            if (!expectedCells.containsKey(key)) assertNull(directory.get(key));
+        }
+
+        // Remove half of the cells and make sure that the rest are still found:
+        List<Long> keysToRemove = new ArrayList<>(expectedCells.keySet());
+        Collections.shuffle(keysToRemove, random);
+        for (Long key : keysToRemove.subList(0, keysToRemove.size() / 2))
+        {
+            directory.remove(key);
+            expectedCells.remove(key);
+        }
+        assertEquals(expectedCells.size(), directory.size());
+        for (Long key : keysToRemove)
+        {
+            assertSame(expectedCells.get(key), directory.get(key));
+        }
+    }
+
+    /**
+     * Creates split locators for integer dimensions of [0, 10 * divisions) with a step of 10.
+     *
+     * @param dimensionCount The number of dimensions.
+     * @param divisions      The number of divisions in each dimension.
+     * @return The split locators for each dimension.
+     */
+    private static RangeSplitLocator<Object>[] createSplitLocators(int dimensionCount, int divisions)
+    {
+        //noinspection unchecked
+        RangeCalculator<Object> rangeCalculator = (RangeCalculator<Object>) (RangeCalculator<?>) new RangeCalculator<>(IntegerArithmetic.instance());
+
+        //noinspection unchecked
+        RangeSplitLocator<Object>[] splitLocators = (RangeSplitLocator<Object>[]) new RangeSplitLocator[dimensionCount];
+        for (int dimensionIndex = 0; dimensionIndex < dimensionCount; dimensionIndex++)
+        {
+            List<Range<Object>> splits = new ArrayList<>();
+            rangeCalculator.calculateRangeSplits(new MinInclusiveMaxExclusiveRange<>(0, 10 * divisions), divisions, 1, true, true, splits);
+            splitLocators[dimensionIndex] = new RangeSplitLocator<>(splits, rangeCalculator);
+        }
+        return splitLocators;
+    }
+}
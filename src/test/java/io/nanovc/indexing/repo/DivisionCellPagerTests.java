@@ -0,0 +1,186 @@
+package io.nanovc.indexing.repo;
+
+import io.nanovc.areas.StringHashMapArea;
+import io.nanovc.content.StringContent;
+import io.nanovc.indexing.examples.xy.XY;
+import io.nanovc.indexing.examples.xy.XYRepoIndexKD;
+import io.nanovc.indexing.repo.ranges.MinInclusiveMaxExclusiveRange;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the {@link DivisionCellPager}.
+ */
+public class DivisionCellPagerTests
+{
+    @Test
+    public void evictsLeastRecentlyUsedCells()
+    {
+        // Create the pager that tracks what it loads and evicts:
+        List<String> loaded = new ArrayList<>();
+        List<String> evicted = new ArrayList<>();
+        DivisionCellPager<XY, StringContent, StringHashMapArea> pager = new DivisionCellPager<>(
+            2,
+            cell -> { loaded.add(cell.branchName); cell.contentArea = new StringHashMapArea(); },
+            cell -> { evicted.add(cell.branchName); cell.contentArea = null; }
+        );
+
+        // Create cells that are not resident:
+        DivisionCell<XY, StringContent, StringHashMapArea> a = createCell("A");
+        DivisionCell<XY, StringContent, StringHashMapArea> b = createCell("B");
+        DivisionCell<XY, StringContent, StringHashMapArea> c = createCell("C");
+
+        // Touch A, B, then A again so that B is the coldest:
+        touch(pager, a);
+        touch(pager, b);
+        touch(pager, a);
+        assertEquals(List.of("A", "B"), loaded);
+        assertEquals(1, pager.getHitCount());
+        assertEquals(2, pager.getMissCount());
+
+        // Touch C, which should evict B:
+        touch(pager, c);
+        assertEquals(List.of("B"), evicted);
+        assertNull(b.contentArea);
+        assertEquals(2, pager.getResidentCellCount());
+        assertEquals(1, pager.getEvictionCount());
+    }
+
+    @Test
+    public void pinnedCellsAreNotEvicted()
+    {
+        // Create the pager:
+        DivisionCellPager<XY, StringContent, StringHashMapArea> pager = new DivisionCellPager<>(
+            1,
+            cell -> cell.contentArea = new StringHashMapArea(),
+            cell -> cell.contentArea = null
+        );
+
+        // Pin two cells at the same time:
+        DivisionCell<XY, StringContent, StringHashMapArea> a = createCell("A");
+        DivisionCell<XY, StringContent, StringHashMapArea> b = createCell("B");
+        pager.pin(a);
+        pager.pin(b);
+
+        // Both must stay resident while they are pinned:
+        assertNotNull(a.contentArea);
+        assertNotNull(b.contentArea);
+        assertEquals(2, pager.getResidentCellCount());
+
+        // Unpinning the first cell lets it be evicted:
+        pager.unpin(a);
+        assertNull(a.contentArea);
+        assertNotNull(b.contentArea);
+        pager.unpin(b);
+        assertEquals(1, pager.getResidentCellCount());
+    }
+
+    @Test
+    public void pagedIndex_SameResultsAsResidentIndex()
+    {
+        // Create the indexes:
+        XYRepoIndexKD residentIndex = new XYRepoIndexKD(new XY(-1, -1), new XY(1, 1), 10, 4);
+        XYRepoIndexKD pagedIndex = new XYRepoIndexKD(new XY(-1, -1), new XY(1, 1), 10, 4);
+        pagedIndex.setMaxResidentDivisionCells(5);
+
+        // Add the items:
+        Random random = new Random(1);
+        for (int i = 0; i < 2_000; i++)
+        {
+            XY item = new XY(random.nextDouble(-1.2, 1.2), random.nextDouble(-1.2, 1.2));
+            residentIndex.add(item);
+            pagedIndex.add(item);
+        }
+        residentIndex.index();
+        pagedIndex.index();
+
+        // Make sure the results are the same:
+        for (int i = 0; i < 1_000; i++)
+        {
+            XY query = new XY(random.nextDouble(-1.5, 1.5), random.nextDouble(-1.5, 1.5));
+            assertEquals(residentIndex.searchNearest(query), pagedIndex.searchNearest(query));
+        }
+
+        // Make sure that we were paging:
+        DivisionCellPager<XY, StringContent, StringHashMapArea> pager = pagedIndex.getDivisionCellPager();
+        assertTrue(pager.getResidentCellCount() <= 5);
+        assertTrue(pager.getEvictionCount() > 0);
+        assertTrue(pager.getMissCount() > 0);
+        assertTrue(pager.getHitCount() > 0);
+    }
+
+    @Test
+    public void pagedIndex_SameHyperCubeResultsAsResidentIndex()
+    {
+        // Create the indexes:
+        XYRepoIndexKD residentIndex = new XYRepoIndexKD(new XY(-1, -1), new XY(1, 1), 10, 4);
+        XYRepoIndexKD pagedIndex = new XYRepoIndexKD(new XY(-1, -1), new XY(1, 1), 10, 4);
+        pagedIndex.setMaxResidentDivisionCells(5);
+
+        // Add the items:
+        Random random = new Random(2);
+        for (int i = 0; i < 2_000; i++)
+        {
+            XY item = new XY(random.nextDouble(-1.2, 1.2), random.nextDouble(-1.2, 1.2));
+            residentIndex.add(item);
+            pagedIndex.add(item);
+        }
+        residentIndex.index();
+        pagedIndex.index();
+
+        // Search random regions:
+        HyperCubeDefinition definition = pagedIndex.getHyperCubeDefinition();
+        for (int i = 0; i < 100; i++)
+        {
+            double x = random.nextDouble(-1.5, 1.0);
+            double y = random.nextDouble(-1.5, 1.0);
+            HyperCube region = new HyperCube(
+                definition,
+                new MinInclusiveMaxExclusiveRange<>(x, x + random.nextDouble(1.5)),
+                new MinInclusiveMaxExclusiveRange<>(y, y + random.nextDouble(1.5))
+            );
+
+            // Make sure the paged index finds the same items, including those in cells that were paged out:
+            List<XY> expectedItems = residentIndex.searchWithinHyperCube(region);
+            List<XY> foundItems = pagedIndex.searchWithinHyperCube(region);
+            assertEquals(expectedItems.size(), foundItems.size());
+            assertEquals(new HashSet<>(expectedItems), new HashSet<>(foundItems));
+        }
+
+        // Make sure that we were paging:
+        DivisionCellPager<XY, StringContent, StringHashMapArea> pager = pagedIndex.getDivisionCellPager();
+        assertTrue(pager.getResidentCellCount() <= 5);
+        assertTrue(pager.getMissCount() > 0);
+    }
+
+    /**
+     * Creates a division cell that is not resident.
+     *
+     * @param branchName The branch name of the cell.
+     * @return A new division cell.
+     */
+    private static DivisionCell<XY, StringContent, StringHashMapArea> createCell(String branchName)
+    {
+        DivisionCell<XY, StringContent, StringHashMapArea> cell = new DivisionCell<>();
+        cell.branchName = branchName;
+        return cell;
+    }
+
+    /**
+     * Pins and then unpins the given cell.
+     *
+     * @param pager The pager to use.
+     * @param cell  The cell to touch.
+     */
+    private static void touch(DivisionCellPager<XY, StringContent, StringHashMapArea> pager, DivisionCell<XY, StringContent, StringHashMapArea> cell)
+    {
+        pager.pin(cell);
+        pager.unpin(cell);
+    }
+}
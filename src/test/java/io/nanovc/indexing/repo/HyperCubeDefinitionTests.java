@@ -75,4 +75,25 @@ class HyperCubeDefinitionTests
             }
         );
     }
+
+    @Test
+    public void withDivisions()
+    {
+        HyperCubeDefinition cube = new HyperCubeDefinition();
+        cube.addDimension(IntegerArithmetic.instance(), "X", 1, new MinInclusiveMaxInclusiveRange<>(0, 10));
+        cube.addDimension(DoubleArithmetic.instance(), "Y", 0.1, new MinInclusiveMaxInclusiveRange<>(0.0, 1.0));
+        assertEquals(0, cube.getDimension(0).getDivisions());
+
+        // Copy the definition with divisions for each dimension:
+        HyperCubeDefinition dividedCube = cube.withDivisions(2, 8);
+        assertEquals(2, dividedCube.getDimensionCount());
+        assertEquals(2, dividedCube.getDimension("X").getDivisions());
+        assertEquals(8, dividedCube.getDimension("Y").getDivisions());
+        assertEquals(cube.getDimension(1).getRange(), dividedCube.getDimension(1).getRange());
+        assertEquals(cube.toString(), dividedCube.toString());
+
+        // Make sure the divisions match the dimensions:
+        assertThrows(IllegalArgumentException.class, () -> cube.withDivisions(2));
+        assertThrows(IllegalArgumentException.class, () -> cube.withDivisions(2, -1));
+    }
 }
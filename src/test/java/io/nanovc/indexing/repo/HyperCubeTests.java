@@ -2,11 +2,20 @@ package io.nanovc.indexing.repo;
 
 import io.nanovc.indexing.repo.arithmetic.DoubleArithmetic;
 import io.nanovc.indexing.repo.arithmetic.IntegerArithmetic;
+import io.nanovc.indexing.repo.ranges.MaxExclusiveRange;
+import io.nanovc.indexing.repo.ranges.MinInclusiveMaxExclusiveRange;
 import io.nanovc.indexing.repo.ranges.MinInclusiveMaxInclusiveRange;
+import io.nanovc.indexing.repo.ranges.NotRange;
+import io.nanovc.indexing.repo.ranges.Range;
 import io.nanovc.indexing.repo.ranges.UnBoundedRange;
 import org.junit.jupiter.api.Test;
 
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -139,4 +148,87 @@ class HyperCubeTests
         assertFalse(cube.isCoordinateInRange(2, 0.5)); // Bounded by x range
         assertFalse(cube.isCoordinateInRange(3, 0.5)); // Bounded by x range
     }
+
+    @Test
+    public void cube_2D_Relations()
+    {
+        // Define the cube structure:
+        HyperCubeDefinition definition = new HyperCubeDefinition();
+        Dimension<Integer> xDim = definition.addDimension(IntegerArithmetic.instance(), "X", 1, new UnBoundedRange<>());
+        Dimension<Double> yDim = definition.addDimension(DoubleArithmetic.instance(), "Y", 0.01, new UnBoundedRange<>());
+
+        // Create the hyper cubes:
+        HyperCube cube = new HyperCube(definition, new MinInclusiveMaxExclusiveRange<>(0, 10), new MinInclusiveMaxExclusiveRange<>(0.0, 1.0));
+        HyperCube inside = new HyperCube(definition, xDim.rangeBetween(2, 3), yDim.rangeBetween(0.25, 0.5));
+        HyperCube overlapping = new HyperCube(definition, xDim.rangeBetween(9, 20), yDim.rangeBetween(0.5, 2.0));
+        HyperCube touching = new HyperCube(definition, xDim.rangeBetween(10, 20), yDim.rangeBetween(0.0, 1.0));
+        HyperCube separateInY = new HyperCube(definition, xDim.rangeBetween(2, 3), new NotRange<>(new MaxExclusiveRange<>(1.0)));
+
+        // Make sure the hyper cubes intersect as expected:
+        assertTrue(cube.intersects(inside));
+        assertTrue(cube.intersects(overlapping));
+        assertFalse(cube.intersects(touching)); // The upper bound of X is exclusive.
+        assertFalse(cube.intersects(separateInY)); // The upper bound of Y is exclusive.
+
+        // Make sure the hyper cubes contain each other as expected:
+        assertTrue(cube.contains(inside));
+        assertFalse(inside.contains(cube));
+        assertFalse(cube.contains(overlapping));
+        assertTrue(cube.contains(cube));
+
+        // Make sure the distances are measured in each dimension:
+        assertEquals(new HyperCoord(0, 0.0).toString(), cube.minDistanceTo(new HyperCoord(5, 0.5)).toString());
+        assertEquals(new HyperCoord(3, 0.5).toString(), cube.minDistanceTo(new HyperCoord(-3, 1.5)).toString());
+
+        // Make sure that hyper cubes with different dimensions can't be related:
+        HyperCubeDefinition otherDefinition = new HyperCubeDefinition();
+        otherDefinition.addDimension(IntegerArithmetic.instance(), "X", 1, new UnBoundedRange<>());
+        HyperCube otherCube = new HyperCube(otherDefinition, new MinInclusiveMaxExclusiveRange<>(0, 10));
+        assertThrows(IllegalArgumentException.class, () -> cube.intersects(otherCube));
+
+        // Make sure the distance is checked in the units of the dimension:
+        assertTrue(otherCube.isWithinDistance(new HyperCoord(-3), 3));
+        assertFalse(otherCube.isWithinDistance(new HyperCoord(-4), 3));
+    }
+
+    @Test
+    public void derivedCubes_SameAsCopiedRanges()
+    {
+        // Define the cube structure:
+        HyperCubeDefinition definition = new HyperCubeDefinition();
+        Dimension<Integer> xDim = definition.addDimension(IntegerArithmetic.instance(), "X", 1, new UnBoundedRange<>());
+        Dimension<Integer> yDim = definition.addDimension(IntegerArithmetic.instance(), "Y", 1, new UnBoundedRange<>());
+        Dimension<Integer> zDim = definition.addDimension(IntegerArithmetic.instance(), "Z", 1, new UnBoundedRange<>());
+
+        // Derive a long chain of cubes like the nodes down a kd-tree:
+        Random random = new Random(1);
+        HyperCube cube = definition.createHyperCube();
+        Range<?>[] expectedRanges = cube.getRanges().clone();
+        for (int level = 0; level < 50; level++)
+        {
+            // Change the range of one dimension:
+            int dimensionIndex = random.nextInt(3);
+            int min = random.nextInt(-10, 10);
+            Range<Integer> newRange = new MinInclusiveMaxExclusiveRange<>(min, min + random.nextInt(1, 10));
+            cube = cube.createHyperCubeWithChangedRange(dimensionIndex, newRange);
+            expectedRanges[dimensionIndex] = newRange;
+
+            // Make sure the derived cube has the same ranges as a copy:
+            for (int dimIndex = 0; dimIndex < 3; dimIndex++)
+            {
+                assertEquals(expectedRanges[dimIndex], cube.getRangeForDimension(dimIndex));
+            }
+            HyperCube expectedCube = new HyperCube(definition, expectedRanges.clone());
+            for (int i = 0; i < 20; i++)
+            {
+                Object[] coord = { random.nextInt(-12, 12), random.nextInt(-12, 12), random.nextInt(-12, 12) };
+                assertEquals(expectedCube.isCoordinateInRange(coord), cube.isCoordinateInRange(coord));
+            }
+            if (level % 7 == 0) assertArrayEquals(expectedRanges, cube.getRanges());
+            assertEquals(expectedCube.toString(), cube.toString());
+        }
+        assertEquals(3, cube.getDimensionCount());
+        assertEquals(xDim, cube.getDefinition().getDimension(0));
+        assertEquals(zDim, cube.getDefinition().getDimension(yDim.getDimensionIndex() + 1));
+    }
 }
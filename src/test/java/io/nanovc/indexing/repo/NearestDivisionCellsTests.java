@@ -0,0 +1,203 @@
+package io.nanovc.indexing.repo;
+
+import io.nanovc.areas.StringHashMapArea;
+import io.nanovc.content.StringContent;
+import io.nanovc.indexing.examples.xy.XY;
+import io.nanovc.indexing.examples.xy.XYRepoIndexKD;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that the nearest cells of each {@link DivisionCell} are maintained as cells are created.
+ */
+public class NearestDivisionCellsTests
+{
+    @Test
+    public void singleCell_HasNoNearestCells()
+    {
+        // Create the index:
+        XYRepoIndexKD index = new XYRepoIndexKD(new XY(-1, -1), new XY(1, 1), 10, 4);
+        index.add(new XY(0, 0));
+
+        // Make sure the only cell has no nearest cells:
+        DivisionCell<XY, StringContent, StringHashMapArea> cell = index.divisionCube.cellsByBranchName.firstEntry().getValue();
+        assertTrue(cell.nearestCells.isEmpty());
+        assertEquals(Integer.MAX_VALUE, cell.nearestCellsDivisionDistance);
+    }
+
+    @Test
+    public void farApartCells_AreNearestToEachOther()
+    {
+        // Create the index:
+        XYRepoIndexKD index = new XYRepoIndexKD(new XY(-1, -1), new XY(1, 1), 10, 4);
+        index.add(new XY(-0.95, -0.95));
+        index.add(new XY(0.95, 0.95));
+
+        // Make sure the cells are linked:
+        for (DivisionCell<XY, StringContent, StringHashMapArea> cell : index.divisionCube.cellsByBranchName.values())
+        {
+            assertEquals(1, cell.nearestCells.size());
+            assertEquals(9, cell.nearestCellsDivisionDistance);
+        }
+
+        // Add a cell in the middle, which is nearer to both:
+        index.add(new XY(0.05, 0.05));
+        assertSameAsRebuild(index);
+    }
+
+    @Test
+    public void incrementalBatches_SameAsRebuild_WithDirectory()
+    {
+        for (DivisionCellNeighbourStrategy strategy : DivisionCellNeighbourStrategy.values())
+        {
+            assertIncrementalBatchesSameAsRebuild(true, strategy);
+        }
+    }
+
+    @Test
+    public void incrementalBatches_SameAsRebuild_WithoutDirectory()
+    {
+        for (DivisionCellNeighbourStrategy strategy : DivisionCellNeighbourStrategy.values())
+        {
+            assertIncrementalBatchesSameAsRebuild(false, strategy);
+        }
+    }
+
+    @Test
+    public void rebuildWithOccupiedCells_SameAsShellWalk()
+    {
+        // Create the index:
+        XYRepoIndexKD index = new XYRepoIndexKD(new XY(-1, -1), new XY(1, 1), 20, 4);
+        index.setDivisionCellNeighbourStrategy(DivisionCellNeighbourStrategy.OccupiedCells);
+
+        // Add sparse items:
+        Random random = new Random(2);
+        for (int i = 0; i < 30; i++)
+        {
+            index.add(new XY(random.nextDouble(-1.2, 1.2), random.nextDouble(-1.2, 1.2)));
+        }
+
+        // Rebuild with the occupied cells:
+        index.workOutNearestNeighborsForDivisionCells(index.divisionCube);
+        Map<String, Set<String>> occupiedNearestCells = captureNearestCells(index.divisionCube);
+        Map<String, Integer> occupiedDistances = captureNearestCellsDistances(index.divisionCube);
+
+        // Rebuild with the shell walk:
+        index.setDivisionCellNeighbourStrategy(DivisionCellNeighbourStrategy.ShellWalk);
+        index.workOutNearestNeighborsForDivisionCells(index.divisionCube);
+
+        // Make sure they are the same:
+        assertEquals(captureNearestCells(index.divisionCube), occupiedNearestCells);
+        assertEquals(captureNearestCellsDistances(index.divisionCube), occupiedDistances);
+    }
+
+    /**
+     * Adds clustered items in small batches and makes sure that the nearest cells match a full rebuild after each batch.
+     *
+     * @param cellDirectoryEnabled True to use the flat cell directory. False to walk the division dimensions.
+     * @param strategy             The strategy to discover neighbouring cells with.
+     */
+    private static void assertIncrementalBatchesSameAsRebuild(boolean cellDirectoryEnabled, DivisionCellNeighbourStrategy strategy)
+    {
+        // Create the index:
+        XYRepoIndexKD index = new XYRepoIndexKD(new XY(-1, -1), new XY(1, 1), 20, 4);
+        index.setCellDirectoryEnabled(cellDirectoryEnabled);
+        index.setDivisionCellNeighbourStrategy(strategy);
+
+        // Add items in batches, with a few tight clusters so that the distances between cells vary:
+        Random random = new Random(1);
+        for (int batch = 0; batch < 40; batch++)
+        {
+            // Pick a cluster for this batch:
+            double centerX = random.nextDouble(-1.2, 1.2);
+            double centerY = random.nextDouble(-1.2, 1.2);
+            for (int i = 0; i < 5; i++)
+            {
+                index.add(new XY(centerX + random.nextGaussian() * 0.05, centerY + random.nextGaussian() * 0.05));
+            }
+            index.index();
+
+            assertSameAsRebuild(index);
+        }
+    }
+
+    /**
+     * Asserts that the nearest cells that were maintained incrementally are the same as the nearest cells after a full rebuild.
+     *
+     * @param index The index to check.
+     */
+    private static void assertSameAsRebuild(XYRepoIndexKD index)
+    {
+        // Capture the nearest cells that we maintained:
+        Map<String, Set<String>> incrementalNearestCells = captureNearestCells(index.divisionCube);
+        Map<String, Integer> incrementalDistances = captureNearestCellsDistances(index.divisionCube);
+        int[] incrementalCounts = index.divisionCube.cellCountsByNearestCellsDivisionDistance.clone();
+
+        // Rebuild the nearest cells from scratch by walking the shells around each cell:
+        DivisionCellNeighbourStrategy strategy = index.getDivisionCellNeighbourStrategy();
+        index.setDivisionCellNeighbourStrategy(DivisionCellNeighbourStrategy.ShellWalk);
+        index.workOutNearestNeighborsForDivisionCells(index.divisionCube);
+        index.setDivisionCellNeighbourStrategy(strategy);
+
+        // Make sure they are the same:
+        assertEquals(captureNearestCells(index.divisionCube), incrementalNearestCells);
+        assertEquals(captureNearestCellsDistances(index.divisionCube), incrementalDistances);
+        assertArrayEquals(trimTrailingZeros(index.divisionCube.cellCountsByNearestCellsDivisionDistance), trimTrailingZeros(incrementalCounts));
+    }
+
+    /**
+     * Captures the branch names of the nearest cells for each cell.
+     *
+     * @param divisionCube The division cube to capture.
+     * @return The branch names of the nearest cells for each cell, by the branch name of the cell.
+     */
+    private static Map<String, Set<String>> captureNearestCells(DivisionCube<XY, StringContent, StringHashMapArea> divisionCube)
+    {
+        Map<String, Set<String>> nearestCellsByBranchName = new HashMap<>();
+        for (DivisionCell<XY, StringContent, StringHashMapArea> cell : divisionCube.cellsByBranchName.values())
+        {
+            Set<String> nearestBranchNames = new HashSet<>();
+            for (DivisionCell<XY, StringContent, StringHashMapArea> nearestCell : cell.nearestCells) nearestBranchNames.add(nearestCell.branchName);
+            assertEquals(cell.nearestCells.size(), nearestBranchNames.size(), "Duplicate nearest cells for " + cell.branchName);
+            nearestCellsByBranchName.put(cell.branchName, nearestBranchNames);
+        }
+        return nearestCellsByBranchName;
+    }
+
+    /**
+     * Captures the distance to the nearest cells for each cell.
+     *
+     * @param divisionCube The division cube to capture.
+     * @return The distance to the nearest cells for each cell, by the branch name of the cell.
+     */
+    private static Map<String, Integer> captureNearestCellsDistances(DivisionCube<XY, StringContent, StringHashMapArea> divisionCube)
+    {
+        Map<String, Integer> distancesByBranchName = new HashMap<>();
+        for (DivisionCell<XY, StringContent, StringHashMapArea> cell : divisionCube.cellsByBranchName.values())
+        {
+            distancesByBranchName.put(cell.branchName, cell.nearestCellsDivisionDistance);
+        }
+        return distancesByBranchName;
+    }
+
+    /**
+     * Removes the trailing zeros from the counts so that arrays of different capacities can be compared.
+     *
+     * @param counts The counts to trim.
+     * @return The counts without trailing zeros.
+     */
+    private static int[] trimTrailingZeros(int[] counts)
+    {
+        int length = counts.length;
+        while (length > 0 && counts[length - 1] == 0) length--;
+        return Arrays.copyOf(counts, length);
+    }
+}
@@ -0,0 +1,85 @@
+package io.nanovc.indexing.repo;
+
+import io.nanovc.areas.StringHashMapArea;
+import io.nanovc.content.StringContent;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the {@link OccupiedDivisionCellIndex}.
+ */
+public class OccupiedDivisionCellIndexTests
+{
+    @Test
+    public void emptyIndex_HasNoNearestCells()
+    {
+        OccupiedDivisionCellIndex<Integer, StringContent, StringHashMapArea> index = new OccupiedDivisionCellIndex<>(2);
+        List<DivisionCell<Integer, StringContent, StringHashMapArea>> nearestCells = new ArrayList<>();
+        assertEquals(Integer.MAX_VALUE, index.findNearestCells(new DivisionCoord(0, 0), nearestCells));
+        assertTrue(nearestCells.isEmpty());
+    }
+
+    @Test
+    public void sparseHighDimensionalCells_SameAsCheckingEveryCell()
+    {
+        // Create sparse cells in many dimensions:
+        int dimensionCount = 8;
+        int divisions = 12;
+        Random random = new Random(1);
+        OccupiedDivisionCellIndex<Integer, StringContent, StringHashMapArea> index = new OccupiedDivisionCellIndex<>(dimensionCount);
+        List<DivisionCell<Integer, StringContent, StringHashMapArea>> cells = new ArrayList<>();
+        Set<DivisionCoord> coordinates = new HashSet<>();
+        while (cells.size() < 200)
+        {
+            // Create a random coordinate:
+            int[] values = new int[dimensionCount];
+            for (int dimensionIndex = 0; dimensionIndex < dimensionCount; dimensionIndex++) values[dimensionIndex] = random.nextInt(divisions);
+            DivisionCoord coordinate = new DivisionCoord(values);
+            if (!coordinates.add(coordinate)) continue;
+
+            // Create the cell:
+            DivisionCell<Integer, StringContent, StringHashMapArea> cell = new DivisionCell<>();
+            cell.divisionCellCoordinate = coordinate;
+            cells.add(cell);
+            index.add(cell);
+        }
+        assertEquals(cells.size(), index.size());
+
+        // Check the nearest cells for each cell:
+        for (DivisionCell<Integer, StringContent, StringHashMapArea> cell : cells)
+        {
+            // Find the nearest cells by checking every cell:
+            int expectedDistance = Integer.MAX_VALUE;
+            Set<DivisionCell<Integer, StringContent, StringHashMapArea>> expectedNearestCells = new HashSet<>();
+            for (DivisionCell<Integer, StringContent, StringHashMapArea> otherCell : cells)
+            {
+                if (otherCell == cell) continue;
+                int distance = cell.divisionCellCoordinate.divisionDistanceTo(otherCell.divisionCellCoordinate);
+                if (distance < expectedDistance)
+                {
+                    expectedDistance = distance;
+                    expectedNearestCells.clear();
+                }
+                if (distance == expectedDistance) expectedNearestCells.add(otherCell);
+            }
+
+            // Find the nearest cells with the index:
+            List<DivisionCell<Integer, StringContent, StringHashMapArea>> nearestCells = new ArrayList<>();
+            assertEquals(expectedDistance, index.findNearestCells(cell.divisionCellCoordinate, nearestCells));
+            assertEquals(expectedNearestCells, new HashSet<>(nearestCells));
+
+            // Make sure the cells within a distance match:
+            Set<DivisionCell<Integer, StringContent, StringHashMapArea>> cellsWithinDistance = new HashSet<>();
+            index.findCellsWithinDivisionDistance(cell.divisionCellCoordinate, 0, expectedDistance, cellsWithinDistance);
+            expectedNearestCells.add(cell);
+            assertEquals(expectedNearestCells, cellsWithinDistance);
+        }
+    }
+}
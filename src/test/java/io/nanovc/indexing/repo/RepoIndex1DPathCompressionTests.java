@@ -0,0 +1,131 @@
+package io.nanovc.indexing.repo;
+
+import io.nanovc.RepoPath;
+import io.nanovc.areas.StringHashMapArea;
+import io.nanovc.content.StringContent;
+import io.nanovc.indexing.examples.x.X;
+import io.nanovc.indexing.examples.x.XRepoIndex1D;
+import io.nanovc.memory.strings.StringMemoryRepoHandler;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the path-compressed (radix) trie mode of the {@link RepoIndex1DBase}.
+ */
+public class RepoIndex1DPathCompressionTests
+{
+    /**
+     * A long prefix that every item shares.
+     */
+    private static final String SHARED_PREFIX = "1.000000000000000";
+
+    @Test
+    public void sameResultsAsByteTrie()
+    {
+        // Create the indexes:
+        XRepoIndex1D byteTrieIndex = new XRepoIndex1D(new X(-10_000), new X(10_000), 10);
+        XRepoIndex1D compressedIndex = new XRepoIndex1D(new X(-10_000), new X(10_000), 10);
+        compressedIndex.setPathCompressedTrieEnabled(true);
+
+        // Add the same items, including duplicates and items that are prefixes of each other:
+        Random random = new Random(1);
+        for (int i = 0; i < 10_000; i++)
+        {
+            X item = new X(random.nextInt(-10_000, 10_000) / (1 + random.nextInt(100)));
+            byteTrieIndex.add(item);
+            compressedIndex.add(item);
+        }
+
+        // Make sure the searches find items at the same distance:
+        // NOTE: When two items are equally near, each trie can find a different one first.
+        for (int i = 0; i < 1_000; i++)
+        {
+            X query = new X(random.nextInt(-30_000, 30_000));
+            assertEquals(X.measureDistance(query, byteTrieIndex.searchNearest(query)), X.measureDistance(query, compressedIndex.searchNearest(query)));
+        }
+
+        // Make sure that every item is found exactly:
+        random = new Random(1);
+        for (int i = 0; i < 10_000; i++)
+        {
+            X item = new X(random.nextInt(-10_000, 10_000) / (1 + random.nextInt(100)));
+            assertEquals(item, compressedIndex.searchNearest(item));
+        }
+    }
+
+    @Test
+    public void longSharedPrefixes_ShallowerTrie()
+    {
+        // Create the indexes with a single division so that all items share one trie:
+        XRepoIndex1D byteTrieIndex = new XRepoIndex1D(new X(0), new X(100_000), 1, new StringMemoryRepoHandler(), RepoPath.atRoot(), RepoIndex1DPathCompressionTests::createPrefixedContent, RepoIndex1DPathCompressionTests::readPrefixedContent);
+        XRepoIndex1D compressedIndex = new XRepoIndex1D(new X(0), new X(100_000), 1, new StringMemoryRepoHandler(), RepoPath.atRoot(), RepoIndex1DPathCompressionTests::createPrefixedContent, RepoIndex1DPathCompressionTests::readPrefixedContent);
+        compressedIndex.setPathCompressedTrieEnabled(true);
+
+        // Add items that share long prefixes:
+        Random random = new Random(2);
+        for (int i = 0; i < 2_000; i++)
+        {
+            X item = new X(random.nextInt(100_000));
+            byteTrieIndex.add(item);
+            compressedIndex.add(item);
+        }
+
+        // Make sure the compressed trie has the same items in a much shallower trie:
+        Division<X, StringContent, StringHashMapArea> byteTrieDivision = byteTrieIndex.getDivision(0);
+        Division<X, StringContent, StringHashMapArea> compressedDivision = compressedIndex.getDivision(0);
+        assertEquals(byteTrieDivision.contentArea.size(), compressedDivision.contentArea.size());
+        assertTrue(getDepth(compressedDivision.repoPathTree.getRootNode()) * 2 < getDepth(byteTrieDivision.repoPathTree.getRootNode()));
+
+        // Make sure that every item is found exactly:
+        random = new Random(2);
+        for (int i = 0; i < 2_000; i++)
+        {
+            X item = new X(random.nextInt(100_000));
+            assertEquals(item, compressedIndex.searchNearest(item));
+        }
+    }
+
+    /**
+     * Creates content for the item with a long prefix that every item shares, like the serialized form of nearby doubles.
+     *
+     * @param item The item to create the content for.
+     * @return The content for the given item.
+     */
+    private static StringContent createPrefixedContent(X item)
+    {
+        return new StringContent(SHARED_PREFIX + item.x());
+    }
+
+    /**
+     * Gets the item from content that was created with {@link #createPrefixedContent}.
+     *
+     * @param content The content to read the item from.
+     * @return The item for the given content.
+     */
+    private static X readPrefixedContent(StringContent content)
+    {
+        return new X(Integer.parseInt(content.value.substring(SHARED_PREFIX.length())));
+    }
+
+    /**
+     * Gets the depth of the deepest node below the given node.
+     *
+     * @param node The node to measure from.
+     * @return The depth of the deepest node below the given node.
+     */
+    private static int getDepth(RepoPathNode node)
+    {
+        int depth = 0;
+        if (node.hasChildren())
+        {
+            for (RepoPathNode childNode : node.getChildren())
+            {
+                depth = Math.max(depth, 1 + getDepth(childNode));
+            }
+        }
+        return depth;
+    }
+}
@@ -0,0 +1,218 @@
+package io.nanovc.indexing.repo;
+
+import io.nanovc.RepoPath;
+import io.nanovc.indexing.examples.x.X;
+import io.nanovc.indexing.examples.x.XRepoIndex1D;
+import io.nanovc.indexing.examples.xy.XY;
+import io.nanovc.indexing.examples.xy.XYRepoIndexKD;
+import io.nanovc.memory.MemoryCommit;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests searching the repo indexes as of a version that was committed earlier.
+ */
+public class RepoIndexAsOfTests
+{
+    @Test
+    public void repoIndexKD_SearchAsOfEarlierVersion()
+    {
+        // Create the index and an index with only the items of the first version:
+        XYRepoIndexKD index = new XYRepoIndexKD(new XY(-1, -1), new XY(1, 1), 10, 4);
+        XYRepoIndexKD firstVersionIndex = new XYRepoIndexKD(new XY(-1, -1), new XY(1, 1), 10, 4);
+
+        // Add the items for the first version:
+        Random random = new Random(1);
+        List<XY> firstVersionItems = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++)
+        {
+            XY item = new XY(random.nextDouble(-1.2, 1.2), random.nextDouble(-1.2, 1.2));
+            index.add(item);
+            firstVersionIndex.add(item);
+            firstVersionItems.add(item);
+        }
+        index.index();
+        firstVersionIndex.index();
+        Map<String, MemoryCommit> firstCommits = index.commit("First version");
+        MemoryCommit firstCommit = firstCommits.values().iterator().next();
+
+        // Add more items for the second version:
+        List<XY> allItems = new ArrayList<>(firstVersionItems);
+        for (int i = 0; i < 1_000; i++)
+        {
+            XY item = new XY(random.nextDouble(-1.2, 1.2), random.nextDouble(-1.2, 1.2));
+            index.add(item);
+            allItems.add(item);
+        }
+        index.index();
+        Map<String, MemoryCommit> secondCommits = index.commit("Second version");
+        MemoryCommit secondCommit = secondCommits.values().iterator().next();
+
+        // Make sure that searching as of the first version only sees the first items:
+        for (int i = 0; i < 500; i++)
+        {
+            XY query = new XY(random.nextDouble(-1.5, 1.5), random.nextDouble(-1.5, 1.5));
+            assertEquals(firstVersionIndex.searchNearest(query), index.searchNearestAsOf(firstCommit, query));
+            assertEquals(index.searchNearest(query), index.searchNearestAsOf(secondCommit, query));
+        }
+
+        // Make sure that searching within a distance finds exactly the items within that distance:
+        for (int i = 0; i < 100; i++)
+        {
+            XY query = new XY(random.nextDouble(-1.5, 1.5), random.nextDouble(-1.5, 1.5));
+            assertEquals(findWithinDistance(firstVersionItems, query, 0.2), new HashSet<>(index.searchWithinDistanceAsOf(firstCommit, query, 0.2)));
+            assertEquals(findWithinDistance(allItems, query, 0.2), new HashSet<>(index.searchWithinDistance(query, 0.2)));
+        }
+    }
+
+    @Test
+    public void repoIndex1D_SearchAsOfEarlierVersion()
+    {
+        // Create the index and an index with only the items of the first version:
+        XRepoIndex1D index = new XRepoIndex1D(new X(-1_000), new X(1_000), 100);
+        XRepoIndex1D firstVersionIndex = new XRepoIndex1D(new X(-1_000), new X(1_000), 100);
+
+        // Add the items for the first version:
+        Random random = new Random(2);
+        List<X> firstVersionItems = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++)
+        {
+            X item = new X(random.nextInt(-1_000, 1_000));
+            index.add(item);
+            firstVersionIndex.add(item);
+            firstVersionItems.add(item);
+        }
+        Map<String, MemoryCommit> firstCommits = index.commit("First version");
+        MemoryCommit firstCommit = firstCommits.values().iterator().next();
+        assertTrue(index.commit().isEmpty(), "Nothing should be committed when nothing has changed");
+
+        // Add more items for the second version:
+        List<X> allItems = new ArrayList<>(firstVersionItems);
+        for (int i = 0; i < 2_000; i++)
+        {
+            X item = new X(random.nextInt(-1_000, 1_000));
+            index.add(item);
+            allItems.add(item);
+        }
+        index.commit("Second version");
+
+        // Make sure that searching as of the first version only sees the first items:
+        for (int i = 0; i < 1_000; i++)
+        {
+            X query = new X(random.nextInt(-3_000, 3_000));
+            assertEquals(firstVersionIndex.searchNearest(query), index.searchNearestAsOf(firstCommit, query));
+        }
+
+        // Make sure that searching within a distance finds exactly the items within that distance:
+        for (int i = 0; i < 100; i++)
+        {
+            X query = new X(random.nextInt(-1_200, 1_200));
+            assertEquals(findWithinDistance(firstVersionItems, query, 15), new HashSet<>(index.searchWithinDistanceAsOf(firstCommit, query, 15)));
+            assertEquals(findWithinDistance(allItems, query, 15), new HashSet<>(index.searchWithinDistance(query, 15)));
+        }
+    }
+
+    @Test
+    public void repoIndexKD_SearchAsOfEarlierVersionAfterOpen()
+    {
+        // Create the index and an index with only the items of the first version:
+        XYRepoIndexKD index = new XYRepoIndexKD(new XY(-1, -1), new XY(1, 1), 10, 4);
+        XYRepoIndexKD firstVersionIndex = new XYRepoIndexKD(new XY(-1, -1), new XY(1, 1), 10, 4);
+
+        // Commit the first version:
+        Random random = new Random(3);
+        for (int i = 0; i < 1_000; i++)
+        {
+            XY item = new XY(random.nextDouble(-1.2, 1.2), random.nextDouble(-1.2, 1.2));
+            index.add(item);
+            firstVersionIndex.add(item);
+        }
+        Map<String, MemoryCommit> firstCommits = index.commit("First version");
+
+        // Commit the second version:
+        for (int i = 0; i < 1_000; i++)
+        {
+            index.add(new XY(random.nextDouble(-1.2, 1.2), random.nextDouble(-1.2, 1.2)));
+        }
+        index.commit("Second version");
+
+        // Open the index from the repo and commit a third version from it:
+        XYRepoIndexKD openedIndex = new XYRepoIndexKD(new XY(-1, -1), new XY(1, 1), 10, 4);
+        openedIndex.open(index.getRepoHandler(), RepoPath.atRoot());
+        XY thirdVersionItem = new XY(0.5, 0.5);
+        openedIndex.add(thirdVersionItem);
+        MemoryCommit thirdCommit = openedIndex.commit("Third version").values().iterator().next();
+
+        // Open the index again and make sure we can search as of every commit of the first version:
+        XYRepoIndexKD reopenedIndex = new XYRepoIndexKD(new XY(-1, -1), new XY(1, 1), 10, 4);
+        reopenedIndex.open(index.getRepoHandler(), RepoPath.atRoot());
+        for (MemoryCommit firstCommit : firstCommits.values())
+        {
+            for (int i = 0; i < 20; i++)
+            {
+                XY query = new XY(random.nextDouble(-1.5, 1.5), random.nextDouble(-1.5, 1.5));
+                assertEquals(firstVersionIndex.searchNearest(query), reopenedIndex.searchNearestAsOf(firstCommit, query));
+            }
+        }
+
+        // Make sure the version that was committed after the first open was tagged after the earlier versions:
+        assertEquals(thirdVersionItem, reopenedIndex.searchNearestAsOf(thirdCommit, thirdVersionItem));
+        assertEquals(openedIndex.searchNearest(new XY(0, 0)), reopenedIndex.searchNearestAsOf(thirdCommit, new XY(0, 0)));
+    }
+
+    @Test
+    public void unknownCommit_Throws()
+    {
+        // Create an index and a commit that is not a version of it:
+        XYRepoIndexKD index = new XYRepoIndexKD(new XY(-1, -1), new XY(1, 1), 10, 4);
+        XYRepoIndexKD otherIndex = new XYRepoIndexKD(new XY(-1, -1), new XY(1, 1), 10, 4);
+        otherIndex.add(new XY(0, 0));
+        MemoryCommit otherCommit = otherIndex.commit().values().iterator().next();
+
+        assertThrows(IllegalArgumentException.class, () -> index.searchNearestAsOf(otherCommit, new XY(0, 0)));
+    }
+
+    /**
+     * Finds the items within the given distance of the query by checking every item.
+     *
+     * @param items       The items to check.
+     * @param query       The item to search around.
+     * @param maxDistance The largest distance (inclusive) of the items to find.
+     * @return The items within the distance of the query.
+     */
+    private static Set<XY> findWithinDistance(List<XY> items, XY query, double maxDistance)
+    {
+        Set<XY> foundItems = new HashSet<>();
+        for (XY item : items)
+        {
+            if (XY.measureDistanceL2NormEuclidean(item, query) <= maxDistance) foundItems.add(item);
+        }
+        return foundItems;
+    }
+
+    /**
+     * Finds the items within the given distance of the query by checking every item.
+     *
+     * @param items       The items to check.
+     * @param query       The item to search around.
+     * @param maxDistance The largest distance (inclusive) of the items to find.
+     * @return The items within the distance of the query.
+     */
+    private static Set<X> findWithinDistance(List<X> items, X query, int maxDistance)
+    {
+        Set<X> foundItems = new HashSet<>();
+        for (X item : items)
+        {
+            if (X.measureDistance(item, query) <= maxDistance) foundItems.add(item);
+        }
+        return foundItems;
+    }
+}
@@ -0,0 +1,95 @@
+package io.nanovc.indexing.repo;
+
+import io.nanovc.indexing.examples.xy.XY;
+import io.nanovc.indexing.examples.xy.XYRepoIndexKD;
+import io.nanovc.indexing.metrics.IndexMetrics;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the {@link RepoIndexKDAdvisor}.
+ */
+public class RepoIndexKDAdvisorTests
+{
+    @Test
+    public void recommend_ClusteredData()
+    {
+        // Create a sample of clustered items and queries:
+        Random random = new Random(1);
+        List<XY> items = createClusteredSample(random, 2_000);
+        List<XY> queries = createClusteredSample(random, 200);
+
+        // Get a recommendation from a few candidates:
+        HyperCubeDefinition hyperCubeDefinition = XY.defineHyperCube(new XY(-1, -1), new XY(1, 1));
+        RepoIndexKDAdvisor<XY> advisor = new RepoIndexKDAdvisor<>(hyperCubeDefinition, XYRepoIndexKD::new);
+        advisor.setCandidateDivisions(1, 4, 16);
+        advisor.setCandidateBucketThresholds(4, 32);
+        advisor.setQueryRepetitions(1);
+        RepoIndexKDAdvisor.Recommendation recommendation = advisor.recommend(items, queries);
+
+        // Make sure we measured each uniform candidate and then tuned each dimension:
+        assertEquals(3 * 2 + 2 * 2, recommendation.measurements().size());
+
+        // Make sure the recommendation is one of the candidates:
+        assertTrue(List.of(4, 32).contains(recommendation.bucketThreshold()));
+        for (int dimensionIndex = 0; dimensionIndex < 2; dimensionIndex++)
+        {
+            int divisions = recommendation.divisionsPerDimension()[dimensionIndex];
+            assertTrue(List.of(1, 4, 16).contains(divisions));
+            assertEquals(divisions, recommendation.hyperCubeDefinition().getDimension(dimensionIndex).getDivisions());
+        }
+
+        // Make sure the recommended index can be used:
+        // NOTE: The search only looks in the division cell of the query and its neighbours, so we don't expect exact nearest neighbours here.
+        RepoIndexKDBase<XY, ?, ?, ?, ?, ?> index = advisor.createIndex(recommendation);
+        items.forEach(index::add);
+        index.index();
+        for (XY query : queries)
+        {
+            assertTrue(items.contains(index.searchNearest(query)));
+        }
+    }
+
+    @Test
+    public void perDimensionDivisions_SplitTheIndex()
+    {
+        // Create an index that is only divided along the Y dimension:
+        HyperCubeDefinition hyperCubeDefinition = XY.defineHyperCube(new XY(-1, -1), new XY(1, 1)).withDivisions(1, 8);
+        XYRepoIndexKD index = new XYRepoIndexKD(hyperCubeDefinition, 1, 16);
+        Random random = new Random(1);
+        for (int i = 0; i < 1_000; i++)
+        {
+            index.add(new XY(random.nextDouble(-1, 1), random.nextDouble(-1, 1)));
+        }
+        index.index();
+
+        // Make sure a search outside the index considers every division cell:
+        IndexMetrics metrics = new IndexMetrics();
+        index.setIndexListener(metrics);
+        index.searchNearest(new XY(5, 5));
+        assertEquals(8, metrics.getCellsConsideredPerSearch().getTotalValue());
+    }
+
+    /**
+     * Creates a sample of items that are clustered around a few points.
+     *
+     * @param random The random generator to use.
+     * @param count  The number of items to create.
+     * @return The sample of items.
+     */
+    private static List<XY> createClusteredSample(Random random, int count)
+    {
+        List<XY> sample = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+        {
+            double centre = (i % 3) * 0.6 - 0.6;
+            sample.add(new XY(Math.clamp(centre + random.nextGaussian() * 0.05, -1, 1), Math.clamp(random.nextDouble(-1, 1), -1, 1)));
+        }
+        return sample;
+    }
+}
@@ -0,0 +1,133 @@
+package io.nanovc.indexing.repo;
+
+import io.nanovc.RepoPath;
+import io.nanovc.areas.StringHashMapArea;
+import io.nanovc.content.StringContent;
+import io.nanovc.indexing.examples.xy.XY;
+import io.nanovc.indexing.examples.xy.XYRepoIndexKD;
+import io.nanovc.memory.MemoryCommit;
+import io.nanovc.memory.strings.StringMemoryRepoHandler;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests committing a {@link RepoIndexKDBase} to a repo and opening it again.
+ */
+public class RepoIndexKDPersistenceTests
+{
+    @Test
+    public void commitAndOpen_RebuildsTheSameIndex()
+    {
+        // Create the index:
+        StringMemoryRepoHandler repoHandler = new StringMemoryRepoHandler();
+        XYRepoIndexKD index = new XYRepoIndexKD(repoHandler, 4);
+
+        // Add the items:
+        Random random = new Random(1);
+        for (int i = 0; i < 2_000; i++)
+        {
+            index.add(new XY(random.nextDouble(-1.2, 1.2), random.nextDouble(-1.2, 1.2)));
+        }
+        index.index();
+
+        // Commit the index:
+        Map<String, MemoryCommit> commits = index.commit("Initial items");
+        assertEquals(index.divisionCube.cellsByBranchName.keySet(), commits.keySet());
+        assertTrue(index.commit().isEmpty(), "Nothing should be committed when nothing has changed");
+
+        // Open the index from the repo:
+        XYRepoIndexKD openedIndex = new XYRepoIndexKD(new StringMemoryRepoHandler(), 4);
+        openedIndex.open(repoHandler, RepoPath.atRoot());
+        openedIndex.index();
+
+        assertSameIndex(index, openedIndex, random);
+    }
+
+    @Test
+    public void addAfterOpen_CommitsOnlyChangedCells()
+    {
+        // Create and commit the index:
+        StringMemoryRepoHandler repoHandler = new StringMemoryRepoHandler();
+        XYRepoIndexKD index = new XYRepoIndexKD(repoHandler, 4);
+        Random random = new Random(2);
+        for (int i = 0; i < 500; i++)
+        {
+            index.add(new XY(random.nextDouble(-1, 1), random.nextDouble(-1, 1)));
+        }
+        index.commit("Initial items");
+
+        // Open the index and add items to one cell:
+        XYRepoIndexKD openedIndex = new XYRepoIndexKD(new StringMemoryRepoHandler(), 4);
+        openedIndex.open(repoHandler, RepoPath.atRoot());
+        for (int i = 0; i < 50; i++)
+        {
+            XY item = new XY(0.01 + random.nextDouble(0, 0.1), 0.01 + random.nextDouble(0, 0.1));
+            index.add(item);
+            openedIndex.add(item);
+        }
+
+        // Only the changed cell should be committed:
+        Map<String, MemoryCommit> commits = openedIndex.commit("More items");
+        assertEquals(1, commits.size());
+
+        // Open the index again and make sure it matches an index that had all the items added:
+        XYRepoIndexKD reopenedIndex = new XYRepoIndexKD(new StringMemoryRepoHandler(), 4);
+        reopenedIndex.open(repoHandler, RepoPath.atRoot());
+        assertSameIndex(index, reopenedIndex, random);
+    }
+
+    /**
+     * Asserts that the opened index has the same structure as the expected index.
+     *
+     * @param expectedIndex The index that the items were added to.
+     * @param openedIndex   The index that was opened from the repo.
+     * @param random        The random number generator to create queries with.
+     */
+    private static void assertSameIndex(XYRepoIndexKD expectedIndex, XYRepoIndexKD openedIndex, Random random)
+    {
+        // Make sure the content and paths are the same:
+        assertEquals(expectedIndex.toString(), openedIndex.toString());
+        assertEquals(expectedIndex.divisionCube.cellsByBranchName.keySet(), openedIndex.divisionCube.cellsByBranchName.keySet());
+
+        // Make sure each cell has the same nearest cells and the same kd-tree:
+        for (DivisionCell<XY, StringContent, StringHashMapArea> expectedCell : expectedIndex.divisionCube.cellsByBranchName.values())
+        {
+            // Get the opened cell:
+            DivisionCell<XY, StringContent, StringHashMapArea> openedCell = openedIndex.divisionCube.cellsByBranchName.get(expectedCell.branchName);
+            assertFalse(openedCell.hasUncommittedChanges);
+
+            // Make sure the nearest cells are the same:
+            assertEquals(getBranchNames(expectedCell), getBranchNames(openedCell));
+
+            // Make sure that searching within the cell gives the same results:
+            for (int i = 0; i < 20; i++)
+            {
+                XY query = new XY(random.nextDouble(-1.5, 1.5), random.nextDouble(-1.5, 1.5));
+                HyperCoord queryCoord = expectedIndex.extractItemCoordinate(query, expectedIndex.hyperCubeDefinition);
+                assertEquals(
+                    expectedIndex.searchNearestInDivisionCell(query, queryCoord, expectedCell).item,
+                    openedIndex.searchNearestInDivisionCell(query, queryCoord, openedCell).item
+                );
+            }
+        }
+    }
+
+    /**
+     * Gets the branch names of the nearest cells of the given cell.
+     *
+     * @param cell The cell to get the nearest cells of.
+     * @return The branch names of the nearest cells.
+     */
+    private static Set<String> getBranchNames(DivisionCell<XY, StringContent, StringHashMapArea> cell)
+    {
+        Set<String> branchNames = new HashSet<>();
+        for (DivisionCell<XY, StringContent, StringHashMapArea> nearestCell : cell.nearestCells) branchNames.add(nearestCell.branchName);
+        return branchNames;
+    }
+}
@@ -0,0 +1,364 @@
+package io.nanovc.indexing.repo;
+
+import io.nanovc.AreaEntry;
+import io.nanovc.RepoPath;
+import io.nanovc.areas.StringHashMapArea;
+import io.nanovc.content.StringContent;
+import io.nanovc.indexing.examples.xy.XY;
+import io.nanovc.indexing.examples.xy.XYRepoIndexKD;
+import io.nanovc.memory.MemoryCommit;
+import io.nanovc.memory.strings.StringMemoryRepoHandler;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests removing and moving items in the {@link RepoIndexKDBase}.
+ */
+public class RepoIndexKDRemoveTests
+{
+    @Test
+    public void removeHalf_SearchesOnlyFindTheRest()
+    {
+        // Create the index with random items:
+        XYRepoIndexKD index = new XYRepoIndexKD(new StringMemoryRepoHandler(), 4);
+        List<XY> items = addRandomItems(index, new Random(1), 2_000);
+
+        // Remove every second item:
+        List<XY> remainingItems = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++)
+        {
+            if (i % 2 == 0) assertTrue(index.remove(items.get(i)));
+            else remainingItems.add(items.get(i));
+        }
+        assertFalse(index.remove(new XY(5, 5)));
+        assertFalse(index.remove(new XY(0.123456, 0.654321)));
+        index.index();
+
+        // Make sure the searches only find the remaining items:
+        Random random = new Random(2);
+        Set<XY> remainingItemSet = new HashSet<>(remainingItems);
+        for (int i = 0; i < 200; i++)
+        {
+            XY query = new XY(random.nextDouble(-1.5, 1.5), random.nextDouble(-1.5, 1.5));
+            assertTrue(remainingItemSet.contains(index.searchNearest(query)));
+            assertEquals(findWithinDistance(remainingItems, query, 0.2), new HashSet<>(index.searchWithinDistance(query, 0.2)));
+        }
+        for (XY remainingItem : remainingItems)
+        {
+            assertEquals(remainingItem, index.searchNearest(remainingItem));
+        }
+        assertStructure(index, remainingItems.size());
+    }
+
+    @Test
+    public void removeDownToThreshold_MergesBuckets()
+    {
+        // Create an index with a single division cell that splits its buckets:
+        XYRepoIndexKD index = new XYRepoIndexKD(new XY(-1, -1), new XY(1, 1), 1, 4);
+        List<XY> items = addRandomItems(index, new Random(3), 50);
+        assertInstanceOf(KDIntermediateNode.class, index.divisionCube.cellsByBranchName.values().iterator().next().kdTreeRoot);
+
+        // Remove items until the rest fit into one bucket:
+        for (XY item : items.subList(3, items.size())) assertTrue(index.remove(item));
+
+        // Make sure that the splits were merged back into a single bucket:
+        DivisionCell<XY, StringContent, StringHashMapArea> divisionCell = index.divisionCube.cellsByBranchName.values().iterator().next();
+        KDBucketNode<XY, StringContent, StringHashMapArea> rootBucketNode = assertInstanceOf(KDBucketNode.class, divisionCell.kdTreeRoot);
+        assertEquals(3, rootBucketNode.getItemCount());
+        assertEquals(1, divisionCell.repoPathTree.getRootNode().getChildCount());
+        assertStructure(index, 3);
+    }
+
+    @Test
+    public void removeAll_DropsDivisionCells()
+    {
+        // Create the index and commit it:
+        StringMemoryRepoHandler repoHandler = new StringMemoryRepoHandler();
+        XYRepoIndexKD index = new XYRepoIndexKD(repoHandler, 4);
+        List<XY> items = addRandomItems(index, new Random(4), 500);
+        index.commit("Items");
+
+        // Remove the items in one corner:
+        List<XY> remainingItems = new ArrayList<>();
+        for (XY item : items)
+        {
+            if (item.x() < 0 && item.y() < 0) assertTrue(index.remove(item));
+            else remainingItems.add(item);
+        }
+
+        // Make sure the empty cells were dropped and the nearest cells are the same as an index with just the remaining items:
+        XYRepoIndexKD expectedIndex = new XYRepoIndexKD(new StringMemoryRepoHandler(), 4);
+        for (XY item : remainingItems) expectedIndex.add(item);
+        assertEquals(expectedIndex.divisionCube.cellsByBranchName.keySet(), index.divisionCube.cellsByBranchName.keySet());
+        assertEquals(expectedIndex.divisionCube.cellDirectory.size(), index.divisionCube.cellDirectory.size());
+        for (DivisionCell<XY, StringContent, StringHashMapArea> divisionCell : index.divisionCube.cellsByBranchName.values())
+        {
+            DivisionCell<XY, StringContent, StringHashMapArea> expectedDivisionCell = expectedIndex.divisionCube.cellsByBranchName.get(divisionCell.branchName);
+            assertEquals(getBranchNames(expectedDivisionCell.nearestCells), getBranchNames(divisionCell.nearestCells));
+            assertEquals(expectedDivisionCell.nearestCellsDivisionDistance, divisionCell.nearestCellsDivisionDistance);
+        }
+
+        // Make sure the dropped cells are not opened again after committing:
+        index.commit("Removed items");
+        XYRepoIndexKD openedIndex = new XYRepoIndexKD(new StringMemoryRepoHandler(), 4);
+        openedIndex.open(repoHandler, RepoPath.atRoot());
+        assertEquals(index.divisionCube.cellsByBranchName.keySet(), openedIndex.divisionCube.cellsByBranchName.keySet());
+
+        // Remove everything else:
+        for (XY item : remainingItems) assertTrue(index.remove(item));
+        assertTrue(index.divisionCube.cellsByBranchName.isEmpty());
+        assertNull(index.searchNearest(new XY(0, 0)));
+    }
+
+    @Test
+    public void move_ReplacesTheItem()
+    {
+        XYRepoIndexKD index = new XYRepoIndexKD(new StringMemoryRepoHandler(), 4);
+        index.add(new XY(0.1, 0.1));
+        index.add(new XY(0.5, 0.5));
+
+        assertTrue(index.move(new XY(0.1, 0.1), new XY(-0.7, -0.7)));
+        assertFalse(index.move(new XY(0.1, 0.1), new XY(0.9, 0.9)));
+
+        assertEquals(new XY(-0.7, -0.7), index.searchNearest(new XY(-0.6, -0.6)));
+        assertEquals(new XY(0.5, 0.5), index.searchNearest(new XY(0.1, 0.1)));
+        assertStructure(index, 2);
+    }
+
+    @Test
+    public void sync_AppliesRemovals()
+    {
+        // Create and commit the index that writes to the repo:
+        StringMemoryRepoHandler repoHandler = new StringMemoryRepoHandler();
+        XYRepoIndexKD writerIndex = new XYRepoIndexKD(repoHandler, 4);
+        List<XY> items = addRandomItems(writerIndex, new Random(5), 1_000);
+        writerIndex.commit("Items");
+
+        // Open the replica:
+        XYRepoIndexKD replicaIndex = new XYRepoIndexKD(new StringMemoryRepoHandler(), 4);
+        replicaIndex.open(repoHandler, RepoPath.atRoot());
+
+        // Remove and move items in the writer:
+        Random random = new Random(6);
+        for (int i = 0; i < items.size(); i++)
+        {
+            if (i % 3 == 0) writerIndex.remove(items.get(i));
+            else if (i % 3 == 1 && items.get(i).x() > 0.5) writerIndex.move(items.get(i), new XY(random.nextDouble(-1, 1), random.nextDouble(-1, 1)));
+        }
+        Map<String, MemoryCommit> commits = writerIndex.commit("Changed items");
+
+        // Make sure the replica is the same after syncing:
+        replicaIndex.syncTo(commits);
+        assertEquals(writerIndex.toString(), replicaIndex.toString());
+        for (DivisionCell<XY, StringContent, StringHashMapArea> divisionCell : writerIndex.divisionCube.cellsByBranchName.values())
+        {
+            DivisionCell<XY, StringContent, StringHashMapArea> replicaDivisionCell = replicaIndex.divisionCube.cellsByBranchName.get(divisionCell.branchName);
+            assertEquals(getBranchNames(divisionCell.nearestCells), getBranchNames(replicaDivisionCell.nearestCells));
+        }
+    }
+
+    @Test
+    public void churn_SteadyStateMemory()
+    {
+        // Create the index with moving objects:
+        XYRepoIndexKD index = new XYRepoIndexKD(new StringMemoryRepoHandler(), 4);
+        Random random = new Random(7);
+        List<XY> positions = addRandomItems(index, random, 2_000);
+
+        // Move every object a little in each round:
+        int pathNodeCountAfterWarmUp = 0;
+        long contentByteCountAfterWarmUp = 0;
+        for (int round = 1; round <= 40; round++)
+        {
+            for (int i = 0; i < positions.size(); i++)
+            {
+                XY position = positions.get(i);
+                XY newPosition = new XY(
+                    Math.clamp(position.x() + random.nextDouble(-0.05, 0.05), -1.0, 1.0),
+                    Math.clamp(position.y() + random.nextDouble(-0.05, 0.05), -1.0, 1.0)
+                );
+                assertTrue(index.move(position, newPosition));
+                positions.set(i, newPosition);
+            }
+            index.index();
+
+            // Make sure the retained memory does not grow from round to round:
+            int pathNodeCount = assertStructure(index, positions.size());
+            long contentByteCount = countContentBytes(index);
+            if (round == 10)
+            {
+                pathNodeCountAfterWarmUp = pathNodeCount;
+                contentByteCountAfterWarmUp = contentByteCount;
+            }
+            if (round > 10)
+            {
+                assertTrue(pathNodeCount < pathNodeCountAfterWarmUp * 1.2, "The repo path trees should not keep growing: " + pathNodeCount + " nodes after warm up with " + pathNodeCountAfterWarmUp);
+                assertTrue(contentByteCount < contentByteCountAfterWarmUp * 1.2, "The content areas should not keep growing: " + contentByteCount + " bytes after warm up with " + contentByteCountAfterWarmUp);
+            }
+        }
+
+        // Make sure every object is found where it is now:
+        for (XY position : positions)
+        {
+            assertEquals(position, index.searchNearest(position));
+        }
+    }
+
+    /**
+     * Makes sure that the structures of the index only hold the items that are in it and nothing else.
+     *
+     * @param index     The index to check.
+     * @param itemCount The number of items that should be in the index.
+     * @return The number of repo path nodes across all division cells.
+     */
+    private static int assertStructure(XYRepoIndexKD index, int itemCount)
+    {
+        index.index();
+        int actualItemCount = 0;
+        int contentCount = 0;
+        int pathNodeCount = 0;
+        for (DivisionCell<XY, StringContent, StringHashMapArea> divisionCell : index.divisionCube.cellsByBranchName.values())
+        {
+            int cellItemCount = assertKDNode(divisionCell.kdTreeRoot, index.getBucketThreshold());
+            assertTrue(cellItemCount > 0, "Empty division cells should be dropped");
+            actualItemCount += cellItemCount;
+            contentCount += divisionCell.contentArea.size();
+            pathNodeCount += countNodes(divisionCell.repoPathTree.getRootNode());
+            assertFalse(divisionCell.nearestCells.contains(divisionCell));
+            for (DivisionCell<XY, StringContent, StringHashMapArea> nearestCell : divisionCell.nearestCells)
+            {
+                assertSame(nearestCell, index.divisionCube.cellsByBranchName.get(nearestCell.branchName), "Nearest cells should not link to dropped cells");
+            }
+        }
+        assertEquals(itemCount, actualItemCount);
+        assertEquals(itemCount, contentCount);
+        return pathNodeCount;
+    }
+
+    /**
+     * Makes sure that there are no empty buckets and no splits that should have been merged under the node.
+     *
+     * @param node            The node to check.
+     * @param bucketThreshold The bucket threshold of the index.
+     * @return The number of items under the node.
+     */
+    private static int assertKDNode(KDNode<XY, StringContent, StringHashMapArea> node, int bucketThreshold)
+    {
+        switch (node)
+        {
+            case KDBucketNode<XY, StringContent, StringHashMapArea> bucketNode ->
+            {
+                assertEquals(bucketNode.getItemCount(), bucketNode.bucketItemsRepoPathNode.getChildCount());
+                return bucketNode.getItemCount();
+            }
+            case KDIntermediateNode<XY, ?, StringContent, StringHashMapArea> intermediateNode ->
+            {
+                int itemCount = 0;
+                boolean canMerge = true;
+                for (KDNode<XY, StringContent, StringHashMapArea> childNode : Arrays.asList(intermediateNode.lowerNode, intermediateNode.higherNode))
+                {
+                    if (childNode == null) continue;
+                    int childItemCount = assertKDNode(childNode, bucketThreshold);
+                    assertTrue(childItemCount > 0, "Empty buckets should be detached");
+                    itemCount += childItemCount;
+                    if (childNode instanceof KDIntermediateNode) canMerge = false;
+                }
+                assertFalse(canMerge && itemCount < bucketThreshold, "Small buckets should be merged");
+                return itemCount;
+            }
+            default -> throw new IllegalStateException("Unexpected value: " + node);
+        }
+    }
+
+    /**
+     * Counts the bytes of content that are retained in the content areas of all the division cells.
+     *
+     * @param index The index to count the content of.
+     * @return The number of bytes of content across all division cells.
+     */
+    private static long countContentBytes(XYRepoIndexKD index)
+    {
+        long byteCount = 0;
+        for (DivisionCell<XY, StringContent, StringHashMapArea> divisionCell : index.divisionCube.cellsByBranchName.values())
+        {
+            for (AreaEntry<StringContent> entry : divisionCell.contentArea) byteCount += entry.content.asByteArray().length;
+        }
+        return byteCount;
+    }
+
+    /**
+     * Counts the nodes under the given repo path node, including the node itself.
+     *
+     * @param node The node to count from.
+     * @return The number of nodes.
+     */
+    private static int countNodes(RepoPathNode node)
+    {
+        int count = 1;
+        if (node.hasChildren())
+        {
+            for (RepoPathNode childNode : node.getChildren()) count += countNodes(childNode);
+        }
+        return count;
+    }
+
+    /**
+     * Adds random items to the index.
+     *
+     * @param index     The index to add to.
+     * @param random    The random number generator.
+     * @param itemCount The number of items to add.
+     * @return The items that were added.
+     */
+    private static List<XY> addRandomItems(XYRepoIndexKD index, Random random, int itemCount)
+    {
+        List<XY> items = new ArrayList<>();
+        for (int i = 0; i < itemCount; i++)
+        {
+            XY item = new XY(random.nextDouble(-1, 1), random.nextDouble(-1, 1));
+            index.add(item);
+            items.add(item);
+        }
+        return items;
+    }
+
+    /**
+     * Finds the items within the given distance of the query by checking every item.
+     *
+     * @param items       The items to check.
+     * @param query       The item to search around.
+     * @param maxDistance The largest distance (inclusive) of the items to find.
+     * @return The items within the distance of the query.
+     */
+    private static Set<XY> findWithinDistance(List<XY> items, XY query, double maxDistance)
+    {
+        Set<XY> foundItems = new HashSet<>();
+        for (XY item : items)
+        {
+            if (XY.measureDistanceL2NormEuclidean(item, query) <= maxDistance) foundItems.add(item);
+        }
+        return foundItems;
+    }
+
+    /**
+     * Gets the branch names of the given cells.
+     *
+     * @param cells The cells to get the branch names of.
+     * @return The branch names of the cells.
+     */
+    private static Set<String> getBranchNames(List<DivisionCell<XY, StringContent, StringHashMapArea>> cells)
+    {
+        Set<String> branchNames = new HashSet<>();
+        for (DivisionCell<XY, StringContent, StringHashMapArea> cell : cells) branchNames.add(cell.branchName);
+        return branchNames;
+    }
+}
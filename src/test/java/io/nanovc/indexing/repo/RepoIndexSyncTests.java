@@ -0,0 +1,206 @@
+package io.nanovc.indexing.repo;
+
+import io.nanovc.RepoPath;
+import io.nanovc.areas.StringHashMapArea;
+import io.nanovc.content.StringContent;
+import io.nanovc.indexing.examples.x.X;
+import io.nanovc.indexing.examples.x.XRepoIndex1D;
+import io.nanovc.indexing.examples.xy.XY;
+import io.nanovc.indexing.examples.xy.XYRepoIndexKD;
+import io.nanovc.memory.MemoryCommit;
+import io.nanovc.memory.strings.StringMemoryRepoHandler;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests syncing a repo index with the commits that another index made to the same repo.
+ */
+public class RepoIndexSyncTests
+{
+    @Test
+    public void repoIndexKD_SyncWithSplitsAndNewCells()
+    {
+        // Create and commit the index that writes to the repo:
+        StringMemoryRepoHandler repoHandler = new StringMemoryRepoHandler();
+        XYRepoIndexKD writerIndex = new XYRepoIndexKD(repoHandler, 4);
+        Random random = new Random(1);
+        for (int i = 0; i < 200; i++)
+        {
+            writerIndex.add(new XY(random.nextDouble(-0.5, 0.5), random.nextDouble(-0.5, 0.5)));
+        }
+        writerIndex.commit("Initial items");
+
+        // Open the replica from the repo:
+        XYRepoIndexKD replicaIndex = new XYRepoIndexKD(new StringMemoryRepoHandler(), 4);
+        replicaIndex.open(repoHandler, RepoPath.atRoot());
+
+        // Add more items that split buckets and create new cells:
+        for (int i = 0; i < 1_000; i++)
+        {
+            writerIndex.add(new XY(random.nextDouble(-1.2, 1.2), random.nextDouble(-1.2, 1.2)));
+        }
+        Map<String, MemoryCommit> commits = writerIndex.commit("More items");
+
+        // Sync the replica to the new commits:
+        replicaIndex.syncTo(commits);
+        writerIndex.index();
+        replicaIndex.index();
+
+        // Make sure the replica has the same content and structure:
+        assertEquals(writerIndex.toString(), replicaIndex.toString());
+        for (int i = 0; i < 100; i++)
+        {
+            XY query = new XY(random.nextDouble(-1.5, 1.5), random.nextDouble(-1.5, 1.5));
+            assertEquals(new HashSet<>(writerIndex.searchWithinDistance(query, 0.2)), new HashSet<>(replicaIndex.searchWithinDistance(query, 0.2)));
+        }
+
+        // Syncing to the same commits again should do nothing:
+        String replicaBefore = replicaIndex.toString();
+        replicaIndex.sync();
+        assertEquals(replicaBefore, replicaIndex.toString());
+    }
+
+    @Test
+    public void repoIndexKD_SyncAddsToBucketsInPlace()
+    {
+        // Create and commit the index that writes to the repo with buckets that never split:
+        StringMemoryRepoHandler repoHandler = new StringMemoryRepoHandler();
+        XYRepoIndexKD writerIndex = new XYRepoIndexKD(repoHandler, 10_000);
+        Random random = new Random(2);
+        for (int i = 0; i < 500; i++)
+        {
+            writerIndex.add(new XY(random.nextDouble(-1, 1), random.nextDouble(-1, 1)));
+        }
+        writerIndex.commit("Initial items");
+
+        // Open the replica and remember the kd-trees of its cells:
+        XYRepoIndexKD replicaIndex = new XYRepoIndexKD(new StringMemoryRepoHandler(), 10_000);
+        replicaIndex.open(repoHandler, RepoPath.atRoot());
+        Map<String, KDNode<XY, StringContent, StringHashMapArea>> kdTreeRootsByBranchName = new HashMap<>();
+        for (DivisionCell<XY, StringContent, StringHashMapArea> cell : replicaIndex.divisionCube.cellsByBranchName.values())
+        {
+            kdTreeRootsByBranchName.put(cell.branchName, cell.kdTreeRoot);
+        }
+
+        // Add more items to the existing cells:
+        for (int i = 0; i < 500; i++)
+        {
+            writerIndex.add(new XY(random.nextDouble(-1, 1), random.nextDouble(-1, 1)));
+        }
+        writerIndex.commit("More items");
+
+        // Sync the replica to the latest commits:
+        replicaIndex.sync();
+
+        // Make sure the items were added to the existing buckets instead of rebuilding the cells:
+        assertEquals(writerIndex.toString(), replicaIndex.toString());
+        for (DivisionCell<XY, StringContent, StringHashMapArea> cell : replicaIndex.divisionCube.cellsByBranchName.values())
+        {
+            KDNode<XY, StringContent, StringHashMapArea> kdTreeRoot = kdTreeRootsByBranchName.get(cell.branchName);
+            if (kdTreeRoot != null) assertSame(kdTreeRoot, cell.kdTreeRoot);
+        }
+    }
+
+    @Test
+    public void repoIndexKD_SyncWithUncommittedChanges_Throws()
+    {
+        // Create and commit the index that writes to the repo:
+        StringMemoryRepoHandler repoHandler = new StringMemoryRepoHandler();
+        XYRepoIndexKD writerIndex = new XYRepoIndexKD(repoHandler, 4);
+        writerIndex.add(new XY(0.1, 0.1));
+        writerIndex.commit("Initial items");
+
+        // Open the replica and change it:
+        XYRepoIndexKD replicaIndex = new XYRepoIndexKD(new StringMemoryRepoHandler(), 4);
+        replicaIndex.open(repoHandler, RepoPath.atRoot());
+        replicaIndex.add(new XY(0.11, 0.11));
+
+        // Change the same cell in the writer:
+        writerIndex.add(new XY(0.12, 0.12));
+        Map<String, MemoryCommit> commits = writerIndex.commit("More items");
+
+        assertThrows(IllegalStateException.class, () -> replicaIndex.syncTo(commits));
+    }
+
+    @Test
+    public void repoIndexKD_SyncDropsPagedOutCellThatWasEmptied()
+    {
+        // Create and commit the index that writes to the repo with items in separate cells:
+        StringMemoryRepoHandler repoHandler = new StringMemoryRepoHandler();
+        XYRepoIndexKD writerIndex = new XYRepoIndexKD(repoHandler, 4);
+        XY removedItem = new XY(0.95, 0.95);
+        writerIndex.add(new XY(-0.95, -0.95));
+        writerIndex.add(new XY(0.05, 0.05));
+        writerIndex.add(removedItem);
+        writerIndex.commit("Initial items");
+
+        // Open a replica that only keeps one cell resident:
+        XYRepoIndexKD replicaIndex = new XYRepoIndexKD(new StringMemoryRepoHandler(), 4);
+        replicaIndex.setMaxResidentDivisionCells(1);
+        replicaIndex.open(repoHandler, RepoPath.atRoot());
+
+        // Empty the cell of the removed item in the writer:
+        assertTrue(writerIndex.remove(removedItem));
+        Map<String, MemoryCommit> commits = writerIndex.commit("Remove item");
+        String emptiedBranchName = commits.keySet().iterator().next();
+
+        // Make sure the emptied cell is paged out in the replica by searching another cell:
+        replicaIndex.searchNearest(new XY(-0.95, -0.95));
+        assertNull(replicaIndex.divisionCube.cellsByBranchName.get(emptiedBranchName).contentArea);
+
+        // Sync the replica and make sure the emptied cell was dropped:
+        replicaIndex.syncTo(commits);
+        assertEquals(writerIndex.divisionCube.cellsByBranchName.keySet(), replicaIndex.divisionCube.cellsByBranchName.keySet());
+        assertFalse(replicaIndex.divisionCube.cellsByBranchName.containsKey(emptiedBranchName));
+        for (DivisionCell<XY, StringContent, StringHashMapArea> cell : replicaIndex.divisionCube.cellsByBranchName.values())
+        {
+            for (DivisionCell<XY, StringContent, StringHashMapArea> nearestCell : cell.nearestCells) assertNotEquals(emptiedBranchName, nearestCell.branchName);
+        }
+        assertEquals(writerIndex.searchNearest(removedItem), replicaIndex.searchNearest(removedItem));
+    }
+
+    @Test
+    public void repoIndex1D_Sync()
+    {
+        // Create and commit the index that writes to the repo:
+        StringMemoryRepoHandler repoHandler = new StringMemoryRepoHandler();
+        XRepoIndex1D writerIndex = new XRepoIndex1D(new X(-1_000), new X(1_000), 100, repoHandler, RepoPath.atRoot(), XRepoIndex1D::createXContent, XRepoIndex1D::readXFromContent);
+        XRepoIndex1D replicaIndex = new XRepoIndex1D(new X(-1_000), new X(1_000), 100, repoHandler, RepoPath.atRoot(), XRepoIndex1D::createXContent, XRepoIndex1D::readXFromContent);
+        Random random = new Random(3);
+        for (int i = 0; i < 1_000; i++)
+        {
+            writerIndex.add(new X(random.nextInt(-500, 500)));
+        }
+        replicaIndex.syncTo(writerIndex.commit("Initial items"));
+
+        // Add more items, including new divisions:
+        for (int i = 0; i < 1_000; i++)
+        {
+            writerIndex.add(new X(random.nextInt(-1_000, 1_000)));
+        }
+        replicaIndex.syncTo(writerIndex.commit("More items"));
+
+        // Add a branch that doesn't belong to the index and make sure a full sync skips it:
+        repoHandler.commitToBranch(repoHandler.createArea(), "notes", "Not a division", null);
+        repoHandler.commitToBranch(repoHandler.createArea(), "007", "Not a division either", null);
+        replicaIndex.sync();
+
+        // Make sure the replica gives the same results:
+        for (int i = 0; i < 1_000; i++)
+        {
+            X query = new X(random.nextInt(-3_000, 3_000));
+            assertEquals(writerIndex.searchNearest(query), replicaIndex.searchNearest(query));
+        }
+        for (int i = 0; i < 100; i++)
+        {
+            X query = new X(random.nextInt(-1_200, 1_200));
+            assertEquals(new HashSet<>(writerIndex.searchWithinDistance(query, 15)), new HashSet<>(replicaIndex.searchWithinDistance(query, 15)));
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package io.nanovc.indexing.repo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the adaptive child storage of {@link RepoPathNode}.
+ */
+public class RepoPathNodeTests
+{
+    @Test
+    public void byteTrieChildren_SameAsTreeMap()
+    {
+        // Use the names of a byte trie level:
+        List<String> names = new ArrayList<>();
+        for (char c = ' '; c < 128; c++) names.add(Character.toString(c));
+        names.add(RepoIndex1DBase.CONTENT_PATH_NAME);
+
+        assertSameAsTreeMap(names, new Random(1));
+    }
+
+    @Test
+    public void kdTreeChildren_SameAsTreeMap()
+    {
+        // Use the names of kd-tree nodes and bucket items:
+        List<String> names = new ArrayList<>(List.of("<", ">", RepoIndexKDBase.BUCKET_ITEMS_PATH_NAME, "x:0.5", "y:-0.25"));
+        for (int i = 0; i < 20; i++) names.add(Integer.toString(i));
+
+        assertSameAsTreeMap(names, new Random(2));
+    }
+
+    @Test
+    public void ceilingChild()
+    {
+        RepoPathNode node = new RepoPathNode(null, "");
+        for (String name : List.of("abc", "b", "xyz", RepoIndex1DBase.CONTENT_PATH_NAME))
+        {
+            node.putChild(new RepoPathNode(node, name));
+        }
+
+        assertEquals(RepoIndex1DBase.CONTENT_PATH_NAME, node.getCeilingChild(RepoIndex1DBase.CONTENT_PATH_NAME).getName());
+        assertEquals("abc", node.getCeilingChild("a").getName());
+        assertEquals("b", node.getCeilingChild("abd").getName());
+        assertEquals("xyz", node.getCeilingChild("c").getName());
+        assertNull(node.getCeilingChild("y"));
+    }
+
+    @Test
+    public void childrenByName_IsReadOnly()
+    {
+        RepoPathNode node = new RepoPathNode(null, "");
+        node.putChild(new RepoPathNode(node, "a"));
+
+        assertThrows(UnsupportedOperationException.class, () -> node.getChildrenByName().put("b", new RepoPathNode(node, "b")));
+        assertThrows(UnsupportedOperationException.class, () -> node.getChildrenByName().remove("a"));
+        assertEquals(1, node.getChildCount());
+    }
+    /**
+     * Puts and removes random children and makes sure that the node always matches a tree map with the same children.
+     *
+     * @param names  The names of the children to put and remove.
+     * @param random The random number generator to pick names with.
+     */
+    private static void assertSameAsTreeMap(List<String> names, Random random)
+    {
+        RepoPathNode node = new RepoPathNode(null, "");
+        TreeMap<String, RepoPathNode> expectedChildrenByName = new TreeMap<>(EmojiFirstComparator::compareTo);
+        for (int i = 0; i < 5_000; i++)
+        {
+            // Put or remove a random child, adding more often than removing so that the containers grow:
+            String name = names.get(random.nextInt(names.size()));
+            if (random.nextInt(3) == 0)
+            {
+                assertEquals(expectedChildrenByName.remove(name), node.removeChild(name));
+            }
+            else
+            {
+                RepoPathNode child = new RepoPathNode(node, name);
+                expectedChildrenByName.put(name, child);
+                node.putChild(child);
+            }
+
+            // Make sure the node has the same children in the same order:
+            assertEquals(!expectedChildrenByName.isEmpty(), node.hasChildren());
+            assertEquals(expectedChildrenByName.size(), node.getChildCount());
+            assertEquals(new ArrayList<>(expectedChildrenByName.values()), node.getChildren());
+            assertEquals(expectedChildrenByName, node.getChildrenByName());
+            for (String nameToGet : names)
+            {
+                assertSame(expectedChildrenByName.get(nameToGet), node.getChild(nameToGet));
+                assertCeilingChild(expectedChildrenByName, node, nameToGet);
+                assertCeilingChild(expectedChildrenByName, node, nameToGet + "~");
+            }
+            assertCeilingChild(expectedChildrenByName, node, "");
+        }
+    }
+
+    /**
+     * Makes sure that the ceiling child of the node is the same as the ceiling entry of the tree map.
+     *
+     * @param expectedChildrenByName The tree map with the expected children.
+     * @param node                   The node to check.
+     * @param name                   The name to search from.
+     */
+    private static void assertCeilingChild(TreeMap<String, RepoPathNode> expectedChildrenByName, RepoPathNode node, String name)
+    {
+        Map.Entry<String, RepoPathNode> expectedEntry = expectedChildrenByName.ceilingEntry(name);
+        assertSame(expectedEntry == null ? null : expectedEntry.getValue(), node.getCeilingChild(name), name);
+    }
+}
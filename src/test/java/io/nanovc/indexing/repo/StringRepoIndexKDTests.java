@@ -0,0 +1,148 @@
+package io.nanovc.indexing.repo;
+
+import io.nanovc.RepoPath;
+import io.nanovc.areas.StringHashMapArea;
+import io.nanovc.content.StringContent;
+import io.nanovc.indexing.repo.arithmetic.StringArithmetic;
+import io.nanovc.indexing.repo.ranges.MinInclusiveMaxInclusiveRange;
+import io.nanovc.memory.MemoryCommit;
+import io.nanovc.memory.strings.StringMemoryRepoHandler;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests a {@link RepoIndexKDBase KD repo index} with a string dimension, which relies on the {@link StringArithmetic} to split ranges.
+ */
+public class StringRepoIndexKDTests
+{
+    /**
+     * The arithmetic for the codes.
+     */
+    private static final StringArithmetic ARITHMETIC = StringArithmetic.instance();
+
+    /**
+     * An item that is indexed by its code, like a tenant ID or a SKU.
+     *
+     * @param code The code of the item.
+     */
+    public record Code(String code)
+    {
+        /**
+         * Extracts the code of the item.
+         *
+         * @param item      The item to extract the code from.
+         * @param dimension The index of the dimension. Zero based.
+         * @param <TUnit>   The specific type for the unit of this dimension.
+         * @return The code of the item.
+         */
+        public static <TUnit> TUnit extractCoordinate(Code item, int dimension)
+        {
+            //noinspection unchecked
+            return (TUnit) item.code();
+        }
+
+        /**
+         * Measures the distance between the codes of the items.
+         *
+         * @param item1 The first item to measure.
+         * @param item2 The second item to measure.
+         * @return The distance between the codes of the items.
+         */
+        public static String measureDistance(Code item1, Code item2)
+        {
+            return ARITHMETIC.distanceBetween(item1.code(), item2.code());
+        }
+    }
+
+    @Test
+    public void stringDimension_SplitsAndSearches()
+    {
+        // Define a dimension for the codes:
+        HyperCubeDefinition definition = new HyperCubeDefinition();
+        definition.addDimension(ARITHMETIC, "code", ARITHMETIC.stepForPrefixLength(2), new MinInclusiveMaxInclusiveRange<>("0", "zzzz"));
+
+        // Create the index:
+        RepoIndexKDImplementation<Code, String, StringContent, StringHashMapArea, MemoryCommit, StringMemoryRepoHandler> index = new RepoIndexKDImplementation<>(
+            definition, 10, 8,
+            Code::extractCoordinate, Code::measureDistance, String::compareTo,
+            new StringMemoryRepoHandler(), RepoPath.atRoot(),
+            item -> new StringContent(item.code()), content -> new Code(content.value)
+        );
+
+        // Add codes that share prefixes, like SKUs:
+        Random random = new Random(1);
+        List<Code> items = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++)
+        {
+            Code item = new Code(randomCode(random));
+            index.add(item);
+            items.add(item);
+        }
+
+        // Make sure the buckets were split:
+        int intermediateNodeCount = 0;
+        for (DivisionCell<Code, StringContent, StringHashMapArea> cell : index.divisionCube.cellsByBranchName.values())
+        {
+            intermediateNodeCount += countIntermediateNodes(cell.kdTreeRoot);
+        }
+        assertTrue(intermediateNodeCount > 100, "Only " + intermediateNodeCount + " buckets were split");
+
+        // Make sure every item can be found exactly:
+        for (Code item : items)
+        {
+            assertEquals(item, index.searchNearest(item));
+        }
+
+        // Make sure searching within a distance finds exactly the items within that distance:
+        String maxDistance = ARITHMETIC.stepForPrefixLength(3);
+        for (int i = 0; i < 100; i++)
+        {
+            Code query = new Code(randomCode(random));
+            Set<Code> expectedItems = new HashSet<>();
+            for (Code item : items)
+            {
+                if (Code.measureDistance(item, query).compareTo(maxDistance) <= 0) expectedItems.add(item);
+            }
+            assertEquals(expectedItems, new HashSet<>(index.searchWithinDistance(query, maxDistance)));
+        }
+    }
+
+    /**
+     * Creates a random code with a prefix from a small set, like a SKU.
+     *
+     * @param random The random number generator to use.
+     * @return A random code.
+     */
+    private static String randomCode(Random random)
+    {
+        StringBuilder code = new StringBuilder();
+        code.append(List.of("AB", "AC", "K9", "X_").get(random.nextInt(4)));
+        for (int i = 0; i < 6; i++)
+        {
+            code.append((char) random.nextInt('0', 'z' + 1));
+        }
+        return code.toString();
+    }
+
+    /**
+     * Counts the intermediate nodes in the kd-tree.
+     *
+     * @param node The node to count from.
+     * @return The number of intermediate nodes at and below the node.
+     */
+    private static int countIntermediateNodes(KDNode<Code, StringContent, StringHashMapArea> node)
+    {
+        if (node instanceof KDIntermediateNode<Code, ?, StringContent, StringHashMapArea> intermediateNode)
+        {
+            return 1 + (intermediateNode.lowerNode == null ? 0 : countIntermediateNodes(intermediateNode.lowerNode)) + (intermediateNode.higherNode == null ? 0 : countIntermediateNodes(intermediateNode.higherNode));
+        }
+        return 0;
+    }
+}
@@ -1,9 +1,19 @@
 package io.nanovc.indexing.repo;
 
+import io.nanovc.RepoPath;
 import io.nanovc.indexing.examples.xy.XY;
 import io.nanovc.indexing.examples.xy.XYRepoIndexKD;
+import io.nanovc.indexing.repo.ranges.MinInclusiveMaxExclusiveRange;
+import io.nanovc.memory.strings.StringMemoryRepoHandler;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 /**
@@ -307,6 +317,73 @@ Y:[0.8,1.0]
         assertEquals(new XY(-1.0, -1.0), nearest);
     }
 
+    @Test
+    public void splittingBuckets_ReusesItemsAndContent()
+    {
+        // Count how many times the items are written to and read from content:
+        AtomicInteger createCount = new AtomicInteger();
+        AtomicInteger readCount = new AtomicInteger();
+
+        // Create the index with small buckets so that they split often:
+        XYRepoIndexKD index = new XYRepoIndexKD(
+            new XY(-1, -1), new XY(1, 1), 2, 2,
+            new StringMemoryRepoHandler(), RepoPath.atRoot(),
+            item -> { createCount.incrementAndGet(); return XYRepoIndexKD.createXYContent(item); },
+            content -> { readCount.incrementAndGet(); return XYRepoIndexKD.readXYFromContent(content); }
+        );
+
+        // Add the items:
+        Random random = new Random(1);
+        for (int i = 0; i < 1_000; i++)
+        {
+            index.add(new XY(random.nextDouble(-1, 1), random.nextDouble(-1, 1)));
+        }
+
+        // Make sure each item was only written once and that splitting buckets never read an item back:
+        assertEquals(1_000, createCount.get());
+        assertEquals(0, readCount.get());
+    }
+
+    @Test
+    public void searchWithinHyperCube_SameAsLinearScan()
+    {
+        // Create the index with small buckets so that there are many kd-tree subtrees to prune and accept:
+        XYRepoIndexKD index = new XYRepoIndexKD(new XY(-1, -1), new XY(1, 1), 4, 4);
+
+        // Add the items:
+        Random random = new Random(1);
+        List<XY> items = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++)
+        {
+            XY item = new XY(random.nextDouble(-1, 1), random.nextDouble(-1, 1));
+            index.add(item);
+            items.add(item);
+        }
+
+        // Search random regions:
+        HyperCubeDefinition definition = index.getHyperCubeDefinition();
+        for (int i = 0; i < 100; i++)
+        {
+            double x = random.nextDouble(-1.5, 1.0);
+            double y = random.nextDouble(-1.5, 1.0);
+            HyperCube region = new HyperCube(
+                definition,
+                new MinInclusiveMaxExclusiveRange<>(x, x + random.nextDouble(1.5)),
+                new MinInclusiveMaxExclusiveRange<>(y, y + random.nextDouble(1.5))
+            );
+
+            // Make sure we find the same items as a linear scan:
+            Set<XY> expectedItems = new HashSet<>();
+            for (XY item : items)
+            {
+                if (region.isCoordinateInRange(item.x(), item.y())) expectedItems.add(item);
+            }
+            List<XY> foundItems = index.searchWithinHyperCube(region);
+            assertEquals(expectedItems.size(), foundItems.size());
+            assertEquals(expectedItems, new HashSet<>(foundItems));
+        }
+    }
+
     public void assertIndex(String expectedIndex, XYRepoIndexKD index)
     {
         // Get the representation of the index:
@@ -0,0 +1,257 @@
+package io.nanovc.indexing.repo.mapped;
+
+import io.nanovc.AreaEntry;
+import io.nanovc.RepoPath;
+import io.nanovc.indexing.Measurer;
+import io.nanovc.indexing.RangeFinder;
+import io.nanovc.indexing.RangeSplitter;
+import io.nanovc.indexing.examples.x.X;
+import io.nanovc.indexing.examples.x.XRepoIndex1D;
+import io.nanovc.indexing.examples.xy.XY;
+import io.nanovc.indexing.examples.xy.XYRepoIndexKD;
+import io.nanovc.indexing.repo.RepoIndex1DImplementation;
+import io.nanovc.indexing.repo.RepoIndexKDImplementation;
+import io.nanovc.memory.MemoryCommit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the {@link MappedSegmentArea} and the repo indexes running on top of it.
+ */
+public class MappedSegmentAreaTests
+{
+    /**
+     * The directory for the segment files of each test.
+     */
+    @TempDir
+    Path directory;
+
+    @Test
+    public void putGetRemove()
+    {
+        try (MappedSegmentArea area = new MappedSegmentArea(this.directory))
+        {
+            // Put some content:
+            MappedSegmentContent content = new MappedSegmentContent("Hello");
+            area.putContent("/a", content);
+            area.putContent("/b", new MappedSegmentContent("World"));
+
+            // Make sure the content was moved into the segment:
+            assertTrue(content.isStoredInSegment());
+            ByteBuffer buffer = content.asByteBuffer();
+            assertTrue(buffer.isDirect());
+            assertTrue(buffer.isReadOnly());
+
+            // Make sure we can read the content back:
+            assertEquals("Hello", area.getContent("/a").asString());
+            assertEquals("World", area.getContent("/b").asString());
+            assertArrayEquals("World".getBytes(), area.getContent("/b").cloneContentAsByteArray());
+            assertEquals(10, area.getSegmentFile().getSize());
+
+            // Putting stored content at another path should copy it:
+            area.putContent("/c", content);
+            assertNotSame(content, area.getContent("/c"));
+            assertEquals("Hello", area.getContent("/c").asString());
+
+            // Remove content:
+            area.removeContent("/a");
+            assertFalse(area.hasContent("/a"));
+            assertEquals(2, area.size());
+            assertEquals(5, area.getSegmentFile().getDeadByteCount());
+        }
+    }
+
+    @Test
+    public void segmentGrowsBeyondInitialCapacity()
+    {
+        try (MappedSegmentArea area = new MappedSegmentArea(this.directory, 16))
+        {
+            // Add more content than the initial mapping can hold:
+            for (int i = 0; i < 1_000; i++)
+            {
+                area.putContent("/" + i, new MappedSegmentContent("Item " + i));
+            }
+
+            // Make sure everything can still be read, including content from before the mapping grew:
+            for (int i = 0; i < 1_000; i++)
+            {
+                assertEquals("Item " + i, area.getContent("/" + i).asString());
+            }
+        }
+    }
+
+    @Test
+    public void compactionKeepsLiveContentAndDeletesOldSegment()
+    {
+        try (MappedSegmentArea area = new MappedSegmentArea(this.directory))
+        {
+            // Compact as soon as half of the segment is dead:
+            area.setCompactionMinDeadBytes(0);
+            area.setCompactionDeadByteRatio(0.5);
+
+            // Add content:
+            for (int i = 0; i < 100; i++)
+            {
+                area.putContent("/" + i, new MappedSegmentContent("Item " + i));
+            }
+            Path firstSegmentPath = area.getSegmentFile().getPath();
+            int firstSegmentSize = area.getSegmentFile().getSize();
+            MappedSegmentContent removedContent = area.getContent("/0");
+
+            // Remove most of the content:
+            for (int i = 0; i < 80; i++)
+            {
+                area.removeContent("/" + i);
+            }
+
+            // Make sure the segment was compacted:
+            assertTrue(area.getCompactionCount() > 0);
+            assertFalse(Files.exists(firstSegmentPath));
+            assertTrue(area.getSegmentFile().getSize() < firstSegmentSize / 2);
+
+            // Make sure the live content survived:
+            for (int i = 80; i < 100; i++)
+            {
+                assertEquals("Item " + i, area.getContent("/" + i).asString());
+            }
+
+            // Content that was removed before the compaction is still readable:
+            assertEquals("Item 0", removedContent.asString());
+        }
+    }
+
+    @Test
+    public void commitKeepsWorkingAreaContentInSegment()
+    {
+        // Fill a working area:
+        MappedSegmentRepoHandler repoHandler = new MappedSegmentRepoHandler(this.directory);
+        try (MappedSegmentArea area = repoHandler.createArea())
+        {
+            for (int i = 0; i < 100; i++)
+            {
+                area.putContent("/" + i, new MappedSegmentContent("Item " + i));
+            }
+            int segmentSize = area.getSegmentFile().getSize();
+
+            // Commit the area:
+            MemoryCommit commit = repoHandler.commit(area, "Items", null);
+
+            // Make sure the working area still reads its content out of the segment instead of holding heap copies:
+            assertEquals(100, area.size());
+            assertEquals(segmentSize, area.getSegmentFile().getSize());
+            for (AreaEntry<MappedSegmentContent> entry : area)
+            {
+                assertTrue(entry.content.isStoredInSegment());
+                assertTrue(entry.content.asByteBuffer().isDirect());
+            }
+
+            // The commit holds its own heap copy of the content:
+            assertEquals("Item 42", new String(commit.getSnapshot().getBytes(RepoPath.at("/42"))));
+        }
+    }
+
+    @Test
+    public void repoIndexKD_SameAsInMemory()
+    {
+        // Create the indexes:
+        XYRepoIndexKD memoryIndex = new XYRepoIndexKD(new XY(-1, -1), new XY(1, 1), 10, 4);
+        RepoIndexKDImplementation<XY, Double, MappedSegmentContent, MappedSegmentArea, MemoryCommit, MappedSegmentRepoHandler> mappedIndex = XYRepoIndexKD.createWithRepo(new MappedSegmentRepoHandler(this.directory), 4, MappedSegmentAreaTests::createXYContent, MappedSegmentAreaTests::readXYFromContent);
+
+        // Add the same items:
+        Random random = new Random(1);
+        for (int i = 0; i < 2_000; i++)
+        {
+            XY item = new XY(random.nextDouble(-1.2, 1.2), random.nextDouble(-1.2, 1.2));
+            memoryIndex.add(item);
+            mappedIndex.add(item);
+        }
+        memoryIndex.index();
+        mappedIndex.index();
+
+        // Make sure the searches give the same results:
+        for (int i = 0; i < 1_000; i++)
+        {
+            XY query = new XY(random.nextDouble(-1.5, 1.5), random.nextDouble(-1.5, 1.5));
+            assertEquals(memoryIndex.searchNearest(query), mappedIndex.searchNearest(query));
+        }
+    }
+
+    @Test
+    public void repoIndexKD_CommitAndOpen()
+    {
+        // Create and commit the index:
+        MappedSegmentRepoHandler repoHandler = new MappedSegmentRepoHandler(this.directory);
+        RepoIndexKDImplementation<XY, Double, MappedSegmentContent, MappedSegmentArea, MemoryCommit, MappedSegmentRepoHandler> index = XYRepoIndexKD.createWithRepo(repoHandler, 4, MappedSegmentAreaTests::createXYContent, MappedSegmentAreaTests::readXYFromContent);
+        Random random = new Random(2);
+        for (int i = 0; i < 500; i++)
+        {
+            index.add(new XY(random.nextDouble(-1, 1), random.nextDouble(-1, 1)));
+        }
+        index.commit("Initial items");
+
+        // Open the index from the repo, which checks out into mapped areas:
+        RepoIndexKDImplementation<XY, Double, MappedSegmentContent, MappedSegmentArea, MemoryCommit, MappedSegmentRepoHandler> openedIndex = XYRepoIndexKD.createWithRepo(new MappedSegmentRepoHandler(this.directory), 4, MappedSegmentAreaTests::createXYContent, MappedSegmentAreaTests::readXYFromContent);
+        openedIndex.open(repoHandler, RepoPath.atRoot());
+        assertEquals(index.toString(), openedIndex.toString());
+    }
+
+    @Test
+    public void repoIndex1D_SameAsInMemory()
+    {
+        // Create the indexes:
+        XRepoIndex1D memoryIndex = new XRepoIndex1D(new X(-1_000), new X(1_000), 100);
+        RepoIndex1DImplementation<X, Integer, Measurer<X, Integer>, Comparator<Integer>, RangeSplitter<X>, RangeFinder<X>, MappedSegmentContent, MappedSegmentArea, MemoryCommit, MappedSegmentRepoHandler> mappedIndex = new RepoIndex1DImplementation<>(
+            new X(-1_000), new X(1_000), 100, X::measureDistance, Integer::compare, X::splitRange, X::findIndexInRange,
+            new MappedSegmentRepoHandler(this.directory), RepoPath.atRoot(),
+            item -> new MappedSegmentContent(Integer.toString(item.x())),
+            content -> new X(Integer.parseInt(content.asString()))
+        );
+
+        // Add the same items:
+        Random random = new Random(3);
+        for (int i = 0; i < 10_000; i++)
+        {
+            X item = new X(random.nextInt(-1_000, 1_000));
+            memoryIndex.add(item);
+            mappedIndex.add(item);
+        }
+
+        // Make sure the searches give the same results:
+        for (int i = 0; i < 1_000; i++)
+        {
+            X query = new X(random.nextInt(-3_000, 3_000));
+            assertEquals(memoryIndex.searchNearest(query), mappedIndex.searchNearest(query));
+        }
+    }
+
+    /**
+     * Creates the content for the given item.
+     *
+     * @param item The item to create content for.
+     * @return The content for the given item.
+     */
+    private static MappedSegmentContent createXYContent(XY item)
+    {
+        return new MappedSegmentContent(item.x() + "|" + item.y());
+    }
+
+    /**
+     * Gets the item from the given content.
+     *
+     * @param content The content to read the item from.
+     * @return The item for the given content.
+     */
+    private static XY readXYFromContent(MappedSegmentContent content)
+    {
+        String[] split = content.asString().split("\\|");
+        return new XY(Double.parseDouble(split[0]), Double.parseDouble(split[1]));
+    }
+}
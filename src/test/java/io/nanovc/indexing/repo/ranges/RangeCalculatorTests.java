@@ -1,13 +1,22 @@
 package io.nanovc.indexing.repo.ranges;
 
 import io.nanovc.indexing.repo.arithmetic.DoubleArithmetic;
+import io.nanovc.indexing.repo.arithmetic.InstantArithmetic;
 import io.nanovc.indexing.repo.arithmetic.IntegerArithmetic;
+import io.nanovc.indexing.repo.arithmetic.LongArithmetic;
 import io.nanovc.indexing.repo.arithmetic.StringArithmetic;
 import org.junit.jupiter.api.Test;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * Tests the {@link RangeCalculator}.
@@ -339,5 +348,274 @@ class RangeCalculatorTests
             rangeCalculator.isInRange(value, range),
             () -> "The value " + value + " " + (expectedToBeInRange ? "was" : "was not") + " " + (expectedToBeInRange ? "in" : "out of") + " " + range + " when it should " + (expectedToBeInRange? "not " : "") + "have been."
         );
+
+        // Make sure the compiled range gives the same answer:
+        assertEquals(
+            expectedToBeInRange,
+            rangeCalculator.compile(range).isInRange(value),
+            () -> "The compiled range " + range + " gave a different answer for the value " + value + "."
+        );
+    }
+
+    @Test
+    public void testCompiledRanges_ArePrimitiveForDoublesAndIntegers()
+    {
+        RangeCalculator<Double> doubleCalculator = new RangeCalculator<>(DoubleArithmetic.instance());
+        RangeCalculator<Integer> integerCalculator = new RangeCalculator<>(IntegerArithmetic.instance());
+        RangeCalculator<String> stringCalculator = new RangeCalculator<>(StringArithmetic.instance());
+
+        assertInstanceOf(DoubleRangePredicate.class, doubleCalculator.compile(new MinInclusiveMaxExclusiveRange<>(0.0, 1.0)));
+        assertInstanceOf(IntRangePredicate.class, integerCalculator.compile(new MinInclusiveMaxExclusiveRange<>(0, 1)));
+        assertTrue(stringCalculator.compile(new MinInclusiveMaxExclusiveRange<>("A", "C")).isInRange("B"));
+    }
+
+    @Test
+    public void testLongRanges()
+    {
+        RangeCalculator<Long> rangeCalculator = new RangeCalculator<>(LongArithmetic.instance());
+
+        // Use values that doubles can't hold exactly:
+        long big = (1L << 60) + 1;
+
+        assertRange(rangeCalculator, false, big - 1, new SingleValueRange<>(big));
+        assertRange(rangeCalculator, true , big    , new SingleValueRange<>(big));
+        assertRange(rangeCalculator, true , big    , new MultiValueRange<>(Set.of(big, 0L)));
+        assertRange(rangeCalculator, false, big + 1, new MultiValueRange<>(Set.of(big, 0L)));
+        assertRange(rangeCalculator, true , big    , new MinInclusiveMaxExclusiveRange<>(big, big + 1));
+        assertRange(rangeCalculator, false, big + 1, new MinInclusiveMaxExclusiveRange<>(big, big + 1));
+        assertRange(rangeCalculator, false, big    , new NotRange<>(new MinInclusiveMaxExclusiveRange<>(big, big + 1)));
+
+        assertInstanceOf(LongRangePredicate.class, rangeCalculator.compile(new MinInclusiveRange<>(big)));
+        assertEquals(big, LongArithmetic.instance().midPoint(big - 1, big + 2));
+        assertEquals(Long.MAX_VALUE - 1, LongArithmetic.instance().midPoint(Long.MAX_VALUE - 2, Long.MAX_VALUE));
+        assertTrue(rangeCalculator.isWithinDistanceOfRange(big + 3, 2L, false, new MinInclusiveMaxInclusiveRange<>(big - 1, big + 1)));
+        assertFalse(rangeCalculator.isWithinDistanceOfRange(big + 4, 2L, false, new MinInclusiveMaxInclusiveRange<>(big - 1, big + 1)));
+    }
+
+    @Test
+    public void testInstantRanges()
+    {
+        RangeCalculator<Instant> rangeCalculator = new RangeCalculator<>(InstantArithmetic.instance());
+        Instant start = Instant.parse("2024-01-01T00:00:00Z");
+        Instant end = Instant.parse("2024-01-02T00:00:00Z");
+
+        assertRange(rangeCalculator, true , start, new MinInclusiveMaxExclusiveRange<>(start, end));
+        assertRange(rangeCalculator, false, start.minusNanos(1), new MinInclusiveMaxExclusiveRange<>(start, end));
+        assertRange(rangeCalculator, true , end.minusNanos(1), new MinInclusiveMaxExclusiveRange<>(start, end));
+        assertRange(rangeCalculator, false, end, new MinInclusiveMaxExclusiveRange<>(start, end));
+        assertRange(rangeCalculator, true , end, new MultiValueRange<>(Set.of(start, end)));
+        assertRange(rangeCalculator, false, end.plusNanos(1), new MultiValueRange<>(Set.of(start, end)));
+        assertRange(rangeCalculator, true , Instant.EPOCH.minusNanos(1), new MaxExclusiveRange<>(Instant.EPOCH));
+
+        // Make sure the arithmetic works on nanoseconds since the epoch:
+        InstantArithmetic arithmetic = InstantArithmetic.instance();
+        assertEquals(Instant.parse("2024-01-01T12:00:00Z"), arithmetic.midPoint(start, end));
+        assertEquals(Instant.ofEpochSecond(86_400), arithmetic.distanceBetween(end, start));
+        assertEquals(start.plusSeconds(1), arithmetic.quantize(start.plusMillis(999), Instant.ofEpochSecond(1)));
+        assertEquals(Instant.EPOCH.minusNanos(1), arithmetic.fromLong(arithmetic.toLong(Instant.EPOCH.minusNanos(1))));
+        assertEquals(24, arithmetic.estimateStepIndex(start, Instant.ofEpochSecond(3_600), end));
+
+        // Make sure the distance to a range is measured in time:
+        assertTrue(rangeCalculator.isWithinDistanceOfRange(end.plusSeconds(60), Instant.ofEpochSecond(60), false, new MinInclusiveMaxInclusiveRange<>(start, end)));
+        assertFalse(rangeCalculator.isWithinDistanceOfRange(end.plusSeconds(61), Instant.ofEpochSecond(60), false, new MinInclusiveMaxInclusiveRange<>(start, end)));
+    }
+
+    @Test
+    public void testRangeSplits_CoverTheWholeRange()
+    {
+        RangeCalculator<Double> rangeCalculator = new RangeCalculator<>(DoubleArithmetic.instance());
+        Random random = new Random(2);
+        for (int divisions : new int[] { 3, 7, 8, 10 })
+        {
+            // Split the range into steps that don't land exactly on the end of the range:
+            List<Range<Double>> splits = new ArrayList<>();
+            rangeCalculator.calculateRangeSplits(new MinInclusiveMaxInclusiveRange<>(-1.0, 1.0), divisions, 0.01, true, true, splits);
+
+            // Make sure every value is in exactly one split:
+            for (int i = 0; i < 1_000; i++)
+            {
+                double value = i == 0 ? 1.0 : random.nextDouble(-1.5, 1.5);
+                assertEquals(1, splits.stream().filter(split -> rangeCalculator.isInRange(value, split)).count(), () -> value + " in " + splits);
+            }
+        }
+    }
+
+    @Test
+    public void testStringArithmetic()
+    {
+        StringArithmetic arithmetic = StringArithmetic.instance();
+        RangeCalculator<String> rangeCalculator = new RangeCalculator<>(arithmetic);
+
+        // Make sure the projection never reverses the order of strings, even for characters outside the alphabet:
+        Random random = new Random(1);
+        for (int i = 0; i < 10_000; i++)
+        {
+            String left = randomString(random);
+            String right = randomString(random);
+            if (left.compareTo(right) < 0) assertTrue(arithmetic.project(left) <= arithmetic.project(right), () -> left + " < " + right);
+            if (left.compareTo(right) > 0) assertTrue(arithmetic.project(left) >= arithmetic.project(right), () -> left + " > " + right);
+            assertEquals(arithmetic.project(left), arithmetic.project(arithmetic.unproject(arithmetic.project(left))));
+        }
+
+        // Make sure midpoints split ranges:
+        String midPoint = rangeCalculator.midPoint(new MinInclusiveMaxExclusiveRange<>("AB12", "AC"));
+        assertTrue("AB12".compareTo(midPoint) < 0 && midPoint.compareTo("AC") < 0, midPoint);
+        assertTrue(rangeCalculator.canSplitRange(new MinInclusiveMaxExclusiveRange<>("AB12", "AC"), midPoint));
+        assertEquals("AB", arithmetic.quantize("AB12", arithmetic.stepForPrefixLength(2)));
+        assertEquals("AC", arithmetic.quantize("ABz", arithmetic.stepForPrefixLength(2)));
+        assertEquals("", arithmetic.distanceBetween("AB12", "AB12"));
+
+        // Make sure the distance to a range is measured in the projection:
+        assertTrue(rangeCalculator.isWithinDistanceOfRange("AD", arithmetic.stepForPrefixLength(2), false, new MinInclusiveMaxInclusiveRange<>("AA", "AC")));
+        assertFalse(rangeCalculator.isWithinDistanceOfRange("AE", arithmetic.stepForPrefixLength(2), false, new MinInclusiveMaxInclusiveRange<>("AA", "AC")));
+
+        // Make sure we can split a range of strings into divisions:
+        List<Range<String>> splits = new ArrayList<>();
+        rangeCalculator.calculateRangeSplits(new MinInclusiveMaxExclusiveRange<>("A", "Z"), 10, arithmetic.stepForPrefixLength(2), true, true, splits);
+        assertTrue(splits.size() >= 10, splits::toString);
+        for (String value : List.of("0", "A", "AB12", "M", "Yzzz", "Z", "zz"))
+        {
+            assertEquals(1, splits.stream().filter(split -> rangeCalculator.isInRange(value, split)).count(), () -> value + " in " + splits);
+        }
+    }
+
+    /**
+     * Creates a random string that mostly uses the default alphabet of the {@link StringArithmetic}.
+     *
+     * @param random The random number generator to use.
+     * @return A random string.
+     */
+    private static String randomString(Random random)
+    {
+        StringBuilder builder = new StringBuilder();
+        int length = random.nextInt(15);
+        for (int i = 0; i < length; i++)
+        {
+            builder.append((char) random.nextInt(' ', 128));
+        }
+        return builder.toString();
+    }
+
+    @Test
+    public void testCompiledRanges_SameAsIsInRange()
+    {
+        RangeCalculator<Double> rangeCalculator = new RangeCalculator<>(DoubleArithmetic.instance());
+
+        // Compare nested ranges with the edge cases of double comparisons:
+        Range<Double> range = new OrRange<>(
+            new AndRange<>(new MinInclusiveMaxExclusiveRange<>(-0.0, 1.0), new NotRange<>(new MultiValueRange<>(Set.of(0.5, 0.75)))),
+            new OrRange<>(new SingleValueRange<>(Double.NaN), new MinExclusiveRange<>(10.0))
+        );
+        DoubleRangePredicate predicate = (DoubleRangePredicate) rangeCalculator.compile(range);
+        for (double value : new double[] { -1.0, -0.0, 0.0, 0.5, 0.6, 0.75, 1.0, 10.0, 11.0, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY })
+        {
+            assertEquals(rangeCalculator.isInRange(value, range), predicate.isInRange(value), "Value " + value);
+        }
+    }
+
+    @Test
+    public void testRangeRelations_SameAsSampledValues()
+    {
+        RangeCalculator<Double> rangeCalculator = new RangeCalculator<>(DoubleArithmetic.instance());
+
+        // Sample the values at quarter steps so that every non-empty range between whole bounds has a sample in it:
+        List<Double> samples = new ArrayList<>();
+        for (double value = -1.0; value <= 16.0; value += 0.25) samples.add(value);
+
+        // Relate random ranges from the full range algebra:
+        Random random = new Random(1);
+        for (int i = 0; i < 2_000; i++)
+        {
+            Range<Double> range = randomRange(random, 3);
+            Range<Double> other = randomRange(random, 3);
+
+            // Work out the relations from the samples:
+            boolean expectedIntersects = false;
+            boolean expectedContains = true;
+            for (Double sample : samples)
+            {
+                boolean isInRange = rangeCalculator.isInRange(sample, range);
+                boolean isInOther = rangeCalculator.isInRange(sample, other);
+                if (isInRange && isInOther) expectedIntersects = true;
+                if (isInOther && !isInRange) expectedContains = false;
+            }
+            assertEquals(expectedIntersects, rangeCalculator.intersects(range, other), range + " intersects " + other);
+            assertEquals(expectedIntersects, rangeCalculator.intersects(other, range), other + " intersects " + range);
+            assertEquals(expectedContains, rangeCalculator.contains(range, other), range + " contains " + other);
+
+            // Make sure the distance is no further than the nearest sample and no nearer than the bound before it:
+            double value = random.nextInt(-4, 45) / 4.0;
+            Double minDistance = rangeCalculator.minDistanceTo(value, range);
+            Double nearestSampleDistance = null;
+            for (Double sample : samples)
+            {
+                if (rangeCalculator.isInRange(sample, range) && (nearestSampleDistance == null || Math.abs(sample - value) < nearestSampleDistance)) nearestSampleDistance = Math.abs(sample - value);
+            }
+            if (nearestSampleDistance == null)
+            {
+                assertEquals(null, minDistance, "Distance to " + range);
+                continue;
+            }
+            assertTrue(minDistance <= nearestSampleDistance && minDistance >= nearestSampleDistance - 0.25, "Distance from " + value + " to " + range + " was " + minDistance);
+            if (rangeCalculator.isInRange(value, range)) assertEquals(0.0, minDistance, "Distance from " + value + " to " + range);
+        }
+    }
+
+    @Test
+    public void testRangeRelations()
+    {
+        RangeCalculator<Integer> rangeCalculator = new RangeCalculator<>(IntegerArithmetic.instance());
+
+        assertTrue(rangeCalculator.intersects(new MinInclusiveMaxExclusiveRange<>(0, 10), new MinInclusiveMaxInclusiveRange<>(9, 20)));
+        assertFalse(rangeCalculator.intersects(new MinInclusiveMaxExclusiveRange<>(0, 10), new MinInclusiveMaxInclusiveRange<>(10, 20)));
+        assertFalse(rangeCalculator.intersects(new NeverInRange<>(), new UnBoundedRange<>()));
+        assertTrue(rangeCalculator.intersects(new NotSingleValueRange<>(5), new MultiValueRange<>(Set.of(5, 6))));
+        assertFalse(rangeCalculator.intersects(new NotMultiValueRange<>(Set.of(5, 6)), new MultiValueRange<>(Set.of(5, 6))));
+
+        assertTrue(rangeCalculator.contains(new UnBoundedRange<>(), new MinInclusiveRange<>(3)));
+        assertTrue(rangeCalculator.contains(new MinInclusiveMaxInclusiveRange<>(0, 10), new MultiValueRange<>(Set.of(0, 10))));
+        assertFalse(rangeCalculator.contains(new MinInclusiveMaxExclusiveRange<>(0, 10), new MultiValueRange<>(Set.of(0, 10))));
+        assertTrue(rangeCalculator.contains(new NotSingleValueRange<>(5), new OrRange<>(new MaxExclusiveRange<>(5), new MinExclusiveRange<>(5))));
+        assertTrue(rangeCalculator.contains(new SingleValueRange<>(5), new NeverInRange<>()));
+
+        assertEquals(0, rangeCalculator.minDistanceTo(5, new MinInclusiveMaxInclusiveRange<>(0, 10)));
+        assertEquals(3, rangeCalculator.minDistanceTo(13, new MinInclusiveMaxInclusiveRange<>(0, 10)));
+        assertEquals(2, rangeCalculator.minDistanceTo(-2, new MinExclusiveRange<>(0)));
+        assertEquals(1, rangeCalculator.minDistanceTo(5, new MultiValueRange<>(Set.of(1, 4, 9))));
+        assertEquals(null, rangeCalculator.minDistanceTo(5, new NeverInRange<>()));
+    }
+
+    /**
+     * Creates a random range from the full range algebra with whole bounds between 0 and 10.
+     *
+     * @param random The random number generator to use.
+     * @param depth  The number of levels of nested ranges that can still be created.
+     * @return A random range.
+     */
+    private static Range<Double> randomRange(Random random, int depth)
+    {
+        double min = random.nextInt(11);
+        double max = random.nextInt(11);
+        int kind = random.nextInt(depth > 0 ? 18 : 15);
+        return switch (kind)
+        {
+            case 0 -> new UnBoundedRange<>();
+            case 1 -> new NeverInRange<>();
+            case 2 -> new SingleValueRange<>(min);
+            case 3 -> new NotSingleValueRange<>(min);
+            case 4 -> new MultiValueRange<>(Set.of(min, min + 2.0, min + 5.0));
+            case 5 -> new NotMultiValueRange<>(Set.of(min, min + 3.0));
+            case 6 -> new MinInclusiveRange<>(min);
+            case 7 -> new MinExclusiveRange<>(min);
+            case 8 -> new MaxInclusiveRange<>(max);
+            case 9 -> new MaxExclusiveRange<>(max);
+            case 10 -> new MinInclusiveMaxInclusiveRange<>(min, max);
+            case 11 -> new MinInclusiveMaxExclusiveRange<>(min, max);
+            case 12 -> new MinExclusiveMaxInclusiveRange<>(min, max);
+            case 13, 14 -> new MinExclusiveMaxExclusiveRange<>(min, max);
+            case 15 -> new NotRange<>(randomRange(random, depth - 1));
+            case 16 -> new OrRange<>(randomRange(random, depth - 1), randomRange(random, depth - 1));
+            default -> new AndRange<>(randomRange(random, depth - 1), randomRange(random, depth - 1));
+        };
     }
 }
@@ -0,0 +1,141 @@
+package io.nanovc.indexing.repo.ranges;
+
+import io.nanovc.indexing.repo.arithmetic.DoubleArithmetic;
+import io.nanovc.indexing.repo.arithmetic.InstantArithmetic;
+import io.nanovc.indexing.repo.arithmetic.IntegerArithmetic;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the {@link RangeSplitLocator}.
+ */
+class RangeSplitLocatorTests
+{
+    @Test
+    public void testDoubleSplits_SameAsLinearScan()
+    {
+        RangeCalculator<Double> rangeCalculator = new RangeCalculator<>(DoubleArithmetic.instance());
+
+        for (int divisions : new int[] { 1, 2, 3, 7, 10, 100, 1_000 })
+        {
+            // Split the range:
+            List<Range<Double>> splits = new ArrayList<>();
+            rangeCalculator.calculateRangeSplits(new MinInclusiveMaxInclusiveRange<>(-1.0, 1.0), divisions, 0.001, true, true, splits);
+
+            // Create the locator:
+            RangeSplitLocator<Double> locator = new RangeSplitLocator<>(splits, rangeCalculator);
+            assertTrue(locator.isSorted());
+            assertTrue(locator.canEstimate());
+
+            // Check the boundaries of every split:
+            for (Range<Double> split : splits)
+            {
+                switch (split)
+                {
+                    case MinInclusiveMaxExclusiveRange<Double> r -> { assertSameAsLinearScan(locator, r.min()); assertSameAsLinearScan(locator, r.max()); }
+                    case MinInclusiveMaxInclusiveRange<Double> r -> { assertSameAsLinearScan(locator, r.min()); assertSameAsLinearScan(locator, r.max()); }
+                    case MaxExclusiveRange<Double> r -> assertSameAsLinearScan(locator, r.max());
+                    case MinExclusiveRange<Double> r -> assertSameAsLinearScan(locator, r.min());
+                    default -> {}
+                }
+            }
+
+            // Check random values inside and outside the range:
+            Random random = new Random(divisions);
+            for (int i = 0; i < 10_000; i++)
+            {
+                assertSameAsLinearScan(locator, random.nextDouble(-3, 3));
+            }
+        }
+    }
+
+    @Test
+    public void testIntegerSplits_SameAsLinearScan()
+    {
+        RangeCalculator<Integer> rangeCalculator = new RangeCalculator<>(IntegerArithmetic.instance());
+
+        for (int divisions : new int[] { 1, 2, 3, 7, 10, 100 })
+        {
+            // Split the range:
+            List<Range<Integer>> splits = new ArrayList<>();
+            rangeCalculator.calculateRangeSplits(new MinInclusiveMaxExclusiveRange<>(-50, 50), divisions, 1, true, true, splits);
+
+            // Create the locator:
+            RangeSplitLocator<Integer> locator = new RangeSplitLocator<>(splits, rangeCalculator);
+            assertTrue(locator.isSorted());
+
+            // Check every value inside and outside the range:
+            for (int value = -100; value <= 100; value++)
+            {
+                assertSameAsLinearScan(locator, value);
+            }
+        }
+    }
+
+    @Test
+    public void testInstantSplits_SameAsLinearScan()
+    {
+        RangeCalculator<Instant> rangeCalculator = new RangeCalculator<>(InstantArithmetic.instance());
+        Instant start = Instant.parse("2024-01-01T00:00:00Z");
+        Instant end = Instant.parse("2024-01-02T00:00:00Z");
+
+        for (int divisions : new int[] { 1, 2, 3, 7, 24, 1_000 })
+        {
+            // Split the day:
+            List<Range<Instant>> splits = new ArrayList<>();
+            rangeCalculator.calculateRangeSplits(new MinInclusiveMaxExclusiveRange<>(start, end), divisions, Instant.ofEpochSecond(1), true, true, splits);
+
+            // Create the locator:
+            RangeSplitLocator<Instant> locator = new RangeSplitLocator<>(splits, rangeCalculator);
+            assertTrue(locator.isSorted());
+            assertTrue(locator.canEstimate());
+
+            // Check random instants inside and outside the day, down to the nanosecond:
+            Random random = new Random(divisions);
+            for (int i = 0; i < 10_000; i++)
+            {
+                assertSameAsLinearScan(locator, start.plusNanos(random.nextLong(-86_400_000_000_000L, 2 * 86_400_000_000_000L)));
+            }
+        }
+    }
+
+    @Test
+    public void testUnsortedSplits_FallsBackToLinearScan()
+    {
+        RangeCalculator<Double> rangeCalculator = new RangeCalculator<>(DoubleArithmetic.instance());
+
+        // Create splits that are not in order:
+        List<Range<Double>> splits = List.of(
+            new MinInclusiveMaxExclusiveRange<>(1.0, 2.0),
+            new MinInclusiveMaxExclusiveRange<>(0.0, 1.0),
+            new SingleValueRange<>(5.0)
+        );
+
+        // Create the locator:
+        RangeSplitLocator<Double> locator = new RangeSplitLocator<>(splits, rangeCalculator);
+        assertFalse(locator.isSorted());
+
+        assertEquals(1, locator.locate(0.5));
+        assertEquals(0, locator.locate(1.5));
+        assertEquals(2, locator.locate(5.0));
+        assertEquals(-1, locator.locate(3.0));
+    }
+
+    /**
+     * Asserts that the locator finds the same split as checking each split in turn.
+     *
+     * @param locator The locator to check.
+     * @param value   The value to locate.
+     * @param <TUnit> The data type of the unit for the dimension.
+     */
+    private static <TUnit> void assertSameAsLinearScan(RangeSplitLocator<TUnit> locator, TUnit value)
+    {
+        assertEquals(locator.locateLinearly(value), locator.locate(value), () -> "Value: " + value + " in splits: " + locator.getSplits());
+    }
+}